@@ -0,0 +1,220 @@
+package com.proyecto.ecommerce.cache;
+
+import com.proyecto.ecommerce.dto.EstadisticasCacheDTO;
+import com.proyecto.ecommerce.event.DatosModificadosEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria de resultados de consultas con TTL, invalidación por etiquetas
+ * y stale-while-revalidate.
+ * <p>
+ * La invalidación no recorre las entradas: cada etiqueta tiene un contador de versión
+ * que se incrementa al invalidarla, y cada entrada guarda las versiones que vio al cargarse.
+ * Si alguna ha cambiado, la entrada pasa a estar obsoleta. Como las versiones se leen
+ * antes de ejecutar la consulta, una escritura que llega durante la carga también la deja obsoleta.
+ * <p>
+ * Las cargas de una misma clave se agrupan: solo un hilo ejecuta la consulta y el resto
+ * espera su resultado.
+ */
+@Component
+public class CacheResultados {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheResultados.class);
+
+    /**
+     * Ejecuta la consulta original.
+     */
+    @FunctionalInterface
+    public interface Cargador {
+        Object cargar() throws Throwable;
+    }
+
+    private record Clave(String nombre, List<Object> argumentos) {
+    }
+
+    private record Entrada(Object valor, long cargadoNanos, long caducaNanos, long[] versiones) {
+    }
+
+    private static final class Contadores {
+        final LongAdder aciertos = new LongAdder();
+        final LongAdder obsoletos = new LongAdder();
+        final LongAdder fallos = new LongAdder();
+        final LongAdder cargas = new LongAdder();
+        final LongAdder errores = new LongAdder();
+    }
+
+    private final ConcurrentHashMap<Clave, Entrada> entradas = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Clave, CompletableFuture<Entrada>> enVuelo = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, AtomicLong> versiones = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    // Recálculos en segundo plano; si se satura, recalcula el propio lector
+    private final ThreadPoolExecutor refresco;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CacheResultados(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        AtomicInteger contador = new AtomicInteger();
+        this.refresco = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(32),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "cache-refresco-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Devuelve el resultado cacheado para el nombre y argumentos indicados, cargándolo si hace falta.
+     *
+     * @param nombre     Nombre de la consulta.
+     * @param argumentos Argumentos de la llamada, que forman parte de la clave.
+     * @param ttlNanos   Tiempo durante el que el resultado es fresco.
+     * @param staleNanos Margen durante el que se sirve obsoleto mientras se recalcula.
+     * @param etiquetas  Etiquetas de las que depende el resultado.
+     * @param cargador   Consulta original.
+     * @return Resultado de la consulta.
+     */
+    public Object obtener(String nombre, Object[] argumentos, long ttlNanos, long staleNanos,
+                          String[] etiquetas, Cargador cargador) throws Throwable {
+        Clave clave = new Clave(nombre, Arrays.asList(argumentos.clone()));
+        Contadores stats = contadores.computeIfAbsent(nombre, n -> new Contadores());
+        Entrada entrada = entradas.get(clave);
+        long ahora = System.nanoTime();
+
+        if (entrada != null) {
+            long edad = ahora - entrada.cargadoNanos();
+            if (edad < ttlNanos && vigente(entrada, etiquetas)) {
+                stats.aciertos.increment();
+                return entrada.valor();
+            }
+            if (edad < ttlNanos + staleNanos) {
+                stats.obsoletos.increment();
+                refrescarEnSegundoPlano(clave, ttlNanos + staleNanos, etiquetas, cargador, stats);
+                return entrada.valor();
+            }
+        }
+
+        stats.fallos.increment();
+        CompletableFuture<Entrada> nuevo = new CompletableFuture<>();
+        CompletableFuture<Entrada> existente = enVuelo.putIfAbsent(clave, nuevo);
+        if (existente == null) {
+            cargar(clave, ttlNanos + staleNanos, etiquetas, cargador, stats, nuevo);
+            existente = nuevo;
+        }
+        try {
+            return existente.join().valor();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Invalida los resultados que dependen de alguna de las etiquetas.
+     * Se siguen sirviendo como obsoletos durante su margen mientras se recalculan.
+     * Además se publica un {@link DatosModificadosEvent} para el resto de datos precalculados.
+     */
+    public void invalidar(String... etiquetas) {
+        for (String etiqueta : etiquetas) {
+            version(etiqueta).incrementAndGet();
+        }
+        log.debug("Caché de resultados invalidada para {}", Arrays.toString(etiquetas));
+        eventPublisher.publishEvent(new DatosModificadosEvent(Set.copyOf(Arrays.asList(etiquetas))));
+    }
+
+    /**
+     * Estadísticas de uso por consulta.
+     */
+    public List<EstadisticasCacheDTO> obtenerEstadisticas() {
+        return contadores.entrySet().stream()
+                .map(e -> {
+                    Contadores c = e.getValue();
+                    long aciertos = c.aciertos.sum();
+                    long obsoletos = c.obsoletos.sum();
+                    long fallos = c.fallos.sum();
+                    long total = aciertos + obsoletos + fallos;
+                    double tasa = total == 0 ? 0.0 : (double) (aciertos + obsoletos) / total;
+                    return new EstadisticasCacheDTO(e.getKey(), aciertos, obsoletos, fallos,
+                            c.cargas.sum(), c.errores.sum(), tasa);
+                })
+                .sorted(Comparator.comparing(EstadisticasCacheDTO::getNombre))
+                .toList();
+    }
+
+    private void refrescarEnSegundoPlano(Clave clave, long vidaNanos, String[] etiquetas,
+                                         Cargador cargador, Contadores stats) {
+        CompletableFuture<Entrada> nuevo = new CompletableFuture<>();
+        if (enVuelo.putIfAbsent(clave, nuevo) != null) {
+            return; // Ya hay un recálculo en marcha
+        }
+        refresco.execute(() -> cargar(clave, vidaNanos, etiquetas, cargador, stats, nuevo));
+    }
+
+    private void cargar(Clave clave, long vidaNanos, String[] etiquetas, Cargador cargador,
+                        Contadores stats, CompletableFuture<Entrada> futuro) {
+        long[] antes = versionesActuales(etiquetas);
+        long inicio = System.nanoTime();
+        try {
+            Object valor = cargador.cargar();
+            Entrada entrada = new Entrada(valor, inicio, inicio + vidaNanos, antes);
+            entradas.put(clave, entrada);
+            stats.cargas.increment();
+            futuro.complete(entrada);
+        } catch (Throwable t) {
+            stats.errores.increment();
+            log.warn("Error recalculando {}", clave.nombre(), t);
+            futuro.completeExceptionally(t);
+        } finally {
+            enVuelo.remove(clave, futuro);
+        }
+    }
+
+    private boolean vigente(Entrada entrada, String[] etiquetas) {
+        return Arrays.equals(entrada.versiones(), versionesActuales(etiquetas));
+    }
+
+    private long[] versionesActuales(String[] etiquetas) {
+        long[] actuales = new long[etiquetas.length];
+        for (int i = 0; i < etiquetas.length; i++) {
+            actuales[i] = version(etiquetas[i]).get();
+        }
+        return actuales;
+    }
+
+    private AtomicLong version(String etiqueta) {
+        return versiones.computeIfAbsent(etiqueta, e -> new AtomicLong());
+    }
+
+    /**
+     * Libera las entradas que ya han superado su margen de obsolescencia.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarCaducadas() {
+        long ahora = System.nanoTime();
+        entradas.values().removeIf(e -> ahora - e.caducaNanos() > 0);
+    }
+
+    @PreDestroy
+    public void detener() {
+        refresco.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package com.proyecto.ecommerce.cache;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica {@link ResultadoCacheado} e {@link InvalidaCache} sobre los métodos de los servicios.
+ */
+@Aspect
+@Component
+public class CacheResultadosAspect {
+
+    @Autowired
+    private CacheResultados cacheResultados;
+
+    @Around("@annotation(cacheado)")
+    public Object cachear(ProceedingJoinPoint joinPoint, ResultadoCacheado cacheado) throws Throwable {
+        String nombre = cacheado.nombre().isEmpty()
+                ? joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName()
+                : cacheado.nombre();
+        return cacheResultados.obtener(nombre, joinPoint.getArgs(),
+                TimeUnit.SECONDS.toNanos(cacheado.ttlSegundos()),
+                TimeUnit.SECONDS.toNanos(cacheado.staleSegundos()),
+                cacheado.etiquetas(), joinPoint::proceed);
+    }
+
+    @AfterReturning("@annotation(invalida)")
+    public void invalidar(InvalidaCache invalida) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Hasta el commit los lectores no ven el cambio; invalidar antes recargaría datos viejos
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheResultados.invalidar(invalida.value());
+                }
+            });
+        } else {
+            cacheResultados.invalidar(invalida.value());
+        }
+    }
+}
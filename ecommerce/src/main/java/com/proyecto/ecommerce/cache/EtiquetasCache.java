@@ -0,0 +1,17 @@
+package com.proyecto.ecommerce.cache;
+
+/**
+ * Etiquetas de dependencia de la caché de resultados.
+ * Una consulta cacheada declara de qué datos depende y las escrituras invalidan por etiqueta.
+ */
+public final class EtiquetasCache {
+
+    /** Pedidos y sus líneas (también los datos de usuario que aparecen en los informes). */
+    public static final String PEDIDOS = "pedidos";
+
+    /** Catálogo de productos: nombres, precios y stock. */
+    public static final String CATALOGO = "catalogo";
+
+    private EtiquetasCache() {
+    }
+}
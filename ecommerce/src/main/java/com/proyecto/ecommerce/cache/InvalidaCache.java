@@ -0,0 +1,17 @@
+package com.proyecto.ecommerce.cache;
+
+import java.lang.annotation.*;
+
+/**
+ * Marca un método de escritura que invalida los resultados cacheados que dependen
+ * de las etiquetas indicadas. Si el método se ejecuta dentro de una transacción,
+ * la invalidación se aplica tras el commit; si lanza una excepción, no se invalida nada.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface InvalidaCache {
+
+    /** Etiquetas a invalidar (ver {@link EtiquetasCache}). */
+    String[] value();
+}
@@ -0,0 +1,32 @@
+package com.proyecto.ecommerce.cache;
+
+import java.lang.annotation.*;
+
+/**
+ * Marca un método de servicio cuyo resultado se guarda en {@link CacheResultados}.
+ * <p>
+ * Mientras el resultado tiene menos de {@link #ttlSegundos()} se sirve directamente. Después,
+ * o en cuanto se invalida una de sus {@link #etiquetas()}, se sigue sirviendo durante
+ * {@link #staleSegundos()} mientras se recalcula en segundo plano. Pasado ese margen,
+ * el siguiente lector espera al recálculo. Las llamadas concurrentes con los mismos
+ * argumentos comparten una única ejecución del método.
+ * <p>
+ * El valor devuelto se comparte entre llamadas, así que no debe modificarse.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResultadoCacheado {
+
+    /** Nombre de la consulta en las estadísticas. Por defecto, Clase.metodo. */
+    String nombre() default "";
+
+    /** Tiempo durante el que el resultado se considera fresco. */
+    long ttlSegundos() default 60;
+
+    /** Margen durante el que se sirve un resultado caducado mientras se recalcula. */
+    long staleSegundos() default 300;
+
+    /** Datos de los que depende el resultado (ver {@link EtiquetasCache}). */
+    String[] etiquetas() default {};
+}
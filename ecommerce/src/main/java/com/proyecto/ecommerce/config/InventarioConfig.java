@@ -0,0 +1,55 @@
+package com.proyecto.ecommerce.config;
+
+import com.proyecto.ecommerce.cache.CacheResultados;
+import com.proyecto.ecommerce.inventario.DiarioInventario;
+import com.proyecto.ecommerce.inventario.InventarioEnMemoria;
+import com.proyecto.ecommerce.inventario.InventarioStock;
+import com.proyecto.ecommerce.inventario.InventarioTabla;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+/**
+ * Elige cómo se lleva el stock vendido según {@code ecommerce.inventario.modo}:
+ * <ul>
+ *     <li>{@code sql} (por defecto): {@link InventarioTabla}, un UPDATE condicional por venta.</li>
+ *     <li>{@code memoria}: {@link InventarioEnMemoria}, contadores en memoria con diario en
+ *     {@code ecommerce.inventario.diario.directorio} y volcado periódico a la tabla. Solo para una
+ *     única instancia de la aplicación.</li>
+ * </ul>
+ */
+@Configuration
+public class InventarioConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "ecommerce.inventario.modo", havingValue = "sql", matchIfMissing = true)
+    public InventarioStock inventarioTabla(ProductoRepository productoRepository) {
+        return new InventarioTabla(productoRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ecommerce.inventario.modo", havingValue = "memoria")
+    public InventarioStock inventarioEnMemoria(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CacheResultados cacheResultados,
+            @Value("${ecommerce.inventario.diario.directorio:inventario-diario}") Path directorio,
+            @Value("${ecommerce.inventario.diario.forzar:true}") boolean forzar,
+            @Value("${ecommerce.inventario.rayas:16}") int rayas) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        InventarioEnMemoria inventario = new InventarioEnMemoria(jdbcTemplate, transaccion,
+                new DiarioInventario(directorio, forzar), cacheResultados, rayas);
+        inventario.crearTabla();
+        inventario.reconciliar();
+        return inventario;
+    }
+}
@@ -0,0 +1,13 @@
+package com.proyecto.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita la ejecución de tareas programadas (@Scheduled),
+ * como la reconstrucción nocturna de los agregados de ventas.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
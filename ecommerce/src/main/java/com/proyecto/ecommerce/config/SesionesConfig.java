@@ -0,0 +1,63 @@
+package com.proyecto.ecommerce.config;
+
+import com.proyecto.ecommerce.sesion.AlmacenSesionesJdbc;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elige dónde se guardan las sesiones HTTP (carrito, atributos flash, token CSRF) según
+ * {@code ecommerce.sesiones.almacen}:
+ * <ul>
+ *     <li>{@code jdbc} (el que fija application.properties): tabla {@code sesion_web} mediante
+ *     {@link AlmacenSesionesJdbc}, compartida por todas las instancias. La tabla se crea al arrancar
+ *     si no existe, salvo con {@code ecommerce.sesiones.jdbc.crear-tabla=false}.</li>
+ *     <li>{@code servlet} (si la propiedad no se indica): la sesión en memoria de Tomcat, propia de
+ *     cada instancia.</li>
+ *     <li>{@code memoria}: un mapa local con la misma mecánica de Spring Session, para desarrollo.</li>
+ * </ul>
+ * Con {@code jdbc} o {@code memoria} la sesión la gestiona el filtro de Spring Session (cookie SESSION).
+ */
+@Configuration
+public class SesionesConfig {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "ecommerce.sesiones.almacen", havingValue = "jdbc")
+    @EnableSpringHttpSession
+    static class SesionesJdbc {
+
+        @Bean
+        public AlmacenSesionesJdbc almacenSesionesJdbc(
+                JdbcTemplate jdbcTemplate,
+                @Value("${server.servlet.session.timeout:30m}") Duration maxInactivo,
+                @Value("${ecommerce.sesiones.jdbc.intervalo-acceso:60s}") Duration intervaloAcceso,
+                @Value("${ecommerce.sesiones.jdbc.crear-tabla:true}") boolean crearTabla) {
+            AlmacenSesionesJdbc almacen = new AlmacenSesionesJdbc(jdbcTemplate, maxInactivo, intervaloAcceso);
+            if (crearTabla) {
+                almacen.crearTabla();
+            }
+            return almacen;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "ecommerce.sesiones.almacen", havingValue = "memoria")
+    @EnableSpringHttpSession
+    static class SesionesMemoria {
+
+        @Bean
+        public MapSessionRepository sessionRepository(
+                @Value("${server.servlet.session.timeout:30m}") Duration maxInactivo) {
+            MapSessionRepository repositorio = new MapSessionRepository(new ConcurrentHashMap<>());
+            repositorio.setDefaultMaxInactiveInterval(maxInactivo);
+            return repositorio;
+        }
+    }
+}
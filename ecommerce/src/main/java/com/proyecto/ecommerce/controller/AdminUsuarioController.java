@@ -5,12 +5,12 @@ import com.proyecto.ecommerce.dto.ProductoCantidadDTO;
 import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.Producto;
 import com.proyecto.ecommerce.entity.Usuario;
+import com.proyecto.ecommerce.security.UsuarioActual;
 import com.proyecto.ecommerce.service.PedidoService;
 import com.proyecto.ecommerce.service.ProductoService;
 import com.proyecto.ecommerce.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -36,6 +36,8 @@ public class AdminUsuarioController {
     private ProductoService productoService;
     @Autowired
     private PedidoService pedidoService;
+    @Autowired
+    private UsuarioActual usuarioActual;
 
     // Gestión de Usuarios
 
@@ -242,8 +244,7 @@ public class AdminUsuarioController {
         Usuario usuario = usuarioService.obtenerUsuarioPorId(pedidoRequest.getUsuarioId());
 
         // Obtenemos al admin autenticado (quien crea el pedido)
-        String usernameAdmin = SecurityContextHolder.getContext().getAuthentication().getName();
-        Usuario admin = usuarioService.obtenerUsuarioPorUsername(usernameAdmin);
+        Usuario admin = usuarioActual.getUsuario();
 
         // Llamamos al método de servicio que crea el pedido, actualiza el stock y guarda las relaciones
         pedidoService.crearPedidoAdmin(pedidoRequest, admin);
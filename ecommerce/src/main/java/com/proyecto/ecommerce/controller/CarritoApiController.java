@@ -0,0 +1,199 @@
+package com.proyecto.ecommerce.controller;
+
+import com.proyecto.ecommerce.dto.CarritoDTO;
+import com.proyecto.ecommerce.dto.OperacionCarritoDTO;
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.ConflictoVersionException;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.security.UsuarioActual;
+import com.proyecto.ecommerce.service.CarritoService;
+import com.proyecto.ecommerce.service.ProductoService;
+import com.proyecto.ecommerce.service.ReservaStockService;
+import com.proyecto.ecommerce.service.VentaFlashService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * API REST del carrito del usuario autenticado, para la SPA y la app móvil.
+ * <p>
+ * Devuelve el carrito compacto (ids y cantidades) con su versión en el cuerpo y en la cabecera ETag.
+ * Las modificaciones llegan en lote con If-Match: se aplican todas o ninguna y, si otra pestaña o
+ * dispositivo cambió el carrito desde esa versión, se responde 412 con el carrito actual en vez de
+ * pisar sus cambios. Es el mismo carrito que ven las páginas de /carrito.
+ */
+@RestController
+@RequestMapping("/api/carrito")
+public class CarritoApiController {
+
+    // Límite de operaciones por lote, para acotar el trabajo de una sola petición
+    private static final int MAX_OPERACIONES = 100;
+
+    private final CarritoService carritoService;
+    private final ProductoService productoService;
+    private final UsuarioActual usuarioActual;
+    private final ReservaStockService reservaStockService;
+    private final VentaFlashService ventaFlashService;
+
+    public CarritoApiController(CarritoService carritoService, ProductoService productoService,
+                                UsuarioActual usuarioActual, ReservaStockService reservaStockService,
+                                VentaFlashService ventaFlashService) {
+        this.carritoService = carritoService;
+        this.productoService = productoService;
+        this.usuarioActual = usuarioActual;
+        this.reservaStockService = reservaStockService;
+        this.ventaFlashService = ventaFlashService;
+    }
+
+    /**
+     * Obtiene el carrito. Con If-None-Match y la versión que ya tiene el cliente se responde 304 sin cuerpo.
+     * @return Carrito con su versión, o 304 si no ha cambiado.
+     */
+    @GetMapping
+    public ResponseEntity<CarritoDTO> obtenerCarrito(WebRequest request) {
+        Carrito carrito = carritoService.cargarCarrito(usuarioActual.getIdUsuario());
+        String etag = etag(carrito);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(CarritoDTO.desde(carrito));
+    }
+
+    /**
+     * Aplica un lote de operaciones sobre la versión indicada en If-Match ({@code "*"} para cualquiera).
+     * @return 200 con el carrito resultante, 412 con el actual si la versión no coincide,
+     * 428 sin If-Match o 400 si alguna operación no es válida (en ambos casos no se aplica ninguna).
+     */
+    @PostMapping
+    public ResponseEntity<?> modificarCarrito(@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestBody List<OperacionCarritoDTO> operaciones) {
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+                    .body("Falta la cabecera If-Match con la versión del carrito.");
+        }
+        Long versionEsperada = versionDe(ifMatch);
+        Map<Integer, Producto> productos = validar(operaciones);
+        Integer idUsuario = usuarioActual.getIdUsuario();
+
+        Carrito carrito;
+        try {
+            String propietario = ReservaStockService.propietarioUsuario(idUsuario);
+            carrito = carritoService.modificarCarrito(idUsuario, versionEsperada,
+                    c -> aplicar(c, propietario, operaciones, productos));
+        } catch (ConflictoVersionException e) {
+            Carrito actual = carritoService.cargarCarrito(idUsuario);
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).eTag(etag(actual)).body(CarritoDTO.desde(actual));
+        }
+        return ResponseEntity.ok().eTag(etag(carrito)).body(CarritoDTO.desde(carrito));
+    }
+
+    /**
+     * Comprueba la forma de las operaciones y carga en una sola consulta los productos que mencionan.
+     */
+    private Map<Integer, Producto> validar(List<OperacionCarritoDTO> operaciones) {
+        if (operaciones == null || operaciones.isEmpty()) {
+            throw new CustomException("El lote de operaciones está vacío.");
+        }
+        if (operaciones.size() > MAX_OPERACIONES) {
+            throw new CustomException("Como máximo " + MAX_OPERACIONES + " operaciones por lote.");
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (OperacionCarritoDTO operacion : operaciones) {
+            if (operacion.tipo() == null) {
+                throw new CustomException("Falta el tipo de operación (PONER, SUMAR, QUITAR o VACIAR).");
+            }
+            if (operacion.tipo() == OperacionCarritoDTO.Tipo.VACIAR) {
+                continue;
+            }
+            if (operacion.idProducto() == null) {
+                throw new CustomException("La operación " + operacion.tipo() + " necesita idProducto.");
+            }
+            boolean necesitaCantidad = operacion.tipo() == OperacionCarritoDTO.Tipo.PONER
+                    || operacion.tipo() == OperacionCarritoDTO.Tipo.SUMAR;
+            if (necesitaCantidad && operacion.cantidad() == null) {
+                throw new CustomException("La operación " + operacion.tipo() + " necesita cantidad.");
+            }
+            if (operacion.tipo() == OperacionCarritoDTO.Tipo.PONER && operacion.cantidad() < 0) {
+                throw new CustomException("La cantidad no puede ser negativa.");
+            }
+            ids.add(operacion.idProducto());
+        }
+
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (Producto producto : productoService.obtenerProductosPorIds(List.copyOf(ids))) {
+            productos.put(producto.getIdProducto(), producto);
+        }
+        for (Integer id : ids) {
+            if (!productos.containsKey(id)) {
+                throw new CustomException("Producto no encontrado con ID: " + id);
+            }
+        }
+        return productos;
+    }
+
+    /**
+     * Aplica las operaciones en orden y ajusta las reservas de stock a las cantidades finales.
+     * Si para algún producto tocado no hay stock disponible se lanza la excepción sin reservar
+     * nada y CarritoService descarta el lote entero. Los productos en venta flash no se reservan:
+     * sus unidades se asignan al completar el pedido, y si ya están agotados se rechaza el lote.
+     */
+    private void aplicar(Carrito carrito, String propietario, List<OperacionCarritoDTO> operaciones,
+                         Map<Integer, Producto> productos) {
+        List<Integer> antes = carrito.getIdsProductos();
+        for (OperacionCarritoDTO operacion : operaciones) {
+            switch (operacion.tipo()) {
+                case PONER -> carrito.poner(operacion.idProducto(), operacion.cantidad());
+                case SUMAR -> carrito.sumar(operacion.idProducto(), operacion.cantidad());
+                case QUITAR -> carrito.quitar(operacion.idProducto());
+                case VACIAR -> carrito.vaciar();
+            }
+        }
+        List<Producto> reservables = new ArrayList<>(productos.size());
+        for (Producto producto : productos.values()) {
+            if (!ventaFlashService.estaActiva(producto.getIdProducto())) {
+                reservables.add(producto);
+            } else if (ventaFlashService.agotado(producto.getIdProducto()) && carrito.cantidad(producto.getIdProducto()) > 0) {
+                throw new CustomException("Producto agotado: " + producto.getNombre());
+            }
+        }
+        reservaStockService.reservar(propietario, carrito, reservables);
+        // Los que ha quitado un VACIAR (u otra operación) sin mencionarlos también se liberan
+        reservaStockService.liberar(propietario,
+                antes.stream().filter(id -> carrito.cantidad(id) == 0).toList());
+    }
+
+    private static String etag(Carrito carrito) {
+        return "\"" + carrito.getVersion() + "\"";
+    }
+
+    /**
+     * Versión de una cabecera If-Match ({@code "7"} o {@code W/"7"}); null para {@code *}.
+     */
+    private static Long versionDe(String ifMatch) {
+        String valor = ifMatch.trim();
+        if ("*".equals(valor)) {
+            return null;
+        }
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new CustomException("If-Match no válido: " + ifMatch);
+        }
+    }
+}
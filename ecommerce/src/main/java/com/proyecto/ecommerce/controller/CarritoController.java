@@ -2,10 +2,19 @@ package com.proyecto.ecommerce.controller;
 
 import com.proyecto.ecommerce.dto.PedidoRequest;
 import com.proyecto.ecommerce.dto.ProductoCantidadDTO;
+import com.proyecto.ecommerce.dto.ResumenCarritoDTO;
+import com.proyecto.ecommerce.entity.Carrito;
 import com.proyecto.ecommerce.entity.CarritoItem;
 import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.security.UsuarioActual;
+import com.proyecto.ecommerce.service.CarritoService;
 import com.proyecto.ecommerce.service.ProductoService;
+import com.proyecto.ecommerce.service.RecomendacionService;
+import com.proyecto.ecommerce.service.ReservaStockService;
+import com.proyecto.ecommerce.service.VentaFlashService;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -14,20 +23,40 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Controller
 @RequestMapping("/carrito")
 public class CarritoController {
 
+    // Carrito de invitado; el de un usuario identificado lo guarda CarritoService
+    private static final String CARRITO = "carrito";
+
     private final ProductoService productoService;
     private final PedidoController pedidoController;
+    private final RecomendacionService recomendacionService;
+    private final CarritoService carritoService;
+    private final UsuarioActual usuarioActual;
+    private final ReservaStockService reservaStockService;
+    private final VentaFlashService ventaFlashService;
 
     public CarritoController(ProductoService productoService,
-                             PedidoController pedidoController) {
+                             PedidoController pedidoController,
+                             RecomendacionService recomendacionService,
+                             CarritoService carritoService,
+                             UsuarioActual usuarioActual,
+                             ReservaStockService reservaStockService,
+                             VentaFlashService ventaFlashService) {
         this.productoService = productoService;
         this.pedidoController = pedidoController;
+        this.recomendacionService = recomendacionService;
+        this.carritoService = carritoService;
+        this.usuarioActual = usuarioActual;
+        this.reservaStockService = reservaStockService;
+        this.ventaFlashService = ventaFlashService;
     }
 
     @PostMapping("/agregar")
@@ -35,31 +64,31 @@ public class CarritoController {
                                    @RequestParam(defaultValue = "1") Integer cantidad,
                                    HttpSession session,
                                    RedirectAttributes redirectAttributes) {
+        if (ventaFlashService.estaActiva(idProducto)) {
+            // En venta flash no se reserva: las unidades se asignan al completar el pedido
+            if (ventaFlashService.agotado(idProducto)) {
+                redirectAttributes.addFlashAttribute("error", "Producto agotado.");
+                return "redirect:/carrito";
+            }
+            modificarCarrito(session, c -> c.sumar(idProducto, cantidad));
+            return "redirect:/carrito";
+        }
         Producto producto = productoService.obtenerProductoPorId(idProducto);
-        List<CarritoItem> carrito = obtenerCarrito(session);
+        Carrito carrito = obtenerCarrito(session);
 
         // Calcular la cantidad total deseada
-        int cantidadActual = carrito.stream()
-                .filter(item -> item.getProducto().getIdProducto().equals(idProducto))
-                .mapToInt(CarritoItem::getCantidad)
-                .sum();
-        int totalDeseado = cantidadActual + cantidad;
-
-        // Verificar si hay suficiente stock
-        if (producto.getStock() < totalDeseado) {
+        int totalDeseado = carrito.cantidad(idProducto) + cantidad;
+
+        // Reservar el stock (descontando lo que otros tienen reservado) antes de tocar el carrito
+        try {
+            reservaStockService.reservar(propietario(session), producto, totalDeseado);
+        } catch (CustomException e) {
             redirectAttributes.addFlashAttribute("error", "No hay suficiente stock disponible para este producto.");
             return "redirect:/carrito";
         }
 
         // Si ya existe el producto en el carrito, se actualiza la cantidad
-        Optional<CarritoItem> itemExistente = carrito.stream()
-                .filter(item -> item.getProducto().getIdProducto().equals(idProducto))
-                .findFirst();
-        if (itemExistente.isPresent()) {
-            itemExistente.get().setCantidad(totalDeseado);
-        } else {
-            carrito.add(new CarritoItem(producto, cantidad));
-        }
+        modificarCarrito(session, c -> c.poner(idProducto, totalDeseado));
 
         return "redirect:/carrito";
     }
@@ -68,33 +97,78 @@ public class CarritoController {
     @PostMapping("/actualizar")
     public String actualizarCarrito(@RequestParam Integer idProducto,
                                     @RequestParam Integer cantidad,
-                                    HttpSession session) {
-        List<CarritoItem> carrito = obtenerCarrito(session);
+                                    HttpSession session,
+                                    RedirectAttributes redirectAttributes) {
+        if (ventaFlashService.agotado(idProducto) && cantidad > 0) {
+            redirectAttributes.addFlashAttribute("error", "Producto agotado.");
+            return "redirect:/carrito";
+        }
+        if (!ventaFlashService.estaActiva(idProducto) && obtenerCarrito(session).cantidad(idProducto) > 0) {
+            try {
+                // La reserva sigue a la nueva cantidad (0 o menos la libera)
+                reservaStockService.reservar(propietario(session),
+                        productoService.obtenerProductoPorId(idProducto), Math.max(cantidad, 0));
+            } catch (CustomException e) {
+                redirectAttributes.addFlashAttribute("error", "No hay suficiente stock disponible para este producto.");
+                return "redirect:/carrito";
+            }
+        }
 
-        carrito.stream()
-                .filter(item -> item.getProducto().getIdProducto().equals(idProducto))
-                .findFirst()
-                .ifPresent(item -> item.setCantidad(cantidad));
+        // Solo se actualizan productos que ya están en el carrito
+        modificarCarrito(session, c -> {
+            if (c.cantidad(idProducto) > 0) {
+                c.poner(idProducto, cantidad);
+            }
+        });
 
         return "redirect:/carrito";
     }
 
     @PostMapping("/eliminar")
     public String eliminarDelCarrito(@RequestParam Integer idProducto, HttpSession session) {
-        List<CarritoItem> carrito = obtenerCarrito(session);
-        carrito.removeIf(item -> item.getProducto().getIdProducto().equals(idProducto));
+        modificarCarrito(session, c -> c.quitar(idProducto));
+        reservaStockService.liberar(propietario(session), List.of(idProducto));
         return "redirect:/carrito";
     }
 
     @PostMapping("/completar")
     public String completarPedido(HttpSession session, Authentication authentication, RedirectAttributes redirectAttributes) {
-        List<CarritoItem> carrito = obtenerCarrito(session);
+        Carrito carrito = obtenerCarrito(session);
+        // Un producto en venta flash agotado se rechaza desde memoria, sin llegar a la base de datos
+        for (Integer idProducto : carrito.getIdsProductos()) {
+            if (ventaFlashService.agotado(idProducto)) {
+                redirectAttributes.addFlashAttribute("error", "Producto agotado.");
+                return "redirect:/carrito";
+            }
+        }
+        Integer idUsuario = usuarioActual.getIdUsuario();
+        // Al ir a pagar el carrito se escribe ya, sin esperar al volcado periódico
+        carritoService.volcarCarrito(idUsuario);
+
+        // Precio y stock actuales de todos los productos en una sola consulta
+        ResumenCarritoDTO resumen = carritoService.resolver(carrito);
+        quitarRetirados(session, resumen);
+        if (resumen.getItems().isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "El carrito está vacío.");
+            return "redirect:/carrito";
+        }
 
-        // Validar stock antes de procesar:
-        for (CarritoItem item : carrito) {
-            if (item.getCantidad() > item.getProducto().getStock()) {
+        // Validar stock antes de procesar: los productos en venta flash obtienen sus unidades del
+        // contador en memoria; en los demás, el propio más el que reservan otros no puede superar el stock
+        String propietario = propietario(session);
+        Map<Integer, Integer> asignadas = new HashMap<>();
+        for (CarritoItem item : resumen.getItems()) {
+            Producto producto = item.getProducto();
+            VentaFlashService.Resultado resultado = ventaFlashService.asignar(producto.getIdProducto(), item.getCantidad());
+            if (resultado == VentaFlashService.Resultado.ASIGNADA) {
+                asignadas.put(producto.getIdProducto(), item.getCantidad());
+                continue;
+            }
+            if (resultado == VentaFlashService.Resultado.AGOTADA
+                    || item.getCantidad() > reservaStockService.disponiblePara(propietario, producto)) {
+                devolver(asignadas, Map.of());
                 redirectAttributes.addFlashAttribute("error", "No hay suficiente stock para el producto: "
-                        + item.getProducto().getNombre());
+                        + producto.getNombre());
                 return "redirect:/carrito";
             }
         }
@@ -105,29 +179,49 @@ public class CarritoController {
         pedidoRequest.setEstado("PENDIENTE");
 
         List<ProductoCantidadDTO> productos = new ArrayList<>();
-        double total = 0;
-        // Recorrer cada item para armar la lista y actualizar el stock
-        for (CarritoItem item : carrito) {
+        Map<Integer, Integer> retiradas = new HashMap<>();
+        // Recorrer cada item para armar la lista y retirar el stock
+        for (CarritoItem item : resumen.getItems()) {
             int cantidad = item.getCantidad();
             Producto producto = item.getProducto();
 
-            // Acumular el total
-            total += producto.getPrecio() * cantidad;
             // Agregar al DTO la cantidad solicitada
             productos.add(new ProductoCantidadDTO(producto.getIdProducto(), cantidad));
 
-            // Actualizar el stock del producto
-            producto.setStock(producto.getStock() - cantidad);
-            productoService.actualizarProducto(producto.getIdProducto(), producto);
+            // Retirar el stock solo si queda (el de venta flash lo descuenta el volcado en lote)
+            if (!asignadas.containsKey(producto.getIdProducto())) {
+                if (!productoService.retirarStock(producto.getIdProducto(), cantidad)) {
+                    devolver(asignadas, retiradas);
+                    redirectAttributes.addFlashAttribute("error", "No hay suficiente stock para el producto: "
+                            + producto.getNombre());
+                    return "redirect:/carrito";
+                }
+                retiradas.put(producto.getIdProducto(), cantidad);
+            }
         }
         pedidoRequest.setProductos(productos);
-        pedidoRequest.setTotal(total);
+        pedidoRequest.setTotal(resumen.getTotal());
 
-        // Crear pedido
-        pedidoController.crearPedido(pedidoRequest);
+        // Crear pedido; si no se crea, el stock retirado vuelve
+        ResponseEntity<?> respuesta;
+        try {
+            respuesta = pedidoController.crearPedido(pedidoRequest);
+        } catch (RuntimeException e) {
+            devolver(asignadas, retiradas);
+            throw e;
+        }
+        if (!respuesta.getStatusCode().is2xxSuccessful()) {
+            // crearPedido responde con el error en lugar de lanzarlo
+            devolver(asignadas, retiradas);
+            redirectAttributes.addFlashAttribute("error", "No se pudo completar el pedido.");
+            return "redirect:/carrito";
+        }
 
-        // Limpiar el carrito
-        session.removeAttribute("carrito");
+        // Quitar lo comprado del carrito, también en la tabla para que no reaparezca en otra sesión
+        modificarCarrito(session, c -> productos.forEach(linea -> c.quitar(linea.getIdProducto())));
+        carritoService.volcarCarrito(idUsuario);
+        // El stock ya está descontado: las reservas pasan a ser el pedido
+        reservaStockService.liberar(propietario, productos.stream().map(ProductoCantidadDTO::getIdProducto).toList());
 
         return "redirect:/pedidos/mios";
     }
@@ -135,47 +229,90 @@ public class CarritoController {
     // Nuevo método para visualizar el carrito (Mi Carrito)
     @GetMapping
     public String verCarrito(HttpSession session, Model model) {
-        List<CarritoItem> carrito = obtenerCarrito(session);
-        model.addAttribute("carrito", carrito);
-        double total = carrito.stream()
-                .mapToDouble(item -> item.getProducto().getPrecio() * item.getCantidad())
-                .sum();
-        int totalItems = carrito.stream()
-                .mapToInt(CarritoItem::getCantidad)
-                .sum();
-        model.addAttribute("total", total);
-        model.addAttribute("totalItems", totalItems);
+        Carrito carrito = obtenerCarrito(session);
+        // Una consulta para todos los productos y una pasada para total, unidades y stock
+        ResumenCarritoDTO resumen = carritoService.resolver(carrito);
+        quitarRetirados(session, resumen);
+        model.addAttribute("carrito", resumen.getItems());
+        model.addAttribute("total", resumen.getTotal());
+        model.addAttribute("totalItems", resumen.getTotalItems());
+        model.addAttribute("pedidoValido", resumen.getValido());
+        model.addAttribute("recomendaciones", recomendacionService.obtenerRecomendacionesCarrito(
+                carrito.getIdsProductos(), 4));
         return "carrito"; // Vista: templates/carrito.html
     }
-    @ModelAttribute("total")
-    public double calcularTotal(HttpSession session) {
-        return obtenerCarrito(session).stream()
-                .mapToDouble(item -> item.getProducto().getPrecio() * item.getCantidad())
-                .sum();
-    }
 
-    @ModelAttribute("totalItems")
-    public int totalItems(HttpSession session) {
-        return obtenerCarrito(session).stream()
-                .mapToInt(CarritoItem::getCantidad)
-                .sum();
+    /**
+     * Carrito de quien hace la petición. El de un usuario identificado lo sirve CarritoService desde
+     * memoria (el mismo que ve /api/carrito); el de un invitado vive en la sesión. La primera vez que
+     * un usuario usa el carrito tras identificarse, el de invitado de la sesión se fusiona con el suyo
+     * y se quita de la sesión, así que tras cerrar sesión se empieza un carrito de invitado vacío.
+     */
+    private Carrito obtenerCarrito(HttpSession session) {
+        if (!usuarioActual.estaAutenticado()) {
+            return carritoInvitado(session);
+        }
+        Integer idUsuario = usuarioActual.getIdUsuario();
+        fusionarInvitado(session, idUsuario);
+        return carritoService.cargarCarrito(idUsuario);
     }
 
-    @ModelAttribute("pedidoValido")
-    public boolean validarPedido(HttpSession session) {
-        return obtenerCarrito(session).stream()
-                .allMatch(item -> item.getCantidad() <= item.getProducto().getStock());
+    /**
+     * Aplica un cambio al carrito de quien hace la petición. Para un usuario lo hace CarritoService
+     * de forma atómica y queda pendiente del próximo volcado a la tabla; para un invitado se vuelve a
+     * fijar el atributo, para que un almacén de sesiones externo sepa que ha cambiado.
+     */
+    private void modificarCarrito(HttpSession session, Consumer<Carrito> cambios) {
+        if (usuarioActual.estaAutenticado()) {
+            Integer idUsuario = usuarioActual.getIdUsuario();
+            fusionarInvitado(session, idUsuario);
+            carritoService.modificarCarrito(idUsuario, null, cambios);
+            return;
+        }
+        Carrito carrito = carritoInvitado(session);
+        cambios.accept(carrito);
+        session.setAttribute(CARRITO, carrito);
     }
 
-    private List<CarritoItem> obtenerCarrito(HttpSession session) {
-        List<CarritoItem> carrito = (List<CarritoItem>) session.getAttribute("carrito");
-        if (carrito == null) {
-            carrito = new ArrayList<>();
-            session.setAttribute("carrito", carrito);
+    private void fusionarInvitado(HttpSession session, Integer idUsuario) {
+        if (session.getAttribute(CARRITO) instanceof Carrito invitado) {
+            session.removeAttribute(CARRITO);
+            if (!invitado.estaVacio()) {
+                carritoService.modificarCarrito(idUsuario, null, c -> c.fusionar(invitado));
+                reservaStockService.transferir(ReservaStockService.propietarioSesion(session.getId()),
+                        ReservaStockService.propietarioUsuario(idUsuario), invitado.getIdsProductos());
+            }
         }
-        return carrito;
     }
 
+    // Stock de un pedido que no se llega a crear: unidades de venta flash asignadas y stock retirado
+    private void devolver(Map<Integer, Integer> asignadas, Map<Integer, Integer> retiradas) {
+        asignadas.forEach(ventaFlashService::devolver);
+        retiradas.forEach((idProducto, cantidad) -> productoService.descontarStock(idProducto, -cantidad));
+    }
 
+    // Los productos que ya no existen se quitan también del carrito guardado
+    private void quitarRetirados(HttpSession session, ResumenCarritoDTO resumen) {
+        if (!resumen.getProductosRetirados().isEmpty()) {
+            modificarCarrito(session, c -> resumen.getProductosRetirados().forEach(c::quitar));
+            reservaStockService.liberar(propietario(session), resumen.getProductosRetirados());
+        }
+    }
 
-}
\ No newline at end of file
+    // Dueño de las reservas de stock: el usuario identificado o, para un invitado, su sesión
+    private String propietario(HttpSession session) {
+        return usuarioActual.estaAutenticado()
+                ? ReservaStockService.propietarioUsuario(usuarioActual.getIdUsuario())
+                : ReservaStockService.propietarioSesion(session.getId());
+    }
+
+    private Carrito carritoInvitado(HttpSession session) {
+        // Un atributo de otro tipo (p. ej. la lista de entidades de versiones anteriores) se descarta
+        if (session.getAttribute(CARRITO) instanceof Carrito carrito) {
+            return carrito;
+        }
+        Carrito carrito = new Carrito();
+        session.setAttribute(CARRITO, carrito);
+        return carrito;
+    }
+}
@@ -1,15 +1,44 @@
 package com.proyecto.ecommerce.controller;
 
+import com.proyecto.ecommerce.security.CacheAutenticacionJwt;
+import com.proyecto.ecommerce.security.DatosToken;
+import com.proyecto.ecommerce.security.RevocacionTokens;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import static com.proyecto.ecommerce.security.TokenJwtConfig.HEADER_AUTHORIZATION;
+import static com.proyecto.ecommerce.security.TokenJwtConfig.PREFIX_TOKEN;
+
 @Controller
 public class LogoutController {
 
+    @Autowired
+    private CacheAutenticacionJwt cacheAutenticacionJwt;
+
+    @Autowired
+    private RevocacionTokens revocacionTokens;
+
     @GetMapping("/logout")
-    public String logout(HttpServletResponse response) {
+    public String logout(HttpServletRequest request, HttpServletResponse response) {
+        // Revocamos el token para que deje de valer aunque alguien haya guardado una copia
+        String token = obtenerToken(request);
+        if (token != null) {
+            try {
+                Authentication autenticacion = cacheAutenticacionJwt.obtenerAutenticacion(token);
+                if (autenticacion != null && autenticacion.getDetails() instanceof DatosToken datos) {
+                    revocacionTokens.revocarToken(autenticacion.getName(), datos);
+                }
+            } catch (JwtException e) {
+                // Token inválido o caducado: no hay nada que revocar
+            }
+        }
+
         // Crear una cookie con el mismo nombre y maxAge=0 para eliminarla
         Cookie cookie = new Cookie("JWT_TOKEN", null);
         cookie.setPath("/");
@@ -18,4 +47,19 @@ public class LogoutController {
         response.addCookie(cookie);
         return "redirect:/"; // Redirige al index
     }
-}
\ No newline at end of file
+
+    private String obtenerToken(HttpServletRequest request) {
+        String header = request.getHeader(HEADER_AUTHORIZATION);
+        if (header != null && header.startsWith(PREFIX_TOKEN)) {
+            return header.substring(PREFIX_TOKEN.length()).trim();
+        }
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("JWT_TOKEN".equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,26 +1,39 @@
 package com.proyecto.ecommerce.controller;
 
+import com.proyecto.ecommerce.dto.FormatoExportacion;
+import com.proyecto.ecommerce.dto.PanelAdminDTO;
 import com.proyecto.ecommerce.dto.PedidoRequest;
 import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
 import com.proyecto.ecommerce.entity.Usuario;
 import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.security.AutorizacionPedidos;
+import com.proyecto.ecommerce.security.UsuarioActual;
+import com.proyecto.ecommerce.service.ExportacionPedidosService;
+import com.proyecto.ecommerce.service.PanelAdminService;
 import com.proyecto.ecommerce.service.PedidoProductoService;
 import com.proyecto.ecommerce.service.PedidoService;
 import com.proyecto.ecommerce.service.ProductoService;
 import com.proyecto.ecommerce.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.ui.Model;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Controlador REST para la gestión de pedidos.
@@ -34,14 +47,24 @@ public class PedidoController {
     private final UsuarioService usuarioService;
     private final ProductoService productoService;
     private final PedidoProductoService pedidoProductoService;
+    private final ExportacionPedidosService exportacionPedidosService;
+    private final UsuarioActual usuarioActual;
+    private final AutorizacionPedidos autorizacionPedidos;
+    private final PanelAdminService panelAdminService;
 
     @Autowired
     public PedidoController(PedidoService pedidoService, UsuarioService usuarioService,
-                            ProductoService productoService, PedidoProductoService pedidoProductoService) {
+                            ProductoService productoService, PedidoProductoService pedidoProductoService,
+                            ExportacionPedidosService exportacionPedidosService, UsuarioActual usuarioActual,
+                            AutorizacionPedidos autorizacionPedidos, PanelAdminService panelAdminService) {
         this.pedidoService = pedidoService;
         this.usuarioService = usuarioService;
         this.productoService = productoService;
         this.pedidoProductoService = pedidoProductoService;
+        this.exportacionPedidosService = exportacionPedidosService;
+        this.usuarioActual = usuarioActual;
+        this.autorizacionPedidos = autorizacionPedidos;
+        this.panelAdminService = panelAdminService;
     }
 
     /**
@@ -53,6 +76,47 @@ public class PedidoController {
         return pedidoService.listarPedidos();
     }
 
+    /**
+     * Exporta una fila plana por línea de pedido entre dos fechas (pedido, fecha, usuario, producto,
+     * cantidad, precio unitario y total de la línea). Las filas se envían a medida que se leen,
+     * así que la memoria no crece con el tamaño de la exportación.
+     * Solo accesible por administradores.
+     *
+     * @param desde   Fecha inicial (incluida).
+     * @param hasta   Fecha final (incluida).
+     * @param formato csv o ndjson (por defecto csv).
+     * @param gzip    Si es true, el fichero se comprime con gzip.
+     * @return Fichero de exportación en streaming.
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarLineas(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        FormatoExportacion formatoExportacion = FormatoExportacion.desde(formato);
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("La fecha 'desde' no puede ser posterior a 'hasta'.");
+        }
+        String nombre = "pedidos-" + desde + "-" + hasta + "." + formatoExportacion.getExtension() + (gzip ? ".gz" : "");
+
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                // Cerrar el gzip libera su Deflater también si la exportación falla; la salida la cierra el contenedor
+                try (GZIPOutputStream comprimido = new GZIPOutputStream(StreamUtils.nonClosing(salida), 64 * 1024)) {
+                    exportacionPedidosService.exportarLineas(desde, hasta, formatoExportacion, comprimido);
+                }
+            } else {
+                exportacionPedidosService.exportarLineas(desde, hasta, formatoExportacion, salida);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip")
+                        : MediaType.parseMediaType(formatoExportacion.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(nombre).build().toString())
+                .body(cuerpo);
+    }
+
     /**
      * Crea un nuevo pedido. Verifica datos como fecha, total y estado
      * según las validaciones definidas en el servicio.
@@ -63,34 +127,10 @@ public class PedidoController {
     public ResponseEntity<?> crearPedido(@RequestBody PedidoRequest pedidoRequest) {
         try {
             //  Obtener el usuario autenticado
-            String username = SecurityContextHolder.getContext().getAuthentication().getName();
-            Usuario usuario = usuarioService.obtenerUsuarioPorUsername(username);
-
-            //  Crear un nuevo pedido
-            Pedido pedido = new Pedido();
-            pedido.setFecha(pedidoRequest.getFecha());
-            pedido.setTotal(pedidoRequest.getTotal());
-            pedido.setEstado(pedidoRequest.getEstado());
-            pedido.setUsuario(usuario);
+            Usuario usuario = usuarioActual.getUsuario();
 
-            // Guardar el pedido en la base de datos
-            Pedido pedidoGuardado = pedidoService.crearPedido(pedido);
-
-            //  Asociar productos al pedido en la tabla intermedia
-            List<PedidoProducto> pedidoProductos = pedidoRequest.getProductos().stream().map(productoDTO -> {
-                Producto producto = productoService.obtenerProductoPorId(productoDTO.getIdProducto());
-
-                // Crear la relación en PedidoProducto
-                PedidoProducto pedidoProducto = new PedidoProducto();
-                pedidoProducto.setPedido(pedidoGuardado);
-                pedidoProducto.setProducto(producto);
-                pedidoProducto.setCantidad(productoDTO.getCantidad());
-
-                return pedidoProducto;
-            }).toList();
-
-            // Guardar la relación en la base de datos
-            pedidoProductos.forEach(pedidoProductoService::crear);
+            //  Crear el pedido y sus productos en una única transacción
+            Pedido pedidoGuardado = pedidoService.registrarPedido(pedidoRequest, usuario);
 
             return ResponseEntity.status(HttpStatus.CREATED).body(pedidoGuardado);
 
@@ -114,20 +154,14 @@ public class PedidoController {
                         .body("No estás autenticado. Por favor, inicia sesión para ver los pedidos.");
             }
 
-            // Obtener el pedido desde la base de datos
-            Pedido pedido = pedidoService.obtenerPedidoPorId(idPedido);
-            if (pedido == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body("Pedido no encontrado.");
-            }
-
-            // Verificar que el usuario autenticado es el dueño del pedido o es ADMIN
-            if (!pedido.getUsuario().getUsername().equals(authUsername) && !esAdmin()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body("No tienes permiso para ver los pedidos de otro usuario.");
-            }
-
-            return ResponseEntity.ok(pedido);
+            // Obtener el pedido si el usuario autenticado es el dueño o es ADMIN (el filtro va en la consulta)
+            return autorizacionPedidos.buscarPedido(idPedido)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> autorizacionPedidos.existePedido(idPedido)
+                            ? ResponseEntity.status(HttpStatus.FORBIDDEN)
+                                    .body("No tienes permiso para ver los pedidos de otro usuario.")
+                            : ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                    .body("Pedido no encontrado."));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Ocurrió un error: " + e.getMessage());
@@ -169,6 +203,7 @@ public class PedidoController {
 
     /**
      * Obtener el total gastado por un usuario solo para admins.
+     * Se sirve desde la instantánea del panel de administración.
      */
     @GetMapping("/usuario/{username}/total-gastado")
     public ResponseEntity<?> obtenerTotalGastado(@PathVariable String username) {
@@ -177,7 +212,12 @@ public class PedidoController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body("No tienes permiso para ver esta información.");
         }
-        return ResponseEntity.ok(pedidoService.obtenerTotalGastadoPorUsuario(username));
+        double totalGastado = panelAdminService.obtenerPanel().gastoPorUsuario().stream()
+                .filter(gasto -> gasto.nombre().equals(username))
+                .mapToDouble(gasto -> gasto.valor().doubleValue())
+                .findFirst()
+                .orElse(0.0); // 0 si no tiene pedidos
+        return ResponseEntity.ok(totalGastado);
     }
 
     /**
@@ -191,8 +231,7 @@ public class PedidoController {
         Pedido pedido = pedidoService.obtenerPedidoPorId(id);
 
         // Validar que el usuario sea dueño del pedido o admin
-        String username = authentication.getName();
-        if (!pedido.getUsuario().getUsername().equals(username) && !esAdmin2(authentication)) {
+        if (!usuarioActual.esPropietario(pedido.getUsuario().getIdUsuario()) && !esAdmin2(authentication)) {
             throw new CustomException("No tienes permiso para ver este pedido");
         }
 
@@ -242,7 +281,7 @@ public class PedidoController {
 
     /**
      * Endpoint para obtener la cantidad total de pedidos realizados por cada usuario.
-     * Solo accesible por administradores.
+     * Solo accesible por administradores; se sirve desde la instantánea del panel de administración.
      * @return Lista con el username y la cantidad total de pedidos realizados.
      */
     @GetMapping("/cantidad-pedidos")
@@ -253,7 +292,7 @@ public class PedidoController {
                     .body("No tienes permiso para ver esta información.");
         }
 
-        return ResponseEntity.ok(pedidoService.contarPedidosPorUsuario());
+        return ResponseEntity.ok(PanelAdminDTO.Valor.aFilas(panelAdminService.obtenerPanel().pedidosPorUsuario()));
     }
 
     /**
@@ -265,19 +304,11 @@ public class PedidoController {
      */
     @GetMapping("/usuario/id/{idUsuario}")
     public ResponseEntity<?> obtenerPedidosPorIdUsuario(@PathVariable Integer idUsuario) {
-        // Obtener el usuario autenticado
-        String authUsername = obtenerUsuarioAutenticado();
-
-        // Obtener el usuario buscado por ID
-        Usuario usuarioBuscado = usuarioService.obtenerUsuarioPorId(idUsuario);
-
         // Validar permisos: el usuario autenticado solo puede ver sus propios pedidos o ser ADMIN
-        if (!authUsername.equals(usuarioBuscado.getUsername()) && !esAdmin()) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body("No tienes permiso para ver los pedidos de este usuario.");
-        }
-
-        return ResponseEntity.ok(pedidoService.listarPedidosPorIdUsuario(idUsuario));
+        return autorizacionPedidos.listarPedidosDeUsuario(idUsuario)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body("No tienes permiso para ver los pedidos de este usuario."));
     }
 
 
@@ -285,26 +316,7 @@ public class PedidoController {
      * Método de utilidad para obtener el usuario autenticado.
      */
     private String obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            System.out.println(" No hay autenticación en el contexto.");
-            return null;
-        }
-
-        Object principal = authentication.getPrincipal();
-
-        if (principal instanceof UserDetails) {
-            String username = ((UserDetails) principal).getUsername();
-            System.out.println(" Usuario autenticado en SecurityContextHolder: " + username);
-            return username;
-        } else if (principal instanceof String) {
-            System.out.println(" Usuario autenticado (String) en SecurityContextHolder: " + principal);
-            return (String) principal;
-        }
-
-        System.out.println("No se encontró usuario autenticado en SecurityContextHolder.");
-        return null;
+        return usuarioActual.estaAutenticado() ? usuarioActual.getUsername() : null;
     }
     /**
      * Elimina todos los pedidos de un usuario.
@@ -368,7 +380,7 @@ public class PedidoController {
             }
 
             // Verificar que el usuario autenticado es el dueño del pedido o tiene rol ADMIN
-            if (!pedidoExistente.getUsuario().getUsername().equals(authUsername) && !esAdmin()) {
+            if (!usuarioActual.esPropietario(pedidoExistente.getUsuario().getIdUsuario()) && !esAdmin()) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body("No tienes permiso para actualizar el pedido de otro usuario.");
             }
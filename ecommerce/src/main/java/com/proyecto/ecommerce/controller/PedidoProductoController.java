@@ -3,16 +3,16 @@ package com.proyecto.ecommerce.controller;
 import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.security.AutorizacionPedidos;
+import com.proyecto.ecommerce.security.UsuarioActual;
 import com.proyecto.ecommerce.service.PedidoProductoService;
 import com.proyecto.ecommerce.service.PedidoService;
 import com.proyecto.ecommerce.service.ProductoService;
-import com.proyecto.ecommerce.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -30,11 +30,16 @@ public class PedidoProductoController {
     private final PedidoProductoService pedidoProductoService;
     private final PedidoService pedidoService;
     private final  ProductoService productoService;
+    private final UsuarioActual usuarioActual;
+    private final AutorizacionPedidos autorizacionPedidos;
     @Autowired
-    public PedidoProductoController(PedidoProductoService pedidoProductoService, PedidoService pedidoService, ProductoService productoService) {
+    public PedidoProductoController(PedidoProductoService pedidoProductoService, PedidoService pedidoService, ProductoService productoService,
+                                    UsuarioActual usuarioActual, AutorizacionPedidos autorizacionPedidos) {
         this.pedidoProductoService = pedidoProductoService;
         this.pedidoService = pedidoService;
         this.productoService =  productoService;
+        this.usuarioActual = usuarioActual;
+        this.autorizacionPedidos = autorizacionPedidos;
     }
 
 
@@ -74,9 +79,6 @@ public class PedidoProductoController {
     @PostMapping
     public ResponseEntity<?> crear(@RequestBody PedidoProducto pedidoProducto) {
         try {
-            //  Obtener el usuario autenticado
-            String usernameAutenticado = SecurityContextHolder.getContext().getAuthentication().getName();
-
             //  Obtener el pedido desde la base de datos
             Pedido pedido = pedidoService.obtenerPedidoPorId(pedidoProducto.getPedido().getIdPedido());
             if (pedido == null) {
@@ -84,7 +86,7 @@ public class PedidoProductoController {
             }
 
             //  Verificar si el usuario autenticado es el dueño del pedido
-            if (!pedido.getUsuario().getUsername().equals(usernameAutenticado)) {
+            if (!usuarioActual.esPropietario(pedido.getUsuario().getIdUsuario())) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(" No tienes permisos para modificar este pedido.");
             }
 
@@ -195,27 +197,10 @@ public class PedidoProductoController {
                     .body("Debes estar autenticado para ver los productos de un pedido.");
         }
 
-        // Obtener el pedido de la base de datos
-        Pedido pedido = pedidoService.obtenerPedidoPorId(idPedido);
-
-        // Si el pedido no existe, devolver error
-        if (pedido == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pedido no encontrado.");
-        }
-
-        // Si el usuario es ADMIN, puede ver todos los pedidos
-        if (esAdmin()) {
-            return ResponseEntity.ok(pedidoProductoService.listarPorPedido(idPedido));
-        }
-
-        // Si el usuario autenticado es dueño del pedido, permitir el acceso
-        if (pedido.getUsuario().getUsername().equals(usernameAutenticado)) {
-            return ResponseEntity.ok(pedidoProductoService.listarPorPedido(idPedido));
-        }
-
-        // Si no es admin ni dueño del pedido, bloquear acceso
-        return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                .body("No tienes permisos para ver este pedido.");
+        // Un ADMIN ve cualquier pedido; el resto solo los suyos (el filtro va en la consulta)
+        return autorizacionPedidos.listarLineas(idPedido)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> noVisible(idPedido, "No tienes permisos para ver este pedido."));
     }
 
     /**
@@ -246,27 +231,10 @@ public class PedidoProductoController {
             @RequestParam Integer idPedido,
             @RequestParam Integer idProducto) {
 
-        // Obtener el usuario autenticado
-        String usernameAutenticado = SecurityContextHolder.getContext().getAuthentication().getName();
-
-        // Verificar si el usuario autenticado es ADMIN
-        boolean esAdmin = esAdmin();
-
-        // Obtener el pedido desde la base de datos
-        Pedido pedido = pedidoService.obtenerPedidoPorId(idPedido);
-        if (pedido == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pedido no encontrado.");
-        }
-
-        // Verificar si el usuario autenticado es el dueño del pedido o es admin
-        if (!esAdmin && !pedido.getUsuario().getUsername().equals(usernameAutenticado)) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body("No tienes permisos para ver la relación de este pedido.");
-        }
-
-        // Obtener la relación del pedido con el producto
-        List<PedidoProducto> relaciones = pedidoProductoService.obtenerRelacionPedidoProducto(idPedido, idProducto);
-        return ResponseEntity.ok(relaciones);
+        // Obtener la relación del pedido con el producto si el usuario es el dueño del pedido o es admin
+        return autorizacionPedidos.buscarRelacion(idPedido, idProducto)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> noVisible(idPedido, "No tienes permisos para ver la relación de este pedido."));
     }
 
 
@@ -281,30 +249,21 @@ public class PedidoProductoController {
                 .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
     }
 
+    /**
+     * Respuesta cuando la consulta filtrada por propietario no devuelve el pedido:
+     * 403 si existe (es de otro usuario) o 404 si no existe.
+     */
+    private ResponseEntity<?> noVisible(Integer idPedido, String mensajeProhibido) {
+        return autorizacionPedidos.existePedido(idPedido)
+                ? ResponseEntity.status(HttpStatus.FORBIDDEN).body(mensajeProhibido)
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).body("Pedido no encontrado.");
+    }
+
     /**
      * Método de utilidad para obtener el usuario autenticado.
      */
     private String obtenerUsuarioAutenticado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            System.out.println(" No hay autenticación en el contexto.");
-            return null;
-        }
-
-        Object principal = authentication.getPrincipal();
-
-        if (principal instanceof UserDetails) {
-            String username = ((UserDetails) principal).getUsername();
-            System.out.println(" Usuario autenticado en SecurityContextHolder: " + username);
-            return username;
-        } else if (principal instanceof String) {
-            System.out.println(" Usuario autenticado (String) en SecurityContextHolder: " + principal);
-            return (String) principal;
-        }
-
-        System.out.println("No se encontró usuario autenticado en SecurityContextHolder.");
-        return null;
+        return usuarioActual.estaAutenticado() ? usuarioActual.getUsername() : null;
     }
 
 }
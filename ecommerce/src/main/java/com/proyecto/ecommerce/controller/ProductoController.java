@@ -1,7 +1,15 @@
 package com.proyecto.ecommerce.controller;
 
+import com.proyecto.ecommerce.dto.CompradoresUnicosDTO;
+import com.proyecto.ecommerce.dto.EstadoVentaFlashDTO;
+import com.proyecto.ecommerce.dto.PanelAdminDTO;
+import com.proyecto.ecommerce.dto.RecomendacionDTO;
 import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.service.CompradoresUnicosService;
+import com.proyecto.ecommerce.service.PanelAdminService;
 import com.proyecto.ecommerce.service.ProductoService;
+import com.proyecto.ecommerce.service.RecomendacionService;
+import com.proyecto.ecommerce.service.VentaFlashService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +18,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
 import java.util.List;
 
 /**
@@ -23,6 +32,18 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private CompradoresUnicosService compradoresUnicosService;
+
+    @Autowired
+    private RecomendacionService recomendacionService;
+
+    @Autowired
+    private VentaFlashService ventaFlashService;
+
+    @Autowired
+    private PanelAdminService panelAdminService;
+
     /**
      * Obtiene la lista completa de productos disponibles.
      * Cualquier usuario, autenticado o no, puede acceder.
@@ -50,6 +71,19 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Obtiene los productos que más se compran junto al indicado.
+     * Cualquier usuario puede consultarlos; se sirven desde memoria.
+     * @param idProducto ID del producto.
+     * @param limite     Número máximo de recomendaciones (por defecto 5).
+     * @return Lista de productos recomendados, de más a menos frecuente.
+     */
+    @GetMapping("/{idProducto}/recomendaciones")
+    public ResponseEntity<List<RecomendacionDTO>> obtenerRecomendaciones(@PathVariable Integer idProducto,
+                                                                         @RequestParam(defaultValue = "5") int limite) {
+        return ResponseEntity.ok(recomendacionService.obtenerRecomendaciones(idProducto, limite));
+    }
+
     /**
      * Crea un nuevo producto en la base de datos.
      * Solo los administradores pueden realizar esta acción.
@@ -108,24 +142,103 @@ public class ProductoController {
         }
     }
 
+    /**
+     * Pone un producto en venta flash: a partir de ahora sus unidades se asignan en memoria
+     * y el stock se descuenta en lote. Solo administradores.
+     * La venta queda activa únicamente en la instancia que atiende esta petición.
+     * @param idProducto ID del producto.
+     * @return Estado de la venta flash o error si no tiene permisos o el producto no existe.
+     */
+    @PostMapping("/{idProducto}/venta-flash")
+    public ResponseEntity<?> activarVentaFlash(@PathVariable Integer idProducto) {
+        if (!esAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No tienes permisos para gestionar ventas flash.");
+        }
+
+        try {
+            return ResponseEntity.ok(ventaFlashService.activar(idProducto));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Producto no encontrado.");
+        }
+    }
+
+    /**
+     * Termina la venta flash de un producto y descuenta del stock lo vendido pendiente. Solo administradores.
+     * @param idProducto ID del producto.
+     * @return Estado final de la venta flash o error si no tiene permisos.
+     */
+    @DeleteMapping("/{idProducto}/venta-flash")
+    public ResponseEntity<?> desactivarVentaFlash(@PathVariable Integer idProducto) {
+        if (!esAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No tienes permisos para gestionar ventas flash.");
+        }
+
+        return ResponseEntity.ok(ventaFlashService.desactivar(idProducto));
+    }
+
+    /**
+     * Obtiene el estado de la venta flash de un producto (unidades restantes, asignadas y rechazadas).
+     * Cualquier usuario puede consultarlo; se sirve desde memoria.
+     * @param idProducto ID del producto.
+     * @return Estado de la venta flash; inactiva si el producto no está en venta flash.
+     */
+    @GetMapping("/{idProducto}/venta-flash")
+    public ResponseEntity<EstadoVentaFlashDTO> obtenerVentaFlash(@PathVariable Integer idProducto) {
+        return ResponseEntity.ok(ventaFlashService.obtenerEstado(idProducto));
+    }
+
     /**
      * Obtiene la lista de productos más vendidos en la tienda.
-     * Disponible para todos los usuarios.
+     * Disponible para todos los usuarios; se sirve desde la instantánea del panel de administración.
      * @return Lista con productos más vendidos.
      */
     @GetMapping("/mas-vendidos")
     public ResponseEntity<List<Object[]>> obtenerProductosMasVendidos() {
-        return ResponseEntity.ok(productoService.obtenerProductosMasVendidos());
+        return ResponseEntity.ok(PanelAdminDTO.Valor.aFilas(panelAdminService.obtenerPanel().masVendidos()));
+    }
+
+    /**
+     * Obtiene los productos con stock por debajo del umbral configurado
+     * ({@code ecommerce.panel-admin.stock-bajo}).
+     * Solo administradores; se sirve desde la instantánea del panel de administración.
+     * @return Lista de productos con poco stock o error si no tiene permisos.
+     */
+    @GetMapping("/stock-bajo")
+    public ResponseEntity<?> obtenerProductosStockBajo() {
+        if (!esAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("No tienes permisos para ver el stock bajo.");
+        }
+
+        return ResponseEntity.ok(panelAdminService.obtenerPanel().stockBajo());
+    }
+
+    /**
+     * Estima los compradores distintos de cada producto (o de uno concreto) entre dos meses,
+     * junto con su error estándar y un intervalo de confianza del 95 %.
+     * Solo accesible por administradores.
+     * @param desde Mes inicial en formato yyyy-MM (por defecto, el mes actual).
+     * @param hasta Mes final en formato yyyy-MM (por defecto, el mes actual).
+     * @param producto ID del producto; si se omite se devuelven todos.
+     * @return Lista de estimaciones ordenada de mayor a menor.
+     */
+    @GetMapping("/compradores-unicos")
+    public ResponseEntity<List<CompradoresUnicosDTO>> obtenerCompradoresUnicos(
+            @RequestParam(required = false) YearMonth desde,
+            @RequestParam(required = false) YearMonth hasta,
+            @RequestParam(required = false) Integer producto) {
+        YearMonth fin = hasta != null ? hasta : YearMonth.now();
+        YearMonth inicio = desde != null ? desde : fin;
+        return ResponseEntity.ok(compradoresUnicosService.obtenerCompradoresUnicos(inicio, fin, producto));
     }
 
     /**
      * Obtiene los productos más vendidos en el último mes.
-     * Disponible para todos los usuarios.
+     * Disponible para todos los usuarios; se sirve desde la instantánea del panel de administración.
      * @return Lista con productos más vendidos en el último mes.
      */
     @GetMapping("/mas-vendidos-ultimo-mes")
     public ResponseEntity<List<Object[]>> obtenerProductosMasVendidosUltimoMes() {
-        return ResponseEntity.ok(productoService.obtenerProductosMasVendidosUltimoMes());
+        return ResponseEntity.ok(PanelAdminDTO.Valor.aFilas(panelAdminService.obtenerPanel().masVendidosUltimoMes()));
     }
 
     /**
@@ -2,11 +2,17 @@ package com.proyecto.ecommerce.controller;
 
 import com.proyecto.ecommerce.entity.Producto;
 import com.proyecto.ecommerce.service.ProductoService;
+import com.proyecto.ecommerce.service.RecomendacionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Controller
 public class ProductoWebController {
@@ -14,10 +20,28 @@ public class ProductoWebController {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private RecomendacionService recomendacionService;
+
     @GetMapping("/productos")
     public String listarProductosWeb(Model model) {
         List<Producto> productos = productoService.listarProductos();
         model.addAttribute("productos", productos);
+
+        // Recomendaciones "se compran juntos": los IDs salen de memoria y los productos de la lista ya cargada
+        Map<Integer, Producto> porId = productos.stream()
+                .collect(Collectors.toMap(Producto::getIdProducto, Function.identity()));
+        Map<Integer, List<Producto>> recomendaciones = new HashMap<>();
+        for (Producto producto : productos) {
+            List<Producto> recomendados = recomendacionService.obtenerIdsRecomendados(producto.getIdProducto(), 3).stream()
+                    .map(porId::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (!recomendados.isEmpty()) {
+                recomendaciones.put(producto.getIdProducto(), recomendados);
+            }
+        }
+        model.addAttribute("recomendaciones", recomendaciones);
         return "productos"; // Se renderiza la plantilla: src/main/resources/templates/productos.html
     }
 }
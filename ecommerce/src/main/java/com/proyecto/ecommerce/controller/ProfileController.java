@@ -1,7 +1,7 @@
 package com.proyecto.ecommerce.controller;
 
 import com.proyecto.ecommerce.entity.Usuario;
-import com.proyecto.ecommerce.service.UsuarioService;
+import com.proyecto.ecommerce.security.UsuarioActual;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -12,7 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 public class ProfileController {
 
     @Autowired
-    private UsuarioService usuarioService;
+    private UsuarioActual usuarioActual;
 
     @GetMapping("/profile")
     public String profile(Model model, Authentication authentication) {
@@ -22,10 +22,9 @@ public class ProfileController {
     }
 
     @GetMapping("/perfil/datos")
-    public String misDatos(Model model, Authentication authentication) {
-        String username = authentication.getName();
+    public String misDatos(Model model) {
         // Consultamos la información completa del usuario desde la base de datos
-        Usuario usuario = usuarioService.obtenerUsuarioPorUsername(username);
+        Usuario usuario = usuarioActual.getUsuario();
         model.addAttribute("usuario", usuario);
         return "perfil-datos"; // Retorna la vista: src/main/resources/templates/perfil-datos.html
     }
@@ -2,7 +2,6 @@ package com.proyecto.ecommerce.controller;
 
 import com.proyecto.ecommerce.entity.Usuario;
 import com.proyecto.ecommerce.exception.CustomException;
-import com.proyecto.ecommerce.security.TokenUtil;
 import com.proyecto.ecommerce.service.UsuarioService;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
@@ -0,0 +1,316 @@
+package com.proyecto.ecommerce.controller;
+
+import com.proyecto.ecommerce.cache.CacheResultados;
+import com.proyecto.ecommerce.dto.CohorteDTO;
+import com.proyecto.ecommerce.dto.DistribucionValorPedidoDTO;
+import com.proyecto.ecommerce.dto.EstadisticasCacheDTO;
+import com.proyecto.ecommerce.dto.EstadisticasHashDTO;
+import com.proyecto.ecommerce.dto.PanelAdminDTO;
+import com.proyecto.ecommerce.dto.TipoReporte;
+import com.proyecto.ecommerce.dto.TrabajoReporteDTO;
+import com.proyecto.ecommerce.dto.VentaPeriodoDTO;
+import com.proyecto.ecommerce.entity.Granularidad;
+import com.proyecto.ecommerce.entity.SegmentoCliente;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.security.CacheAutenticacionJwt;
+import com.proyecto.ecommerce.security.CacheDetallesUsuario;
+import com.proyecto.ecommerce.security.CodificadorContrasenas;
+import com.proyecto.ecommerce.service.CompradoresUnicosService;
+import com.proyecto.ecommerce.service.CuboVentasService;
+import com.proyecto.ecommerce.service.DistribucionPedidosService;
+import com.proyecto.ecommerce.service.PanelAdminService;
+import com.proyecto.ecommerce.service.ReporteTrabajoService;
+import com.proyecto.ecommerce.service.RetencionCohortesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controlador REST para los informes del panel de administración.
+ * Los datos se sirven desde agregados precalculados, no desde las tablas de pedidos.
+ */
+@RestController
+@RequestMapping("/api/reportes")
+public class ReporteController {
+
+    @Autowired
+    private CuboVentasService cuboVentasService;
+
+    @Autowired
+    private CompradoresUnicosService compradoresUnicosService;
+
+    @Autowired
+    private DistribucionPedidosService distribucionPedidosService;
+
+    @Autowired
+    private RetencionCohortesService retencionCohortesService;
+
+    @Autowired
+    private ReporteTrabajoService reporteTrabajoService;
+
+    @Autowired
+    private CacheResultados cacheResultados;
+
+    @Autowired
+    private CacheAutenticacionJwt cacheAutenticacionJwt;
+
+    @Autowired
+    private CacheDetallesUsuario cacheDetallesUsuario;
+
+    @Autowired
+    private PanelAdminService panelAdminService;
+
+    @Autowired
+    private CodificadorContrasenas codificadorContrasenas;
+
+    /**
+     * Obtiene la instantánea precalculada de los paneles de administración.
+     * Se sirve desde memoria; la cabecera ETag lleva la versión, así que un cliente que envíe
+     * If-None-Match con la versión que ya tiene recibe un 304 sin cuerpo.
+     * Solo accesible por administradores.
+     * @return Instantánea del panel, o 304 si no ha cambiado.
+     */
+    @GetMapping("/panel")
+    public ResponseEntity<PanelAdminDTO> obtenerPanel(WebRequest request) {
+        PanelAdminDTO panel = panelAdminService.obtenerPanel();
+        String etag = "\"" + panel.version() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(panel);
+    }
+
+    /**
+     * Fuerza el recálculo inmediato de los paneles de administración.
+     * Solo accesible por administradores.
+     * @return Instantánea resultante.
+     */
+    @PostMapping("/panel/recalcular")
+    public ResponseEntity<PanelAdminDTO> recalcularPanel() {
+        PanelAdminDTO panel = panelAdminService.recalcular();
+        return ResponseEntity.ok().eTag("\"" + panel.version() + "\"").body(panel);
+    }
+
+    /**
+     * Obtiene la serie temporal de unidades e ingresos.
+     * Solo accesible por administradores.
+     *
+     * @param granularidad dia, semana o mes (por defecto dia).
+     * @param desde        Fecha inicial (por defecto, 30 días antes de 'hasta').
+     * @param hasta        Fecha final (por defecto, hoy).
+     * @param producto     ID del producto; si se omite se devuelve el total de la tienda.
+     * @return Lista con las ventas de cada periodo.
+     */
+    @GetMapping("/ventas")
+    public ResponseEntity<List<VentaPeriodoDTO>> obtenerVentas(
+            @RequestParam(defaultValue = "dia") String granularidad,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer producto) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(30);
+        return ResponseEntity.ok(cuboVentasService.obtenerVentas(Granularidad.desde(granularidad), inicio, fin, producto));
+    }
+
+    /**
+     * Lanza la reconstrucción completa del cubo de ventas desde los pedidos.
+     * Solo accesible por administradores.
+     * @return Mensaje de confirmación.
+     */
+    @PostMapping("/ventas/reconstruir")
+    public ResponseEntity<?> reconstruirVentas() {
+        cuboVentasService.reconstruir();
+        return ResponseEntity.ok("Cubo de ventas reconstruido con éxito.");
+    }
+
+    /**
+     * Reconstruye los sketches de compradores distintos a partir del histórico de pedidos.
+     * Solo accesible por administradores.
+     * @return Mensaje de confirmación.
+     */
+    @PostMapping("/compradores-unicos/reconstruir")
+    public ResponseEntity<?> reconstruirCompradoresUnicos() {
+        compradoresUnicosService.reconstruir();
+        return ResponseEntity.ok("Sketches de compradores reconstruidos con éxito.");
+    }
+
+    /**
+     * Obtiene los percentiles p50/p90/p99 del total de los pedidos por día y del rango completo.
+     * Solo accesible por administradores.
+     *
+     * @param desde    Fecha inicial (por defecto, 30 días antes de 'hasta').
+     * @param hasta    Fecha final (por defecto, hoy).
+     * @param segmento todos, nuevo, ocasional o frecuente (por defecto todos).
+     * @return Distribución del valor de los pedidos.
+     */
+    @GetMapping("/valor-pedido")
+    public ResponseEntity<DistribucionValorPedidoDTO> obtenerDistribucionValorPedido(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "todos") String segmento) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(30);
+        return ResponseEntity.ok(distribucionPedidosService.obtenerDistribucion(inicio, fin, SegmentoCliente.desde(segmento)));
+    }
+
+    /**
+     * Reconstruye los digest del valor de los pedidos a partir del histórico.
+     * Solo accesible por administradores.
+     * @return Mensaje de confirmación.
+     */
+    @PostMapping("/valor-pedido/reconstruir")
+    public ResponseEntity<?> reconstruirDistribucionValorPedido() {
+        distribucionPedidosService.reconstruir();
+        return ResponseEntity.ok("Distribución del valor de los pedidos reconstruida con éxito.");
+    }
+
+    /**
+     * Obtiene la retención mensual por cohortes: clientes por mes de su primer pedido
+     * y qué parte volvió a pedir en cada mes posterior.
+     * Solo accesible por administradores.
+     *
+     * @param desde Primer mes de cohorte en formato yyyy-MM (por defecto, 11 meses antes de 'hasta').
+     * @param hasta Último mes en formato yyyy-MM (por defecto, el mes actual).
+     * @return Lista de cohortes en orden cronológico.
+     */
+    @GetMapping("/retencion")
+    public ResponseEntity<List<CohorteDTO>> obtenerRetencion(
+            @RequestParam(required = false) YearMonth desde,
+            @RequestParam(required = false) YearMonth hasta) {
+        YearMonth fin = hasta != null ? hasta : YearMonth.now();
+        YearMonth inicio = desde != null ? desde : fin.minusMonths(11);
+        return ResponseEntity.ok(retencionCohortesService.obtenerRetencion(inicio, fin));
+    }
+
+    /**
+     * Reconstruye los bitmaps mensuales de clientes a partir del histórico de pedidos.
+     * Solo accesible por administradores.
+     * @return Mensaje de confirmación.
+     */
+    @PostMapping("/retencion/reconstruir")
+    public ResponseEntity<?> reconstruirRetencion() {
+        retencionCohortesService.reconstruir();
+        return ResponseEntity.ok("Bitmaps de clientes reconstruidos con éxito.");
+    }
+
+    /**
+     * Encola un informe pesado para ejecutarlo en segundo plano.
+     * Solo accesible por administradores.
+     *
+     * @param tipo mas-vendidos, mas-vendidos-ultimo-mes, mas-caros-comprados, pedidos-con-productos,
+     *             cantidad-productos-vendidos o cantidad-pedidos.
+     * @return 202 con el estado del trabajo y su URL en la cabecera Location,
+     *         o 429 si se supera el límite de trabajos simultáneos.
+     */
+    @PostMapping("/trabajos")
+    public ResponseEntity<TrabajoReporteDTO> enviarTrabajo(@RequestParam String tipo, Authentication authentication) {
+        TrabajoReporteDTO trabajo = reporteTrabajoService.enviar(TipoReporte.desde(tipo), authentication.getName());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reportes/trabajos/" + trabajo.getId()))
+                .body(trabajo);
+    }
+
+    /**
+     * Lista los trabajos de informe del usuario autenticado.
+     * @return Lista de trabajos, del más reciente al más antiguo.
+     */
+    @GetMapping("/trabajos")
+    public ResponseEntity<List<TrabajoReporteDTO>> listarTrabajos(Authentication authentication) {
+        return ResponseEntity.ok(reporteTrabajoService.listarTrabajos(authentication.getName()));
+    }
+
+    /**
+     * Consulta el estado de un trabajo de informe.
+     * @param id ID del trabajo.
+     * @return Estado del trabajo, o 404 si no existe.
+     */
+    @GetMapping("/trabajos/{id}")
+    public ResponseEntity<?> obtenerTrabajo(@PathVariable String id, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(reporteTrabajoService.obtenerEstado(id, authentication.getName()));
+        } catch (CustomException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Descarga el resultado en JSON de un trabajo completado. El fichero se envía en streaming.
+     * @param id ID del trabajo.
+     * @return Fichero del informe, o 409 si todavía no está completado.
+     */
+    @GetMapping("/trabajos/{id}/resultado")
+    public ResponseEntity<?> descargarResultado(@PathVariable String id, Authentication authentication) {
+        TrabajoReporteDTO trabajo;
+        try {
+            trabajo = reporteTrabajoService.obtenerEstado(id, authentication.getName());
+        } catch (CustomException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        if (trabajo.getEstado() != TrabajoReporteDTO.Estado.COMPLETADO) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("El informe no está completado (estado: " + trabajo.getEstado() + ").");
+        }
+        Path fichero = reporteTrabajoService.obtenerResultado(id, authentication.getName());
+        Resource recurso = new FileSystemResource(fichero);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(trabajo.getTipo().getCodigo() + "-" + id + ".json").build().toString())
+                .body(recurso);
+    }
+
+    /**
+     * Cancela un trabajo pendiente o en curso.
+     * @param id ID del trabajo.
+     * @return Estado del trabajo tras la cancelación, o 404 si no existe.
+     */
+    @DeleteMapping("/trabajos/{id}")
+    public ResponseEntity<?> cancelarTrabajo(@PathVariable String id, Authentication authentication) {
+        try {
+            return ResponseEntity.ok(reporteTrabajoService.cancelar(id, authentication.getName()));
+        } catch (CustomException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Estadísticas de la caché de resultados de las consultas analíticas
+     * y de las cachés de autenticación: tokens JWT verificados (entrada "jwt")
+     * y detalles de usuario para el login (entrada "usuarios").
+     * Solo accesible por administradores.
+     * @return Aciertos, lecturas obsoletas, fallos y recálculos de cada caché.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<List<EstadisticasCacheDTO>> obtenerEstadisticasCache() {
+        List<EstadisticasCacheDTO> estadisticas = new ArrayList<>(cacheResultados.obtenerEstadisticas());
+        estadisticas.add(cacheAutenticacionJwt.obtenerEstadisticas());
+        estadisticas.add(cacheDetallesUsuario.obtenerEstadisticas());
+        return ResponseEntity.ok(estadisticas);
+    }
+
+    /**
+     * Métricas del pool de hashing de contraseñas: coste BCrypt, profundidad de la cola,
+     * rechazos y latencias. Solo accesible por administradores.
+     * @return Estado actual y acumulados del pool.
+     */
+    @GetMapping("/hash-contrasenas")
+    public ResponseEntity<EstadisticasHashDTO> obtenerEstadisticasHash() {
+        return ResponseEntity.ok(codificadorContrasenas.obtenerEstadisticas());
+    }
+}
@@ -0,0 +1,27 @@
+package com.proyecto.ecommerce.dto;
+
+import com.proyecto.ecommerce.entity.Carrito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Carrito de la API en formato compacto: solo ids y cantidades, sin datos de producto.
+ *
+ * @param version       Versión del carrito; sirve de ETag y se envía en If-Match para modificarlo.
+ * @param lineas        Líneas en el orden en que se añadieron.
+ * @param totalUnidades Suma de las cantidades.
+ */
+public record CarritoDTO(long version, List<Linea> lineas, int totalUnidades) {
+
+    public record Linea(int idProducto, int cantidad) {
+    }
+
+    public static CarritoDTO desde(Carrito carrito) {
+        List<Linea> lineas = new ArrayList<>(carrito.getLineas());
+        for (int i = 0; i < carrito.getLineas(); i++) {
+            lineas.add(new Linea(carrito.idProductoEn(i), carrito.cantidadEn(i)));
+        }
+        return new CarritoDTO(carrito.getVersion(), lineas, carrito.getTotalUnidades());
+    }
+}
@@ -0,0 +1,29 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * DTO con la retención de una cohorte: los clientes cuyo primer pedido fue en un mes
+ * y cuántos de ellos volvieron a pedir en cada mes posterior.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CohorteDTO {
+
+    private YearMonth mes;
+
+    // Clientes que hicieron su primer pedido en el mes
+    private Long clientes;
+
+    // Clientes de la cohorte con algún pedido 1, 2, 3... meses después
+    private List<Long> recurrentes;
+
+    // recurrentes / clientes para cada mes posterior
+    private List<Double> retencion;
+}
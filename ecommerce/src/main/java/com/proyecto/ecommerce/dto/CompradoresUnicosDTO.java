@@ -0,0 +1,30 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con la estimación de compradores distintos de un producto en un rango de meses.
+ * Los límites corresponden a un intervalo de confianza de aproximadamente el 95 %
+ * (dos errores estándar).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompradoresUnicosDTO {
+
+    private Integer idProducto;
+
+    private String nombre;
+
+    // Número estimado de compradores distintos
+    private Long estimacion;
+
+    // Error estándar relativo del estimador (por ejemplo 0.016 = 1,6 %)
+    private Double errorEstandar;
+
+    private Long limiteInferior;
+
+    private Long limiteSuperior;
+}
@@ -0,0 +1,25 @@
+package com.proyecto.ecommerce.dto;
+
+import com.proyecto.ecommerce.entity.SegmentoCliente;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO con la distribución del valor de los pedidos de un segmento:
+ * percentiles de cada día y del rango completo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistribucionValorPedidoDTO {
+
+    private SegmentoCliente segmento;
+
+    // Percentiles de todo el rango (combinando los digest diarios)
+    private PercentilesDTO rango;
+
+    private List<PercentilesDTO> dias;
+}
@@ -0,0 +1,32 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con las estadísticas de uso de una consulta cacheada.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasCacheDTO {
+
+    private String nombre;
+
+    // Lecturas servidas con un resultado fresco
+    private Long aciertos;
+
+    // Lecturas servidas con un resultado obsoleto mientras se recalculaba
+    private Long obsoletos;
+
+    // Lecturas que tuvieron que esperar a la consulta
+    private Long fallos;
+
+    // Ejecuciones reales de la consulta
+    private Long cargas;
+
+    private Long errores;
+
+    private Double tasaAciertos;
+}
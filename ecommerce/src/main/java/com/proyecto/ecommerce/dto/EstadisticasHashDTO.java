@@ -0,0 +1,37 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con las métricas del pool que calcula los hashes BCrypt de las contraseñas.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasHashDTO {
+
+    // Factor de coste con el que se generan los hashes nuevos
+    private Integer coste;
+
+    private Integer hilos;
+
+    // Hashes en curso y esperando en la cola en este momento
+    private Integer activos;
+    private Integer enCola;
+    private Integer capacidadCola;
+
+    private Long completados;
+
+    // Peticiones rechazadas con 429 por tener la cola llena o esperar demasiado
+    private Long rechazados;
+
+    // Contraseñas rehasheadas al iniciar sesión por tener un coste antiguo
+    private Long rehasheados;
+
+    // Tiempo medio en cola y de cálculo del hash, y el máximo de este último
+    private Double esperaMediaMs;
+    private Double hashMedioMs;
+    private Double hashMaximoMs;
+}
@@ -0,0 +1,19 @@
+package com.proyecto.ecommerce.dto;
+
+/**
+ * Estado de la venta flash de un producto.
+ *
+ * @param idProducto       Producto en venta flash.
+ * @param activa           Si la asignación se hace en memoria (false si no hay venta flash).
+ * @param restantes        Unidades que aún se pueden asignar.
+ * @param pendientesVolcar Unidades asignadas aún no descontadas del stock en la base de datos.
+ * @param asignadas        Intentos de compra que obtuvieron unidades desde que se activó.
+ * @param rechazadas       Intentos rechazados por estar agotado desde que se activó.
+ */
+public record EstadoVentaFlashDTO(int idProducto,
+                                  boolean activa,
+                                  int restantes,
+                                  int pendientesVolcar,
+                                  long asignadas,
+                                  long rechazadas) {
+}
@@ -0,0 +1,40 @@
+package com.proyecto.ecommerce.dto;
+
+import com.proyecto.ecommerce.exception.CustomException;
+
+/**
+ * Formatos de exportación de las líneas de pedido.
+ */
+public enum FormatoExportacion {
+    CSV("csv", "text/csv"),
+    NDJSON("ndjson", "application/x-ndjson");
+
+    private final String extension;
+    private final String contentType;
+
+    FormatoExportacion(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Busca el formato a partir de su nombre (csv o ndjson).
+     * @throws CustomException si el formato no existe.
+     */
+    public static FormatoExportacion desde(String valor) {
+        for (FormatoExportacion formato : values()) {
+            if (formato.extension.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new CustomException("Formato de exportación no válido: " + valor + ". Usa csv o ndjson.");
+    }
+}
@@ -0,0 +1,16 @@
+package com.proyecto.ecommerce.dto;
+
+/**
+ * Una modificación del carrito dentro de un lote de POST /api/carrito.
+ *
+ * @param tipo       PONER (fija la cantidad; 0 quita la línea), SUMAR (suma o resta unidades),
+ *                   QUITAR o VACIAR.
+ * @param idProducto Producto afectado; no se usa con VACIAR.
+ * @param cantidad   Cantidad para PONER o unidades para SUMAR.
+ */
+public record OperacionCarritoDTO(Tipo tipo, Integer idProducto, Integer cantidad) {
+
+    public enum Tipo {
+        PONER, SUMAR, QUITAR, VACIAR
+    }
+}
@@ -0,0 +1,74 @@
+package com.proyecto.ecommerce.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Instantánea inmutable de todos los paneles del área de administración.
+ * Se publica entera al recalcularse, de modo que los lectores nunca ven paneles de
+ * momentos distintos. La versión solo cambia cuando cambia el contenido.
+ *
+ * @param version              Versión del contenido; sirve de ETag.
+ * @param generado             Momento en que se calculó este contenido.
+ * @param totalPedidos         Número total de pedidos.
+ * @param ingresosTotales      Suma del total de todos los pedidos.
+ * @param pedidosPorUsuario    Número de pedidos de cada usuario.
+ * @param gastoPorUsuario      Total gastado por cada usuario, de mayor a menor.
+ * @param masVendidos          Productos vendidos, de más a menos unidades.
+ * @param masVendidosUltimoMes Productos vendidos en el último mes, de más a menos unidades.
+ * @param stockBajo            Productos con stock por debajo del umbral configurado.
+ */
+public record PanelAdminDTO(long version,
+                            Instant generado,
+                            long totalPedidos,
+                            double ingresosTotales,
+                            List<Valor> pedidosPorUsuario,
+                            List<Valor> gastoPorUsuario,
+                            List<Valor> masVendidos,
+                            List<Valor> masVendidosUltimoMes,
+                            List<ProductoStock> stockBajo) {
+
+    public static final PanelAdminDTO VACIO = new PanelAdminDTO(0, Instant.EPOCH, 0, 0.0,
+            List.of(), List.of(), List.of(), List.of(), List.of());
+
+    public PanelAdminDTO {
+        pedidosPorUsuario = List.copyOf(pedidosPorUsuario);
+        gastoPorUsuario = List.copyOf(gastoPorUsuario);
+        masVendidos = List.copyOf(masVendidos);
+        masVendidosUltimoMes = List.copyOf(masVendidosUltimoMes);
+        stockBajo = List.copyOf(stockBajo);
+    }
+
+    /**
+     * Indica si los paneles tienen los mismos datos que los de otra instantánea,
+     * sin tener en cuenta la versión ni el momento de cálculo.
+     */
+    public boolean mismoContenido(PanelAdminDTO otro) {
+        return totalPedidos == otro.totalPedidos
+                && Double.compare(ingresosTotales, otro.ingresosTotales) == 0
+                && pedidosPorUsuario.equals(otro.pedidosPorUsuario)
+                && gastoPorUsuario.equals(otro.gastoPorUsuario)
+                && masVendidos.equals(otro.masVendidos)
+                && masVendidosUltimoMes.equals(otro.masVendidosUltimoMes)
+                && stockBajo.equals(otro.stockBajo);
+    }
+
+    /**
+     * Fila de un panel: un nombre (usuario o producto) y su valor.
+     */
+    public record Valor(String nombre, Number valor) {
+
+        /**
+         * Fila [nombre, valor], con la misma forma que devuelven las consultas de agregación.
+         */
+        public static List<Object[]> aFilas(List<Valor> valores) {
+            return valores.stream().map(v -> new Object[]{v.nombre(), v.valor()}).toList();
+        }
+    }
+
+    /**
+     * Producto con poco stock.
+     */
+    public record ProductoStock(Integer idProducto, String nombre, Integer stock) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con los percentiles del valor de los pedidos de un día (o de todo el rango si fecha es null).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PercentilesDTO {
+
+    private LocalDate fecha;
+
+    private Long pedidos;
+
+    private Double p50;
+
+    private Double p90;
+
+    private Double p99;
+}
@@ -0,0 +1,25 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO con un producto que se suele comprar junto con otro.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecomendacionDTO {
+
+    private Integer idProducto;
+
+    private String nombre;
+
+    private Double precio;
+
+    private Integer stock;
+
+    // Número de pedidos en los que aparecen juntos
+    private Integer vecesJuntos;
+}
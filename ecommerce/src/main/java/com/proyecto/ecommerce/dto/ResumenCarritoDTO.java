@@ -0,0 +1,30 @@
+package com.proyecto.ecommerce.dto;
+
+import com.proyecto.ecommerce.entity.CarritoItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO con el carrito resuelto contra los precios y el stock actuales, calculado en una sola pasada.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenCarritoDTO {
+
+    // Líneas con el producto actual, en el orden en que se añadieron
+    private List<CarritoItem> items;
+
+    private Double total;
+
+    private Integer totalItems;
+
+    // true si todas las líneas tienen stock suficiente
+    private Boolean valido;
+
+    // Productos que estaban en el carrito pero ya no existen (se quitan del carrito al resolverlo)
+    private List<Integer> productosRetirados;
+}
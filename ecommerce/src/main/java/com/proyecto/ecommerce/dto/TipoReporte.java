@@ -0,0 +1,39 @@
+package com.proyecto.ecommerce.dto;
+
+import com.proyecto.ecommerce.exception.CustomException;
+
+/**
+ * Informes pesados que pueden ejecutarse como trabajo asíncrono.
+ * El código es el valor que se envía en el parámetro "tipo".
+ */
+public enum TipoReporte {
+    MAS_VENDIDOS("mas-vendidos"),
+    MAS_VENDIDOS_ULTIMO_MES("mas-vendidos-ultimo-mes"),
+    MAS_CAROS_COMPRADOS("mas-caros-comprados"),
+    PEDIDOS_CON_PRODUCTOS("pedidos-con-productos"),
+    CANTIDAD_PRODUCTOS_VENDIDOS("cantidad-productos-vendidos"),
+    CANTIDAD_PEDIDOS("cantidad-pedidos");
+
+    private final String codigo;
+
+    TipoReporte(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Busca el tipo de informe a partir de su código.
+     * @throws CustomException si el código no existe.
+     */
+    public static TipoReporte desde(String codigo) {
+        for (TipoReporte tipo : values()) {
+            if (tipo.codigo.equalsIgnoreCase(codigo)) {
+                return tipo;
+            }
+        }
+        throw new CustomException("Tipo de informe no válido: " + codigo);
+    }
+}
@@ -0,0 +1,41 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO con el estado de un trabajo de informe asíncrono.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrabajoReporteDTO {
+
+    /**
+     * Ciclo de vida de un trabajo: PENDIENTE -> EN_CURSO -> COMPLETADO / FALLIDO / CANCELADO.
+     */
+    public enum Estado {
+        PENDIENTE, EN_CURSO, COMPLETADO, FALLIDO, CANCELADO
+    }
+
+    private String id;
+
+    private TipoReporte tipo;
+
+    private Estado estado;
+
+    private String username;
+
+    private Instant creado;
+
+    private Instant finalizado;
+
+    // Número de filas escritas en el resultado
+    private Long filas;
+
+    // Mensaje de error si el trabajo ha fallado
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.proyecto.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO con las ventas de un periodo de la serie temporal.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaPeriodoDTO {
+
+    // Fecha de inicio del periodo
+    private LocalDate periodo;
+
+    private Long unidades;
+
+    private Double ingresos;
+}
@@ -0,0 +1,32 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Bitmap comprimido (Roaring) con los id_usuario que hicieron algún pedido en un mes.
+ * Es la base del informe de retención por cohortes.
+ */
+@Entity
+@Table(name = "bitmap_clientes_mes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BitmapClientesMes {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Primer día del mes al que corresponde el bitmap
+    @Column(nullable = false, unique = true)
+    private LocalDate mes;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] clientes;
+}
@@ -0,0 +1,202 @@
+package com.proyecto.ecommerce.entity;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Carrito de la compra guardado en la sesión: solo pares id de producto → cantidad.
+ * <p>
+ * Se guardan en dos arrays de int paralelos en vez de entidades Producto, así que ocupa unos pocos
+ * bytes por línea, se serializa sin arrastrar colecciones de Hibernate y nunca contiene precios ni
+ * stock desactualizados: esos datos se resuelven al mostrar el carrito o al completar el pedido.
+ * A diferencia de {@link com.proyecto.ecommerce.util.MapaIntInt} admite quitar líneas y conserva
+ * el orden en que se añadieron; como un carrito tiene pocas líneas, basta con una búsqueda lineal.
+ * No es thread-safe: se usa desde las peticiones de una misma sesión.
+ */
+public class Carrito implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // transient: writeObject escribe solo las líneas ocupadas, sin la capacidad sobrante de los arrays
+    private transient int[] idsProductos = new int[4];
+    private transient int[] cantidades = new int[4];
+    private int lineas;
+    private int totalUnidades;
+    // Versión del carrito persistente de un usuario (la fija CarritoService; 0 en carritos de invitado)
+    private long version;
+
+    /**
+     * @return Cantidad del producto en el carrito (0 si no está).
+     */
+    public int cantidad(int idProducto) {
+        int i = indice(idProducto);
+        return i < 0 ? 0 : cantidades[i];
+    }
+
+    /**
+     * Fija la cantidad de un producto; con 0 o menos se quita del carrito.
+     */
+    public void poner(int idProducto, int cantidad) {
+        int i = indice(idProducto);
+        if (cantidad <= 0) {
+            if (i >= 0) {
+                quitarEn(i);
+            }
+            return;
+        }
+        if (i < 0) {
+            if (lineas == idsProductos.length) {
+                idsProductos = Arrays.copyOf(idsProductos, lineas * 2);
+                cantidades = Arrays.copyOf(cantidades, lineas * 2);
+            }
+            i = lineas++;
+            idsProductos[i] = idProducto;
+            cantidades[i] = 0;
+        }
+        totalUnidades += cantidad - cantidades[i];
+        cantidades[i] = cantidad;
+    }
+
+    /**
+     * Suma (o resta) unidades de un producto.
+     *
+     * @return La cantidad resultante.
+     */
+    public int sumar(int idProducto, int unidades) {
+        int nueva = cantidad(idProducto) + unidades;
+        poner(idProducto, nueva);
+        return Math.max(nueva, 0);
+    }
+
+    public void quitar(int idProducto) {
+        poner(idProducto, 0);
+    }
+
+    public void vaciar() {
+        lineas = 0;
+        totalUnidades = 0;
+    }
+
+    public int getLineas() {
+        return lineas;
+    }
+
+    public boolean estaVacio() {
+        return lineas == 0;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Suma de las cantidades de todas las líneas, mantenida al modificar el carrito.
+     */
+    public int getTotalUnidades() {
+        return totalUnidades;
+    }
+
+    /**
+     * Id del producto de la línea {@code i} (0 ≤ i < {@link #getLineas()}), en orden de inserción.
+     */
+    public int idProductoEn(int i) {
+        return idsProductos[i];
+    }
+
+    public int cantidadEn(int i) {
+        return cantidades[i];
+    }
+
+    public List<Integer> getIdsProductos() {
+        return Arrays.stream(idsProductos, 0, lineas).boxed().toList();
+    }
+
+    /**
+     * Añade las líneas de otro carrito; si un producto está en los dos se queda la cantidad mayor.
+     * Se usa al iniciar sesión con un carrito de invitado: sumar duplicaría las unidades cuando el
+     * carrito de invitado procede del propio usuario (p. ej. tras cerrar sesión y volver a entrar).
+     */
+    public void fusionar(Carrito otro) {
+        for (int i = 0; i < otro.lineas; i++) {
+            int idProducto = otro.idsProductos[i];
+            poner(idProducto, Math.max(cantidad(idProducto), otro.cantidades[i]));
+        }
+    }
+
+    /**
+     * @return Pares (id de producto, cantidad) como ints consecutivos; vacío si no hay líneas.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(lineas * 2 * Integer.BYTES);
+        for (int i = 0; i < lineas; i++) {
+            buffer.putInt(idsProductos[i]).putInt(cantidades[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reconstruye un carrito a partir de {@link #toBytes()}.
+     */
+    public static Carrito desdeBytes(byte[] bytes) {
+        Carrito carrito = new Carrito();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= 2 * Integer.BYTES) {
+            carrito.poner(buffer.getInt(), buffer.getInt());
+        }
+        return carrito;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0; i < lineas; i++) {
+            out.writeInt(idsProductos[i]);
+            out.writeInt(cantidades[i]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (lineas < 0) {
+            throw new InvalidObjectException("Número de líneas del carrito no válido: " + lineas);
+        }
+        int capacidad = Math.max(4, lineas);
+        idsProductos = new int[capacidad];
+        cantidades = new int[capacidad];
+        for (int i = 0; i < lineas; i++) {
+            idsProductos[i] = in.readInt();
+            cantidades[i] = in.readInt();
+        }
+    }
+
+    private int indice(int idProducto) {
+        for (int i = 0; i < lineas; i++) {
+            if (idsProductos[i] == idProducto) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void quitarEn(int i) {
+        totalUnidades -= cantidades[i];
+        int siguientes = lineas - i - 1;
+        // Se desplazan las siguientes para conservar el orden en que se añadieron
+        System.arraycopy(idsProductos, i + 1, idsProductos, i, siguientes);
+        System.arraycopy(cantidades, i + 1, cantidades, i, siguientes);
+        lineas--;
+    }
+}
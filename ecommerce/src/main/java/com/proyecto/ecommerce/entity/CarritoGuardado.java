@@ -0,0 +1,36 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Carrito persistente de un usuario, una fila por usuario.
+ * Las líneas se guardan en binario con {@link Carrito#toBytes()} (8 bytes por línea),
+ * así que volcar un carrito es siempre escribir una única fila.
+ */
+@Entity
+@Table(name = "carrito")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarritoGuardado {
+
+    @Id
+    @Column(name = "id_usuario")
+    private Integer idUsuario;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] lineas;
+
+    // Versión del carrito (ETag de /api/carrito); un carrito vaciado conserva su fila para no reutilizarla
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private LocalDateTime actualizado;
+}
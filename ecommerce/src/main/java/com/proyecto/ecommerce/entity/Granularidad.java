@@ -0,0 +1,54 @@
+package com.proyecto.ecommerce.entity;
+
+import com.proyecto.ecommerce.exception.CustomException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Granularidad temporal de los agregados de ventas.
+ * Cada valor sabe calcular el inicio del periodo al que pertenece una fecha
+ * y el inicio del periodo siguiente.
+ */
+public enum Granularidad {
+    DIA, SEMANA, MES;
+
+    /**
+     * Devuelve la fecha de inicio del periodo que contiene la fecha indicada
+     * (el propio día, el lunes de la semana o el día 1 del mes).
+     */
+    public LocalDate inicio(LocalDate fecha) {
+        return switch (this) {
+            case DIA -> fecha;
+            case SEMANA -> fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> fecha.withDayOfMonth(1);
+        };
+    }
+
+    /**
+     * Devuelve la fecha de inicio del periodo siguiente al que empieza en la fecha indicada.
+     */
+    public LocalDate siguiente(LocalDate periodo) {
+        return switch (this) {
+            case DIA -> periodo.plusDays(1);
+            case SEMANA -> periodo.plusWeeks(1);
+            case MES -> periodo.plusMonths(1);
+        };
+    }
+
+    /**
+     * Convierte el parámetro recibido en la petición (dia, semana, mes) en una granularidad.
+     *
+     * @param valor Texto recibido, sin distinguir mayúsculas.
+     * @return La granularidad correspondiente.
+     * @throws CustomException si el valor no es válido.
+     */
+    public static Granularidad desde(String valor) {
+        try {
+            return Granularidad.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new CustomException("Granularidad no válida: " + valor + ". Valores permitidos: dia, semana, mes.");
+        }
+    }
+}
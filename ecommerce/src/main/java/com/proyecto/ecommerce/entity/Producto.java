@@ -7,11 +7,14 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.List;
 
 @Entity
 @Table(name = "Producto")
+// Solo se escriben las columnas cambiadas: una edición que no toca el stock no lo sobrescribe
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
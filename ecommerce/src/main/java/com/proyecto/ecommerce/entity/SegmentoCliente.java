@@ -0,0 +1,36 @@
+package com.proyecto.ecommerce.entity;
+
+import com.proyecto.ecommerce.exception.CustomException;
+
+/**
+ * Segmento del cliente en el momento de hacer un pedido, según los pedidos que tenía antes.
+ * TODOS agrupa los pedidos de cualquier segmento.
+ */
+public enum SegmentoCliente {
+    TODOS, NUEVO, OCASIONAL, FRECUENTE;
+
+    // A partir de este número de pedidos previos el cliente se considera frecuente
+    private static final long PEDIDOS_FRECUENTE = 5;
+
+    /**
+     * Calcula el segmento a partir del número de pedidos previos del cliente.
+     */
+    public static SegmentoCliente segun(long pedidosPrevios) {
+        if (pedidosPrevios == 0) {
+            return NUEVO;
+        }
+        return pedidosPrevios < PEDIDOS_FRECUENTE ? OCASIONAL : FRECUENTE;
+    }
+
+    /**
+     * Convierte el parámetro recibido en la petición en un segmento.
+     * @throws CustomException si el valor no es válido.
+     */
+    public static SegmentoCliente desde(String valor) {
+        try {
+            return SegmentoCliente.valueOf(valor.trim().toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new CustomException("Segmento no válido: " + valor + ". Valores permitidos: todos, nuevo, ocasional, frecuente.");
+        }
+    }
+}
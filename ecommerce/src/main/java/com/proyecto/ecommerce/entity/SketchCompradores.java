@@ -0,0 +1,37 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Sketch HyperLogLog de los compradores distintos de un producto en un mes.
+ * Los registros se guardan tal cual en una columna binaria (4 KB con la precisión por defecto).
+ */
+@Entity
+@Table(name = "sketch_compradores",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sketch_compradores",
+                columnNames = {"id_producto", "mes"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchCompradores {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_producto", nullable = false)
+    private Integer idProducto;
+
+    // Primer día del mes al que corresponde el sketch
+    @Column(nullable = false)
+    private LocalDate mes;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] registros;
+}
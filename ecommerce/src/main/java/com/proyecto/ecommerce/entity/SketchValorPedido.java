@@ -0,0 +1,37 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * t-digest con la distribución del total de los pedidos de un día y segmento de cliente.
+ * Los centroides se guardan serializados en una columna binaria (menos de 2 KB por fila).
+ */
+@Entity
+@Table(name = "sketch_valor_pedido",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sketch_valor_pedido",
+                columnNames = {"segmento", "fecha"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SketchValorPedido {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private SegmentoCliente segmento;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] centroides;
+}
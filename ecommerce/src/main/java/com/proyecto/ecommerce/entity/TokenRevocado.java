@@ -0,0 +1,42 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Revocación de tokens JWT. Puede ser de un token concreto (por su jti, al cerrar sesión)
+ * o de todos los tokens de un usuario emitidos hasta {@code revocadoEn} (al deshabilitarlo,
+ * eliminarlo o cambiar su contraseña). La fila deja de hacer falta cuando {@code expira}
+ * queda atrás, porque para entonces los tokens afectados ya han caducado.
+ */
+@Entity
+@Table(name = "token_revocado", indexes = {
+        @Index(name = "idx_token_revocado_revocado_en", columnList = "revocadoEn"),
+        @Index(name = "idx_token_revocado_username", columnList = "username")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Identificador del token revocado; nulo cuando se revocan todos los del usuario
+    @Column(length = 36, unique = true)
+    private String jti;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private Instant revocadoEn;
+
+    @Column(nullable = false)
+    private Instant expira;
+}
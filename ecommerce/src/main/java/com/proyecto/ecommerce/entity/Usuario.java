@@ -1,6 +1,7 @@
 package com.proyecto.ecommerce.entity;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.proyecto.ecommerce.validation.Create;
@@ -53,7 +54,8 @@ public class Usuario {
     @Column
     private String direccion;
 
-    @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    // Sin cascada: los roles son datos de referencia (RegistroRoles) y nunca se crean desde un usuario
+    @ManyToMany
     @JoinTable(
             name = "usuarios_roles",
             joinColumns = @JoinColumn(name = "usuario_id"),
@@ -66,6 +68,12 @@ public class Usuario {
     // Indica si el usuario está habilitado
     private boolean enabled = true;
 
+    // Campo transitorio: la petición traía 'enabled' (JSON o formulario). JPA no pasa por el setter
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    private boolean enabledEnviado;
+
     // Campo transitorio para indicar si se crea como admin
     @Transient
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
@@ -77,6 +85,11 @@ public class Usuario {
     @ToString.Exclude
     private List<Pedido> pedidos;
 
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        this.enabledEnviado = true;
+    }
+
     //  Método para limpiar las relaciones ANTES de eliminar el usuario
     @PreRemove
     private void removeRoles() {
@@ -0,0 +1,48 @@
+package com.proyecto.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Celda del cubo de ventas: unidades e ingresos de un producto en un periodo
+ * (día, semana o mes). Las filas con idProducto = 0 acumulan el total de todos los productos.
+ * La clave única (granularidad, id_producto, periodo) sirve tanto para el upsert
+ * incremental como para leer un rango de periodos con un solo recorrido del índice.
+ */
+@Entity
+@Table(name = "venta_agregada",
+        uniqueConstraints = @UniqueConstraint(name = "uk_venta_agregada",
+                columnNames = {"granularidad", "id_producto", "periodo"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VentaAgregada {
+
+    // Valor de idProducto que representa el total de todos los productos
+    public static final int TODOS_LOS_PRODUCTOS = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularidad granularidad;
+
+    // Fecha de inicio del periodo (día, lunes de la semana o día 1 del mes)
+    @Column(nullable = false)
+    private LocalDate periodo;
+
+    @Column(name = "id_producto", nullable = false)
+    private Integer idProducto;
+
+    @Column(nullable = false)
+    private Long unidades;
+
+    @Column(nullable = false)
+    private Double ingresos;
+}
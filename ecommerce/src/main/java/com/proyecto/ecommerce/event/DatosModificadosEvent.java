@@ -0,0 +1,13 @@
+package com.proyecto.ecommerce.event;
+
+import java.util.Set;
+
+/**
+ * Evento que se publica tras confirmarse una escritura marcada con
+ * {@link com.proyecto.ecommerce.cache.InvalidaCache}. Permite a los componentes que
+ * precalculan datos (por ejemplo el panel de administración) saber qué ha cambiado.
+ *
+ * @param etiquetas Etiquetas de datos modificados (ver {@link com.proyecto.ecommerce.cache.EtiquetasCache}).
+ */
+public record DatosModificadosEvent(Set<String> etiquetas) {
+}
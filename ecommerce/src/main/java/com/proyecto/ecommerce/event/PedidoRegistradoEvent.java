@@ -0,0 +1,30 @@
+package com.proyecto.ecommerce.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Evento que se publica cuando un pedido queda registrado junto con sus líneas.
+ * Contiene solo los datos planos necesarios para actualizar los agregados,
+ * de forma que los listeners no necesitan volver a cargar las entidades.
+ *
+ * @param idPedido  ID del pedido creado.
+ * @param idUsuario ID del usuario (cliente) del pedido.
+ * @param pedidosPrevios Pedidos que tenía el usuario antes de este, contados en la misma transacción.
+ * @param fecha     Fecha del pedido.
+ * @param total     Total del pedido.
+ * @param lineas    Productos del pedido con su cantidad y precio unitario.
+ */
+public record PedidoRegistradoEvent(Integer idPedido,
+                                    Integer idUsuario,
+                                    long pedidosPrevios,
+                                    LocalDate fecha,
+                                    Double total,
+                                    List<Linea> lineas) {
+
+    /**
+     * Línea del pedido: producto, cantidad y precio unitario en el momento de la compra.
+     */
+    public record Linea(Integer idProducto, int cantidad, double precioUnitario) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.proyecto.ecommerce.exception;
+
+/**
+ * Excepción que se lanza cuando se intenta modificar un recurso a partir de una versión
+ * que ya no es la actual (If-Match que no coincide). Se traduce en un 412 Precondition Failed.
+ */
+public class ConflictoVersionException extends CustomException {
+
+    private final long versionActual;
+
+    /**
+     * @param mensaje       Mensaje detallado del error.
+     * @param versionActual Versión vigente del recurso, para que el cliente pueda volver a leerlo.
+     */
+    public ConflictoVersionException(String mensaje, long versionActual) {
+        super(mensaje);
+        this.versionActual = versionActual;
+    }
+
+    public long getVersionActual() {
+        return versionActual;
+    }
+}
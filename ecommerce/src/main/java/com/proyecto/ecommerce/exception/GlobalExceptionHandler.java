@@ -26,6 +26,17 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
 
+    /**
+     * Captura las peticiones rechazadas por superar un límite de capacidad.
+     *
+     * @param ex Excepción lanzada en el sistema.
+     * @return Respuesta con el mensaje de error y un código 429 TOO MANY REQUESTS.
+     */
+    @ExceptionHandler(LimiteExcedidoException.class)
+    public ResponseEntity<?> manejarLimiteExcedido(LimiteExcedidoException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(ex.getMessage());
+    }
+
     /**
      * Captura y maneja cualquier otra excepción no controlada.
      *
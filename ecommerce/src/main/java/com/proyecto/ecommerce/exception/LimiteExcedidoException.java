@@ -0,0 +1,17 @@
+package com.proyecto.ecommerce.exception;
+
+/**
+ * Excepción que se lanza cuando una petición se rechaza por superar un límite de capacidad
+ * (cola llena, demasiados trabajos simultáneos...). Se traduce en un 429 Too Many Requests.
+ */
+public class LimiteExcedidoException extends CustomException {
+
+    /**
+     * Constructor que recibe un mensaje de error.
+     *
+     * @param mensaje Mensaje detallado del error.
+     */
+    public LimiteExcedidoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,367 @@
+package com.proyecto.ecommerce.inventario;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario en disco de los cambios de stock del inventario en memoria que aún no están en la tabla.
+ * <p>
+ * Cada cambio es un registro de tamaño fijo (secuencia, producto, delta y CRC) que se añade al
+ * segmento actual. {@link #registrar} no vuelve hasta que el registro está escrito (y forzado a
+ * disco si {@code forzar}), pero los hilos no hacen un fsync cada uno: el primero que llega escribe
+ * y fuerza de una vez todo lo acumulado (group commit) y los que esperaban detrás suyo ya lo
+ * encuentran hecho.
+ * <p>
+ * Los deltas se acumulan también por producto hasta el siguiente {@link #cortar}, que los entrega
+ * junto con la última secuencia incluida y abre un segmento nuevo. Cuando la tabla refleja un corte
+ * (y guarda su secuencia), {@link #liberarHasta} borra los segmentos que ya no hacen falta. Tras una
+ * caída, {@link #iniciar} relee los segmentos y devuelve lo que la tabla aún no tenía.
+ */
+public class DiarioInventario implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioInventario.class);
+
+    // secuencia (8) + idProducto (4) + delta (4) + CRC32C de lo anterior (4)
+    private static final int TAMANIO_REGISTRO = 20;
+    private static final String PREFIJO = "inventario-";
+    private static final String SUFIJO = ".diario";
+
+    /**
+     * Deltas por producto de los registros con secuencia hasta {@code hasta}.
+     */
+    public record Corte(Map<Integer, Long> deltas, long hasta) {
+    }
+
+    private record Registro(long secuencia, int idProducto, int delta) {
+    }
+
+    private record Segmento(Path ruta, long ultima) {
+    }
+
+    private final Path directorio;
+    private final boolean forzar;
+
+    // Orden de los cerrojos: escritura y después estado
+    private final Object escritura = new Object();
+    private final Object estado = new Object();
+
+    // Protegidos por estado
+    private final Deque<Segmento> cerrados = new ArrayDeque<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * TAMANIO_REGISTRO);
+    private Map<Integer, Long> pendientes = new HashMap<>();
+    private long ultimaSecuencia;
+    private FileChannel canal;
+    private Path rutaActual;
+    private long primeraActual;
+
+    private List<Registro> recuperados;
+    private volatile long escrita;
+    private volatile IOException averia;
+
+    /**
+     * Lee los segmentos que hubiera en el directorio; hasta {@link #iniciar} no admite registros.
+     *
+     * @param forzar Si es false los registros se escriben en el sistema operativo sin forzarlos a
+     *               disco: sobreviven a una caída de la aplicación, pero no a una del servidor.
+     */
+    public DiarioInventario(Path directorio, boolean forzar) {
+        this.directorio = directorio;
+        this.forzar = forzar;
+        try {
+            Files.createDirectories(directorio);
+            this.recuperados = leerSegmentos();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario de inventario en " + directorio, e);
+        }
+    }
+
+    /**
+     * Abre el segmento de escritura y devuelve lo que hay en el diario por encima de
+     * {@code aplicadaHasta}, la última secuencia que ya refleja la tabla.
+     *
+     * @return Corte con los deltas por aplicar, o null si la tabla ya lo tiene todo.
+     */
+    public Corte iniciar(long aplicadaHasta) {
+        synchronized (estado) {
+            Map<Integer, Long> deltas = new HashMap<>();
+            long hasta = aplicadaHasta;
+            for (Registro registro : recuperados) {
+                if (registro.secuencia() > aplicadaHasta) {
+                    deltas.merge(registro.idProducto(), (long) registro.delta(), Long::sum);
+                    hasta = Math.max(hasta, registro.secuencia());
+                }
+            }
+            recuperados = List.of();
+            // Sin segmentos que leer la secuencia sigue desde la de la tabla, no desde cero
+            ultimaSecuencia = Math.max(ultimaSecuencia, aplicadaHasta);
+            escrita = ultimaSecuencia;
+            try {
+                canal = abrirSegmento(ultimaSecuencia + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el diario de inventario en " + directorio, e);
+            }
+            return deltas.isEmpty() ? null : new Corte(deltas, hasta);
+        }
+    }
+
+    /**
+     * Añade un cambio de stock y espera a que esté escrito.
+     *
+     * @return Secuencia del registro.
+     * @throws UncheckedIOException si el diario no puede escribir; a partir de entonces no admite más.
+     */
+    public long registrar(int idProducto, int delta) {
+        comprobarAveria();
+        long secuencia;
+        synchronized (estado) {
+            secuencia = ++ultimaSecuencia;
+            if (buffer.remaining() < TAMANIO_REGISTRO) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+            escribirRegistro(buffer, secuencia, idProducto, delta);
+            pendientes.merge(idProducto, (long) delta, Long::sum);
+        }
+        if (escrita < secuencia) {
+            synchronized (escritura) {
+                // Mientras esperaba, otro hilo puede haber escrito ya este registro con los suyos
+                if (escrita < secuencia) {
+                    escribirLote();
+                }
+            }
+        }
+        comprobarAveria();
+        return secuencia;
+    }
+
+    /**
+     * Entrega los deltas acumulados desde el corte anterior y empieza un segmento nuevo.
+     *
+     * @return Corte, o null si no ha habido cambios.
+     */
+    public Corte cortar() {
+        comprobarAveria();
+        synchronized (escritura) {
+            ByteBuffer lote;
+            FileChannel anterior;
+            Corte corte;
+            synchronized (estado) {
+                if (pendientes.isEmpty()) {
+                    return null;
+                }
+                corte = new Corte(pendientes, ultimaSecuencia);
+                pendientes = new HashMap<>();
+                if (ultimaSecuencia < primeraActual) {
+                    // Solo hay deltas devueltos de un corte anterior, ya escritos en segmentos cerrados
+                    return corte;
+                }
+                Path rutaAnterior = rutaActual;
+                FileChannel nuevo;
+                try {
+                    nuevo = abrirSegmento(ultimaSecuencia + 1);
+                } catch (IOException e) {
+                    devolver(corte);
+                    throw averiar(e);
+                }
+                lote = buffer;
+                buffer = ByteBuffer.allocate(lote.capacity());
+                anterior = canal;
+                cerrados.add(new Segmento(rutaAnterior, ultimaSecuencia));
+                canal = nuevo;
+            }
+            escribir(anterior, lote, corte.hasta());
+            try {
+                anterior.close();
+            } catch (IOException e) {
+                log.warn("No se pudo cerrar un segmento del diario de inventario: {}", e.getMessage());
+            }
+            return corte;
+        }
+    }
+
+    /**
+     * Vuelve a acumular los deltas de un corte que no se pudo aplicar, para el siguiente.
+     */
+    public void devolver(Corte corte) {
+        synchronized (estado) {
+            corte.deltas().forEach((idProducto, delta) -> pendientes.merge(idProducto, delta, Long::sum));
+        }
+    }
+
+    /**
+     * Borra los segmentos cerrados cuyos registros ya están todos en la tabla.
+     */
+    public void liberarHasta(long aplicadaHasta) {
+        List<Path> borrar = new ArrayList<>();
+        synchronized (estado) {
+            while (!cerrados.isEmpty() && cerrados.peekFirst().ultima() <= aplicadaHasta) {
+                borrar.add(cerrados.pollFirst().ruta());
+            }
+        }
+        for (Path ruta : borrar) {
+            try {
+                Files.deleteIfExists(ruta);
+            } catch (IOException e) {
+                log.warn("No se pudo borrar el segmento {} del diario de inventario: {}", ruta, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (escritura) {
+            synchronized (estado) {
+                if (canal == null) {
+                    return;
+                }
+                try {
+                    if (averia == null) {
+                        escribir(canal, buffer, ultimaSecuencia);
+                    }
+                    canal.close();
+                } catch (IOException | UncheckedIOException e) {
+                    log.warn("No se pudo cerrar el diario de inventario: {}", e.getMessage());
+                }
+                canal = null;
+            }
+        }
+    }
+
+    // Escribe lo acumulado en el segmento actual; se llama con el cerrojo de escritura
+    private void escribirLote() {
+        ByteBuffer lote;
+        FileChannel destino;
+        long hasta;
+        synchronized (estado) {
+            lote = buffer;
+            buffer = ByteBuffer.allocate(lote.capacity());
+            destino = canal;
+            hasta = ultimaSecuencia;
+        }
+        escribir(destino, lote, hasta);
+    }
+
+    private void escribir(FileChannel destino, ByteBuffer lote, long hasta) {
+        comprobarAveria();
+        lote.flip();
+        try {
+            while (lote.hasRemaining()) {
+                destino.write(lote);
+            }
+            if (forzar) {
+                destino.force(false);
+            }
+        } catch (IOException e) {
+            throw averiar(e);
+        }
+        escrita = hasta;
+    }
+
+    private UncheckedIOException averiar(IOException e) {
+        log.error("El diario de inventario no puede escribir en {}: {}", directorio, e.getMessage(), e);
+        averia = e;
+        return new UncheckedIOException("El diario de inventario no está disponible", e);
+    }
+
+    private void comprobarAveria() {
+        IOException e = averia;
+        if (e != null) {
+            throw new UncheckedIOException("El diario de inventario no está disponible", e);
+        }
+    }
+
+    private FileChannel abrirSegmento(long primeraSecuencia) throws IOException {
+        Path ruta = directorio.resolve(PREFIJO + String.format("%019d", primeraSecuencia) + SUFIJO);
+        FileChannel nuevo = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (forzar) {
+            forzarDirectorio();
+        }
+        rutaActual = ruta;
+        primeraActual = primeraSecuencia;
+        return nuevo;
+    }
+
+    // Para que la entrada del fichero nuevo sobreviva a una caída del servidor
+    private void forzarDirectorio() {
+        try (FileChannel dir = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Algunos sistemas no permiten abrir un directorio; el fichero se fuerza igualmente
+            log.debug("No se pudo forzar el directorio del diario: {}", e.getMessage());
+        }
+    }
+
+    private List<Registro> leerSegmentos() throws IOException {
+        List<Path> rutas = new ArrayList<>();
+        try (DirectoryStream<Path> segmentos = Files.newDirectoryStream(directorio, PREFIJO + "*" + SUFIJO)) {
+            segmentos.forEach(rutas::add);
+        }
+        // El nombre lleva la primera secuencia con ceros a la izquierda: el orden alfabético es el del diario
+        rutas.sort(null);
+        List<Registro> registros = new ArrayList<>();
+        for (Path ruta : rutas) {
+            ByteBuffer contenido = ByteBuffer.wrap(Files.readAllBytes(ruta));
+            long ultima = -1;
+            while (contenido.remaining() >= TAMANIO_REGISTRO) {
+                Registro registro = leerRegistro(contenido);
+                if (registro == null) {
+                    break;
+                }
+                registros.add(registro);
+                ultima = registro.secuencia();
+            }
+            if (contenido.hasRemaining()) {
+                // Un registro a medio escribir es de una operación que nunca llegó a confirmarse
+                log.warn("Se descartan {} bytes incompletos al final de {}", contenido.remaining(), ruta);
+            }
+            if (ultima < 0) {
+                Files.delete(ruta);
+            } else {
+                cerrados.add(new Segmento(ruta, ultima));
+                ultimaSecuencia = Math.max(ultimaSecuencia, ultima);
+            }
+        }
+        if (!registros.isEmpty()) {
+            log.info("Diario de inventario: {} registros en {} segmentos hasta la secuencia {}",
+                    registros.size(), cerrados.size(), ultimaSecuencia);
+        }
+        return registros;
+    }
+
+    private static void escribirRegistro(ByteBuffer destino, long secuencia, int idProducto, int delta) {
+        int inicio = destino.position();
+        destino.putLong(secuencia).putInt(idProducto).putInt(delta);
+        CRC32C crc = new CRC32C();
+        crc.update(destino.array(), inicio, TAMANIO_REGISTRO - 4);
+        destino.putInt((int) crc.getValue());
+    }
+
+    private static Registro leerRegistro(ByteBuffer origen) {
+        int inicio = origen.position();
+        CRC32C crc = new CRC32C();
+        crc.update(origen.array(), inicio, TAMANIO_REGISTRO - 4);
+        long secuencia = origen.getLong();
+        int idProducto = origen.getInt();
+        int delta = origen.getInt();
+        if (origen.getInt() != (int) crc.getValue()) {
+            origen.position(inicio);
+            return null;
+        }
+        return new Registro(secuencia, idProducto, delta);
+    }
+}
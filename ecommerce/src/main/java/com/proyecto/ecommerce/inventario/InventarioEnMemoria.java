@@ -0,0 +1,220 @@
+package com.proyecto.ecommerce.inventario;
+
+import com.proyecto.ecommerce.cache.CacheResultados;
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.util.ContadorRayado;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock en memoria con persistencia diferida, para productos cuya fila sería un punto caliente.
+ * <p>
+ * El stock de cada producto se carga de la tabla la primera vez que se usa en un
+ * {@link ContadorRayado}, que las ventas decrementan sin cerrojos. Cada cambio se anota en el
+ * {@link DiarioInventario} antes de confirmar la venta, y un proceso programado aplica a la tabla los
+ * deltas acumulados con un UPDATE por producto en una sola transacción, que guarda además en
+ * {@code inventario_volcado} la secuencia del diario hasta la que llega. Al arrancar,
+ * {@link #reconciliar} aplica lo que el diario tenga por encima de esa secuencia, así que tras una
+ * caída no se pierde ni se aplica dos veces ningún cambio.
+ * <p>
+ * Mientras tanto la columna stock va hasta un volcado por detrás, y quien decide si hay unidades es
+ * el contador. Los contadores son de esta instancia: el modo sirve para una sola instancia de la
+ * aplicación, o para productos que solo vende una.
+ */
+public class InventarioEnMemoria implements InventarioStock {
+
+    private static final Logger log = LoggerFactory.getLogger(InventarioEnMemoria.class);
+
+    // Una sola fila: hay un diario por instancia
+    private static final int ID_VOLCADO = 1;
+
+    private final ConcurrentHashMap<Integer, ContadorRayado> contadores = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final DiarioInventario diario;
+    private final CacheResultados cacheResultados;
+    private final int rayas;
+
+    /**
+     * @param transaccion Plantilla con la que se aplica cada volcado (conviene REQUIRES_NEW).
+     * @param rayas       Rayas de cada contador; más que hilos concurrentes no aporta.
+     */
+    public InventarioEnMemoria(JdbcTemplate jdbcTemplate, TransactionTemplate transaccion,
+                               DiarioInventario diario, CacheResultados cacheResultados, int rayas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = transaccion;
+        this.diario = diario;
+        this.cacheResultados = cacheResultados;
+        this.rayas = rayas;
+    }
+
+    /**
+     * Crea la tabla con la secuencia aplicada si no existe.
+     */
+    public void crearTabla() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS inventario_volcado ("
+                + "id INT NOT NULL PRIMARY KEY, "
+                + "secuencia BIGINT NOT NULL)");
+        Integer filas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventario_volcado WHERE id = ?", Integer.class, ID_VOLCADO);
+        if (filas == null || filas == 0) {
+            jdbcTemplate.update("INSERT INTO inventario_volcado (id, secuencia) VALUES (?, 0)", ID_VOLCADO);
+        }
+    }
+
+    /**
+     * Aplica a la tabla lo que el diario tenga por encima de la secuencia ya volcada y abre el diario.
+     * Debe llamarse antes de atender ventas.
+     */
+    public void reconciliar() {
+        long aplicada = secuenciaAplicada();
+        DiarioInventario.Corte corte = diario.iniciar(aplicada);
+        if (corte != null) {
+            aplicar(corte);
+            log.info("Inventario reconciliado: {} productos con cambios del diario entre las secuencias {} y {}",
+                    corte.deltas().size(), aplicada + 1, corte.hasta());
+            aplicada = corte.hasta();
+        }
+        diario.liberarHasta(aplicada);
+    }
+
+    @Override
+    public boolean retirar(Integer idProducto, int cantidad) {
+        ContadorRayado contador = contador(idProducto);
+        if (!contador.retirar(cantidad)) {
+            return false;
+        }
+        registrar(contador, idProducto, -cantidad);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Si el pedido no llega a confirmarse las unidades vuelven, como con el UPDATE en la tabla
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        ajustar(idProducto, cantidad);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void ajustar(Integer idProducto, int delta) {
+        ContadorRayado contador = contador(idProducto);
+        contador.ajustar(delta);
+        registrar(contador, idProducto, delta);
+    }
+
+    /**
+     * La edición se convierte en un ajuste del contador. La columna stock solo la escriben los
+     * volcados ({@code stock = stock + delta}): si la edición guardara el valor que leyó, pisaría
+     * los volcados confirmados entretanto, cuyos segmentos del diario ya se habrían liberado.
+     */
+    @Override
+    public boolean fijarStock(Integer idProducto, int stockNuevo) {
+        long ajuste = stockNuevo - contador(idProducto).total();
+        if (ajuste != 0) {
+            ajustar(idProducto, Math.toIntExact(ajuste));
+        }
+        return false;
+    }
+
+    @Override
+    public void olvidar(Integer idProducto) {
+        contadores.remove(idProducto);
+    }
+
+    /**
+     * Aplica a la tabla los cambios acumulados desde el volcado anterior.
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.inventario.volcado-ms:1000}")
+    public void volcar() {
+        DiarioInventario.Corte corte = diario.cortar();
+        if (corte == null) {
+            return;
+        }
+        try {
+            aplicar(corte);
+        } catch (RuntimeException e) {
+            // Si la transacción llegó a confirmarse aunque falló la respuesta, no se repite
+            if (!confirmado(corte)) {
+                log.warn("No se pudo volcar el inventario a la tabla, se reintentará: {}", e.getMessage());
+                diario.devolver(corte);
+                return;
+            }
+        }
+        diario.liberarHasta(corte.hasta());
+        cacheResultados.invalidar(EtiquetasCache.CATALOGO);
+    }
+
+    @PreDestroy
+    public void detener() {
+        try {
+            volcar();
+        } finally {
+            diario.close();
+        }
+    }
+
+    private void aplicar(DiarioInventario.Corte corte) {
+        List<Object[]> filas = new ArrayList<>(corte.deltas().size());
+        corte.deltas().forEach((idProducto, delta) -> {
+            if (delta != 0) {
+                filas.add(new Object[]{delta, idProducto});
+            }
+        });
+        transaccion.executeWithoutResult(estado -> {
+            if (!filas.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE producto SET stock = stock + ? WHERE id_producto = ?", filas);
+            }
+            jdbcTemplate.update("UPDATE inventario_volcado SET secuencia = ? WHERE id = ?", corte.hasta(), ID_VOLCADO);
+        });
+    }
+
+    private boolean confirmado(DiarioInventario.Corte corte) {
+        try {
+            return secuenciaAplicada() >= corte.hasta();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private long secuenciaAplicada() {
+        Long secuencia = jdbcTemplate.queryForObject(
+                "SELECT secuencia FROM inventario_volcado WHERE id = ?", Long.class, ID_VOLCADO);
+        return secuencia != null ? secuencia : 0;
+    }
+
+    private void registrar(ContadorRayado contador, Integer idProducto, int delta) {
+        try {
+            diario.registrar(idProducto, delta);
+        } catch (RuntimeException e) {
+            // Sin anotación en el diario el cambio no se da por hecho
+            contador.ajustar(-delta);
+            throw new CustomException("No se pudo registrar el cambio de stock; inténtalo de nuevo más tarde.");
+        }
+    }
+
+    private ContadorRayado contador(Integer idProducto) {
+        return contadores.computeIfAbsent(idProducto, id -> {
+            List<Integer> stock = jdbcTemplate.queryForList(
+                    "SELECT stock FROM producto WHERE id_producto = ?", Integer.class, id);
+            if (stock.isEmpty()) {
+                throw new CustomException("Producto no encontrado con ID: " + id);
+            }
+            return new ContadorRayado(stock.get(0), rayas);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.proyecto.ecommerce.inventario;
+
+/**
+ * Dónde se lleva el stock que se descuenta al vender. ProductoService lo usa para todo cambio de
+ * stock, y {@code ecommerce.inventario.modo} elige la implementación:
+ * <ul>
+ *     <li>{@code sql} (por defecto): {@link InventarioTabla}, un UPDATE atómico sobre la fila del producto.</li>
+ *     <li>{@code memoria}: {@link InventarioEnMemoria}, contadores en memoria que se vuelcan a la tabla
+ *     cada poco, para productos con tanto volumen que su fila es un punto caliente.</li>
+ * </ul>
+ */
+public interface InventarioStock {
+
+    /**
+     * Retira unidades si hay stock suficiente; la comprobación y el descuento son atómicos.
+     *
+     * @return true si se retiraron; false si no había bastante stock (no se retira nada).
+     */
+    boolean retirar(Integer idProducto, int cantidad);
+
+    /**
+     * Suma (o resta, si es negativo) unidades sin comprobar el saldo: devoluciones y descuentos
+     * ya decididos, como los de la venta flash.
+     */
+    void ajustar(Integer idProducto, int delta);
+
+    /**
+     * Aplica una edición del stock hecha a mano sobre el producto.
+     *
+     * @param stockNuevo Stock indicado en la edición.
+     * @return true si quien edita debe escribir el stock nuevo en la fila; false si la columna
+     * stock solo la escribe el propio inventario y la edición no debe tocarla.
+     */
+    boolean fijarStock(Integer idProducto, int stockNuevo);
+
+    /**
+     * El producto se ha eliminado.
+     */
+    default void olvidar(Integer idProducto) {
+    }
+}
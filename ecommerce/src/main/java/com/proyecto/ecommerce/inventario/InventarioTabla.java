@@ -0,0 +1,41 @@
+package com.proyecto.ecommerce.inventario;
+
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.cache.InvalidaCache;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stock en la fila del producto: cada venta es un UPDATE condicional que la base de datos serializa
+ * con el cerrojo de la fila. Con la transacción del pedido abierta, se deshace con ella.
+ */
+public class InventarioTabla implements InventarioStock {
+
+    private final ProductoRepository productoRepository;
+
+    public InventarioTabla(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @Override
+    @Transactional
+    @InvalidaCache(EtiquetasCache.CATALOGO)
+    public boolean retirar(Integer idProducto, int cantidad) {
+        return productoRepository.retirarStock(idProducto, cantidad) == 1;
+    }
+
+    @Override
+    @Transactional
+    @InvalidaCache(EtiquetasCache.CATALOGO)
+    public void ajustar(Integer idProducto, int delta) {
+        if (productoRepository.descontarStock(idProducto, -delta) == 0) {
+            throw new CustomException("Producto no encontrado con ID: " + idProducto);
+        }
+    }
+
+    @Override
+    public boolean fijarStock(Integer idProducto, int stockNuevo) {
+        return true;
+    }
+}
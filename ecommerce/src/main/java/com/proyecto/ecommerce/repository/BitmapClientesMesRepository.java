@@ -0,0 +1,45 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.BitmapClientesMes;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de los bitmaps mensuales de clientes con pedidos.
+ */
+@Repository
+public interface BitmapClientesMesRepository extends JpaRepository<BitmapClientesMes, Long> {
+
+    /**
+     * Busca el bitmap de un mes bloqueando la fila, para que dos nodos no pisen la unión del otro.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<BitmapClientesMes> findByMes(LocalDate mes);
+
+    /**
+     * Recupera los bitmaps hasta un mes (incluido), en orden cronológico.
+     * Se necesitan también los meses anteriores al informe para saber quién era ya cliente.
+     */
+    List<BitmapClientesMes> findByMesLessThanEqualOrderByMesAsc(LocalDate hasta);
+
+    /**
+     * Recorre en streaming los pares (fecha, usuario) de todos los pedidos, ordenados por fecha,
+     * para reconstruir los bitmaps mes a mes.
+     *
+     * @return Stream de arrays [fecha, id_usuario].
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(value = "SELECT fecha, id_usuario FROM pedido ORDER BY fecha", nativeQuery = true)
+    Stream<Object[]> streamClientesPorFecha();
+}
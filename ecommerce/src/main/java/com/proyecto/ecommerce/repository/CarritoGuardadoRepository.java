@@ -0,0 +1,32 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.CarritoGuardado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio de los carritos persistentes, uno por usuario.
+ */
+@Repository
+public interface CarritoGuardadoRepository extends JpaRepository<CarritoGuardado, Integer> {
+
+    /**
+     * Sustituye el carrito solo si la fila sigue en la versión sobre la que se hicieron los cambios,
+     * de modo que no se pisa lo que haya escrito otra instancia entretanto.
+     *
+     * @return 1 si se actualizó; 0 si la fila cambió (o no existe).
+     */
+    @Modifying
+    @Query("UPDATE CarritoGuardado c SET c.lineas = :lineas, c.version = :version, c.actualizado = :actualizado " +
+            "WHERE c.idUsuario = :idUsuario AND c.version = :versionAnterior")
+    int actualizarSiVersion(@Param("idUsuario") Integer idUsuario,
+                            @Param("lineas") byte[] lineas,
+                            @Param("version") long version,
+                            @Param("actualizado") LocalDateTime actualizado,
+                            @Param("versionAnterior") long versionAnterior);
+}
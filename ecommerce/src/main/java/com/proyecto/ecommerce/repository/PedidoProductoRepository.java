@@ -1,14 +1,18 @@
 package com.proyecto.ecommerce.repository;
 
 import com.proyecto.ecommerce.entity.PedidoProducto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PedidoProductoRepository extends JpaRepository<PedidoProducto, Long> {
@@ -36,6 +40,17 @@ public interface PedidoProductoRepository extends JpaRepository<PedidoProducto,
      */
     List<PedidoProducto> findByPedidoIdPedidoAndProductoIdProducto(Integer idPedido, Integer idProducto);
 
+    /**
+     * Variantes de las dos consultas anteriores con el propietario del pedido en el WHERE,
+     * para usuarios que no son administradores.
+     *
+     * @param idUsuario ID del usuario que debe ser dueño del pedido.
+     */
+    List<PedidoProducto> findByPedidoIdPedidoAndPedidoUsuarioIdUsuario(Integer idPedido, Integer idUsuario);
+
+    List<PedidoProducto> findByPedidoIdPedidoAndProductoIdProductoAndPedidoUsuarioIdUsuario(
+            Integer idPedido, Integer idProducto, Integer idUsuario);
+
     /**
      * Obtiene la lista de productos asociados a pedidos realizados por un usuario específico.
      *
@@ -52,4 +67,14 @@ public interface PedidoProductoRepository extends JpaRepository<PedidoProducto,
     @Transactional
     @Query("DELETE FROM PedidoProducto pp WHERE pp.pedido.idPedido = :idPedido")
     void deleteProductosByPedido(@Param("idPedido") Integer idPedido);
+
+    /**
+     * Recorre en streaming los productos de cada pedido, agrupados por pedido.
+     * Se usa para reconstruir la matriz de productos comprados juntos sin cargar todas las filas.
+     *
+     * @return Stream con ID del pedido e ID del producto, ordenado por pedido.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(value = "SELECT id_pedido, id_producto FROM pedido_producto ORDER BY id_pedido", nativeQuery = true)
+    Stream<Object[]> streamProductosPorPedido();
 }
@@ -2,13 +2,19 @@ package com.proyecto.ecommerce.repository;
 
 
 import com.proyecto.ecommerce.entity.Pedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la entidad Pedido.
@@ -27,6 +33,18 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
      */
     List<Pedido> findByUsuarioIdUsuario(Integer idUsuario);
 
+    /**
+     * Comprueba si un pedido pertenece a un usuario con una sola consulta
+     * (WHERE id_pedido = ? AND id_usuario = ?), sin cargar el pedido ni el usuario.
+     */
+    boolean existsByIdPedidoAndUsuarioIdUsuario(Integer idPedido, Integer idUsuario);
+
+    /**
+     * Busca un pedido solo si pertenece al usuario: el filtro por propietario va en el WHERE,
+     * así que el pedido de otro usuario nunca llega a cargarse.
+     */
+    Optional<Pedido> findByIdPedidoAndUsuarioIdUsuario(Integer idPedido, Integer idUsuario);
+
     /**
      * Devuelve todos los pedidos asociados a un usuario
      * cuyo username coincida con el valor proporcionado.
@@ -35,6 +53,14 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
      */
     List<Pedido> findByUsuarioUsername(String username);
 
+    /**
+     * Cuenta los pedidos realizados por un usuario.
+     *
+     * @param idUsuario el ID del usuario (cliente)
+     * @return número de pedidos del usuario
+     */
+    long countByUsuarioIdUsuario(Integer idUsuario);
+
     // CONSULTAS JPQL
 
     /**
@@ -55,6 +81,14 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
     @Query("SELECT p.usuario.username, COUNT(p) FROM Pedido p GROUP BY p.usuario.username")
     List<Object[]> CountPedidoPorUsuario();
 
+    /**
+     * Suma el total de todos los pedidos.
+     *
+     * @return Ingresos totales, o 0 si no hay pedidos.
+     */
+    @Query("SELECT COALESCE(SUM(p.total), 0) FROM Pedido p")
+    Double sumarTotales();
+
 
 // CONSULTAS NATIVAS SQL
 
@@ -67,6 +101,14 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
     @Query(value = "SELECT u.username, SUM(p.total) AS total_gastado FROM usuario u JOIN pedido p ON u.id_usuario = p.id_usuario WHERE u.username = :username GROUP BY u.username", nativeQuery = true)
     List<Object[]> findTotalGastadoPorUsuario(@Param("username") String username);
 
+    /**
+     * Calcula el total gastado por cada usuario con pedidos, de mayor a menor.
+     *
+     * @return Lista con el username y el total gastado.
+     */
+    @Query(value = "SELECT u.username, SUM(p.total) AS total_gastado FROM usuario u JOIN pedido p ON u.id_usuario = p.id_usuario GROUP BY u.username ORDER BY total_gastado DESC", nativeQuery = true)
+    List<Object[]> findTotalGastadoPorUsuarios();
+
     /**
      * Obtiene la cantidad total de productos vendidos por usuario.
      *
@@ -75,6 +117,25 @@ public interface PedidoRepository extends JpaRepository<Pedido, Integer> {
     @Query(value = "SELECT u.username, SUM(pp.cantidad) FROM usuario u JOIN pedido p ON u.id_usuario = p.id_usuario JOIN pedido_producto pp ON p.id_pedido = pp.id_pedido GROUP BY u.username", nativeQuery = true)
     List<Object[]> findCantidadProductosVendidosPorUsuario();
 
+    /**
+     * Recorre en streaming (cursor de solo avance) una fila plana por línea de pedido
+     * entre dos fechas, para exportaciones contables sin cargar los pedidos en memoria.
+     * El precio unitario es el precio actual del producto, ya que la línea no guarda el suyo.
+     *
+     * @param desde Fecha inicial (incluida).
+     * @param hasta Fecha final (incluida).
+     * @return Stream de arrays [id_pedido, fecha, username, producto, cantidad, precio_unitario].
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(value = "SELECT p.id_pedido, p.fecha, u.username, pr.nombre, pp.cantidad, pr.precio " +
+            "FROM pedido p " +
+            "JOIN usuario u ON p.id_usuario = u.id_usuario " +
+            "JOIN pedido_producto pp ON p.id_pedido = pp.id_pedido " +
+            "JOIN producto pr ON pp.id_producto = pr.id_producto " +
+            "WHERE p.fecha BETWEEN :desde AND :hasta " +
+            "ORDER BY p.id_pedido, pp.id", nativeQuery = true)
+    Stream<Object[]> streamLineasParaExportar(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
 
 // CONSULTAS DE BORRADO EN CASCADA
 
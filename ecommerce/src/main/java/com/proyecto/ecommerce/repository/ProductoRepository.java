@@ -1,11 +1,17 @@
 package com.proyecto.ecommerce.repository;
 
 import com.proyecto.ecommerce.entity.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la entidad Producto.
@@ -54,6 +60,26 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
      * @return Lista de productos ordenados alfabéticamente por nombre.
      */
     List<Producto> findAllByOrderByNombreAsc();
+
+    /**
+     * Descuenta unidades del stock con un único UPDATE, sin leer antes la fila.
+     * Una cantidad negativa devuelve unidades.
+     *
+     * @return Número de filas actualizadas (0 si el producto no existe).
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad WHERE p.idProducto = :idProducto")
+    int descontarStock(@Param("idProducto") Integer idProducto, @Param("cantidad") int cantidad);
+
+    /**
+     * Retira unidades del stock solo si quedan suficientes, con un único UPDATE condicional:
+     * la comprobación y el descuento son atómicos aunque haya otras compras a la vez.
+     *
+     * @return 1 si se retiraron; 0 si no había stock suficiente o el producto no existe.
+     */
+    @Modifying
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad WHERE p.idProducto = :idProducto AND p.stock >= :cantidad")
+    int retirarStock(@Param("idProducto") Integer idProducto, @Param("cantidad") int cantidad);
     // CONSULTAS JPQL
 
     /**
@@ -80,6 +106,17 @@ public interface ProductoRepository extends JpaRepository<Producto, Integer> {
     @Query("SELECT p.idPedido, p.usuario.username, pr.nombre, pp.cantidad FROM Pedido p JOIN PedidoProducto pp ON p.idPedido = pp.pedido.idPedido JOIN Producto pr ON pp.producto.idProducto = pr.idProducto")
     List<Object[]> findPedidosConProductos();
 
+    /**
+     * Igual que {@link #findPedidosConProductos()}, pero recorriendo el resultado en streaming
+     * para que los informes grandes no se carguen enteros en memoria.
+     * Debe consumirse dentro de una transacción.
+     *
+     * @return Stream con ID del pedido, nombre de usuario, nombre del producto y cantidad comprada.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT p.idPedido, p.usuario.username, pr.nombre, pp.cantidad FROM Pedido p JOIN PedidoProducto pp ON p.idPedido = pp.pedido.idPedido JOIN Producto pr ON pp.producto.idProducto = pr.idProducto")
+    Stream<Object[]> streamPedidosConProductos();
+
 
 // CONSULTAS NATIVAS SQL
 
@@ -0,0 +1,53 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.SketchCompradores;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de los sketches HyperLogLog de compradores por producto y mes.
+ */
+@Repository
+public interface SketchCompradoresRepository extends JpaRepository<SketchCompradores, Long> {
+
+    /**
+     * Busca el sketch de un producto y mes bloqueando la fila,
+     * para que dos nodos no pisen la combinación del otro.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<SketchCompradores> findByIdProductoAndMes(Integer idProducto, LocalDate mes);
+
+    /**
+     * Recupera los sketches de un producto en un rango de meses.
+     */
+    List<SketchCompradores> findByIdProductoAndMesBetween(Integer idProducto, LocalDate desde, LocalDate hasta);
+
+    /**
+     * Recupera los sketches de todos los productos en un rango de meses.
+     */
+    List<SketchCompradores> findByMesBetween(LocalDate desde, LocalDate hasta);
+
+    /**
+     * Recorre en streaming los pares (producto, fecha, usuario) distintos del histórico
+     * para reconstruir los sketches sin cargar todo el resultado en memoria.
+     * Se ordena por producto y fecha para poder construir los sketches de uno en uno.
+     *
+     * @return Stream de arrays [id_producto, fecha, id_usuario].
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(value = "SELECT DISTINCT pp.id_producto, p.fecha, p.id_usuario FROM pedido p " +
+            "JOIN pedido_producto pp ON p.id_pedido = pp.id_pedido " +
+            "ORDER BY pp.id_producto, p.fecha", nativeQuery = true)
+    Stream<Object[]> streamCompradoresHistoricos();
+}
@@ -0,0 +1,46 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.SegmentoCliente;
+import com.proyecto.ecommerce.entity.SketchValorPedido;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de los t-digest diarios del valor de los pedidos.
+ */
+@Repository
+public interface SketchValorPedidoRepository extends JpaRepository<SketchValorPedido, Long> {
+
+    /**
+     * Busca el digest de un día y segmento bloqueando la fila para combinarlo.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<SketchValorPedido> findBySegmentoAndFecha(SegmentoCliente segmento, LocalDate fecha);
+
+    /**
+     * Recupera los digest de un segmento en un rango de días, ordenados por fecha.
+     */
+    List<SketchValorPedido> findBySegmentoAndFechaBetweenOrderByFechaAsc(SegmentoCliente segmento,
+                                                                         LocalDate desde, LocalDate hasta);
+
+    /**
+     * Recorre en streaming el histórico de pedidos en orden cronológico
+     * para reconstruir los digest sin cargar toda la tabla en memoria.
+     *
+     * @return Stream de arrays [fecha, id_usuario, total, id_pedido].
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(value = "SELECT p.fecha, p.id_usuario, p.total, p.id_pedido FROM pedido p ORDER BY p.fecha, p.id_pedido", nativeQuery = true)
+    Stream<Object[]> streamPedidosHistoricos();
+}
@@ -0,0 +1,40 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repositorio de las revocaciones de tokens JWT.
+ */
+@Repository
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, Long> {
+
+    boolean existsByJti(String jti);
+
+    /**
+     * Indica si hay una revocación de todos los tokens del usuario a partir de un instante
+     * (el siguiente segundo a la emisión del token).
+     */
+    boolean existsByUsernameAndJtiIsNullAndRevocadoEnGreaterThanEqual(String username, Instant desde);
+
+    /**
+     * Revocaciones aún vigentes, para construir el filtro de Bloom al arrancar o al reconstruirlo.
+     */
+    List<TokenRevocado> findByExpiraAfter(Instant ahora);
+
+    /**
+     * Revocaciones registradas desde un instante (la "fuente de cambios" que sondean los nodos).
+     */
+    List<TokenRevocado> findByRevocadoEnGreaterThanEqual(Instant desde);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocado t WHERE t.expira < :ahora")
+    int eliminarCaducados(@Param("ahora") Instant ahora);
+}
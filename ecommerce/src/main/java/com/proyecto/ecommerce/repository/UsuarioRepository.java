@@ -1,8 +1,10 @@
 package com.proyecto.ecommerce.repository;
 
 import com.proyecto.ecommerce.entity.Usuario;
+import jakarta.persistence.LockModeType;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -34,4 +36,11 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Integer> { //E
      */
     Optional<Usuario> findByCorreo(String correo);
 
+    /**
+     * Busca un usuario bloqueando su fila hasta el final de la transacción,
+     * para serializar los pedidos de un mismo usuario.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Usuario> findConBloqueoByIdUsuario(Integer idUsuario);
+
 }
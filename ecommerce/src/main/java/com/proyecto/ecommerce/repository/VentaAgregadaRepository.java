@@ -0,0 +1,95 @@
+package com.proyecto.ecommerce.repository;
+
+import com.proyecto.ecommerce.entity.Granularidad;
+import com.proyecto.ecommerce.entity.VentaAgregada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repositorio del cubo de ventas pre-agregado (tabla venta_agregada).
+ */
+@Repository
+public interface VentaAgregadaRepository extends JpaRepository<VentaAgregada, Long> {
+
+    /**
+     * Recupera las celdas de un producto (o del total) en un rango de periodos,
+     * ordenadas cronológicamente. Se resuelve con un rango sobre la clave única.
+     *
+     * @param granularidad Granularidad de las celdas.
+     * @param idProducto   ID del producto, o 0 para el total.
+     * @param desde        Inicio del primer periodo (incluido).
+     * @param hasta        Inicio del último periodo (incluido).
+     * @return Lista de celdas del cubo.
+     */
+    List<VentaAgregada> findByGranularidadAndIdProductoAndPeriodoBetweenOrderByPeriodoAsc(
+            Granularidad granularidad, Integer idProducto, LocalDate desde, LocalDate hasta);
+
+// CONSULTAS NATIVAS SQL
+
+    /**
+     * Suma unidades e ingresos a una celda del cubo, creándola si no existe.
+     * El upsert es atómico, por lo que dos pedidos simultáneos no pierden incrementos.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO venta_agregada (granularidad, periodo, id_producto, unidades, ingresos) " +
+            "VALUES (:granularidad, :periodo, :idProducto, :unidades, :ingresos) " +
+            "ON DUPLICATE KEY UPDATE unidades = unidades + :unidades, ingresos = ingresos + :ingresos",
+            nativeQuery = true)
+    void acumular(@Param("granularidad") String granularidad,
+                  @Param("periodo") LocalDate periodo,
+                  @Param("idProducto") Integer idProducto,
+                  @Param("unidades") long unidades,
+                  @Param("ingresos") double ingresos);
+
+// CONSULTAS DE RECONSTRUCCIÓN (BATCH)
+
+    /**
+     * Vacía el cubo antes de reconstruirlo.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM venta_agregada", nativeQuery = true)
+    void vaciar();
+
+    /**
+     * Rellena las celdas diarias por producto a partir de pedido/pedido_producto.
+     * Como pedido_producto no guarda el precio, los ingresos históricos se calculan con el precio actual.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO venta_agregada (granularidad, periodo, id_producto, unidades, ingresos) " +
+            "SELECT 'DIA', p.fecha, pp.id_producto, SUM(pp.cantidad), SUM(pp.cantidad * pr.precio) " +
+            "FROM pedido p JOIN pedido_producto pp ON p.id_pedido = pp.id_pedido " +
+            "JOIN producto pr ON pp.id_producto = pr.id_producto " +
+            "GROUP BY p.fecha, pp.id_producto", nativeQuery = true)
+    void reconstruirDias();
+
+    /**
+     * Agrega las celdas diarias en semanas (empezando en lunes) y meses.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO venta_agregada (granularidad, periodo, id_producto, unidades, ingresos) " +
+            "SELECT g.granularidad, g.periodo, g.id_producto, SUM(g.unidades), SUM(g.ingresos) FROM (" +
+            "  SELECT 'SEMANA' AS granularidad, DATE_SUB(v.periodo, INTERVAL WEEKDAY(v.periodo) DAY) AS periodo, " +
+            "         v.id_producto, v.unidades, v.ingresos FROM venta_agregada v WHERE v.granularidad = 'DIA' " +
+            "  UNION ALL " +
+            "  SELECT 'MES', DATE_SUB(v.periodo, INTERVAL DAYOFMONTH(v.periodo) - 1 DAY), " +
+            "         v.id_producto, v.unidades, v.ingresos FROM venta_agregada v WHERE v.granularidad = 'DIA'" +
+            ") g GROUP BY g.granularidad, g.periodo, g.id_producto", nativeQuery = true)
+    void reconstruirSemanasYMeses();
+
+    /**
+     * Calcula las filas de total (id_producto = 0) de cada periodo a partir de las filas por producto.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO venta_agregada (granularidad, periodo, id_producto, unidades, ingresos) " +
+            "SELECT t.granularidad, t.periodo, 0, t.unidades, t.ingresos FROM (" +
+            "  SELECT v.granularidad, v.periodo, SUM(v.unidades) AS unidades, SUM(v.ingresos) AS ingresos " +
+            "  FROM venta_agregada v WHERE v.id_producto <> 0 GROUP BY v.granularidad, v.periodo" +
+            ") t", nativeQuery = true)
+    void reconstruirTotales();
+}
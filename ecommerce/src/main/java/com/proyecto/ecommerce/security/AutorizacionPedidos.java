@@ -0,0 +1,93 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.entity.Pedido;
+import com.proyecto.ecommerce.entity.PedidoProducto;
+import com.proyecto.ecommerce.service.PedidoProductoService;
+import com.proyecto.ecommerce.service.PedidoService;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lecturas de pedidos filtradas por propietario en la propia consulta.
+ * <p>
+ * Un administrador usa la consulta sin filtro; cualquier otro usuario, la variante con
+ * {@code id_usuario = ?} en el WHERE, de modo que leer un pedido propio es una sola consulta
+ * y el pedido de otro usuario nunca se carga. Un resultado vacío significa "no existe o no es tuyo";
+ * para distinguir 404 de 403 basta {@link #existePedido(Integer)}, que no carga nada.
+ */
+@Component
+public class AutorizacionPedidos {
+
+    private final UsuarioActual usuarioActual;
+    private final PedidoService pedidoService;
+    private final PedidoProductoService pedidoProductoService;
+
+    public AutorizacionPedidos(UsuarioActual usuarioActual, PedidoService pedidoService,
+                               PedidoProductoService pedidoProductoService) {
+        this.usuarioActual = usuarioActual;
+        this.pedidoService = pedidoService;
+        this.pedidoProductoService = pedidoProductoService;
+    }
+
+    /**
+     * @return El pedido si existe y el usuario puede verlo.
+     */
+    public Optional<Pedido> buscarPedido(Integer idPedido) {
+        if (usuarioActual.esAdmin()) {
+            return pedidoService.buscarPedido(idPedido);
+        }
+        return pedidoService.buscarPedidoDeUsuario(idPedido, usuarioActual.getIdUsuario());
+    }
+
+    /**
+     * @return Los pedidos del usuario indicado, o vacío si quien pregunta no es él ni administrador.
+     */
+    public Optional<List<Pedido>> listarPedidosDeUsuario(Integer idUsuario) {
+        if (!usuarioActual.esAdmin() && !usuarioActual.esPropietario(idUsuario)) {
+            return Optional.empty();
+        }
+        return Optional.of(pedidoService.listarPedidosPorIdUsuario(idUsuario));
+    }
+
+    /**
+     * @return Las líneas del pedido, o vacío si el pedido no existe o es de otro usuario.
+     */
+    public Optional<List<PedidoProducto>> listarLineas(Integer idPedido) {
+        if (usuarioActual.esAdmin()) {
+            return pedidoService.existePedido(idPedido)
+                    ? Optional.of(pedidoProductoService.listarPorPedido(idPedido))
+                    : Optional.empty();
+        }
+        Integer idUsuario = usuarioActual.getIdUsuario();
+        List<PedidoProducto> lineas = pedidoProductoService.listarPorPedidoDeUsuario(idPedido, idUsuario);
+        return conLineas(lineas, idPedido, idUsuario);
+    }
+
+    /**
+     * @return Las líneas de ese producto en el pedido, o vacío si el pedido no existe o es de otro usuario.
+     */
+    public Optional<List<PedidoProducto>> buscarRelacion(Integer idPedido, Integer idProducto) {
+        if (usuarioActual.esAdmin()) {
+            return pedidoService.existePedido(idPedido)
+                    ? Optional.of(pedidoProductoService.obtenerRelacionPedidoProducto(idPedido, idProducto))
+                    : Optional.empty();
+        }
+        Integer idUsuario = usuarioActual.getIdUsuario();
+        List<PedidoProducto> lineas = pedidoProductoService.obtenerRelacionPedidoProductoDeUsuario(idPedido, idProducto, idUsuario);
+        return conLineas(lineas, idPedido, idUsuario);
+    }
+
+    public boolean existePedido(Integer idPedido) {
+        return pedidoService.existePedido(idPedido);
+    }
+
+    // Sin líneas no se sabe si el pedido es propio (y está vacío) o ajeno: solo entonces se comprueba
+    private Optional<List<PedidoProducto>> conLineas(List<PedidoProducto> lineas, Integer idPedido, Integer idUsuario) {
+        if (!lineas.isEmpty() || pedidoService.esPropietario(idPedido, idUsuario)) {
+            return Optional.of(lineas);
+        }
+        return Optional.empty();
+    }
+}
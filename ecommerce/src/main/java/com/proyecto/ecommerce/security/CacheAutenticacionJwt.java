@@ -0,0 +1,156 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.dto.EstadisticasCacheDTO;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de autenticaciones ya verificadas, indexada por el resumen SHA-256 del token.
+ * <p>
+ * Un navegador envía el mismo token cientos de veces por hora; con la caché solo la primera
+ * petición verifica la firma y decodifica los claims, y el resto reutiliza el mismo
+ * {@link Authentication} (inmutable en la práctica: nadie lo modifica tras crearlo).
+ * Cada entrada caduca en el "exp" del token, así que nunca se acepta un token vencido.
+ * Se guarda el resumen y no el token para no retener credenciales en memoria.
+ */
+@Component
+public class CacheAutenticacionJwt {
+
+    private record Entrada(Authentication autenticacion, long expiraMillis) {
+    }
+
+    // El parser es inmutable y thread-safe: se construye una sola vez
+    private final JwtParser parser;
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder invalidos = new LongAdder();
+
+    @Value("${ecommerce.seguridad.cache-jwt.max-entradas:10000}")
+    private int maxEntradas;
+
+    public CacheAutenticacionJwt(GestorClavesJwt gestorClaves) {
+        this.parser = gestorClaves.getParser();
+    }
+
+    /**
+     * Devuelve la autenticación del token, verificándolo solo si no está en caché.
+     *
+     * @param token Token JWT sin el prefijo "Bearer ".
+     * @return Autenticación con el username y sus roles, o null si al token le faltan esos claims.
+     * @throws JwtException si la firma no es válida o el token ha caducado.
+     */
+    public Authentication obtenerAutenticacion(String token) {
+        String clave = resumen(token);
+        Entrada entrada = entradas.get(clave);
+        long ahora = System.currentTimeMillis();
+        if (entrada != null) {
+            if (ahora < entrada.expiraMillis()) {
+                aciertos.increment();
+                return entrada.autenticacion();
+            }
+            entradas.remove(clave, entrada);
+        }
+
+        fallos.increment();
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException e) {
+            invalidos.increment();
+            throw e;
+        }
+        String username = claims.getSubject();
+        List<?> roles = claims.get("authorities", List.class);
+        if (username == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .<GrantedAuthority>map(rol -> new SimpleGrantedAuthority(rol.toString()))
+                .toList();
+        // El principal lleva id, username y roles de los claims: nadie necesita consultar el usuario
+        UsuarioAutenticado principal = new UsuarioAutenticado(claims.get("idUsuario", Integer.class), username,
+                authorities.stream().map(GrantedAuthority::getAuthority).toList());
+        UsernamePasswordAuthenticationToken autenticacion = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+
+        Date expiracion = claims.getExpiration();
+        Date emision = claims.getIssuedAt();
+        // jti, iat y exp permiten comprobar la revocación sin volver a decodificar el token
+        autenticacion.setDetails(new DatosToken(claims.getId(), emision != null ? emision.getTime() : 0L,
+                expiracion != null ? expiracion.getTime() : Long.MAX_VALUE));
+        if (expiracion != null) {
+            if (entradas.size() >= maxEntradas) {
+                liberarEspacio(ahora);
+            }
+            entradas.put(clave, new Entrada(autenticacion, expiracion.getTime()));
+        }
+        return autenticacion;
+    }
+
+    /**
+     * Olvida todas las autenticaciones cacheadas.
+     */
+    public void vaciar() {
+        entradas.clear();
+    }
+
+    public EstadisticasCacheDTO obtenerEstadisticas() {
+        long hits = aciertos.sum();
+        long misses = fallos.sum();
+        long total = hits + misses;
+        return new EstadisticasCacheDTO("jwt", hits, 0L, misses, misses - invalidos.sum(), invalidos.sum(),
+                total == 0 ? 0.0 : (double) hits / total);
+    }
+
+    /**
+     * Elimina las entradas caducadas.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarCaducadas() {
+        long ahora = System.currentTimeMillis();
+        entradas.values().removeIf(e -> e.expiraMillis() <= ahora);
+    }
+
+    /**
+     * Con la caché llena, quita las caducadas y, si no basta, una décima parte de las entradas.
+     */
+    private void liberarEspacio(long ahora) {
+        entradas.values().removeIf(e -> e.expiraMillis() <= ahora);
+        int sobrantes = entradas.size() - maxEntradas + maxEntradas / 10;
+        Iterator<String> it = entradas.keySet().iterator();
+        while (sobrantes-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String resumen(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.dto.EstadisticasCacheDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché de los UserDetails por username, para que el login no consulte el usuario
+ * y sus roles en cada intento.
+ * <p>
+ * Se guarda una instantánea inmutable y cada lectura devuelve un UserDetails nuevo:
+ * Spring Security borra la contraseña del principal tras autenticar, y si se devolviera
+ * la instancia cacheada se borraría también la de la caché. Se conserva el id del usuario
+ * ({@link DetallesUsuario}) para poder incluirlo en el token.
+ * Las entradas se invalidan al modificar, eliminar o cambiar la contraseña del usuario
+ * (también tras el commit, para que una lectura concurrente no vuelva a cachear el dato viejo),
+ * y caducan pasado un tiempo como red de seguridad frente a cambios hechos fuera de la aplicación.
+ */
+@Component
+public class CacheDetallesUsuario {
+
+    private record Entrada(Integer idUsuario, String username, String password, boolean enabled,
+                           List<GrantedAuthority> authorities, long expiraMillis) {
+
+        UserDetails aUserDetails() {
+            return new DetallesUsuario(idUsuario, username, password, enabled, authorities);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    @Value("${ecommerce.seguridad.cache-usuarios.ttl-segundos:600}")
+    private long ttlSegundos;
+
+    @Value("${ecommerce.seguridad.cache-usuarios.max-entradas:10000}")
+    private int maxEntradas;
+
+    /**
+     * Devuelve los detalles del usuario, cargándolos solo si no están en caché.
+     *
+     * @param username Nombre de usuario.
+     * @param cargador Carga los detalles desde la base de datos (puede lanzar UsernameNotFoundException).
+     * @return Una copia de los detalles, con su propia contraseña.
+     */
+    public UserDetails obtener(String username, Function<String, UserDetails> cargador) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(username);
+        if (entrada != null && ahora < entrada.expiraMillis()) {
+            aciertos.increment();
+            return entrada.aUserDetails();
+        }
+
+        fallos.increment();
+        UserDetails detalles = cargador.apply(username);
+        if (entradas.size() >= maxEntradas) {
+            entradas.clear();
+        }
+        Collection<? extends GrantedAuthority> authorities = detalles.getAuthorities();
+        Integer idUsuario = detalles instanceof DetallesUsuario conId ? conId.getIdUsuario() : null;
+        Entrada nueva = new Entrada(idUsuario, detalles.getUsername(), detalles.getPassword(), detalles.isEnabled(),
+                List.copyOf(authorities), ahora + TimeUnit.SECONDS.toMillis(ttlSegundos));
+        entradas.put(username, nueva);
+        return nueva.aUserDetails();
+    }
+
+    /**
+     * Olvida los detalles de los usuarios indicados, ahora y de nuevo tras el commit
+     * de la transacción en curso si la hay.
+     *
+     * @param usernames Usernames afectados (los nulos se ignoran).
+     */
+    public void invalidar(String... usernames) {
+        quitar(usernames);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    quitar(usernames);
+                }
+            });
+        }
+    }
+
+    public EstadisticasCacheDTO obtenerEstadisticas() {
+        long hits = aciertos.sum();
+        long misses = fallos.sum();
+        long total = hits + misses;
+        return new EstadisticasCacheDTO("usuarios", hits, 0L, misses, misses, 0L,
+                total == 0 ? 0.0 : (double) hits / total);
+    }
+
+    /**
+     * Elimina las entradas caducadas.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarCaducadas() {
+        long ahora = System.currentTimeMillis();
+        entradas.values().removeIf(e -> e.expiraMillis() <= ahora);
+    }
+
+    private void quitar(String... usernames) {
+        for (String username : usernames) {
+            if (username != null) {
+                entradas.remove(username);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.dto.EstadisticasHashDTO;
+import com.proyecto.ecommerce.exception.LimiteExcedidoException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PasswordEncoder BCrypt que calcula los hashes en un pool propio y acotado.
+ * <p>
+ * BCrypt es deliberadamente caro (decenas de milisegundos de CPU por hash). Si se ejecutara
+ * en los hilos de Tomcat, una ráfaga de logins ocuparía todos los núcleos y dejaría sin CPU
+ * al catálogo y a los pedidos. Aquí como mucho hay tantos hashes en paralelo como núcleos;
+ * el resto espera en una cola limitada y, si está llena o la espera supera el máximo,
+ * la petición se rechaza al momento con {@link LimiteExcedidoException} (429).
+ * <p>
+ * El coste es configurable; {@link #upgradeEncoding(String)} indica a Spring Security qué
+ * hashes tienen un coste distinto del actual para que se regeneren al iniciar sesión.
+ */
+@Component
+public class CodificadorContrasenas implements PasswordEncoder {
+
+    private final int coste;
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final int capacidadCola;
+    private final long esperaMaxMs;
+
+    private final LongAdder completados = new LongAdder();
+    private final LongAdder rechazados = new LongAdder();
+    private final LongAdder rehasheados = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final LongAdder hashTotalNanos = new LongAdder();
+    private final LongAccumulator hashMaximoNanos = new LongAccumulator(Long::max, 0L);
+
+    public CodificadorContrasenas(@Value("${ecommerce.seguridad.bcrypt.coste:10}") int coste,
+                                  @Value("${ecommerce.seguridad.bcrypt.hilos:0}") int hilos,
+                                  @Value("${ecommerce.seguridad.bcrypt.cola:64}") int cola,
+                                  @Value("${ecommerce.seguridad.bcrypt.espera-max-ms:3000}") long esperaMaxMs) {
+        this.coste = coste;
+        this.bcrypt = new BCryptPasswordEncoder(coste);
+        this.capacidadCola = cola;
+        this.esperaMaxMs = esperaMaxMs;
+
+        // Por defecto un hilo por núcleo: más hilos no calculan más hashes, solo se reparten la CPU
+        int tamanio = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(tamanio, tamanio, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "bcrypt-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return ejecutar(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return ejecutar(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Indica si el hash se generó con un coste distinto del configurado. No cuesta CPU:
+     * el coste va en claro en la cabecera del hash ($2a$10$...).
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return false;
+        }
+        int costeHash;
+        try {
+            costeHash = Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        boolean desactualizado = costeHash != coste;
+        if (desactualizado) {
+            rehasheados.increment();
+        }
+        return desactualizado;
+    }
+
+    /**
+     * Ejecuta un cálculo de hash en el pool y espera su resultado en el hilo que lo pide.
+     */
+    private <T> T ejecutar(Callable<T> calculo) {
+        long encolado = System.nanoTime();
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(() -> {
+                long inicio = System.nanoTime();
+                esperaTotalNanos.add(inicio - encolado);
+                try {
+                    return calculo.call();
+                } finally {
+                    long duracion = System.nanoTime() - inicio;
+                    hashTotalNanos.add(duracion);
+                    hashMaximoNanos.accumulate(duracion);
+                    completados.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazados.increment();
+            throw new LimiteExcedidoException("Demasiadas solicitudes de autenticación en este momento. Inténtalo de nuevo en unos segundos.");
+        }
+
+        try {
+            return futuro.get(esperaMaxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Si aún no había empezado lo sacamos de la cola para no gastar CPU en una respuesta que nadie espera
+            futuro.cancel(false);
+            executor.remove((Runnable) futuro);
+            rechazados.increment();
+            throw new LimiteExcedidoException("El servidor está ocupado verificando credenciales. Inténtalo de nuevo en unos segundos.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error calculando el hash de la contraseña", e.getCause());
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se calculaba el hash de la contraseña", e);
+        }
+    }
+
+    public EstadisticasHashDTO obtenerEstadisticas() {
+        long total = completados.sum();
+        return new EstadisticasHashDTO(coste, executor.getMaximumPoolSize(), executor.getActiveCount(),
+                executor.getQueue().size(), capacidadCola, total, rechazados.sum(), rehasheados.sum(),
+                total == 0 ? 0.0 : esperaTotalNanos.sum() / 1e6 / total,
+                total == 0 ? 0.0 : hashTotalNanos.sum() / 1e6 / total,
+                hashMaximoNanos.get() / 1e6);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,12 @@
+package com.proyecto.ecommerce.security;
+
+/**
+ * Datos del token JWT que acompañan a la autenticación (como "details") y que hacen
+ * falta para comprobar si el token ha sido revocado.
+ *
+ * @param jti           identificador único del token, o null en tokens emitidos antes de tenerlo.
+ * @param emitidoMillis instante de emisión (claim "iat"), o 0 si el token no lo lleva.
+ * @param expiraMillis  instante de caducidad (claim "exp").
+ */
+public record DatosToken(String jti, long emitidoMillis, long expiraMillis) {
+}
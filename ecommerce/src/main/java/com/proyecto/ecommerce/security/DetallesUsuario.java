@@ -0,0 +1,24 @@
+package com.proyecto.ecommerce.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * UserDetails que además lleva el id del usuario, para incluirlo en el token al iniciar sesión.
+ */
+public class DetallesUsuario extends User {
+
+    private final Integer idUsuario;
+
+    public DetallesUsuario(Integer idUsuario, String username, String password, boolean enabled,
+                           Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.idUsuario = idUsuario;
+    }
+
+    public Integer getIdUsuario() {
+        return idUsuario;
+    }
+}
@@ -0,0 +1,151 @@
+package com.proyecto.ecommerce.security;
+
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.*;
+import java.security.cert.Certificate;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.*;
+
+/**
+ * Gestiona las claves con las que se firman y verifican los tokens JWT.
+ * <p>
+ * Las claves se cargan de la configuración ({@link PropiedadesJwt}) y/o de un keystore,
+ * así que todos los nodos comparten las mismas y los tokens sobreviven a los reinicios.
+ * Los tokens emitidos llevan en la cabecera el "kid" de la clave de firma, y al verificar
+ * se elige la clave por ese kid, de modo que durante una rotación conviven varias.
+ * Con claves asimétricas (ES256 o Ed25519) los nodos que solo verifican no necesitan la privada.
+ * <p>
+ * Si no hay ninguna clave configurada se genera una HS256 efímera, como antes,
+ * y se avisa de que los tokens no sobrevivirán a un reinicio.
+ */
+@Component
+public class GestorClavesJwt {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorClavesJwt.class);
+
+    private static final String KID_EFIMERA = "efimera";
+
+    // kid -> SecretKey o PrivateKey
+    private final Map<String, Key> clavesFirma;
+
+    // kid -> SecretKey o PublicKey
+    private final Map<String, Key> clavesVerificacion;
+
+    private final String kidFirma;
+
+    private final JwtParser parser;
+
+    public GestorClavesJwt(PropiedadesJwt propiedades) {
+        Map<String, Key> firma = new HashMap<>();
+        Map<String, Key> verificacion = new HashMap<>();
+
+        propiedades.getClavesHmac().forEach((kid, secreto) -> {
+            Key clave = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secreto.trim()));
+            firma.put(kid, clave);
+            verificacion.put(kid, clave);
+        });
+        propiedades.getClavesPublicas().forEach((kid, publica) ->
+                verificacion.put(kid, leerClavePublica(kid, publica.trim())));
+        if (propiedades.getKeystore().getRuta() != null && !propiedades.getKeystore().getRuta().isBlank()) {
+            cargarKeystore(propiedades.getKeystore(), firma, verificacion);
+        }
+
+        String kid = propiedades.getClaveFirma();
+        if (verificacion.isEmpty()) {
+            log.warn("No hay claves JWT configuradas (ecommerce.seguridad.jwt.*): se usa una clave efímera; "
+                    + "los tokens dejarán de ser válidos al reiniciar y no sirven entre nodos.");
+            Key efimera = Jwts.SIG.HS256.key().build();
+            firma.put(KID_EFIMERA, efimera);
+            verificacion.put(KID_EFIMERA, efimera);
+            kid = KID_EFIMERA;
+        }
+        if (kid != null && !kid.isBlank() && !firma.containsKey(kid)) {
+            throw new IllegalStateException("La clave de firma JWT '" + kid + "' no existe o no tiene parte privada.");
+        }
+
+        this.clavesFirma = Map.copyOf(firma);
+        this.clavesVerificacion = Map.copyOf(verificacion);
+        this.kidFirma = kid == null || kid.isBlank() ? null : kid;
+        // Parser inmutable y thread-safe: elige la clave por el kid de la cabecera
+        this.parser = Jwts.parser().keyLocator(new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                Key clave = header.getKeyId() != null ? clavesVerificacion.get(header.getKeyId()) : null;
+                if (clave == null) {
+                    throw new UnsupportedJwtException("Clave de firma desconocida: " + header.getKeyId());
+                }
+                return clave;
+            }
+        }).build();
+
+        log.info("Claves JWT cargadas: verificación {}, firma {}", clavesVerificacion.keySet(),
+                kidFirma != null ? kidFirma : "(ninguna, nodo solo de verificación)");
+    }
+
+    /**
+     * Crea un token con la cabecera kid y la firma de la clave activa; falta añadir los claims.
+     * @throws IllegalStateException si este nodo no tiene clave de firma.
+     */
+    public JwtBuilder nuevoToken() {
+        if (kidFirma == null) {
+            throw new IllegalStateException("Este nodo no tiene clave de firma JWT configurada.");
+        }
+        return Jwts.builder()
+                .header().keyId(kidFirma).and()
+                .signWith(clavesFirma.get(kidFirma));
+    }
+
+    /**
+     * Parser que verifica los tokens con la clave indicada en su kid.
+     */
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    private static PublicKey leerClavePublica(String kid, String base64) {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(base64));
+        for (String algoritmo : List.of("EC", "Ed25519")) {
+            try {
+                return KeyFactory.getInstance(algoritmo).generatePublic(spec);
+            } catch (GeneralSecurityException e) {
+                // Se prueba con el siguiente algoritmo
+            }
+        }
+        throw new IllegalStateException("La clave pública JWT '" + kid + "' no es EC ni Ed25519.");
+    }
+
+    private static void cargarKeystore(PropiedadesJwt.Keystore config, Map<String, Key> firma, Map<String, Key> verificacion) {
+        char[] password = config.getPassword() != null ? config.getPassword().toCharArray() : new char[0];
+        try (InputStream in = Files.newInputStream(Path.of(config.getRuta()))) {
+            KeyStore keystore = KeyStore.getInstance(config.getTipo());
+            keystore.load(in, password);
+            for (String alias : Collections.list(keystore.aliases())) {
+                if (keystore.isKeyEntry(alias)) {
+                    Key clave = keystore.getKey(alias, password);
+                    firma.put(alias, clave);
+                    if (clave instanceof PrivateKey) {
+                        Certificate certificado = keystore.getCertificate(alias);
+                        if (certificado != null) {
+                            verificacion.put(alias, certificado.getPublicKey());
+                        }
+                    } else {
+                        verificacion.put(alias, clave);
+                    }
+                } else if (keystore.isCertificateEntry(alias)) {
+                    verificacion.put(alias, keystore.getCertificate(alias).getPublicKey());
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo cargar el keystore JWT " + config.getRuta(), e);
+        }
+    }
+}
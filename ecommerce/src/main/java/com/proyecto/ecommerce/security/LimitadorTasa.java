@@ -0,0 +1,103 @@
+package com.proyecto.ecommerce.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubos de tokens en memoria para limitar peticiones por IP o por usuario.
+ * <p>
+ * Cada cubo se guarda como un único long: el instante teórico en que volverá a estar lleno
+ * (algoritmo GCRA, equivalente a un cubo de tokens). Consumir un token es leer ese instante,
+ * calcular el siguiente y hacer un CAS, sin bloqueos ni hilos de recarga.
+ * Un cubo cuyo instante ya ha pasado está lleno y es idéntico a uno nuevo, así que
+ * descartarlo no cambia ningún límite: así se acota la memoria sin perder precisión.
+ */
+@Component
+public class LimitadorTasa {
+
+    /**
+     * Resultado de consumir un token.
+     *
+     * @param permitido       si la petición se admite.
+     * @param limite          capacidad del cubo.
+     * @param restantes       tokens que quedan tras esta petición.
+     * @param segundosLleno   segundos hasta que el cubo vuelva a estar lleno.
+     * @param segundosEsperar segundos hasta que haya un token (0 si se admite).
+     */
+    public record Resultado(boolean permitido, int limite, long restantes, long segundosLleno, long segundosEsperar) {
+    }
+
+    private final ConcurrentHashMap<String, AtomicLong> cubos = new ConcurrentHashMap<>();
+
+    private final PropiedadesLimiteTasa propiedades;
+
+    public LimitadorTasa(PropiedadesLimiteTasa propiedades) {
+        this.propiedades = propiedades;
+    }
+
+    /**
+     * Consume un token del cubo de la clave.
+     *
+     * @param clave           identificador del cubo (regla + IP o usuario).
+     * @param capacidad       peticiones admitidas de golpe.
+     * @param periodoSegundos tiempo en que se rellena el cubo entero.
+     */
+    public Resultado consumir(String clave, int capacidad, long periodoSegundos) {
+        long intervalo = TimeUnit.SECONDS.toNanos(periodoSegundos) / capacidad;
+        long ventana = intervalo * capacidad;
+
+        AtomicLong cubo = cubos.get(clave);
+        if (cubo == null) {
+            if (cubos.size() >= propiedades.getMaxCubos()) {
+                liberarEspacio();
+            }
+            cubo = cubos.computeIfAbsent(clave, k -> new AtomicLong(System.nanoTime()));
+        }
+
+        long ahora = System.nanoTime();
+        while (true) {
+            long lleno = cubo.get();
+            long base = lleno - ahora < 0 ? ahora : lleno;
+            long siguiente = base + intervalo;
+            long ocupado = siguiente - ahora;
+            if (ocupado > ventana) {
+                return new Resultado(false, capacidad, 0, segundos(base - ahora), segundos(ocupado - ventana));
+            }
+            if (cubo.compareAndSet(lleno, siguiente)) {
+                return new Resultado(true, capacidad, (ventana - ocupado) / intervalo, segundos(ocupado), 0);
+            }
+        }
+    }
+
+    /**
+     * Elimina los cubos llenos, que no aportan información.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarLlenos() {
+        long ahora = System.nanoTime();
+        cubos.values().removeIf(cubo -> cubo.get() - ahora <= 0);
+    }
+
+    /**
+     * Con el presupuesto agotado quita los cubos llenos y, si no basta, una décima parte de los demás.
+     */
+    private void liberarEspacio() {
+        purgarLlenos();
+        int maxCubos = propiedades.getMaxCubos();
+        int sobrantes = cubos.size() - maxCubos + maxCubos / 10;
+        Iterator<String> it = cubos.keySet().iterator();
+        while (sobrantes-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static long segundos(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+}
@@ -0,0 +1,53 @@
+package com.proyecto.ecommerce.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuración de las claves JWT (prefijo ecommerce.seguridad.jwt).
+ * <p>
+ * Cada clave se identifica por un "kid" que viaja en la cabecera del token. Para rotar,
+ * se añade la clave nueva, se cambia {@code clave-firma} y se mantiene la antigua
+ * mientras queden tokens firmados con ella (como mucho, la duración de un token).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ecommerce.seguridad.jwt")
+public class PropiedadesJwt {
+
+    /**
+     * Kid de la clave con la que este nodo firma tokens. Vacío en nodos que solo verifican.
+     */
+    private String claveFirma;
+
+    /**
+     * Secretos HMAC (HS256) en Base64, de al menos 32 bytes, por kid.
+     */
+    private Map<String, String> clavesHmac = new LinkedHashMap<>();
+
+    /**
+     * Claves públicas en Base64 (X.509 SubjectPublicKeyInfo, EC P-256 o Ed25519) por kid.
+     * Permiten verificar sin tener la clave privada.
+     */
+    private Map<String, String> clavesPublicas = new LinkedHashMap<>();
+
+    private Keystore keystore = new Keystore();
+
+    /**
+     * Almacén de claves opcional. Cada alias es un kid: las entradas de clave privada sirven
+     * para firmar y verificar, los certificados solo para verificar y las claves secretas como HMAC.
+     */
+    @Data
+    public static class Keystore {
+
+        private String ruta;
+
+        private String password;
+
+        private String tipo = "PKCS12";
+    }
+}
@@ -0,0 +1,63 @@
+package com.proyecto.ecommerce.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuración del limitador de peticiones (prefijo ecommerce.seguridad.limite-tasa).
+ * <p>
+ * Cada regla se aplica a un método y una ruta, con un cubo de tokens por IP y otro por usuario.
+ * Las reglas por defecto se pueden modificar o desactivar por nombre, por ejemplo
+ * {@code ecommerce.seguridad.limite-tasa.reglas.login.capacidad-usuario=10}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ecommerce.seguridad.limite-tasa")
+public class PropiedadesLimiteTasa {
+
+    private boolean habilitado = true;
+
+    /**
+     * Máximo de cubos en memoria. Al superarse se descartan primero los que ya están llenos.
+     */
+    private int maxCubos = 100_000;
+
+    private Map<String, Regla> reglas = new LinkedHashMap<>(Map.of(
+            "login", new Regla(true, "POST", "/login", 30, 5, 60),
+            "registro", new Regla(true, "POST", "/api/usuarios/register", 10, 3, 3600),
+            "pedidos", new Regla(true, "POST", "/api/pedidos", 60, 20, 60)));
+
+    /**
+     * Límite de una ruta. Un cubo admite "capacidad" peticiones seguidas y se rellena
+     * a razón de "capacidad" tokens cada "periodoSegundos". Una capacidad de 0 desactiva esa clave.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Regla {
+
+        private boolean habilitada = true;
+
+        /**
+         * Método HTTP; vacío para cualquiera.
+         */
+        private String metodo;
+
+        /**
+         * Ruta exacta o patrón Ant (/api/pedidos/**).
+         */
+        private String ruta;
+
+        private int capacidadIp;
+
+        private int capacidadUsuario;
+
+        private long periodoSegundos = 60;
+    }
+}
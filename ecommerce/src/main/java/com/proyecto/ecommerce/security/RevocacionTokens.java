@@ -0,0 +1,280 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.entity.TokenRevocado;
+import com.proyecto.ecommerce.repository.TokenRevocadoRepository;
+import com.proyecto.ecommerce.util.FiltroBloom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static com.proyecto.ecommerce.security.TokenJwtConfig.DURACION_TOKEN_MS;
+
+/**
+ * Revocación de tokens JWT antes de su caducidad.
+ * <p>
+ * Las revocaciones se guardan en la tabla token_revocado y, en memoria, en un filtro de Bloom
+ * con una clave por token ("j:" + jti) y otra por usuario ("u:" + username). En el caso normal
+ * (token no revocado) basta con unas pocas consultas al filtro, sin tocar la base de datos;
+ * solo cuando el filtro dice "puede que esté" se comprueba en la tabla, y ese resultado se
+ * recuerda hasta que se revoca esa misma clave.
+ * <p>
+ * Cada nodo sondea periódicamente la tabla para incorporar las revocaciones hechas en otros.
+ * El sondeo relee un margen hacia atrás para no perder filas que se confirmaron tarde;
+ * volver a añadir una clave al filtro no tiene efecto. El filtro no admite borrados, así que
+ * se reconstruye periódicamente solo con las revocaciones vigentes.
+ */
+@Component
+public class RevocacionTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(RevocacionTokens.class);
+
+    // Margen que relee cada sondeo para cubrir transacciones que confirmaron después de empezar
+    private static final long MARGEN_SONDEO_MS = 30_000;
+
+    private static final int MAX_COMPROBADOS = 10_000;
+
+    private final TokenRevocadoRepository repository;
+    private final TransactionTemplate nuevaTransaccion;
+
+    @Value("${ecommerce.seguridad.revocacion.esperados:100000}")
+    private int esperados;
+
+    @Value("${ecommerce.seguridad.revocacion.falsos-positivos:0.01}")
+    private double falsosPositivos;
+
+    private volatile FiltroBloom filtro = new FiltroBloom(1_000, 0.01);
+
+    // Claves añadidas al filtro y número para el que se dimensionó
+    private final AtomicInteger insertados = new AtomicInteger();
+    private volatile int capacidad = 1_000;
+
+    // Resultado de las comprobaciones exactas hechas tras un acierto del filtro, por clave del filtro
+    // y, dentro de ella, por instante de emisión del token (las claves de token usan siempre 0)
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Boolean>> comprobados = new ConcurrentHashMap<>();
+    private final AtomicLong generacion = new AtomicLong();
+
+    private volatile Instant ultimoSondeo = Instant.EPOCH;
+
+    // Filas ya incorporadas dentro del margen de sondeo, para no contarlas dos veces
+    private final ConcurrentHashMap<Long, Instant> aplicadas = new ConcurrentHashMap<>();
+
+    public RevocacionTokens(TokenRevocadoRepository repository, PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconstruir();
+    }
+
+    /**
+     * Revoca un token concreto (cierre de sesión).
+     *
+     * @param username Usuario del token.
+     * @param datos    jti y caducidad del token.
+     */
+    public void revocarToken(String username, DatosToken datos) {
+        if (datos.jti() == null || datos.expiraMillis() <= System.currentTimeMillis()) {
+            return;
+        }
+        Instant expira = Instant.ofEpochMilli(Math.min(datos.expiraMillis(), System.currentTimeMillis() + DURACION_TOKEN_MS));
+        TokenRevocado guardado = nuevaTransaccion.execute(status -> repository.existsByJti(datos.jti())
+                ? null
+                : repository.save(new TokenRevocado(null, datos.jti(), username, Instant.now(), expira)));
+        if (guardado != null) {
+            aplicar(guardado);
+        }
+    }
+
+    /**
+     * Revoca todos los tokens emitidos hasta ahora para un usuario
+     * (deshabilitado, eliminado, renombrado o con la contraseña o los roles cambiados).
+     *
+     * @param username Usuario cuyos tokens dejan de valer.
+     */
+    public void revocarUsuario(String username) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Dentro de una transacción se espera al commit: si se deshace, el usuario no cambió
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guardarRevocacionUsuario(username);
+                }
+            });
+        } else {
+            guardarRevocacionUsuario(username);
+        }
+    }
+
+    private void guardarRevocacionUsuario(String username) {
+        Instant ahora = Instant.now();
+        aplicar(nuevaTransaccion.execute(status ->
+                repository.save(new TokenRevocado(null, null, username, ahora, ahora.plusMillis(DURACION_TOKEN_MS)))));
+    }
+
+    /**
+     * Indica si el token de la autenticación ha sido revocado.
+     *
+     * @param autenticacion Autenticación obtenida del token, con {@link DatosToken} como details.
+     */
+    public boolean estaRevocado(Authentication autenticacion) {
+        if (!(autenticacion.getDetails() instanceof DatosToken datos)) {
+            return false;
+        }
+        FiltroBloom actual = filtro;
+        String username = autenticacion.getName();
+
+        String claveUsuario = claveUsuario(username);
+        if (actual.puedeContener(claveUsuario)
+                && comprobar(claveUsuario, datos.emitidoMillis(), () -> repository
+                .existsByUsernameAndJtiIsNullAndRevocadoEnGreaterThanEqual(username, revocaDesde(datos)))) {
+            return true;
+        }
+
+        if (datos.jti() != null) {
+            String claveToken = claveToken(datos.jti());
+            return actual.puedeContener(claveToken)
+                    && comprobar(claveToken, 0L, () -> repository.existsByJti(datos.jti()));
+        }
+        return false;
+    }
+
+    /**
+     * Primer instante de revocación de usuario que invalida el token. "iat" va en segundos, así que
+     * se compara por segundos y solo cuentan las revocaciones de un segundo posterior al de emisión:
+     * si no, el token de quien vuelve a entrar justo tras cambiar la contraseña (mismo segundo)
+     * quedaría revocado durante toda su vida.
+     */
+    private static Instant revocaDesde(DatosToken datos) {
+        return Instant.ofEpochMilli(datos.emitidoMillis()).truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    /**
+     * Incorpora las revocaciones registradas por cualquier nodo desde el último sondeo.
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.seguridad.revocacion.sondeo-ms:2000}",
+            initialDelayString = "${ecommerce.seguridad.revocacion.sondeo-ms:2000}")
+    public synchronized void sondear() {
+        Instant inicio = Instant.now();
+        List<TokenRevocado> nuevas;
+        try {
+            nuevas = repository.findByRevocadoEnGreaterThanEqual(ultimoSondeo.minusMillis(MARGEN_SONDEO_MS));
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron consultar las revocaciones de tokens: {}", e.getMessage());
+            return;
+        }
+        for (TokenRevocado revocado : nuevas) {
+            aplicar(revocado);
+        }
+        ultimoSondeo = inicio;
+        Instant limite = inicio.minusMillis(2 * MARGEN_SONDEO_MS);
+        aplicadas.values().removeIf(revocadoEn -> revocadoEn.isBefore(limite));
+        if (insertados.get() > capacidad) {
+            // Por encima del tamaño previsto crece la tasa de falsos positivos: se redimensiona
+            reconstruir();
+        }
+    }
+
+    /**
+     * Borra las revocaciones caducadas y reconstruye el filtro con las vigentes,
+     * dimensionado para el doble de las que hay (como mínimo, las esperadas).
+     */
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.HOURS)
+    public synchronized void reconstruir() {
+        Instant inicio = Instant.now();
+        List<TokenRevocado> vigentes;
+        try {
+            nuevaTransaccion.executeWithoutResult(status -> repository.eliminarCaducados(inicio));
+            vigentes = repository.findByExpiraAfter(inicio);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo reconstruir el filtro de tokens revocados: {}", e.getMessage());
+            return;
+        }
+        int tamanio = Math.max(esperados, vigentes.size() * 2);
+        FiltroBloom nuevo = new FiltroBloom(tamanio, falsosPositivos);
+        for (TokenRevocado revocado : vigentes) {
+            nuevo.agregar(clave(revocado));
+        }
+        filtro = nuevo;
+        capacidad = tamanio;
+        insertados.set(vigentes.size());
+        generacion.incrementAndGet();
+        // Solo pueden haber cambiado las comprobaciones de las claves revocadas
+        for (TokenRevocado revocado : vigentes) {
+            comprobados.remove(clave(revocado));
+        }
+        // El siguiente sondeo vuelve a aplicar el margen por si algo entró en el filtro anterior durante la carga
+        aplicadas.clear();
+        ultimoSondeo = inicio;
+        log.info("Filtro de tokens revocados reconstruido con {} revocaciones vigentes", vigentes.size());
+    }
+
+    private void aplicar(TokenRevocado revocado) {
+        if (aplicadas.putIfAbsent(revocado.getId(), revocado.getRevocadoEn()) != null) {
+            return;
+        }
+        String clave = clave(revocado);
+        filtro.agregar(clave);
+        // Una revocación nueva puede invalidar un "no revocado" ya comprobado de su misma clave
+        generacion.incrementAndGet();
+        comprobados.remove(clave);
+        insertados.incrementAndGet();
+    }
+
+    private boolean comprobar(String clave, long emitido, BooleanSupplier consulta) {
+        ConcurrentHashMap<Long, Boolean> porEmision = comprobados.get(clave);
+        Boolean revocado = porEmision != null ? porEmision.get(emitido) : null;
+        if (revocado == null) {
+            long antes = generacion.get();
+            revocado = consulta.getAsBoolean();
+            if (porEmision == null && comprobados.size() >= MAX_COMPROBADOS) {
+                // Lleno: se descarta una clave cualquiera en vez de vaciarlo entero
+                Iterator<String> claves = comprobados.keySet().iterator();
+                if (claves.hasNext()) {
+                    comprobados.remove(claves.next());
+                }
+            }
+            porEmision = comprobados.computeIfAbsent(clave, c -> new ConcurrentHashMap<>());
+            porEmision.put(emitido, revocado);
+            if (generacion.get() != antes) {
+                // Entró una revocación mientras se consultaba: el resultado puede estar ya obsoleto
+                porEmision.remove(emitido);
+            }
+        }
+        return revocado;
+    }
+
+    private static String clave(TokenRevocado revocado) {
+        return revocado.getJti() != null ? claveToken(revocado.getJti()) : claveUsuario(revocado.getUsername());
+    }
+
+    private static String claveToken(String jti) {
+        return "j:" + jti;
+    }
+
+    private static String claveUsuario(String username) {
+        return "u:" + username;
+    }
+}
@@ -2,12 +2,14 @@ package com.proyecto.ecommerce.security;
 
 import com.proyecto.ecommerce.security.filter.JwtAuthenticationFilter;
 import com.proyecto.ecommerce.security.filter.JwtValidationFilter;
+import com.proyecto.ecommerce.security.filter.LimiteTasaFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
   
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -15,15 +17,19 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.annotation.web.configurers.ExceptionHandlingConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.DefaultSecurityFilterChain;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import java.io.PrintWriter;
+import java.util.stream.Stream;
 
 @Configuration
 public class SpringSecurityConfig {
@@ -31,10 +37,20 @@ public class SpringSecurityConfig {
     @Autowired
     private AuthenticationConfiguration authenticationConfiguration;
 
-    @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    @Autowired
+    private CacheAutenticacionJwt cacheAutenticacionJwt;
+
+    @Autowired
+    private GestorClavesJwt gestorClavesJwt;
+
+    @Autowired
+    private PropiedadesLimiteTasa propiedadesLimiteTasa;
+
+    @Autowired
+    private LimitadorTasa limitadorTasa;
+
+    @Autowired
+    private RevocacionTokens revocacionTokens;
 
     /**
      * Genera el AuthenticationManager a partir de la configuración.
@@ -45,46 +61,53 @@ public class SpringSecurityConfig {
     }
 
     /**
-     * Define la cadena de filtros y la política de accesos.
+     * Cadena sin filtros para los recursos estáticos y la documentación: son públicos,
+     * así que no tiene sentido leer cookies ni verificar tokens en cada fichero.
      */
     @Bean
-    SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @Order(1)
+    SecurityFilterChain recursosFilterChain() {
+        return new DefaultSecurityFilterChain(new OrRequestMatcher(Stream.of(
+                        "/css/**", "/js/**", "/images/**", "/webjars/**", "/favicon.ico",
+                        //Rutas a la documentacion pública
+                        "/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**", "/swagger-resources/**")
+                .map(ruta -> (RequestMatcher) new AntPathRequestMatcher(ruta))
+                .toList()));
+    }
 
+    /**
+     * Cadena de la API REST y del login: sin estado, el token solo se lee de la cabecera
+     * Authorization y el límite de tasa se aplica antes de autenticar.
+     */
+    @Bean
+    @Order(2)
+    SecurityFilterChain apiFilterChain(HttpSecurity http) throws Exception {
 
         // JWT Filters
-        JwtAuthenticationFilter authFilter = new JwtAuthenticationFilter(authenticationManager());
+        JwtAuthenticationFilter authFilter = new JwtAuthenticationFilter(authenticationManager(), gestorClavesJwt);
         // Se configura para procesar la URL /login
         authFilter.setFilterProcessesUrl("/login");
-        JwtValidationFilter validationFilter = new JwtValidationFilter(authenticationManager());
-
-
+        JwtValidationFilter validationFilter = new JwtValidationFilter(authenticationManager(), cacheAutenticacionJwt,
+                revocacionTokens, true);
+        // Limita login, registro y creación de pedidos antes de gastar BCrypt o conexiones
+        LimiteTasaFilter limiteTasaFilter = new LimiteTasaFilter(propiedadesLimiteTasa, limitadorTasa, cacheAutenticacionJwt);
 
         return http
+                .securityMatcher("/api/**", "/login")
                 .formLogin(AbstractHttpConfigurer::disable)
+                .logout(AbstractHttpConfigurer::disable)
+                .requestCache(AbstractHttpConfigurer::disable)
 
                 .authorizeHttpRequests(authz -> authz
-                        //Rutas a la documentacion pública
-                        .requestMatchers(
-                                "/swagger-ui/**",
-                                "/swagger-ui.html",
-                                "/v3/api-docs/**",
-                                "/v3/api-docs/swagger-config",
-                                "/v3/api-docs/public-api",
-                                "/swagger-resources/**",
-                                "/webjars/**"
-                        ).permitAll()
-                        //Rutas visuales thymeleaf
-                        .requestMatchers("/", "/index", "/css/**", "/js/**", "/images/**","/productos").permitAll()
-                        // Permitir acceso a la vista de login y registro
-                        .requestMatchers("/login-page", "/registro").permitAll()
                         //  Rutas para registrar usuario y loguearte de forma pública
                         // Rutas para autenticación API y formulario
                         .requestMatchers(HttpMethod.POST, "/login").permitAll()
-                        .requestMatchers(HttpMethod.POST, "/admin/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/usuarios/register").permitAll()
 
                         //  Gestión de productos (solo administradores)
                         .requestMatchers(HttpMethod.GET, "/api/productos/getProduct/**").hasRole("ADMIN") // Restringe esta ruta
+                        .requestMatchers(HttpMethod.GET, "/api/productos/compradores-unicos").hasRole("ADMIN") // Informe de merchandising
+                        .requestMatchers(HttpMethod.GET, "/api/productos/stock-bajo").hasRole("ADMIN") // Panel de stock bajo
                         .requestMatchers(HttpMethod.POST, "/api/productos/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/productos/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/productos/**").hasRole("ADMIN")
@@ -111,6 +134,7 @@ public class SpringSecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/pedidos/usuario/{username}/total-gastado").hasRole("ADMIN") //Ver total gsatado con consultas y solo rol AMIN
                         .requestMatchers(HttpMethod.GET, "/api/pedidos/cantidad-productos-vendidos").hasRole("ADMIN")//Cantidad de productos vendidos solo para ADMIN
                         .requestMatchers(HttpMethod.GET, "/api/pedidos/cantidad-pedidos").hasRole("ADMIN")//Total de pedidods por username solo para ADMIN
+                        .requestMatchers(HttpMethod.GET, "/api/pedidos/exportar").hasRole("ADMIN") // Exportación contable de líneas de pedido
                         .requestMatchers(HttpMethod.GET, "/api/pedidos/mios").hasAnyRole("USER", "ADMIN") // Ver solo los pedidos propio
                         .requestMatchers(HttpMethod.GET, "/api/pedidos//detalle-pedido/**").hasAnyRole("USER", "ADMIN") // Ver solo los pedidos propio
                         .requestMatchers(HttpMethod.GET, "/api/pedidos/usuario/id/**").hasAnyRole( "USER","ADMIN")//La validacion la controlamos en el controller
@@ -124,39 +148,81 @@ public class SpringSecurityConfig {
 
                         .requestMatchers(HttpMethod.POST, "/api/pedido-producto").hasRole("ADMIN")
 
+                        // Carrito propio (SPA y app móvil)
+                        .requestMatchers("/api/carrito").hasAnyRole("USER", "ADMIN")
+
+                        //  Informes del panel de administración => SOLO ADMIN
+                        .requestMatchers("/api/reportes/**").hasRole("ADMIN")
+
 
 
                         // Cualquier otra ruta requiere autenticación
                         .anyRequest().authenticated()
                 )
 
-// Manejo de excepciones de autenticación y autorización
-                .exceptionHandling(exception -> exception
-                        .authenticationEntryPoint(customAuthenticationEntryPoint()) // Manejo de 401 Unauthorized
-                        .accessDeniedHandler(customAccessDeniedHandler())
-                )// Manejo de 403 Forbidden
+                .exceptionHandling(this::manejarExcepciones)
+                // Configuración de sesiones
+                .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // La API no usa cookies de sesión: CSRF no aplica
+                .csrf(AbstractHttpConfigurer::disable)
+                .addFilter(validationFilter)
+                .addFilterBefore(authFilter, JwtValidationFilter.class)
+                .addFilterBefore(limiteTasaFilter, JwtAuthenticationFilter.class)
+
+
+                .build();
+    }
+
+    /**
+     * Cadena de las páginas Thymeleaf y demás rutas: el token se lee de la cabecera
+     * o de la cookie JWT_TOKEN que deja el login.
+     */
+    @Bean
+    @Order(3)
+    SecurityFilterChain paginasFilterChain(HttpSecurity http) throws Exception {
+
+        JwtValidationFilter validationFilter = new JwtValidationFilter(authenticationManager(), cacheAutenticacionJwt,
+                revocacionTokens, false);
+
+        return http
+                .formLogin(AbstractHttpConfigurer::disable)
+
+                .authorizeHttpRequests(authz -> authz
+                        //Rutas visuales thymeleaf
+                        .requestMatchers("/", "/index", "/productos").permitAll()
+                        // Permitir acceso a la vista de login y registro
+                        .requestMatchers("/login-page", "/registro").permitAll()
+                        // Carrito de invitado (se fusiona con el del usuario al identificarse); pagar exige sesión
+                        .requestMatchers("/carrito", "/carrito/agregar", "/carrito/actualizar", "/carrito/eliminar").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/admin/**").hasRole("ADMIN")
+
+                        // Cualquier otra ruta requiere autenticación
+                        .anyRequest().authenticated()
+                )
+
+                .exceptionHandling(this::manejarExcepciones)
                 // Configuración de sesiones
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 
                 //  Deshabilitar CSRF para las rutas de los controladores de thymeleaf
                 .csrf(csrf -> csrf
                         .ignoringRequestMatchers(
-
-                                "/login",
                                 "/carrito/**",
-                                "/admin/**",
-                                "/api/**"
-
-
+                                "/admin/**"
                         )
                 )
                 .addFilter(validationFilter)
-                .addFilterBefore(authFilter, JwtValidationFilter.class)
-
 
                 .build();
     }
 
+    // Manejo de excepciones de autenticación (401 Unauthorized) y autorización (403 Forbidden)
+    private void manejarExcepciones(ExceptionHandlingConfigurer<HttpSecurity> exception) {
+        exception
+                .authenticationEntryPoint(customAuthenticationEntryPoint())
+                .accessDeniedHandler(customAccessDeniedHandler());
+    }
+
     /**
      * Personaliza la respuesta para 401 Unauthorized (cuando el usuario NO está autenticado).
      */
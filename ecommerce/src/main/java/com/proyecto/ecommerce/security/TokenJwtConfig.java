@@ -1,16 +1,12 @@
 package com.proyecto.ecommerce.security;
 
-
-import io.jsonwebtoken.Jwts;
-
-import javax.crypto.SecretKey;
-
+/**
+ * Constantes del transporte del token JWT. Las claves de firma las gestiona {@link GestorClavesJwt}.
+ */
 public class TokenJwtConfig {
 
-    // Generamos una clave secreta para firmar el token
-    public static final SecretKey SECRET_KEY = Jwts.SIG.HS256.key().build();
-
     public static final String PREFIX_TOKEN = "Bearer ";
     public static final String HEADER_AUTHORIZATION = "Authorization";
     public static final String CONTENT_TYPE = "application/json";
+    public static final long DURACION_TOKEN_MS = 3_600_000L; // 1 hora
 }
\ No newline at end of file
@@ -1,39 +0,0 @@
-package com.proyecto.ecommerce.security;
-
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.User;
-
-import java.security.Key;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-
-public class TokenUtil {
-
-    // Genera una clave secreta para firmar el token.
-    // En producción, deberías cargar esta clave desde una propiedad segura o entorno.
-    private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
-
-    // Tiempo de expiración en milisegundos (ej. 1 hora)
-    private static final long EXPIRATION_TIME = 3600000;
-
-    public static String generateToken(Authentication authentication) {
-        User user = (User) authentication.getPrincipal();
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("username", user.getUsername());
-        claims.put("roles", user.getAuthorities());
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + EXPIRATION_TIME);
-
-        return Jwts.builder()
-                .setSubject(user.getUsername())
-                .addClaims(claims)
-                .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(SECRET_KEY)
-                .compact();
-    }
-}
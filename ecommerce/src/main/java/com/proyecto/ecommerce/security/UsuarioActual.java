@@ -0,0 +1,89 @@
+package com.proyecto.ecommerce.security;
+
+import com.proyecto.ecommerce.entity.Usuario;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.service.UsuarioService;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Usuario de la petición en curso.
+ * <p>
+ * El id, el username y los roles salen del token (ver {@link UsuarioAutenticado}), así que
+ * las comprobaciones de propiedad se reducen a comparar ids. Cuando de verdad hace falta
+ * la entidad completa, {@link #getUsuario()} la carga una sola vez por petición.
+ */
+@Component
+@RequestScope
+public class UsuarioActual {
+
+    private final UsuarioService usuarioService;
+
+    private Integer idUsuario;
+    private Usuario usuario;
+
+    public UsuarioActual(UsuarioService usuarioService) {
+        this.usuarioService = usuarioService;
+    }
+
+    /**
+     * @return true si la petición viene de un usuario autenticado (no anónimo).
+     */
+    public boolean estaAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && !"anonymousUser".equals(authentication.getName());
+    }
+
+    public String getUsername() {
+        return autenticacion().getName();
+    }
+
+    /**
+     * Id del usuario autenticado. Sale del token; solo los tokens antiguos, sin ese claim,
+     * obligan a buscarlo (una vez por petición).
+     */
+    public Integer getIdUsuario() {
+        if (idUsuario == null) {
+            Authentication authentication = autenticacion();
+            if (authentication.getPrincipal() instanceof UsuarioAutenticado principal && principal.idUsuario() != null) {
+                idUsuario = principal.idUsuario();
+            } else {
+                idUsuario = getUsuario().getIdUsuario();
+            }
+        }
+        return idUsuario;
+    }
+
+    public boolean esAdmin() {
+        return estaAutenticado() && autenticacion().getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    }
+
+    /**
+     * @param idUsuario Id del propietario de un recurso.
+     * @return true si el usuario autenticado es ese propietario.
+     */
+    public boolean esPropietario(Integer idUsuario) {
+        return idUsuario != null && idUsuario.equals(getIdUsuario());
+    }
+
+    /**
+     * Entidad completa del usuario autenticado, cargada como mucho una vez por petición.
+     */
+    public Usuario getUsuario() {
+        if (usuario == null) {
+            usuario = usuarioService.obtenerUsuarioPorUsername(getUsername());
+        }
+        return usuario;
+    }
+
+    private Authentication autenticacion() {
+        if (!estaAutenticado()) {
+            throw new CustomException("No estás autenticado. Por favor, inicia sesión.");
+        }
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,36 @@
+package com.proyecto.ecommerce.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Principal ligero de una petición autenticada con JWT: id, username y roles sacados
+ * de los claims del token, sin consultar la base de datos.
+ *
+ * @param idUsuario id del usuario (claim "idUsuario"); null en tokens emitidos antes de incluirlo.
+ * @param username  nombre de usuario (subject del token).
+ * @param roles     nombres de los roles, p. ej. "ROLE_USER".
+ */
+public record UsuarioAutenticado(Integer idUsuario, String username, List<String> roles)
+        implements AuthenticatedPrincipal, Serializable {
+
+    public UsuarioAutenticado {
+        roles = List.copyOf(roles);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean esAdmin() {
+        return roles.contains("ROLE_ADMIN");
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
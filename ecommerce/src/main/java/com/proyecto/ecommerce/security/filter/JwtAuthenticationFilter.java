@@ -2,13 +2,15 @@ package com.proyecto.ecommerce.security.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.proyecto.ecommerce.entity.Usuario;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
+import com.proyecto.ecommerce.exception.LimiteExcedidoException;
+import com.proyecto.ecommerce.security.DetallesUsuario;
+import com.proyecto.ecommerce.security.GestorClavesJwt;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.*;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.*;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import java.io.IOException;
@@ -19,11 +21,13 @@ import static com.proyecto.ecommerce.security.TokenJwtConfig.*;
 public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private final AuthenticationManager authenticationManager;
+    private final GestorClavesJwt gestorClaves;
 
-    public JwtAuthenticationFilter(AuthenticationManager authenticationManager) {
+    public JwtAuthenticationFilter(AuthenticationManager authenticationManager, GestorClavesJwt gestorClaves) {
         super(authenticationManager);
         super.setFilterProcessesUrl("/login");
         this.authenticationManager = authenticationManager;
+        this.gestorClaves = gestorClaves;
     }
 
     @Override
@@ -39,7 +43,24 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         // Creamos el token de autenticación
         UsernamePasswordAuthenticationToken authToken =
                 new UsernamePasswordAuthenticationToken(user.getUsername(), user.getPassword());
-        return authenticationManager.authenticate(authToken);
+        try {
+            return authenticationManager.authenticate(authToken);
+        } catch (LimiteExcedidoException e) {
+            // El pool de BCrypt está saturado: respondemos 429 sin ocupar más CPU
+            escribirRechazo(response, e.getMessage());
+            return null;
+        }
+    }
+
+    private void escribirRechazo(HttpServletResponse response, String mensaje) {
+        try {
+            response.setStatus(429);
+            response.setHeader("Retry-After", "1");
+            response.setContentType(CONTENT_TYPE);
+            response.getWriter().write(new ObjectMapper().writeValueAsString(Map.of("message", mensaje)));
+        } catch (IOException e) {
+            throw new AuthenticationServiceException("Error escribiendo la respuesta", e);
+        }
     }
 
     @Override
@@ -49,8 +70,7 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             Authentication authResult)
             throws IOException, ServletException {
 
-        org.springframework.security.core.userdetails.User userDetails =
-                (org.springframework.security.core.userdetails.User) authResult.getPrincipal();
+        UserDetails userDetails = (UserDetails) authResult.getPrincipal();
 
         String username = userDetails.getUsername();
         Collection<? extends GrantedAuthority> roles = userDetails.getAuthorities();
@@ -61,13 +81,21 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
         Map<String, Object> claims = new HashMap<>();
         claims.put("authorities", roles.stream().map(GrantedAuthority::getAuthority).toList());
         claims.put("username", username);
+        // El id evita que cada petición tenga que buscar el usuario para comprobar la propiedad de un recurso
+        if (userDetails instanceof DetallesUsuario detalles && detalles.getIdUsuario() != null) {
+            claims.put("idUsuario", detalles.getIdUsuario());
+        }
 
 
-        String token = Jwts.builder()
-                .setSubject(username)
-                .addClaims(claims)  //
-                .setExpiration(new Date(System.currentTimeMillis() + 3600000)) // 1 hora
-                .signWith(SECRET_KEY)
+        // Firmado con la clave activa; la cabecera kid indica cuál para poder rotarla
+        // El jti identifica el token para poder revocarlo al cerrar sesión
+        long ahora = System.currentTimeMillis();
+        String token = gestorClaves.nuevoToken()
+                .id(UUID.randomUUID().toString())
+                .subject(username)
+                .claims(claims)
+                .issuedAt(new Date(ahora))
+                .expiration(new Date(ahora + DURACION_TOKEN_MS))
                 .compact();
 
 // Creamos una cookie de inicio de sesion
@@ -98,6 +126,12 @@ public class JwtAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                               HttpServletResponse response,
                                               AuthenticationException failed)
             throws IOException, ServletException {
+        // Con un usuario inexistente el codificador se invoca dentro de retrieveUser, que envuelve
+        // la saturación del pool en InternalAuthenticationServiceException: también es un 429
+        if (failed.getCause() instanceof LimiteExcedidoException limite) {
+            escribirRechazo(response, limite.getMessage());
+            return;
+        }
         Map<String, String> body = new HashMap<>();
         body.put("message", "Error en la autenticación, usuario o password incorrectos!");
         body.put("error", failed.getMessage());
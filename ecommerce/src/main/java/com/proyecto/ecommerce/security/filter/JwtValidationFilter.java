@@ -1,10 +1,9 @@
 package com.proyecto.ecommerce.security.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
+import com.proyecto.ecommerce.security.CacheAutenticacionJwt;
+import com.proyecto.ecommerce.security.RevocacionTokens;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -12,24 +11,29 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static com.proyecto.ecommerce.security.TokenJwtConfig.*;
 
 public class JwtValidationFilter extends BasicAuthenticationFilter {
 
-    public JwtValidationFilter(AuthenticationManager authenticationManager) {
+    private final CacheAutenticacionJwt cacheAutenticacion;
+    private final RevocacionTokens revocacionTokens;
+
+    // En la cadena de la API el token solo viaja en la cabecera; en la de páginas, también en la cookie
+    private final boolean soloCabecera;
+
+    public JwtValidationFilter(AuthenticationManager authenticationManager, CacheAutenticacionJwt cacheAutenticacion,
+                               RevocacionTokens revocacionTokens, boolean soloCabecera) {
         super(authenticationManager);
+        this.cacheAutenticacion = cacheAutenticacion;
+        this.revocacionTokens = revocacionTokens;
+        this.soloCabecera = soloCabecera;
     }
 
     @Override
@@ -41,8 +45,8 @@ public class JwtValidationFilter extends BasicAuthenticationFilter {
         String token = null;
         String header = request.getHeader(HEADER_AUTHORIZATION);
 
-        // Si la URL empieza con "/api/", usaremos solo el header.
-        if (request.getRequestURI().startsWith("/api/")) {
+        // En la API usaremos solo el header.
+        if (soloCabecera) {
             if (header != null && header.startsWith(PREFIX_TOKEN)) {
                 token = header.replace(PREFIX_TOKEN, "").trim();
             }
@@ -69,35 +73,40 @@ public class JwtValidationFilter extends BasicAuthenticationFilter {
         }
 
         try {
-            Jws<Claims> jwsClaims = Jwts.parser()
-                    .verifyWith(SECRET_KEY).build()
-                    .parseSignedClaims(token);
-
-            Claims claims = jwsClaims.getPayload();
-            String username = claims.getSubject();
-            List<String> roles = claims.get("authorities", List.class);
+            // Solo se verifica la firma la primera vez que se ve el token
+            Authentication authentication = cacheAutenticacion.obtenerAutenticacion(token);
 
-            if (username == null || roles == null) {
+            if (authentication == null) {
                 response.setStatus(HttpStatus.UNAUTHORIZED.value());
                 return;
             }
 
-            Collection<GrantedAuthority> authorities = roles.stream()
-                    .map(SimpleGrantedAuthority::new)
-                    .collect(Collectors.toList());
+            // Sesión cerrada o usuario deshabilitado: normalmente solo consulta el filtro de Bloom
+            if (revocacionTokens.estaRevocado(authentication)) {
+                if (!soloCabecera) {
+                    borrarCookie(response);
+                }
+                response.sendError(HttpStatus.UNAUTHORIZED.value(), "Token revocado");
+                return;
+            }
 
-            SecurityContextHolder.getContext().setAuthentication(
-                    new UsernamePasswordAuthenticationToken(username, null, authorities));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
 
             chain.doFilter(request, response);
 
         } catch (JwtException e) {
             // Si el token es inválido, se elimina la cookie y se redirige (o se envía error según convenga)
-            Cookie expiredCookie = new Cookie("JWT_TOKEN", "");
-            expiredCookie.setPath("/");
-            expiredCookie.setMaxAge(0);
-            response.addCookie(expiredCookie);
+            if (!soloCabecera) {
+                borrarCookie(response);
+            }
             response.sendError(HttpStatus.UNAUTHORIZED.value(), "Token inválido");
         }
     }
+
+    private static void borrarCookie(HttpServletResponse response) {
+        Cookie expiredCookie = new Cookie("JWT_TOKEN", "");
+        expiredCookie.setPath("/");
+        expiredCookie.setMaxAge(0);
+        response.addCookie(expiredCookie);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.proyecto.ecommerce.security.filter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyecto.ecommerce.security.CacheAutenticacionJwt;
+import com.proyecto.ecommerce.security.LimitadorTasa;
+import com.proyecto.ecommerce.security.PropiedadesLimiteTasa;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.proyecto.ecommerce.security.TokenJwtConfig.*;
+
+/**
+ * Filtro que limita la frecuencia de las rutas sensibles (login, registro, creación de pedidos)
+ * con un cubo de tokens por IP y otro por usuario, según {@link PropiedadesLimiteTasa}.
+ * <p>
+ * Las respuestas llevan las cabeceras RateLimit-Limit, RateLimit-Remaining, RateLimit-Reset
+ * y RateLimit-Policy del cubo más restrictivo; al superar el límite se responde 429 con Retry-After.
+ * El usuario se toma del token JWT (ya cacheado) o, en login y registro, del campo "username"
+ * del cuerpo JSON, que se vuelve a ofrecer intacto al resto de la cadena.
+ * La IP es la de {@code getRemoteAddr()}: detrás de un proxy hay que activar
+ * {@code server.forward-headers-strategy} en lugar de fiarse de X-Forwarded-For sin más.
+ */
+public class LimiteTasaFilter extends OncePerRequestFilter {
+
+    // Tamaño máximo de cuerpo que se inspecciona para extraer el username
+    private static final int MAX_CUERPO = 8 * 1024;
+
+    private record ReglaCompilada(String nombre, String metodo, String ruta, boolean patron,
+                                  int capacidadIp, int capacidadUsuario, long periodoSegundos) {
+    }
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final LimitadorTasa limitador;
+    private final CacheAutenticacionJwt cacheAutenticacion;
+    private final List<ReglaCompilada> reglas;
+
+    public LimiteTasaFilter(PropiedadesLimiteTasa propiedades, LimitadorTasa limitador,
+                            CacheAutenticacionJwt cacheAutenticacion) {
+        this.limitador = limitador;
+        this.cacheAutenticacion = cacheAutenticacion;
+        this.reglas = !propiedades.isHabilitado() ? List.of() : propiedades.getReglas().entrySet().stream()
+                .filter(entry -> entry.getValue().isHabilitada() && entry.getValue().getRuta() != null)
+                .map(entry -> {
+                    PropiedadesLimiteTasa.Regla regla = entry.getValue();
+                    String metodo = regla.getMetodo() == null || regla.getMetodo().isBlank()
+                            ? null : regla.getMetodo().toUpperCase(Locale.ROOT);
+                    return new ReglaCompilada(entry.getKey(), metodo, regla.getRuta(),
+                            MATCHER.isPattern(regla.getRuta()), regla.getCapacidadIp(),
+                            regla.getCapacidadUsuario(), regla.getPeriodoSegundos());
+                })
+                .toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReglaCompilada regla = buscarRegla(request);
+        if (regla == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        LimitadorTasa.Resultado resultado = null;
+        if (regla.capacidadIp() > 0) {
+            resultado = limitador.consumir(regla.nombre() + "|ip|" + request.getRemoteAddr(),
+                    regla.capacidadIp(), regla.periodoSegundos());
+        }
+
+        if (regla.capacidadUsuario() > 0 && (resultado == null || resultado.permitido())) {
+            String username = resolverUsername(request);
+            if (username == null && esJson(request)) {
+                CuerpoReutilizable cuerpo = new CuerpoReutilizable(request);
+                request = cuerpo;
+                username = cuerpo.leerUsername();
+            }
+            if (username != null) {
+                LimitadorTasa.Resultado porUsuario = limitador.consumir(
+                        regla.nombre() + "|u|" + username.toLowerCase(Locale.ROOT),
+                        regla.capacidadUsuario(), regla.periodoSegundos());
+                if (resultado == null || !porUsuario.permitido() || porUsuario.restantes() < resultado.restantes()) {
+                    resultado = porUsuario;
+                }
+            }
+        }
+
+        if (resultado != null) {
+            response.setHeader("RateLimit-Limit", String.valueOf(resultado.limite()));
+            response.setHeader("RateLimit-Remaining", String.valueOf(resultado.restantes()));
+            response.setHeader("RateLimit-Reset", String.valueOf(resultado.segundosLleno()));
+            response.setHeader("RateLimit-Policy", resultado.limite() + ";w=" + regla.periodoSegundos());
+            if (!resultado.permitido()) {
+                response.setHeader("Retry-After", String.valueOf(resultado.segundosEsperar()));
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setContentType(CONTENT_TYPE);
+                response.getWriter().write(new ObjectMapper().writeValueAsString(Map.of(
+                        "message", "Demasiadas peticiones. Inténtalo de nuevo en " + resultado.segundosEsperar() + " segundos.")));
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private ReglaCompilada buscarRegla(HttpServletRequest request) {
+        String metodo = request.getMethod();
+        String ruta = null;
+        for (ReglaCompilada regla : reglas) {
+            if (regla.metodo() != null && !regla.metodo().equals(metodo)) {
+                continue;
+            }
+            if (ruta == null) {
+                ruta = request.getRequestURI().substring(request.getContextPath().length());
+            }
+            if (regla.patron() ? MATCHER.match(regla.ruta(), ruta) : regla.ruta().equals(ruta)) {
+                return regla;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Usuario del token JWT (cabecera o cookie), o null si no hay token válido.
+     */
+    private String resolverUsername(HttpServletRequest request) {
+        String token = null;
+        String header = request.getHeader(HEADER_AUTHORIZATION);
+        if (header != null && header.startsWith(PREFIX_TOKEN)) {
+            token = header.substring(PREFIX_TOKEN.length()).trim();
+        } else if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if ("JWT_TOKEN".equals(cookie.getName())) {
+                    token = cookie.getValue();
+                    break;
+                }
+            }
+        }
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            Authentication autenticacion = cacheAutenticacion.obtenerAutenticacion(token);
+            return autenticacion != null ? autenticacion.getName() : null;
+        } catch (JwtException e) {
+            // El filtro de validación se encargará de rechazarlo
+            return null;
+        }
+    }
+
+    private static boolean esJson(HttpServletRequest request) {
+        String tipo = request.getContentType();
+        return tipo != null && tipo.toLowerCase(Locale.ROOT).startsWith("application/json");
+    }
+
+    /**
+     * Petición que lee por adelantado el principio del cuerpo y lo vuelve a servir
+     * (seguido del resto sin leer) a quien lo consuma después.
+     */
+    private static class CuerpoReutilizable extends HttpServletRequestWrapper {
+
+        private final byte[] inicio;
+        private final InputStream resto;
+        private ServletInputStream flujoServlet;
+
+        CuerpoReutilizable(HttpServletRequest request) throws IOException {
+            super(request);
+            this.resto = request.getInputStream();
+            this.inicio = resto.readNBytes(MAX_CUERPO);
+        }
+
+        /**
+         * Busca el campo "username" de primer nivel en el JSON leído.
+         */
+        String leerUsername() {
+            try (JsonParser parser = JSON.createParser(inicio)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+                JsonToken token;
+                while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                    String campo = parser.currentName();
+                    JsonToken valor = parser.nextToken();
+                    if ("username".equals(campo) && valor == JsonToken.VALUE_STRING) {
+                        String username = parser.getText();
+                        return username.isBlank() ? null : username;
+                    }
+                    parser.skipChildren();
+                }
+                return null;
+            } catch (IOException e) {
+                // JSON incompleto o mal formado: solo se aplicará el límite por IP
+                return null;
+            }
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            if (flujoServlet == null) {
+                flujoServlet = crearFlujo();
+            }
+            return flujoServlet;
+        }
+
+        private ServletInputStream crearFlujo() {
+            InputStream flujo = new SequenceInputStream(new ByteArrayInputStream(inicio), resto);
+            return new ServletInputStream() {
+                private boolean terminado;
+
+                @Override
+                public int read() throws IOException {
+                    int b = flujo.read();
+                    terminado = b < 0;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = flujo.read(b, off, len);
+                    terminado = n < 0;
+                    return n;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return terminado;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // Lo que marca la API de Servlet cuando la petición no es asíncrona, como aquí:
+                    // el principio del cuerpo ya se leyó de forma bloqueante
+                    throw new IllegalStateException("El cuerpo de esta petición no admite lectura asíncrona");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding() != null ? getCharacterEncoding() : "UTF-8";
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.ResumenCarritoDTO;
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.exception.ConflictoVersionException;
+
+import java.util.function.Consumer;
+
+/**
+ * Interfaz que define las operaciones sobre el carrito de la compra.
+ */
+public interface CarritoService {
+
+    /**
+     * Resuelve el carrito contra el precio y el stock actuales de sus productos,
+     * con una única consulta para todos ellos. Los productos que ya no existen se quitan del carrito.
+     *
+     * @param carrito Carrito con los ids y cantidades.
+     * @return Líneas con su producto, total, número de unidades y si hay stock para todas.
+     */
+    ResumenCarritoDTO resolver(Carrito carrito);
+
+    /**
+     * Carga el carrito persistente de un usuario, con su versión. Se sirve de memoria salvo la primera
+     * vez (o tras un tiempo sin usarlo), que se lee de la tabla carrito.
+     *
+     * @return Una copia del carrito; uno vacío con versión 0 si el usuario no tiene.
+     */
+    Carrito cargarCarrito(Integer idUsuario);
+
+    /**
+     * Aplica cambios al carrito de un usuario de forma atómica: o se aplican todos o ninguno, y
+     * ninguna otra modificación del mismo carrito se intercala. Si el carrito cambia, su versión
+     * aumenta en uno y queda pendiente de volcar a la tabla carrito en el siguiente lote.
+     *
+     * @param versionEsperada Versión sobre la que se hicieron los cambios, o null para aplicarlos sobre la actual.
+     * @param cambios         Cambios a aplicar; si lanzan una excepción el carrito no se modifica.
+     * @return Una copia del carrito resultante, con su versión.
+     * @throws ConflictoVersionException si la versión actual no es la esperada.
+     */
+    Carrito modificarCarrito(Integer idUsuario, Long versionEsperada, Consumer<Carrito> cambios);
+
+    /**
+     * Escribe ya el carrito pendiente de un usuario, si lo hay (p. ej. al completar el pedido).
+     */
+    void volcarCarrito(Integer idUsuario);
+
+    /**
+     * Escribe en lote todos los carritos pendientes. Se ejecuta periódicamente y al parar la aplicación.
+     */
+    void volcarPendientes();
+}
@@ -0,0 +1,332 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.ResumenCarritoDTO;
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.entity.CarritoGuardado;
+import com.proyecto.ecommerce.entity.CarritoItem;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.ConflictoVersionException;
+import com.proyecto.ecommerce.repository.CarritoGuardadoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Implementación de CarritoService: una consulta por lote para todos los productos del carrito
+ * y una sola pasada para calcular total, unidades y validez.
+ * <p>
+ * Los carritos de usuarios identificados viven en {@code carritos} como fotos inmutables
+ * (líneas en binario + versión) y se guardan en la tabla carrito con escritura diferida: cada cambio
+ * sustituye la foto con {@code compute}, que serializa los cambios de un mismo carrito, y un proceso
+ * programado escribe en una transacción todas las fotos pendientes. Una foto solo se marca como
+ * guardada si no ha cambiado mientras se escribía, así que nunca se pierde un cambio. Las fotos ya
+ * guardadas que llevan un tiempo sin usarse se descartan y se vuelven a leer de la tabla si hacen falta.
+ * <p>
+ * Con varias instancias sin afinidad de sesión cada una tiene su propia foto y las lecturas no consultan
+ * la tabla, así que una instancia puede mostrar un carrito atrasado hasta que lo modifique o descarte su
+ * foto. Los cambios no se pierden: el volcado solo sustituye la fila si sigue en la versión de la que
+ * partió la foto; si otra instancia la ha cambiado, se lee la fila nueva, se reaplican encima los cambios
+ * hechos aquí (producto a producto, manda la cantidad de esta instancia si la cambió respecto a la fila de
+ * partida) y el resultado se vuelca en el siguiente ciclo.
+ */
+@Service
+public class CarritoServiceImpl implements CarritoService {
+
+    private static final Logger log = LoggerFactory.getLogger(CarritoServiceImpl.class);
+
+    private final ProductoService productoService;
+    private final CarritoGuardadoRepository carritoRepository;
+    private final TransactionTemplate nuevaTransaccion;
+
+    /**
+     * Estado de un carrito: líneas ({@link Carrito#toBytes()}), líneas y versión de la fila de la tabla de
+     * la que parte (vacías y 0 si no hay fila), versión, si falta escribirlo en la tabla y cuándo se cargó
+     * o modificó por última vez.
+     */
+    private record Foto(byte[] lineas, byte[] lineasTabla, long version, long versionTabla, boolean pendiente,
+                        long usadaMs) {
+
+        Foto guardada() {
+            return new Foto(lineas, lineas, version, version, false, usadaMs);
+        }
+
+        Foto sobreTabla(Foto escrita) {
+            if (escrita.version() <= versionTabla) {
+                return this;
+            }
+            return new Foto(lineas, escrita.lineas(), version, escrita.version(), pendiente, usadaMs);
+        }
+    }
+
+    // Carritos de usuario en memoria, por id de usuario
+    private final ConcurrentHashMap<Integer, Foto> carritos = new ConcurrentHashMap<>();
+
+    private final long retencionMs;
+
+    public CarritoServiceImpl(ProductoService productoService,
+                              CarritoGuardadoRepository carritoRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ecommerce.carrito.retencion-minutos:30}") long retencionMinutos) {
+        this.productoService = productoService;
+        this.carritoRepository = carritoRepository;
+        this.retencionMs = TimeUnit.MINUTES.toMillis(retencionMinutos);
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public ResumenCarritoDTO resolver(Carrito carrito) {
+        if (carrito.estaVacio()) {
+            return new ResumenCarritoDTO(List.of(), 0.0, 0, true, List.of());
+        }
+
+        Map<Integer, Producto> productos = new HashMap<>();
+        for (Producto producto : productoService.obtenerProductosPorIds(carrito.getIdsProductos())) {
+            productos.put(producto.getIdProducto(), producto);
+        }
+
+        List<CarritoItem> items = new ArrayList<>(carrito.getLineas());
+        List<Integer> retirados = new ArrayList<>();
+        double total = 0;
+        int unidades = 0;
+        boolean valido = true;
+        for (int i = 0; i < carrito.getLineas(); i++) {
+            int idProducto = carrito.idProductoEn(i);
+            int cantidad = carrito.cantidadEn(i);
+            Producto producto = productos.get(idProducto);
+            if (producto == null) {
+                retirados.add(idProducto);
+                continue;
+            }
+            items.add(new CarritoItem(producto, cantidad));
+            total += producto.getPrecio() * cantidad;
+            unidades += cantidad;
+            valido &= cantidad <= producto.getStock();
+        }
+        // Se quitan después de recorrerlo para no desplazar las líneas durante el bucle
+        retirados.forEach(carrito::quitar);
+        return new ResumenCarritoDTO(items, total, unidades, valido, retirados);
+    }
+
+    @Override
+    public Carrito cargarCarrito(Integer idUsuario) {
+        return aCarrito(fotoVigente(idUsuario));
+    }
+
+    @Override
+    public Carrito modificarCarrito(Integer idUsuario, Long versionEsperada, Consumer<Carrito> cambios) {
+        // Las consultas a la tabla se hacen fuera de compute para no bloquear el mapa durante ellas
+        Foto vigente = fotoVigente(idUsuario);
+        Foto nueva = carritos.compute(idUsuario, (id, actual) -> {
+            Foto base = actual != null ? actual : vigente;
+            if (versionEsperada != null && versionEsperada != base.version()) {
+                throw new ConflictoVersionException("El carrito ha cambiado (versión actual "
+                        + base.version() + ").", base.version());
+            }
+            Carrito carrito = aCarrito(base);
+            cambios.accept(carrito);
+            byte[] lineas = carrito.toBytes();
+            if (Arrays.equals(lineas, base.lineas())) {
+                // Sin cambios reales no se sube la versión ni se escribe nada
+                return base;
+            }
+            return new Foto(lineas, base.lineasTabla(), base.version() + 1, base.versionTabla(), true,
+                    System.currentTimeMillis());
+        });
+        return aCarrito(nueva);
+    }
+
+    @Override
+    public void volcarCarrito(Integer idUsuario) {
+        Foto foto = carritos.get(idUsuario);
+        if (foto != null && foto.pendiente()) {
+            volcar(Map.of(idUsuario, foto));
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ecommerce.carrito.volcado-ms:5000}")
+    @PreDestroy
+    public void volcarPendientes() {
+        Map<Integer, Foto> lote = new HashMap<>();
+        carritos.forEach((idUsuario, foto) -> {
+            if (foto.pendiente()) {
+                lote.put(idUsuario, foto);
+            }
+        });
+        if (!lote.isEmpty()) {
+            volcar(lote);
+        }
+    }
+
+    /**
+     * Descarta de memoria los carritos ya guardados que llevan más de la retención sin usarse.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarInactivos() {
+        long limite = System.currentTimeMillis() - retencionMs;
+        // removeIf del mapa concurrente solo quita la entrada si sigue siendo la misma foto
+        carritos.entrySet().removeIf(e -> !e.getValue().pendiente() && e.getValue().usadaMs() < limite);
+    }
+
+    /**
+     * Foto en memoria del carrito; si no hay, la lee de la tabla. No consulta la tabla si ya está en memoria.
+     */
+    private Foto fotoVigente(Integer idUsuario) {
+        Foto foto = carritos.get(idUsuario);
+        if (foto != null) {
+            return foto;
+        }
+        Foto leida = leerFoto(idUsuario);
+        // Si otra petición la cargó o modificó entretanto, manda la suya
+        Foto previa = carritos.putIfAbsent(idUsuario, leida);
+        return previa != null ? previa : leida;
+    }
+
+    private Foto leerFoto(Integer idUsuario) {
+        return carritoRepository.findById(idUsuario)
+                .map(this::aFoto)
+                .orElseGet(() -> new Foto(new byte[0], new byte[0], 0, 0, false, System.currentTimeMillis()));
+    }
+
+    private Foto aFoto(CarritoGuardado guardado) {
+        return new Foto(guardado.getLineas(), guardado.getLineas(), guardado.getVersion(), guardado.getVersion(),
+                false, System.currentTimeMillis());
+    }
+
+    private static Carrito aCarrito(Foto foto) {
+        Carrito carrito = Carrito.desdeBytes(foto.lineas());
+        carrito.setVersion(foto.version());
+        return carrito;
+    }
+
+    private void volcar(Map<Integer, Foto> lote) {
+        Set<Integer> conflictos;
+        try {
+            conflictos = nuevaTransaccion.execute(status -> guardar(lote));
+        } catch (RuntimeException e) {
+            // Siguen pendientes y se reintentan en el siguiente volcado
+            log.warn("No se pudieron volcar {} carritos: {}", lote.size(), e.getMessage());
+            return;
+        }
+        marcarVolcados(lote, conflictos);
+        if (!conflictos.isEmpty()) {
+            reaplicar(lote, conflictos);
+        }
+    }
+
+    private void marcarVolcados(Map<Integer, Foto> lote, Set<Integer> conflictos) {
+        lote.forEach((idUsuario, foto) -> {
+            if (!conflictos.contains(idUsuario)) {
+                // Si el carrito cambió mientras se escribía, la foto nueva sigue pendiente sobre la fila escrita
+                carritos.computeIfPresent(idUsuario, (id, actual) ->
+                        actual == foto ? foto.guardada() : actual.sobreTabla(foto));
+            }
+        });
+    }
+
+    /**
+     * Rehace sobre la fila que escribió otra instancia los carritos que no se pudieron volcar: quedan
+     * pendientes con los cambios hechos aquí encima de esa fila y se escriben en el siguiente volcado.
+     */
+    private void reaplicar(Map<Integer, Foto> lote, Set<Integer> conflictos) {
+        Map<Integer, CarritoGuardado> filas = new HashMap<>();
+        try {
+            carritoRepository.findAllById(conflictos).forEach(fila -> filas.put(fila.getIdUsuario(), fila));
+        } catch (RuntimeException e) {
+            // Siguen pendientes sobre la fila antigua: el siguiente volcado volverá a chocar y a reintentarlo
+            log.warn("No se pudieron releer {} carritos en conflicto: {}", conflictos.size(), e.getMessage());
+            return;
+        }
+        for (Integer idUsuario : conflictos) {
+            long partida = lote.get(idUsuario).versionTabla();
+            CarritoGuardado fila = filas.get(idUsuario);
+            Foto tabla = fila != null ? aFoto(fila)
+                    : new Foto(new byte[0], new byte[0], 0, 0, false, System.currentTimeMillis());
+            carritos.computeIfPresent(idUsuario, (id, actual) ->
+                    // Si entretanto otro volcado ya la movió de fila, no se toca
+                    actual.versionTabla() == partida ? sobreFila(actual, tabla) : actual);
+            log.info("Carrito del usuario {} modificado en otra instancia (versión {}); se reaplican encima "
+                    + "los cambios de esta", idUsuario, tabla.version());
+        }
+    }
+
+    /**
+     * Aplica sobre las líneas de la tabla los productos cuya cantidad cambió en la foto respecto a la
+     * fila de la que partía; el resto de productos se queda como lo dejó la otra instancia.
+     */
+    private static Foto sobreFila(Foto foto, Foto tabla) {
+        Carrito partida = Carrito.desdeBytes(foto.lineasTabla());
+        Carrito propio = Carrito.desdeBytes(foto.lineas());
+        Carrito resultado = Carrito.desdeBytes(tabla.lineas());
+        for (int i = 0; i < propio.getLineas(); i++) {
+            int idProducto = propio.idProductoEn(i);
+            if (propio.cantidadEn(i) != partida.cantidad(idProducto)) {
+                resultado.poner(idProducto, propio.cantidadEn(i));
+            }
+        }
+        for (int i = 0; i < partida.getLineas(); i++) {
+            int idProducto = partida.idProductoEn(i);
+            if (propio.cantidad(idProducto) == 0) {
+                resultado.quitar(idProducto);
+            }
+        }
+        byte[] lineas = resultado.toBytes();
+        if (Arrays.equals(lineas, tabla.lineas())) {
+            return new Foto(tabla.lineas(), tabla.lineas(), tabla.version(), tabla.version(), false, foto.usadaMs());
+        }
+        return new Foto(lineas, tabla.lineas(), Math.max(foto.version(), tabla.version()) + 1, tabla.version(),
+                true, foto.usadaMs());
+    }
+
+    /**
+     * Escribe un lote de carritos: un UPDATE condicionado a la versión de partida por cada carrito con
+     * fila y un saveAll con las altas.
+     *
+     * @return Usuarios cuya fila había cambiado otra instancia, que no se han escrito.
+     */
+    private Set<Integer> guardar(Map<Integer, Foto> lote) {
+        LocalDateTime ahora = LocalDateTime.now();
+        Set<Integer> conflictos = new HashSet<>();
+        List<Integer> altas = new ArrayList<>();
+        lote.forEach((idUsuario, foto) -> {
+            if (foto.versionTabla() == 0) {
+                altas.add(idUsuario);
+            } else if (carritoRepository.actualizarSiVersion(idUsuario, foto.lineas(), foto.version(), ahora,
+                    foto.versionTabla()) == 0) {
+                conflictos.add(idUsuario);
+            }
+        });
+        if (!altas.isEmpty()) {
+            // Si otra instancia creó la fila entretanto también es un conflicto
+            carritoRepository.findAllById(altas).forEach(existente -> conflictos.add(existente.getIdUsuario()));
+            List<CarritoGuardado> nuevos = new ArrayList<>();
+            for (Integer idUsuario : altas) {
+                if (!conflictos.contains(idUsuario)) {
+                    Foto foto = lote.get(idUsuario);
+                    nuevos.add(new CarritoGuardado(idUsuario, foto.lineas(), foto.version(), ahora));
+                }
+            }
+            carritoRepository.saveAll(nuevos);
+        }
+        return conflictos;
+    }
+}
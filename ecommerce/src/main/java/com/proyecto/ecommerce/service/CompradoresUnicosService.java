@@ -0,0 +1,40 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.CompradoresUnicosDTO;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Interfaz para estimar los compradores distintos por producto y periodo
+ * mediante sketches HyperLogLog mensuales.
+ */
+public interface CompradoresUnicosService {
+
+    /**
+     * Añade el comprador del pedido a los sketches del mes de cada producto comprado.
+     * @param evento Datos del pedido registrado.
+     */
+    void registrarPedido(PedidoRegistradoEvent evento);
+
+    /**
+     * Estima los compradores distintos combinando los sketches mensuales del rango.
+     *
+     * @param desde      Mes inicial (incluido).
+     * @param hasta      Mes final (incluido).
+     * @param idProducto ID del producto, o null para todos los productos con ventas en el rango.
+     * @return Estimaciones por producto, ordenadas de mayor a menor.
+     */
+    List<CompradoresUnicosDTO> obtenerCompradoresUnicos(YearMonth desde, YearMonth hasta, Integer idProducto);
+
+    /**
+     * Vuelca a la base de datos los sketches acumulados en memoria.
+     */
+    void volcarPendientes();
+
+    /**
+     * Reconstruye todos los sketches a partir del histórico de pedidos.
+     */
+    void reconstruir();
+}
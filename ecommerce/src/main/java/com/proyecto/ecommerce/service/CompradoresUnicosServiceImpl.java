@@ -0,0 +1,155 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.CompradoresUnicosDTO;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.entity.SketchCompradores;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import com.proyecto.ecommerce.repository.SketchCompradoresRepository;
+import com.proyecto.ecommerce.util.FechasSql;
+import com.proyecto.ecommerce.util.HyperLogLog;
+import com.proyecto.ecommerce.util.SketchesPendientes;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de la estimación de compradores distintos con HyperLogLog.
+ * <p>
+ * Al confirmarse un pedido solo se actualiza un sketch en memoria; un proceso programado
+ * combina periódicamente esos sketches con los guardados en la tabla sketch_compradores.
+ * Como la combinación es un máximo registro a registro, volver a aplicar un sketch
+ * (por ejemplo tras un fallo) no altera el resultado.
+ */
+@Service
+public class CompradoresUnicosServiceImpl implements CompradoresUnicosService {
+
+    /**
+     * Clave de un sketch: producto y primer día del mes.
+     */
+    private record Clave(Integer idProducto, LocalDate mes) {
+    }
+
+    // Sketches con compras aún no volcadas a la base de datos
+    private final SketchesPendientes<Clave, HyperLogLog> pendientes;
+
+    @Autowired
+    private SketchCompradoresRepository sketchRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    public CompradoresUnicosServiceImpl(PlatformTransactionManager transactionManager) {
+        this.pendientes = new SketchesPendientes<>(transactionManager, HyperLogLog::new,
+                sketch -> HyperLogLog.desdeBytes(sketch.toBytes()), HyperLogLog::combinar,
+                "el sketch de compradores");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoRegistrado(PedidoRegistradoEvent evento) {
+        registrarPedido(evento);
+    }
+
+    @Override
+    public void registrarPedido(PedidoRegistradoEvent evento) {
+        LocalDate mes = evento.fecha().withDayOfMonth(1);
+        for (PedidoRegistradoEvent.Linea linea : evento.lineas()) {
+            pendientes.agregar(new Clave(linea.idProducto(), mes), hll -> hll.agregar(evento.idUsuario()));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CompradoresUnicosDTO> obtenerCompradoresUnicos(YearMonth desde, YearMonth hasta, Integer idProducto) {
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("El mes 'desde' no puede ser posterior a 'hasta'.");
+        }
+        LocalDate primero = desde.atDay(1);
+        LocalDate ultimo = hasta.atDay(1);
+
+        List<SketchCompradores> guardados = idProducto != null
+                ? sketchRepository.findByIdProductoAndMesBetween(idProducto, primero, ultimo)
+                : sketchRepository.findByMesBetween(primero, ultimo);
+
+        // Combinamos por producto los sketches guardados y los pendientes de volcar
+        Map<Integer, HyperLogLog> porProducto = new HashMap<>();
+        for (SketchCompradores guardado : guardados) {
+            combinarEn(porProducto, guardado.getIdProducto(), HyperLogLog.desdeBytes(guardado.getRegistros()));
+        }
+        pendientes.recorrer((clave, copia) -> {
+            boolean enRango = !clave.mes().isBefore(primero) && !clave.mes().isAfter(ultimo);
+            if (enRango && (idProducto == null || idProducto.equals(clave.idProducto()))) {
+                combinarEn(porProducto, clave.idProducto(), copia);
+            }
+        });
+
+        Map<Integer, String> nombres = productoRepository.findAllById(porProducto.keySet()).stream()
+                .collect(Collectors.toMap(Producto::getIdProducto, Producto::getNombre));
+
+        return porProducto.entrySet().stream()
+                .map(entry -> {
+                    HyperLogLog hll = entry.getValue();
+                    long estimacion = hll.estimar();
+                    double error = hll.errorEstandar();
+                    return new CompradoresUnicosDTO(entry.getKey(), nombres.get(entry.getKey()), estimacion, error,
+                            Math.max(0, Math.round(estimacion * (1 - 2 * error))),
+                            Math.round(estimacion * (1 + 2 * error)));
+                })
+                .sorted(Comparator.comparing(CompradoresUnicosDTO::getEstimacion).reversed())
+                .toList();
+    }
+
+    private void combinarEn(Map<Integer, HyperLogLog> porProducto, Integer idProducto, HyperLogLog sketch) {
+        HyperLogLog existente = porProducto.putIfAbsent(idProducto, sketch);
+        if (existente != null) {
+            existente.combinar(sketch);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ecommerce.reportes.compradores.volcado-ms:10000}")
+    @PreDestroy
+    public void volcarPendientes() {
+        pendientes.volcar(this::guardarCombinado);
+    }
+
+    /**
+     * Combina un sketch con el guardado para la misma clave (bloqueando la fila) o lo inserta si no existe.
+     */
+    private void guardarCombinado(Clave clave, HyperLogLog sketch) {
+        SketchCompradores fila = sketchRepository.findByIdProductoAndMes(clave.idProducto(), clave.mes())
+                .orElseGet(() -> new SketchCompradores(null, clave.idProducto(), clave.mes(), null));
+        if (fila.getRegistros() != null) {
+            sketch.combinar(HyperLogLog.desdeBytes(fila.getRegistros()));
+        }
+        fila.setRegistros(sketch.toBytes());
+        sketchRepository.save(fila);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        pendientes.enTransaccionNueva(sketchRepository::deleteAllInBatch);
+
+        // El stream llega ordenado por producto y fecha: construimos un sketch por producto y mes
+        try (Stream<Object[]> filas = sketchRepository.streamCompradoresHistoricos()) {
+            pendientes.reconstruir(filas,
+                    fila -> new Clave(((Number) fila[0]).intValue(), FechasSql.aFecha(fila[1]).withDayOfMonth(1)),
+                    HyperLogLog::new,
+                    (sketch, fila) -> sketch.agregar(((Number) fila[2]).longValue()),
+                    this::guardarCombinado);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.VentaPeriodoDTO;
+import com.proyecto.ecommerce.entity.Granularidad;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Interfaz del cubo de ventas pre-agregado por (periodo, producto),
+ * con niveles de día, semana y mes.
+ */
+public interface CuboVentasService {
+
+    /**
+     * Suma al cubo las líneas de un pedido recién registrado, en las tres granularidades.
+     * @param evento Datos del pedido registrado.
+     */
+    void registrarPedido(PedidoRegistradoEvent evento);
+
+    /**
+     * Devuelve la serie temporal de ventas entre dos fechas, con un elemento por periodo
+     * (los periodos sin ventas se devuelven a cero).
+     *
+     * @param granularidad Granularidad de la serie.
+     * @param desde        Fecha inicial (incluida).
+     * @param hasta        Fecha final (incluida).
+     * @param idProducto   ID del producto, o null para el total de la tienda.
+     * @return Lista de ventas por periodo ordenada cronológicamente.
+     */
+    List<VentaPeriodoDTO> obtenerVentas(Granularidad granularidad, LocalDate desde, LocalDate hasta, Integer idProducto);
+
+    /**
+     * Reconstruye el cubo completo a partir de las tablas pedido y pedido_producto.
+     */
+    void reconstruir();
+}
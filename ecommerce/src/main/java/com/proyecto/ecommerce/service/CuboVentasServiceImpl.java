@@ -0,0 +1,124 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.VentaPeriodoDTO;
+import com.proyecto.ecommerce.entity.Granularidad;
+import com.proyecto.ecommerce.entity.VentaAgregada;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.VentaAgregadaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación del cubo de ventas.
+ * Se mantiene de forma incremental al confirmarse cada pedido y se reconstruye
+ * por la noche mediante consultas INSERT ... SELECT sobre pedido/pedido_producto.
+ * Las consultas leen solo las celdas del rango pedido, así que su coste depende
+ * del número de periodos y no del número de pedidos.
+ */
+@Service
+public class CuboVentasServiceImpl implements CuboVentasService {
+
+    private static final Logger log = LoggerFactory.getLogger(CuboVentasServiceImpl.class);
+
+    // Límite de periodos por consulta para no devolver series desproporcionadas
+    private static final int MAX_PERIODOS = 3660;
+
+    @Autowired
+    private VentaAgregadaRepository ventaAgregadaRepository;
+
+    /**
+     * Actualiza el cubo cuando se confirma la transacción del pedido.
+     * Se ejecuta en una transacción nueva para no afectar al pedido si falla.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onPedidoRegistrado(PedidoRegistradoEvent evento) {
+        registrarPedido(evento);
+    }
+
+    @Override
+    @Transactional
+    public void registrarPedido(PedidoRegistradoEvent evento) {
+        // Agrupamos primero por producto para hacer un único upsert por celda
+        Map<Integer, long[]> unidadesPorProducto = new HashMap<>();
+        Map<Integer, Double> ingresosPorProducto = new HashMap<>();
+        long unidadesTotales = 0;
+        double ingresosTotales = 0;
+        for (PedidoRegistradoEvent.Linea linea : evento.lineas()) {
+            double importe = linea.cantidad() * linea.precioUnitario();
+            unidadesPorProducto.computeIfAbsent(linea.idProducto(), k -> new long[1])[0] += linea.cantidad();
+            ingresosPorProducto.merge(linea.idProducto(), importe, Double::sum);
+            unidadesTotales += linea.cantidad();
+            ingresosTotales += importe;
+        }
+
+        for (Granularidad granularidad : Granularidad.values()) {
+            LocalDate periodo = granularidad.inicio(evento.fecha());
+            for (Map.Entry<Integer, long[]> entry : unidadesPorProducto.entrySet()) {
+                ventaAgregadaRepository.acumular(granularidad.name(), periodo, entry.getKey(),
+                        entry.getValue()[0], ingresosPorProducto.get(entry.getKey()));
+            }
+            ventaAgregadaRepository.acumular(granularidad.name(), periodo,
+                    VentaAgregada.TODOS_LOS_PRODUCTOS, unidadesTotales, ingresosTotales);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VentaPeriodoDTO> obtenerVentas(Granularidad granularidad, LocalDate desde, LocalDate hasta, Integer idProducto) {
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("La fecha 'desde' no puede ser posterior a 'hasta'.");
+        }
+        LocalDate primero = granularidad.inicio(desde);
+        LocalDate ultimo = granularidad.inicio(hasta);
+        int producto = idProducto == null ? VentaAgregada.TODOS_LOS_PRODUCTOS : idProducto;
+
+        List<VentaAgregada> celdas = ventaAgregadaRepository
+                .findByGranularidadAndIdProductoAndPeriodoBetweenOrderByPeriodoAsc(granularidad, producto, primero, ultimo);
+
+        // Recorremos los periodos y las celdas a la vez, rellenando con ceros los huecos
+        List<VentaPeriodoDTO> serie = new ArrayList<>();
+        int i = 0;
+        for (LocalDate periodo = primero; !periodo.isAfter(ultimo); periodo = granularidad.siguiente(periodo)) {
+            if (serie.size() >= MAX_PERIODOS) {
+                throw new CustomException("El rango solicitado supera el máximo de " + MAX_PERIODOS + " periodos.");
+            }
+            if (i < celdas.size() && celdas.get(i).getPeriodo().equals(periodo)) {
+                VentaAgregada celda = celdas.get(i++);
+                serie.add(new VentaPeriodoDTO(periodo, celda.getUnidades(), celda.getIngresos()));
+            } else {
+                serie.add(new VentaPeriodoDTO(periodo, 0L, 0.0));
+            }
+        }
+        return serie;
+    }
+
+    /**
+     * Reconstrucción programada (por defecto cada noche) para corregir cualquier desviación
+     * del mantenimiento incremental, por ejemplo tras editar o borrar pedidos.
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${ecommerce.reportes.cubo-ventas.cron:0 30 3 * * *}")
+    public void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        ventaAgregadaRepository.vaciar();
+        ventaAgregadaRepository.reconstruirDias();
+        ventaAgregadaRepository.reconstruirSemanasYMeses();
+        ventaAgregadaRepository.reconstruirTotales();
+        log.info("Cubo de ventas reconstruido en {} ms", System.currentTimeMillis() - inicio);
+    }
+}
@@ -0,0 +1,40 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.DistribucionValorPedidoDTO;
+import com.proyecto.ecommerce.entity.SegmentoCliente;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+
+import java.time.LocalDate;
+
+/**
+ * Interfaz para consultar la distribución (percentiles) del total de los pedidos
+ * por día y segmento de cliente, respaldada por t-digest diarios combinables.
+ */
+public interface DistribucionPedidosService {
+
+    /**
+     * Añade el total de un pedido recién registrado al digest de su día y segmento.
+     * @param evento Datos del pedido registrado.
+     */
+    void registrarPedido(PedidoRegistradoEvent evento);
+
+    /**
+     * Obtiene los percentiles p50/p90/p99 de cada día del rango y del rango completo.
+     *
+     * @param desde    Fecha inicial (incluida).
+     * @param hasta    Fecha final (incluida).
+     * @param segmento Segmento de cliente.
+     * @return Distribución del valor de los pedidos.
+     */
+    DistribucionValorPedidoDTO obtenerDistribucion(LocalDate desde, LocalDate hasta, SegmentoCliente segmento);
+
+    /**
+     * Vuelca a la base de datos los digest acumulados en memoria.
+     */
+    void volcarPendientes();
+
+    /**
+     * Reconstruye todos los digest a partir del histórico de pedidos.
+     */
+    void reconstruir();
+}
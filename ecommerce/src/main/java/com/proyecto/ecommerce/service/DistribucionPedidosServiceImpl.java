@@ -0,0 +1,212 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.DistribucionValorPedidoDTO;
+import com.proyecto.ecommerce.dto.PercentilesDTO;
+import com.proyecto.ecommerce.entity.SegmentoCliente;
+import com.proyecto.ecommerce.entity.SketchValorPedido;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.SketchValorPedidoRepository;
+import com.proyecto.ecommerce.util.FechasSql;
+import com.proyecto.ecommerce.util.SketchesPendientes;
+import com.proyecto.ecommerce.util.TDigest;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de la distribución del valor de los pedidos con t-digest diarios.
+ * <p>
+ * Igual que los sketches de compradores, los pedidos se acumulan primero en digest en memoria
+ * (evitando bloquear en cada compra la fila del día, que todos los pedidos comparten)
+ * y un proceso programado los combina con los guardados en sketch_valor_pedido.
+ * <p>
+ * A diferencia de los HyperLogLog y los bitmaps, combinar dos veces un digest cuenta dos veces
+ * sus pedidos, así que la reconstrucción descarta lo pendiente y aparta los pedidos que llegan
+ * mientras recorre el histórico, para añadir después solo los que el recorrido no incluyó.
+ */
+@Service
+public class DistribucionPedidosServiceImpl implements DistribucionPedidosService {
+
+    // Límite de días por consulta
+    private static final int MAX_DIAS = 366;
+
+    /**
+     * Clave de un digest: segmento y día.
+     */
+    private record Clave(SegmentoCliente segmento, LocalDate fecha) {
+    }
+
+    /**
+     * Pedido confirmado durante una reconstrucción, con el segmento que tenía al confirmarse.
+     */
+    private record PedidoApartado(Integer idPedido, SegmentoCliente segmento, LocalDate fecha, double total) {
+    }
+
+    // Digest con pedidos aún no volcados a la base de datos
+    private final SketchesPendientes<Clave, TDigest> pendientes;
+
+    // Pedidos confirmados durante la reconstrucción en curso (null si no hay ninguna).
+    // Registrar un pedido toma la lectura; empezar y terminar la reconstrucción, la escritura.
+    private Queue<PedidoApartado> apartados;
+    private final ReadWriteLock cambioReconstruccion = new ReentrantReadWriteLock();
+
+    @Autowired
+    private SketchValorPedidoRepository sketchRepository;
+
+    @Autowired
+    public DistribucionPedidosServiceImpl(PlatformTransactionManager transactionManager) {
+        this.pendientes = new SketchesPendientes<>(transactionManager, TDigest::new,
+                digest -> TDigest.desdeBytes(digest.toBytes()), TDigest::combinar,
+                "el digest de valor de pedido");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoRegistrado(PedidoRegistradoEvent evento) {
+        registrarPedido(evento);
+    }
+
+    @Override
+    public void registrarPedido(PedidoRegistradoEvent evento) {
+        SegmentoCliente segmento = SegmentoCliente.segun(evento.pedidosPrevios());
+        cambioReconstruccion.readLock().lock();
+        try {
+            if (apartados != null) {
+                apartados.add(new PedidoApartado(evento.idPedido(), segmento, evento.fecha(), evento.total()));
+            } else {
+                acumular(segmento, evento.fecha(), evento.total());
+            }
+        } finally {
+            cambioReconstruccion.readLock().unlock();
+        }
+    }
+
+    private void acumular(SegmentoCliente segmento, LocalDate fecha, double total) {
+        pendientes.agregar(new Clave(SegmentoCliente.TODOS, fecha), td -> td.agregar(total));
+        pendientes.agregar(new Clave(segmento, fecha), td -> td.agregar(total));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DistribucionValorPedidoDTO obtenerDistribucion(LocalDate desde, LocalDate hasta, SegmentoCliente segmento) {
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("La fecha 'desde' no puede ser posterior a 'hasta'.");
+        }
+        if (desde.plusDays(MAX_DIAS).isBefore(hasta)) {
+            throw new CustomException("El rango solicitado supera el máximo de " + MAX_DIAS + " días.");
+        }
+
+        // Digest por día: los guardados más los pendientes de volcar
+        SortedMap<LocalDate, TDigest> porDia = new TreeMap<>();
+        for (SketchValorPedido guardado : sketchRepository.findBySegmentoAndFechaBetweenOrderByFechaAsc(segmento, desde, hasta)) {
+            porDia.put(guardado.getFecha(), TDigest.desdeBytes(guardado.getCentroides()));
+        }
+        pendientes.recorrer((clave, copia) -> {
+            if (clave.segmento() == segmento && !clave.fecha().isBefore(desde) && !clave.fecha().isAfter(hasta)) {
+                porDia.merge(clave.fecha(), copia, (a, b) -> {
+                    a.combinar(b);
+                    return a;
+                });
+            }
+        });
+
+        TDigest rango = new TDigest();
+        List<PercentilesDTO> dias = new ArrayList<>();
+        porDia.forEach((fecha, digest) -> {
+            dias.add(percentiles(fecha, digest));
+            rango.combinar(digest);
+        });
+        return new DistribucionValorPedidoDTO(segmento, percentiles(null, rango), dias);
+    }
+
+    private PercentilesDTO percentiles(LocalDate fecha, TDigest digest) {
+        if (digest.contar() == 0) {
+            return new PercentilesDTO(fecha, 0L, null, null, null);
+        }
+        return new PercentilesDTO(fecha, digest.contar(),
+                digest.cuantil(0.5), digest.cuantil(0.9), digest.cuantil(0.99));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ecommerce.reportes.valor-pedido.volcado-ms:10000}")
+    @PreDestroy
+    public synchronized void volcarPendientes() {
+        pendientes.volcar(this::guardarCombinado);
+    }
+
+    /**
+     * Combina un digest con el guardado para el mismo día y segmento (bloqueando la fila) o lo inserta.
+     */
+    private void guardarCombinado(Clave clave, TDigest digest) {
+        SketchValorPedido fila = sketchRepository.findBySegmentoAndFecha(clave.segmento(), clave.fecha())
+                .orElseGet(() -> new SketchValorPedido(null, clave.segmento(), clave.fecha(), null));
+        TDigest combinado = TDigest.desdeBytes(digest.toBytes());
+        if (fila.getCentroides() != null) {
+            combinado.combinar(TDigest.desdeBytes(fila.getCentroides()));
+        }
+        fila.setCentroides(combinado.toBytes());
+        sketchRepository.save(fila);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public synchronized void reconstruir() {
+        // Con el monitor no hay ningún volcado a medias. Lo pendiente ya está en el histórico
+        // (los eventos llegan tras confirmar): se descarta en vez de combinarlo otra vez.
+        cambioReconstruccion.writeLock().lock();
+        try {
+            pendientes.tomarTodos();
+            apartados = new ConcurrentLinkedQueue<>();
+        } finally {
+            cambioReconstruccion.writeLock().unlock();
+        }
+
+        RoaringBitmap recorridos = new RoaringBitmap();
+        try {
+            pendientes.enTransaccionNueva(sketchRepository::deleteAllInBatch);
+
+            // Pedidos previos de cada usuario hasta el pedido actual, para calcular su segmento
+            Map<Integer, Long> pedidosPorUsuario = new HashMap<>();
+            try (Stream<Object[]> filas = sketchRepository.streamPedidosHistoricos()) {
+                pendientes.reconstruir(filas,
+                        fila -> FechasSql.aFecha(fila[0]),
+                        () -> new EnumMap<SegmentoCliente, TDigest>(SegmentoCliente.class),
+                        (delDia, fila) -> {
+                            Integer idUsuario = ((Number) fila[1]).intValue();
+                            double total = ((Number) fila[2]).doubleValue();
+                            recorridos.add(((Number) fila[3]).intValue());
+                            long previos = pedidosPorUsuario.merge(idUsuario, 1L, Long::sum) - 1;
+                            delDia.computeIfAbsent(SegmentoCliente.TODOS, s -> new TDigest()).agregar(total);
+                            delDia.computeIfAbsent(SegmentoCliente.segun(previos), s -> new TDigest()).agregar(total);
+                        },
+                        (fecha, delDia) -> delDia.forEach((segmento, digest) ->
+                                guardarCombinado(new Clave(segmento, fecha), digest)));
+            }
+        } finally {
+            // Los pedidos confirmados después de la lectura del histórico pasan a pendientes
+            cambioReconstruccion.writeLock().lock();
+            try {
+                for (PedidoApartado pedido : apartados) {
+                    if (!recorridos.contains(pedido.idPedido())) {
+                        acumular(pedido.segmento(), pedido.fecha(), pedido.total());
+                    }
+                }
+                apartados = null;
+            } finally {
+                cambioReconstruccion.writeLock().unlock();
+            }
+        }
+    }
+}
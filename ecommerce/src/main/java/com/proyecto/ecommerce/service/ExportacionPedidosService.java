@@ -0,0 +1,25 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.FormatoExportacion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Interfaz para exportar las líneas de pedido en formatos planos (CSV o NDJSON).
+ */
+public interface ExportacionPedidosService {
+
+    /**
+     * Escribe una fila por línea de pedido entre dos fechas a medida que llegan de la base de datos.
+     * La memoria usada no depende del número de filas.
+     *
+     * @param desde   Fecha inicial (incluida).
+     * @param hasta   Fecha final (incluida).
+     * @param formato Formato de salida.
+     * @param salida  Flujo donde se escriben las filas; no se cierra.
+     * @return Número de filas escritas.
+     */
+    long exportarLineas(LocalDate desde, LocalDate hasta, FormatoExportacion formato, OutputStream salida) throws IOException;
+}
@@ -0,0 +1,117 @@
+package com.proyecto.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyecto.ecommerce.dto.FormatoExportacion;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.PedidoRepository;
+import com.proyecto.ecommerce.util.FechasSql;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de la exportación de líneas de pedido.
+ * Las filas se leen con un cursor de streaming y se escriben una a una, sin construir entidades.
+ */
+@Service
+public class ExportacionPedidosServiceImpl implements ExportacionPedidosService {
+
+    private static final String[] CABECERA = {
+            "id_pedido", "fecha", "usuario", "producto", "cantidad", "precio_unitario", "total_linea"};
+
+    // Cada cuántas filas se vacía el buffer para que el cliente vaya recibiendo datos
+    private static final int FILAS_POR_ENVIO = 1000;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportarLineas(LocalDate desde, LocalDate hasta, FormatoExportacion formato, OutputStream salida) throws IOException {
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("La fecha 'desde' no puede ser posterior a 'hasta'.");
+        }
+        long filas = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+        if (formato == FormatoExportacion.CSV) {
+            escribirCsv(writer, (Object[]) CABECERA);
+        } else {
+            // Los vaciados los decide este bucle, no cada flush del generador
+            json = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.setRootValueSeparator(null);
+        }
+
+        try (Stream<Object[]> lineas = pedidoRepository.streamLineasParaExportar(desde, hasta)) {
+            Iterator<Object[]> it = lineas.iterator();
+            while (it.hasNext()) {
+                Object[] linea = it.next();
+                int idPedido = ((Number) linea[0]).intValue();
+                LocalDate fecha = FechasSql.aFecha(linea[1]);
+                String usuario = (String) linea[2];
+                String producto = (String) linea[3];
+                int cantidad = ((Number) linea[4]).intValue();
+                double precio = ((Number) linea[5]).doubleValue();
+                double totalLinea = precio * cantidad;
+
+                if (json == null) {
+                    escribirCsv(writer, idPedido, fecha, usuario, producto, cantidad, precio, totalLinea);
+                } else {
+                    json.writeStartObject();
+                    json.writeNumberField(CABECERA[0], idPedido);
+                    json.writeStringField(CABECERA[1], fecha.toString());
+                    json.writeStringField(CABECERA[2], usuario);
+                    json.writeStringField(CABECERA[3], producto);
+                    json.writeNumberField(CABECERA[4], cantidad);
+                    json.writeNumberField(CABECERA[5], precio);
+                    json.writeNumberField(CABECERA[6], totalLinea);
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                }
+                if (++filas % FILAS_POR_ENVIO == 0) {
+                    if (json != null) {
+                        json.flush(); // Pasa al writer lo que tenga el generador, sin vaciar el writer
+                    }
+                    writer.flush();
+                }
+            }
+        }
+        if (json != null) {
+            json.close();
+        }
+        writer.flush();
+        return filas;
+    }
+
+    /**
+     * Escribe una fila CSV (RFC 4180): los campos con comas, comillas o saltos de línea van entre comillas.
+     */
+    private static void escribirCsv(Writer writer, Object... campos) throws IOException {
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String valor = String.valueOf(campos[i]);
+            if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(valor.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(valor);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
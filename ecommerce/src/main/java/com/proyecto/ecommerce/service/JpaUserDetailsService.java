@@ -2,12 +2,16 @@ package com.proyecto.ecommerce.service;
 
 import com.proyecto.ecommerce.entity.Usuario;
 import com.proyecto.ecommerce.repository.UsuarioRepository;
+import com.proyecto.ecommerce.security.CacheDetallesUsuario;
+import com.proyecto.ecommerce.security.DetallesUsuario;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,13 +20,29 @@ import java.util.stream.Collectors;
 /**
  * Servicio que se integra con Spring Security para cargar los detalles de un usuario
  * (UserDetails) desde la base de datos, mapeando la entidad Usuario y su lista de roles.
+ * También guarda el hash regenerado cuando el usuario inicia sesión con una contraseña
+ * cifrada con un coste de BCrypt antiguo.
+ * <p>
+ * Los detalles se sirven desde {@link CacheDetallesUsuario}; solo los fallos de caché
+ * abren una transacción y consultan la base de datos.
  */
 @Service
-public class JpaUserDetailsService implements UserDetailsService {
+public class JpaUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private CacheDetallesUsuario cacheDetallesUsuario;
+
+    private final TransactionTemplate transaccionLectura;
+
+    @Autowired
+    public JpaUserDetailsService(PlatformTransactionManager transactionManager) {
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
     /**
      * Carga un usuario por su username, mapeando sus roles a GrantedAuthority,
      * tal como requiere Spring Security para la autenticación.
@@ -32,8 +52,12 @@ public class JpaUserDetailsService implements UserDetailsService {
      * @throws UsernameNotFoundException si no se encuentra el usuario.
      */
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cacheDetallesUsuario.obtener(username,
+                nombre -> transaccionLectura.execute(status -> cargarUsuario(nombre)));
+    }
+
+    private UserDetails cargarUsuario(String username) {
         // Buscamos el usuario en la BD
         Optional<Usuario> userOptional = usuarioRepository.findByUsername(username);
         if (userOptional.isEmpty()) {
@@ -50,15 +74,33 @@ public class JpaUserDetailsService implements UserDetailsService {
                 .map(role -> new SimpleGrantedAuthority(role.getName()))
                 .collect(Collectors.toList());
 
-        // Construimos el UserDetails que usa Spring Security internamente
-        return new org.springframework.security.core.userdetails.User(
+        // Construimos el UserDetails que usa Spring Security internamente (con el id para el token)
+        return new DetallesUsuario(
+                user.getIdUsuario(),
                 user.getUsername(),
                 user.getPassword(),
                 user.isEnabled(),      // si el usuario está habilitado
-                true,                  // accountNonExpired
-                true,                  // credentialsNonExpired
-                true,                  // accountNonLocked
                 roles
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Sustituye el hash de la contraseña por uno generado con el coste actual.
+     * Spring Security lo invoca tras un login correcto, con el hash ya calculado.
+     *
+     * @param user        usuario autenticado.
+     * @param newPassword nuevo hash de la contraseña.
+     * @return el UserDetails con el hash actualizado.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        usuarioRepository.findByUsername(user.getUsername()).ifPresent(usuario -> {
+            usuario.setPassword(newPassword);
+            usuarioRepository.save(usuario);
+        });
+        cacheDetallesUsuario.invalidar(user.getUsername());
+        Integer idUsuario = user instanceof DetallesUsuario detalles ? detalles.getIdUsuario() : null;
+        return new DetallesUsuario(idUsuario, user.getUsername(), newPassword, user.isEnabled(), user.getAuthorities());
+    }
+}
@@ -0,0 +1,20 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.PanelAdminDTO;
+
+/**
+ * Interfaz para la instantánea precalculada de los paneles de administración.
+ */
+public interface PanelAdminService {
+
+    /**
+     * Devuelve la última instantánea publicada. No consulta la base de datos ni bloquea.
+     */
+    PanelAdminDTO obtenerPanel();
+
+    /**
+     * Recalcula todos los paneles y publica una nueva instantánea si el contenido ha cambiado.
+     * @return Instantánea vigente tras el recálculo.
+     */
+    PanelAdminDTO recalcular();
+}
@@ -0,0 +1,188 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.PanelAdminDTO;
+import com.proyecto.ecommerce.event.DatosModificadosEvent;
+import com.proyecto.ecommerce.repository.PedidoRepository;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementación de la instantánea del panel de administración.
+ * <p>
+ * Las consultas de cada panel son independientes, así que se lanzan a la vez en un pool
+ * pequeño y propio (como mucho ocupan tantas conexiones como hilos tiene). En cuanto una falla,
+ * sin esperar al resto, se cancelan las que aún no han empezado, se interrumpe el hilo de las que
+ * están en curso y se mantiene la instantánea anterior. La nueva instantánea se publica
+ * con una sola escritura en un {@link AtomicReference}, así que los lectores no se bloquean nunca.
+ * <p>
+ * Se recalcula periódicamente y, tras una escritura de pedidos o catálogo, en el siguiente
+ * ciclo corto, agrupando así ráfagas de escrituras en un único recálculo. Los endpoints de
+ * rankings, pedidos por usuario, gasto y stock bajo leen de aquí, así que muestran los datos
+ * con ese retraso.
+ */
+@Service
+public class PanelAdminServiceImpl implements PanelAdminService {
+
+    private static final Logger log = LoggerFactory.getLogger(PanelAdminServiceImpl.class);
+
+    private final AtomicReference<PanelAdminDTO> panel = new AtomicReference<>(PanelAdminDTO.VACIO);
+
+    // Se ha confirmado alguna escritura desde el último recálculo
+    private final AtomicBoolean cambiosPendientes = new AtomicBoolean();
+
+    private final ExecutorService executor;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Value("${ecommerce.panel-admin.stock-bajo:5}")
+    private int umbralStockBajo;
+
+    public PanelAdminServiceImpl() {
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(4, tarea -> {
+            Thread hilo = new Thread(tarea, "panel-admin-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @Override
+    public PanelAdminDTO obtenerPanel() {
+        return panel.get();
+    }
+
+    @EventListener
+    public void onDatosModificados(DatosModificadosEvent evento) {
+        cambiosPendientes.set(true);
+    }
+
+    /**
+     * Recalcula si ha habido escrituras desde el último recálculo.
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.panel-admin.espera-cambios-ms:2000}")
+    public void recalcularSiHayCambios() {
+        if (cambiosPendientes.getAndSet(false)) {
+            recalcular();
+        }
+    }
+
+    /**
+     * Recalcula todos los paneles, haya o no cambios (por ejemplo, el último mes avanza solo).
+     */
+    @Scheduled(fixedDelayString = "${ecommerce.panel-admin.recalculo-ms:60000}")
+    public void recalcularPeriodicamente() {
+        recalcular();
+    }
+
+    @Override
+    public synchronized PanelAdminDTO recalcular() {
+        long inicio = System.currentTimeMillis();
+        Consultas consultas = new Consultas();
+        Future<Long> totalPedidos = consultas.lanzar(pedidoRepository::count);
+        Future<Double> ingresos = consultas.lanzar(pedidoRepository::sumarTotales);
+        Future<List<PanelAdminDTO.Valor>> pedidosPorUsuario =
+                consultas.lanzar(() -> aValores(pedidoRepository.CountPedidoPorUsuario()));
+        Future<List<PanelAdminDTO.Valor>> gastoPorUsuario =
+                consultas.lanzar(() -> aValores(pedidoRepository.findTotalGastadoPorUsuarios()));
+        Future<List<PanelAdminDTO.Valor>> masVendidos =
+                consultas.lanzar(() -> aValores(productoRepository.FindProductosMasVendidos()));
+        Future<List<PanelAdminDTO.Valor>> masVendidosUltimoMes =
+                consultas.lanzar(() -> aValores(productoRepository.findProductosMasVendidosUltimoMes()));
+        Future<List<PanelAdminDTO.ProductoStock>> stockBajo =
+                consultas.lanzar(() -> productoRepository.findByStockLessThan(umbralStockBajo).stream()
+                        .map(p -> new PanelAdminDTO.ProductoStock(p.getIdProducto(), p.getNombre(), p.getStock()))
+                        .toList());
+
+        PanelAdminDTO anterior = panel.get();
+        // La primera versión parte de la hora actual para que los ETag no se repitan tras un reinicio
+        long version = anterior.version() == 0 ? System.currentTimeMillis() : anterior.version() + 1;
+        PanelAdminDTO nuevo;
+        try {
+            consultas.esperar();
+            nuevo = new PanelAdminDTO(version, Instant.now(),
+                    totalPedidos.get(), ingresos.get(), pedidosPorUsuario.get(), gastoPorUsuario.get(),
+                    masVendidos.get(), masVendidosUltimoMes.get(), stockBajo.get());
+        } catch (ExecutionException e) {
+            // Si falla un panel, no publicamos una instantánea a medias
+            consultas.cancelar();
+            log.warn("No se pudo recalcular el panel de administración; se mantiene la versión {}",
+                    anterior.version(), e.getCause());
+            return anterior;
+        } catch (InterruptedException e) {
+            consultas.cancelar();
+            Thread.currentThread().interrupt();
+            return anterior;
+        }
+
+        if (anterior.version() > 0 && nuevo.mismoContenido(anterior)) {
+            return anterior;
+        }
+        panel.set(nuevo);
+        log.debug("Panel de administración v{} calculado en {} ms", nuevo.version(), System.currentTimeMillis() - inicio);
+        return nuevo;
+    }
+
+    /**
+     * Consultas de un recálculo lanzadas en el pool. Cada una avisa al terminar, así que
+     * {@link #esperar} se entera del primer fallo sin esperar a las demás.
+     */
+    private final class Consultas {
+        private final List<Future<?>> lanzadas = new ArrayList<>();
+        private final BlockingQueue<Future<?>> terminadas = new LinkedBlockingQueue<>();
+
+        <T> Future<T> lanzar(Callable<T> consulta) {
+            FutureTask<T> tarea = new FutureTask<>(consulta) {
+                @Override
+                protected void done() {
+                    terminadas.add(this);
+                }
+            };
+            lanzadas.add(tarea);
+            executor.execute(tarea);
+            return tarea;
+        }
+
+        /**
+         * Espera a que terminen todas; lanza la excepción de la primera que falle en cuanto falla.
+         */
+        void esperar() throws InterruptedException, ExecutionException {
+            for (int i = 0; i < lanzadas.size(); i++) {
+                terminadas.take().get();
+            }
+        }
+
+        void cancelar() {
+            lanzadas.forEach(tarea -> tarea.cancel(true));
+        }
+    }
+
+    private static List<PanelAdminDTO.Valor> aValores(List<Object[]> filas) {
+        return filas.stream()
+                .map(fila -> new PanelAdminDTO.Valor((String) fila[0], (Number) fila[1]))
+                .toList();
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+}
@@ -72,4 +72,17 @@ public interface PedidoProductoService {
      */
     List<PedidoProducto> obtenerRelacionPedidoProducto(Integer idPedido, Integer idProducto);
 
+    /**
+     * Como {@link #listarPorPedido(Integer)}, pero solo si el pedido es del usuario indicado.
+     * @param idPedido  ID del pedido.
+     * @param idUsuario ID del usuario propietario.
+     * @return Registros del pedido, o lista vacía si el pedido es de otro usuario.
+     */
+    List<PedidoProducto> listarPorPedidoDeUsuario(Integer idPedido, Integer idUsuario);
+
+    /**
+     * Como {@link #obtenerRelacionPedidoProducto(Integer, Integer)}, pero solo si el pedido es del usuario indicado.
+     */
+    List<PedidoProducto> obtenerRelacionPedidoProductoDeUsuario(Integer idPedido, Integer idProducto, Integer idUsuario);
+
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.proyecto.ecommerce.service;
 
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.cache.InvalidaCache;
 import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
@@ -36,6 +38,7 @@ public class PedidoProductoServiceImpl implements PedidoProductoService {
     }
 
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public PedidoProducto crear(PedidoProducto pedidoProducto) {
         if (pedidoProducto.getPedido() == null || pedidoProducto.getPedido().getIdPedido() == null) {
             throw new CustomException("El pedido es obligatorio.");
@@ -64,6 +67,7 @@ public class PedidoProductoServiceImpl implements PedidoProductoService {
 
     @Override
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public PedidoProducto actualizar(Long id, PedidoProducto nuevosDatos) {
         PedidoProducto existente = obtenerPorId(id);
 
@@ -79,6 +83,7 @@ public class PedidoProductoServiceImpl implements PedidoProductoService {
 
     @Override
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public void eliminar(Long id) {
         PedidoProducto existente = obtenerPorId(id);
         pedidoProductoRepository.delete(existente);
@@ -115,4 +120,15 @@ public class PedidoProductoServiceImpl implements PedidoProductoService {
     public List<PedidoProducto> obtenerRelacionPedidoProducto(Integer idPedido, Integer idProducto) {
         return pedidoProductoRepository.findByPedidoIdPedidoAndProductoIdProducto(idPedido, idProducto);
     }
+
+    @Override
+    public List<PedidoProducto> listarPorPedidoDeUsuario(Integer idPedido, Integer idUsuario) {
+        return pedidoProductoRepository.findByPedidoIdPedidoAndPedidoUsuarioIdUsuario(idPedido, idUsuario);
+    }
+
+    @Override
+    public List<PedidoProducto> obtenerRelacionPedidoProductoDeUsuario(Integer idPedido, Integer idProducto, Integer idUsuario) {
+        return pedidoProductoRepository.findByPedidoIdPedidoAndProductoIdProductoAndPedidoUsuarioIdUsuario(
+                idPedido, idProducto, idUsuario);
+    }
 }
\ No newline at end of file
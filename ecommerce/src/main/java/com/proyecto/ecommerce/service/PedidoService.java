@@ -5,6 +5,7 @@ import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.Usuario;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Interfaz que define los métodos para la gestión de pedidos en el sistema.
@@ -88,6 +89,34 @@ public interface PedidoService {
      */
     List<Pedido> listarPedidosPorIdUsuario(Integer idUsuario);
 
+    /**
+     * Indica si un pedido pertenece a un usuario, sin cargar ninguno de los dos.
+     * @param idPedido  ID del pedido.
+     * @param idUsuario ID del usuario.
+     * @return true si el pedido existe y es de ese usuario.
+     */
+    boolean esPropietario(Integer idPedido, Integer idUsuario);
+
+    /**
+     * Obtiene un pedido por su ID sin lanzar excepción si no existe.
+     * @param idPedido Clave primaria del pedido.
+     * @return El pedido, o vacío si no existe.
+     */
+    Optional<Pedido> buscarPedido(Integer idPedido);
+
+    /**
+     * Obtiene un pedido solo si pertenece al usuario, con una única consulta.
+     * @param idPedido  ID del pedido.
+     * @param idUsuario ID del usuario propietario.
+     * @return El pedido, o vacío si no existe o es de otro usuario.
+     */
+    Optional<Pedido> buscarPedidoDeUsuario(Integer idPedido, Integer idUsuario);
+
+    /**
+     * Indica si existe un pedido con ese ID, sin cargarlo.
+     */
+    boolean existePedido(Integer idPedido);
+
     /**
      * Elimina todos los pedidos de un usuario específico.
      *
@@ -108,5 +137,15 @@ public interface PedidoService {
     */
     Pedido crearPedidoAdmin(PedidoRequest pedidoRequest, Usuario usuario);
 
+    /**
+     * Registra un pedido del usuario junto con sus productos en una única transacción
+     * y, al confirmarse, notifica el evento de pedido registrado para actualizar los agregados.
+     *
+     * @param pedidoRequest Datos del pedido y productos con su cantidad.
+     * @param usuario       Usuario (cliente) que realiza el pedido.
+     * @return El pedido persistido.
+     */
+    Pedido registrarPedido(PedidoRequest pedidoRequest, Usuario usuario);
+
 
 }
@@ -1,19 +1,29 @@
 package com.proyecto.ecommerce.service;
 
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.cache.InvalidaCache;
+import com.proyecto.ecommerce.cache.ResultadoCacheado;
 import com.proyecto.ecommerce.dto.PedidoRequest;
 import com.proyecto.ecommerce.dto.ProductoCantidadDTO;
 import com.proyecto.ecommerce.entity.Pedido;
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
 import com.proyecto.ecommerce.entity.Usuario;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
 import com.proyecto.ecommerce.exception.CustomException;
 import com.proyecto.ecommerce.repository.PedidoProductoRepository;
 import com.proyecto.ecommerce.repository.PedidoRepository;
+import com.proyecto.ecommerce.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Implementación de la interfaz PedidoService,
@@ -31,6 +41,15 @@ public class PedidoServiceImpl implements PedidoService {
     @Autowired
     private ProductoService productoService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private VentaFlashService ventaFlashService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
 
     @Override
     public List<Pedido> listarPedidos() {
@@ -38,6 +57,7 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public Pedido crearPedido(Pedido pedido) {
         if (pedido.getUsuario() == null || pedido.getUsuario().getIdUsuario() == null) {
             throw new CustomException("El usuario es obligatorio para crear un pedido.");
@@ -54,6 +74,7 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public Pedido actualizarPedido(Integer idPedido, Pedido datosNuevos) {
         Pedido existente = obtenerPedidoPorId(idPedido);
 
@@ -70,6 +91,7 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public void eliminarPedido(Integer idPedido) {
         Pedido existente = obtenerPedidoPorId(idPedido);
         //  Eliminar manualmente la relación con PedidoProducto antes de eliminar el pedido
@@ -100,6 +122,7 @@ public class PedidoServiceImpl implements PedidoService {
     }
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 300, etiquetas = EtiquetasCache.PEDIDOS)
     public List<Object[]> obtenerCantidadProductosVendidosPorUsuario() {
         return pedidoRepository.findCantidadProductosVendidosPorUsuario();
     }
@@ -127,6 +150,7 @@ public class PedidoServiceImpl implements PedidoService {
      */
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 300, etiquetas = EtiquetasCache.PEDIDOS)
     public List<Object[]> contarPedidosPorUsuario() {
         return pedidoRepository.CountPedidoPorUsuario();
     }
@@ -140,12 +164,37 @@ public class PedidoServiceImpl implements PedidoService {
         return pedidoRepository.findByUsuarioIdUsuario(idUsuario);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public boolean esPropietario(Integer idPedido, Integer idUsuario) {
+        return pedidoRepository.existsByIdPedidoAndUsuarioIdUsuario(idPedido, idUsuario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Pedido> buscarPedido(Integer idPedido) {
+        return pedidoRepository.findById(idPedido);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Pedido> buscarPedidoDeUsuario(Integer idPedido, Integer idUsuario) {
+        return pedidoRepository.findByIdPedidoAndUsuarioIdUsuario(idPedido, idUsuario);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean existePedido(Integer idPedido) {
+        return pedidoRepository.existsById(idPedido);
+    }
+
     /**
      * Elimina todos los pedidos de un usuario y sus productos relacionados.
      * Se ejecuta dentro de una transacción para asegurar la consistencia.
      */
     @Transactional
     @Override
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public void eliminarPedidosDeUsuario(Integer idUsuario) {
         // Buscar los pedidos del usuario
         List<Pedido> pedidos = pedidoRepository.findByUsuarioIdUsuario(idUsuario);
@@ -165,6 +214,7 @@ public class PedidoServiceImpl implements PedidoService {
 
     @Override
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public void eliminarProductosDePedido(Integer idPedido) {
         // Verificamos si el pedido existe
         Pedido pedido = obtenerPedidoPorId(idPedido);
@@ -179,6 +229,7 @@ public class PedidoServiceImpl implements PedidoService {
 
     @Override
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public Pedido crearPedidoAdmin(PedidoRequest pedidoRequest, Usuario usuario) {
         // Validar datos básicos del pedido
         if (pedidoRequest.getFecha() == null) {
@@ -194,6 +245,8 @@ public class PedidoServiceImpl implements PedidoService {
             throw new CustomException("Debe incluir al menos un producto en el pedido.");
         }
 
+        long previos = contarPedidosPrevios(usuario);
+
         // Crear el objeto Pedido
         Pedido pedido = new Pedido();
         pedido.setFecha(pedidoRequest.getFecha());
@@ -205,19 +258,19 @@ public class PedidoServiceImpl implements PedidoService {
         Pedido pedidoGuardado = pedidoRepository.save(pedido);
 
         // Procesar cada producto del pedido
+        List<PedidoRegistradoEvent.Linea> lineas = new ArrayList<>();
         for (ProductoCantidadDTO pcDTO : pedidoRequest.getProductos()) {
+            if (pcDTO.getCantidad() == null || pcDTO.getCantidad() <= 0) {
+                throw new CustomException("La cantidad debe ser un número mayor que 0.");
+            }
             // Obtener el producto
             Producto producto = productoService.obtenerProductoPorId(pcDTO.getIdProducto());
 
-            // Validar stock disponible
-            if (producto.getStock() < pcDTO.getCantidad()) {
+            // Retirar el stock solo si queda suficiente (se devuelve si la transacción no se confirma)
+            if (!retirarUnidades(producto.getIdProducto(), pcDTO.getCantidad())) {
                 throw new CustomException("No hay suficiente stock para el producto: " + producto.getNombre());
             }
 
-            // Actualizar el stock del producto
-            producto.setStock(producto.getStock() - pcDTO.getCantidad());
-            productoService.actualizarProducto(producto.getIdProducto(), producto);
-
             // Crear la relación en la entidad intermedia (PedidoProducto)
             PedidoProducto pedidoProducto = new PedidoProducto();
             pedidoProducto.setPedido(pedidoGuardado);
@@ -226,9 +279,102 @@ public class PedidoServiceImpl implements PedidoService {
 
             // Guardar la relación en la base de datos
             pedidoProductoRepository.save(pedidoProducto);
+            lineas.add(new PedidoRegistradoEvent.Linea(producto.getIdProducto(), pcDTO.getCantidad(), producto.getPrecio()));
+        }
+
+        publicarPedidoRegistrado(pedidoGuardado, previos, lineas);
+        return pedidoGuardado;
+    }
+
+    @Override
+    @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
+    public Pedido registrarPedido(PedidoRequest pedidoRequest, Usuario usuario) {
+        if (pedidoRequest.getProductos() == null || pedidoRequest.getProductos().isEmpty()) {
+            throw new CustomException("Debe incluir al menos un producto en el pedido.");
+        }
+        long previos = contarPedidosPrevios(usuario);
+
+        // Crear y guardar el pedido (crearPedido valida usuario, fecha, total y estado)
+        Pedido pedido = new Pedido();
+        pedido.setFecha(pedidoRequest.getFecha());
+        pedido.setTotal(pedidoRequest.getTotal());
+        pedido.setEstado(pedidoRequest.getEstado());
+        pedido.setUsuario(usuario);
+        Pedido pedidoGuardado = crearPedido(pedido);
+
+        // Asociar productos al pedido en la tabla intermedia
+        List<PedidoRegistradoEvent.Linea> lineas = new ArrayList<>();
+        for (ProductoCantidadDTO pcDTO : pedidoRequest.getProductos()) {
+            if (pcDTO.getCantidad() == null || pcDTO.getCantidad() <= 0) {
+                throw new CustomException("La cantidad debe ser un número mayor que 0.");
+            }
+            Producto producto = productoService.obtenerProductoPorId(pcDTO.getIdProducto());
+
+            PedidoProducto pedidoProducto = new PedidoProducto();
+            pedidoProducto.setPedido(pedidoGuardado);
+            pedidoProducto.setProducto(producto);
+            pedidoProducto.setCantidad(pcDTO.getCantidad());
+            pedidoProductoRepository.save(pedidoProducto);
+
+            lineas.add(new PedidoRegistradoEvent.Linea(producto.getIdProducto(), pcDTO.getCantidad(), producto.getPrecio()));
         }
 
+        publicarPedidoRegistrado(pedidoGuardado, previos, lineas);
         return pedidoGuardado;
     }
 
+    /**
+     * Cuenta los pedidos que tenía el usuario antes del que se está creando. Bloquea antes la fila del
+     * usuario, así que dos pedidos suyos simultáneos se cuentan uno detrás de otro. Debe ser la primera
+     * lectura de la transacción: en MySQL la instantánea de las lecturas se toma en la primera, y si fuera
+     * anterior al bloqueo no vería el pedido que acaba de confirmar el otro.
+     *
+     * @return Pedidos previos, o 0 si no hay usuario (lo rechaza la validación del pedido).
+     */
+    private long contarPedidosPrevios(Usuario usuario) {
+        if (usuario == null || usuario.getIdUsuario() == null) {
+            return 0;
+        }
+        usuarioRepository.findConBloqueoByIdUsuario(usuario.getIdUsuario());
+        return pedidoRepository.countByUsuarioIdUsuario(usuario.getIdUsuario());
+    }
+
+    /**
+     * Retira las unidades de un pedido creado por un administrador. Si el producto está en venta
+     * flash salen del contador de la venta: retirarlas de la tabla no lo descontaría y la venta
+     * las volvería a vender.
+     *
+     * @return false si no quedan unidades suficientes.
+     */
+    private boolean retirarUnidades(Integer idProducto, int cantidad) {
+        return switch (ventaFlashService.asignar(idProducto, cantidad)) {
+            case ASIGNADA -> {
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    // Si el pedido no llega a confirmarse las unidades vuelven a la venta
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int estado) {
+                            if (estado != STATUS_COMMITTED) {
+                                ventaFlashService.devolver(idProducto, cantidad);
+                            }
+                        }
+                    });
+                }
+                yield true;
+            }
+            case AGOTADA -> false;
+            case INACTIVA -> productoService.retirarStock(idProducto, cantidad);
+        };
+    }
+
+    /**
+     * Publica el evento de pedido registrado. Los listeners transaccionales
+     * lo procesan solo cuando la transacción del pedido se confirma.
+     */
+    private void publicarPedidoRegistrado(Pedido pedido, long previos, List<PedidoRegistradoEvent.Linea> lineas) {
+        eventPublisher.publishEvent(new PedidoRegistradoEvent(pedido.getIdPedido(),
+                pedido.getUsuario().getIdUsuario(), previos, pedido.getFecha(), pedido.getTotal(), List.copyOf(lineas)));
+    }
+
 }
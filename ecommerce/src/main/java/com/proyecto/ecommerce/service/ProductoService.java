@@ -2,6 +2,7 @@ package com.proyecto.ecommerce.service;
 
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -31,6 +32,13 @@ public interface ProductoService {
      */
     Producto obtenerProductoPorId(Integer idProducto);
 
+    /**
+     * Obtiene varios productos con una sola consulta. Los IDs que no existen se omiten.
+     * @param idsProductos IDs de los productos.
+     * @return Los productos encontrados, sin un orden concreto.
+     */
+    List<Producto> obtenerProductosPorIds(Collection<Integer> idsProductos);
+
     /**
      * Actualiza los datos de un producto existente.
      * @param idProducto la clave primaria del producto a actualizar.
@@ -39,6 +47,24 @@ public interface ProductoService {
      */
     Producto actualizarProducto(Integer idProducto, Producto datosNuevos);
 
+    /**
+     * Descuenta unidades del stock de un producto sin comprobar el saldo (negativo para devolverlas).
+     * Lo usa la venta flash para aplicar de una vez todas las unidades asignadas desde el último volcado.
+     * @param idProducto ID del producto.
+     * @param cantidad Unidades a descontar.
+     */
+    void descontarStock(Integer idProducto, int cantidad);
+
+    /**
+     * Retira unidades vendidas si queda stock suficiente, de forma atómica frente a otras compras.
+     * Según {@code ecommerce.inventario.modo} se hace con un UPDATE sobre la fila o en memoria.
+     * Dentro de una transacción, se devuelven si esta no se confirma.
+     * @param idProducto ID del producto.
+     * @param cantidad Unidades a retirar (mayor que 0).
+     * @return true si se retiraron; false si no había stock suficiente.
+     */
+    boolean retirarStock(Integer idProducto, int cantidad);
+
     /**
      * Elimina un producto por ID.
      * @param idProducto ID del producto a eliminar.
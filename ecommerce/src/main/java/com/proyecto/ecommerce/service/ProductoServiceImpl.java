@@ -1,12 +1,18 @@
 package com.proyecto.ecommerce.service;
 
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.cache.InvalidaCache;
+import com.proyecto.ecommerce.cache.ResultadoCacheado;
 import com.proyecto.ecommerce.entity.PedidoProducto;
 import com.proyecto.ecommerce.entity.Producto;
 import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.inventario.InventarioStock;
 import com.proyecto.ecommerce.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -19,12 +25,17 @@ public class ProductoServiceImpl implements ProductoService {
     @Autowired
     private ProductoRepository productoRepository;
 
+    // Dónde se descuenta el stock vendido (ecommerce.inventario.modo)
+    @Autowired
+    private InventarioStock inventarioStock;
+
     @Override
     public List<Producto> listarProductos() {
         return productoRepository.findAll();
     }
 
     @Override
+    @InvalidaCache(EtiquetasCache.CATALOGO)
     public Producto crearProducto(Producto producto) {
         validarNombreUnico(producto.getNombre());
         validarPrecioYStock(producto.getPrecio(), producto.getStock());
@@ -39,6 +50,16 @@ public class ProductoServiceImpl implements ProductoService {
     }
 
     @Override
+    public List<Producto> obtenerProductosPorIds(Collection<Integer> idsProductos) {
+        if (idsProductos.isEmpty()) {
+            return List.of();
+        }
+        return productoRepository.findAllById(idsProductos);
+    }
+
+    @Override
+    @Transactional // La entidad queda gestionada: el UPDATE sale de sus cambios, no de un merge de todo
+    @InvalidaCache(EtiquetasCache.CATALOGO)
     public Producto actualizarProducto(Integer idProducto, Producto datosNuevos) {
         Producto existente = obtenerProductoPorId(idProducto);
 
@@ -51,15 +72,33 @@ public class ProductoServiceImpl implements ProductoService {
         existente.setNombre(datosNuevos.getNombre());
         existente.setDescripcion(datosNuevos.getDescripcion());
         existente.setPrecio(datosNuevos.getPrecio());
-        existente.setStock(datosNuevos.getStock());
+        // Producto usa @DynamicUpdate: si no se asigna el stock, el UPDATE no incluye la columna
+        if (inventarioStock.fijarStock(idProducto, datosNuevos.getStock())) {
+            existente.setStock(datosNuevos.getStock());
+        }
 
         return productoRepository.save(existente);
     }
 
     @Override
+    public void descontarStock(Integer idProducto, int cantidad) {
+        inventarioStock.ajustar(idProducto, -cantidad);
+    }
+
+    @Override
+    public boolean retirarStock(Integer idProducto, int cantidad) {
+        if (cantidad <= 0) {
+            throw new CustomException("La cantidad debe ser un número mayor que 0.");
+        }
+        return inventarioStock.retirar(idProducto, cantidad);
+    }
+
+    @Override
+    @InvalidaCache(EtiquetasCache.CATALOGO)
     public void eliminarProducto(Integer idProducto) {
         Producto existente = obtenerProductoPorId(idProducto);
         productoRepository.delete(existente);
+        inventarioStock.olvidar(idProducto);
     }
 
 
@@ -71,21 +110,25 @@ public class ProductoServiceImpl implements ProductoService {
 
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 300, etiquetas = {EtiquetasCache.PEDIDOS, EtiquetasCache.CATALOGO})
     public List<Object[]> obtenerProductosMasVendidos() {
         return productoRepository.FindProductosMasVendidos();
     }
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 60, staleSegundos = 120, etiquetas = {EtiquetasCache.PEDIDOS, EtiquetasCache.CATALOGO})
     public List<Object[]> obtenerPedidosConProductos() {
         return productoRepository.findPedidosConProductos();
     }
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 120, etiquetas = {EtiquetasCache.PEDIDOS, EtiquetasCache.CATALOGO})
     public List<Object[]> obtenerProductosMasVendidosUltimoMes() {
         return productoRepository.findProductosMasVendidosUltimoMes();
     }
 
     @Override
+    @ResultadoCacheado(ttlSegundos = 300, etiquetas = {EtiquetasCache.PEDIDOS, EtiquetasCache.CATALOGO})
     public List<Object[]> obtenerProductosMasCarosComprados() {
         return productoRepository.findProductosMasCarosComprados();
     }
@@ -0,0 +1,39 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.RecomendacionDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Interfaz para las recomendaciones "se compran juntos", calculadas a partir
+ * de los productos que aparecen en un mismo pedido.
+ */
+public interface RecomendacionService {
+
+    /**
+     * Obtiene los IDs de los productos que más veces se han comprado junto al indicado.
+     * Se sirve desde memoria, sin consultar la base de datos.
+     *
+     * @param idProducto ID del producto.
+     * @param limite     Número máximo de recomendaciones.
+     * @return IDs ordenados de más a menos frecuente.
+     */
+    List<Integer> obtenerIdsRecomendados(Integer idProducto, int limite);
+
+    /**
+     * Obtiene las recomendaciones de un producto con los datos de cada producto recomendado.
+     */
+    List<RecomendacionDTO> obtenerRecomendaciones(Integer idProducto, int limite);
+
+    /**
+     * Obtiene las recomendaciones para un carrito: suma las coincidencias de todos sus
+     * productos y excluye los que ya están en él.
+     */
+    List<RecomendacionDTO> obtenerRecomendacionesCarrito(Collection<Integer> idsProductos, int limite);
+
+    /**
+     * Reconstruye la matriz completa desde los pedidos.
+     */
+    void reconstruir();
+}
@@ -0,0 +1,309 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.RecomendacionDTO;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+import com.proyecto.ecommerce.repository.PedidoProductoRepository;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import com.proyecto.ecommerce.util.MapaIntInt;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de las recomendaciones "se compran juntos".
+ * <p>
+ * Se mantiene en memoria una matriz dispersa de coocurrencias: para cada producto, un
+ * {@link MapaIntInt} con cuántos pedidos lo contienen junto a cada otro producto, y la lista
+ * de sus K vecinos más frecuentes ya calculada. Cada pedido confirmado actualiza solo las filas
+ * de sus productos, y cada noche se reconstruye la matriz entera en paralelo.
+ * Las lecturas solo consultan la lista de vecinos, nunca hacen un self-join sobre pedido_producto.
+ */
+@Service
+public class RecomendacionServiceImpl implements RecomendacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecomendacionServiceImpl.class);
+
+    /**
+     * Vecinos más frecuentes de un producto. Inmutable: se sustituye entera al recalcularse.
+     */
+    private record Vecinos(int[] ids, int[] veces) {
+        static final Vecinos NINGUNO = new Vecinos(new int[0], new int[0]);
+    }
+
+    /**
+     * Fila de la matriz. Los contadores se modifican bajo el monitor de la fila;
+     * los vecinos se publican con una escritura volátil y se leen sin bloqueo.
+     */
+    private static final class Fila {
+        final MapaIntInt veces = new MapaIntInt();
+        volatile Vecinos vecinos = Vecinos.NINGUNO;
+
+        void recalcularVecinos(int k) {
+            int[] ids = veces.masFrecuentes(k);
+            int[] cuentas = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                cuentas[i] = veces.obtener(ids[i]);
+            }
+            vecinos = new Vecinos(ids, cuentas);
+        }
+    }
+
+    private static final class Matriz {
+        final ConcurrentHashMap<Integer, Fila> filas = new ConcurrentHashMap<>();
+
+        Fila fila(int idProducto) {
+            return filas.computeIfAbsent(idProducto, id -> new Fila());
+        }
+
+        Vecinos vecinos(int idProducto) {
+            Fila fila = filas.get(idProducto);
+            return fila != null ? fila.vecinos : Vecinos.NINGUNO;
+        }
+    }
+
+    /**
+     * Productos distintos de un pedido.
+     */
+    private record ProductosPedido(int idPedido, int[] productos) {
+    }
+
+    private volatile Matriz matriz = new Matriz();
+
+    // Las actualizaciones incrementales toman el de lectura; sustituir la matriz, el de escritura
+    private final ReadWriteLock cambioMatriz = new ReentrantReadWriteLock();
+
+    // Pedidos recibidos mientras se reconstruye, para aplicarlos también a la matriz nueva
+    private final Queue<ProductosPedido> recibidosDuranteReconstruccion = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean reconstruyendo;
+
+    @Autowired
+    private PedidoProductoRepository pedidoProductoRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Value("${ecommerce.recomendaciones.top-k:10}")
+    private int topK;
+
+    private final TransactionTemplate transaccionLectura;
+
+    @Autowired
+    public RecomendacionServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoRegistrado(PedidoRegistradoEvent evento) {
+        int[] productos = evento.lineas().stream()
+                .mapToInt(PedidoRegistradoEvent.Linea::idProducto)
+                .distinct()
+                .toArray();
+        if (productos.length < 2) {
+            return;
+        }
+        ProductosPedido pedido = new ProductosPedido(evento.idPedido(), productos);
+        cambioMatriz.readLock().lock();
+        try {
+            acumular(matriz, pedido);
+            if (reconstruyendo) {
+                recibidosDuranteReconstruccion.add(pedido);
+            }
+        } finally {
+            cambioMatriz.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Integer> obtenerIdsRecomendados(Integer idProducto, int limite) {
+        Vecinos vecinos = matriz.vecinos(idProducto);
+        return Arrays.stream(vecinos.ids()).limit(limite).boxed().toList();
+    }
+
+    @Override
+    public List<RecomendacionDTO> obtenerRecomendaciones(Integer idProducto, int limite) {
+        Vecinos vecinos = matriz.vecinos(idProducto);
+        Map<Integer, Integer> puntuacion = new LinkedHashMap<>();
+        for (int i = 0; i < vecinos.ids().length && i < limite; i++) {
+            puntuacion.put(vecinos.ids()[i], vecinos.veces()[i]);
+        }
+        return aRecomendaciones(puntuacion);
+    }
+
+    @Override
+    public List<RecomendacionDTO> obtenerRecomendacionesCarrito(Collection<Integer> idsProductos, int limite) {
+        Map<Integer, Integer> acumulado = new HashMap<>();
+        Matriz actual = matriz;
+        for (Integer idProducto : idsProductos) {
+            Vecinos vecinos = actual.vecinos(idProducto);
+            for (int i = 0; i < vecinos.ids().length; i++) {
+                acumulado.merge(vecinos.ids()[i], vecinos.veces()[i], Integer::sum);
+            }
+        }
+        idsProductos.forEach(acumulado::remove);
+
+        Map<Integer, Integer> puntuacion = new LinkedHashMap<>();
+        acumulado.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limite)
+                .forEach(e -> puntuacion.put(e.getKey(), e.getValue()));
+        return aRecomendaciones(puntuacion);
+    }
+
+    /**
+     * Completa las recomendaciones con los datos de los productos (una consulta por clave primaria)
+     * manteniendo el orden de la puntuación. Se descartan los productos ya eliminados.
+     */
+    private List<RecomendacionDTO> aRecomendaciones(Map<Integer, Integer> puntuacion) {
+        if (puntuacion.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Producto> productos = productoRepository.findAllById(puntuacion.keySet()).stream()
+                .collect(Collectors.toMap(Producto::getIdProducto, Function.identity()));
+        return puntuacion.entrySet().stream()
+                .filter(e -> productos.containsKey(e.getKey()))
+                .map(e -> {
+                    Producto producto = productos.get(e.getKey());
+                    return new RecomendacionDTO(producto.getIdProducto(), producto.getNombre(),
+                            producto.getPrecio(), producto.getStock(), e.getValue());
+                })
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlArrancar() {
+        try {
+            reconstruir();
+        } catch (Exception e) {
+            log.warn("No se pudo construir la matriz de recomendaciones al arrancar", e);
+        }
+    }
+
+    /**
+     * Reconstruye la matriz desde pedido_producto. La matriz anterior sigue sirviendo
+     * lecturas hasta que la nueva está completa.
+     */
+    @Override
+    @Scheduled(cron = "${ecommerce.recomendaciones.reconstruccion.cron:0 0 4 * * *}")
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        reconstruyendo = true;
+        try {
+            // Los ids se asignan al insertar, no al confirmar: se apuntan los pedidos leídos en vez de
+            // quedarse con el mayor, porque uno con id menor puede confirmarse después de la lectura
+            RoaringBitmap leidos = new RoaringBitmap();
+            List<ProductosPedido> pedidos = leerPedidos(leidos);
+
+            // Cada franja se queda con las filas de sus productos, así que no hay contención entre hilos
+            Matriz nueva = new Matriz();
+            int franjas = Runtime.getRuntime().availableProcessors();
+            IntStream.range(0, franjas).parallel().forEach(franja -> {
+                for (ProductosPedido pedido : pedidos) {
+                    for (int a : pedido.productos()) {
+                        if (Math.floorMod(a, franjas) == franja) {
+                            Fila fila = nueva.fila(a);
+                            for (int b : pedido.productos()) {
+                                if (a != b) {
+                                    fila.veces.incrementar(b, 1);
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+            nueva.filas.values().parallelStream().forEach(fila -> fila.recalcularVecinos(topK));
+
+            cambioMatriz.writeLock().lock();
+            try {
+                // Pedidos confirmados durante la reconstrucción que la lectura no llegó a ver
+                for (ProductosPedido pedido : recibidosDuranteReconstruccion) {
+                    if (!leidos.contains(pedido.idPedido())) {
+                        acumular(nueva, pedido);
+                    }
+                }
+                matriz = nueva;
+            } finally {
+                cambioMatriz.writeLock().unlock();
+            }
+            log.info("Matriz de recomendaciones reconstruida: {} pedidos, {} productos en {} ms",
+                    pedidos.size(), nueva.filas.size(), System.currentTimeMillis() - inicio);
+        } finally {
+            reconstruyendo = false;
+            recibidosDuranteReconstruccion.clear();
+        }
+    }
+
+    /**
+     * Lee en streaming los productos de cada pedido con más de un producto.
+     *
+     * @param leidos Recibe los ids de los pedidos devueltos.
+     */
+    private List<ProductosPedido> leerPedidos(RoaringBitmap leidos) {
+        List<ProductosPedido> pedidos = new ArrayList<>();
+        transaccionLectura.executeWithoutResult(status -> {
+            try (Stream<Object[]> lineas = pedidoProductoRepository.streamProductosPorPedido()) {
+                int pedidoActual = -1;
+                Set<Integer> productos = new LinkedHashSet<>();
+                Iterator<Object[]> it = lineas.iterator();
+                while (it.hasNext()) {
+                    Object[] linea = it.next();
+                    int idPedido = ((Number) linea[0]).intValue();
+                    if (idPedido != pedidoActual) {
+                        agregarSiHayPares(pedidos, pedidoActual, productos);
+                        pedidoActual = idPedido;
+                        productos.clear();
+                    }
+                    productos.add(((Number) linea[1]).intValue());
+                }
+                agregarSiHayPares(pedidos, pedidoActual, productos);
+            }
+        });
+        pedidos.forEach(pedido -> leidos.add(pedido.idPedido()));
+        return pedidos;
+    }
+
+    private static void agregarSiHayPares(List<ProductosPedido> pedidos, int idPedido, Set<Integer> productos) {
+        if (productos.size() >= 2) {
+            pedidos.add(new ProductosPedido(idPedido, productos.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+
+    /**
+     * Suma un pedido a las filas de sus productos y recalcula sus vecinos.
+     */
+    private void acumular(Matriz destino, ProductosPedido pedido) {
+        for (int a : pedido.productos()) {
+            Fila fila = destino.fila(a);
+            synchronized (fila) {
+                for (int b : pedido.productos()) {
+                    if (a != b) {
+                        fila.veces.incrementar(b, 1);
+                    }
+                }
+                fila.recalcularVecinos(topK);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.entity.Role;
+import com.proyecto.ecommerce.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Registro en memoria de los roles de la tabla roles, cargado al arrancar.
+ * <p>
+ * Los roles son datos de referencia que casi nunca cambian, así que asignar ROLE_USER o
+ * ROLE_ADMIN al crear o actualizar un usuario no necesita consultarlos cada vez.
+ * La instantánea es un mapa inmutable que se sustituye entero al refrescar; si se pide
+ * un rol que no está (por ejemplo, insertado a mano en la base de datos) se recarga una vez.
+ */
+@Component
+public class RegistroRoles {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroRoles.class);
+
+    public static final String ROLE_USER = "ROLE_USER";
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
+    private final RoleRepository roleRepository;
+
+    private volatile Map<String, Role> roles = Map.of();
+
+    public RegistroRoles(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @PostConstruct
+    public void refrescar() {
+        Map<String, Role> nuevos = new HashMap<>();
+        roleRepository.findAll().forEach(rol -> nuevos.put(rol.getName(), rol));
+        roles = Map.copyOf(nuevos);
+        log.info("Registro de roles cargado: {}", roles.keySet());
+    }
+
+    /**
+     * Devuelve el rol con ese nombre. Es una copia desligada del contexto de persistencia:
+     * sirve para asignarla a un usuario (la relación solo usa su id) sin compartir la instancia.
+     *
+     * @param nombre Nombre del rol, p. ej. "ROLE_USER".
+     * @return El rol, o vacío si no existe en la base de datos.
+     */
+    public Optional<Role> buscar(String nombre) {
+        Role rol = roles.get(nombre);
+        if (rol == null) {
+            refrescar();
+            rol = roles.get(nombre);
+        }
+        return Optional.ofNullable(rol).map(r -> new Role(r.getId(), r.getName()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.TipoReporte;
+import com.proyecto.ecommerce.dto.TrabajoReporteDTO;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Interfaz para ejecutar informes pesados como trabajos asíncronos:
+ * se envían, se consulta su estado y se descarga el resultado cuando terminan.
+ */
+public interface ReporteTrabajoService {
+
+    /**
+     * Encola un informe para su ejecución en segundo plano.
+     *
+     * @param tipo     Informe a ejecutar.
+     * @param username Usuario que lo solicita.
+     * @return Estado inicial del trabajo.
+     * @throws com.proyecto.ecommerce.exception.LimiteExcedidoException si el usuario ya tiene
+     *         demasiados trabajos activos o la cola está llena.
+     */
+    TrabajoReporteDTO enviar(TipoReporte tipo, String username);
+
+    /**
+     * Obtiene el estado de un trabajo del usuario.
+     * @throws com.proyecto.ecommerce.exception.CustomException si no existe o es de otro usuario.
+     */
+    TrabajoReporteDTO obtenerEstado(String id, String username);
+
+    /**
+     * Lista los trabajos del usuario que siguen disponibles.
+     */
+    List<TrabajoReporteDTO> listarTrabajos(String username);
+
+    /**
+     * Devuelve el fichero con el resultado (JSON) de un trabajo completado.
+     * @throws com.proyecto.ecommerce.exception.CustomException si no existe o aún no ha terminado.
+     */
+    Path obtenerResultado(String id, String username);
+
+    /**
+     * Cancela un trabajo pendiente o en curso.
+     * @return Estado del trabajo tras la cancelación.
+     */
+    TrabajoReporteDTO cancelar(String id, String username);
+}
@@ -0,0 +1,315 @@
+package com.proyecto.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proyecto.ecommerce.dto.TipoReporte;
+import com.proyecto.ecommerce.dto.TrabajoReporteDTO;
+import com.proyecto.ecommerce.dto.TrabajoReporteDTO.Estado;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.exception.LimiteExcedidoException;
+import com.proyecto.ecommerce.repository.ProductoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de los trabajos de informe asíncronos.
+ * <p>
+ * Los informes se ejecutan en un pool propio y acotado (por defecto 2 hilos), de modo que
+ * como mucho ocupan ese número de conexiones del pool de Hikari y el resto queda libre
+ * para la toma de pedidos. El resultado se escribe en un fichero temporal en JSON
+ * y se conserva durante un tiempo limitado para su descarga.
+ */
+@Service
+public class ReporteTrabajoServiceImpl implements ReporteTrabajoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReporteTrabajoServiceImpl.class);
+
+    /**
+     * Estado interno de un trabajo. El estado se cambia con CAS para que la cancelación
+     * y la ejecución no se pisen.
+     */
+    private static class Trabajo {
+        final String id = UUID.randomUUID().toString();
+        final TipoReporte tipo;
+        final String username;
+        final Instant creado = Instant.now();
+        final AtomicReference<Estado> estado = new AtomicReference<>(Estado.PENDIENTE);
+        volatile Instant finalizado;
+        volatile long filas;
+        volatile String error;
+        volatile Path fichero;
+        volatile Future<Void> futuro;
+
+        Trabajo(TipoReporte tipo, String username) {
+            this.tipo = tipo;
+            this.username = username;
+        }
+
+        TrabajoReporteDTO toDTO() {
+            return new TrabajoReporteDTO(id, tipo, estado.get(), username, creado, finalizado, filas, error);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+
+    // Trabajos pendientes o en curso de cada usuario
+    private final ConcurrentHashMap<String, AtomicInteger> activosPorUsuario = new ConcurrentHashMap<>();
+
+    // Ficheros de trabajos ya retirados y momento a partir del cual se pueden borrar
+    private final ConcurrentHashMap<Path, Instant> ficherosRetirados = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final TransactionTemplate transaccionLectura;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ecommerce.reportes.trabajos.max-por-usuario:2}")
+    private int maxPorUsuario;
+
+    @Value("${ecommerce.reportes.trabajos.retencion-minutos:60}")
+    private long retencionMinutos;
+
+    @Value("${ecommerce.reportes.trabajos.gracia-borrado-minutos:10}")
+    private long graciaBorradoMinutos;
+
+    @Autowired
+    public ReporteTrabajoServiceImpl(PlatformTransactionManager transactionManager,
+                                     @Value("${ecommerce.reportes.trabajos.hilos:2}") int hilos,
+                                     @Value("${ecommerce.reportes.trabajos.cola:20}") int cola) {
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "reportes-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public TrabajoReporteDTO enviar(TipoReporte tipo, String username) {
+        AtomicInteger activos = activosPorUsuario.computeIfAbsent(username, u -> new AtomicInteger());
+        if (activos.incrementAndGet() > maxPorUsuario) {
+            activos.decrementAndGet();
+            throw new LimiteExcedidoException("Ya tienes " + maxPorUsuario + " informes en curso. Espera a que terminen o cancélalos.");
+        }
+
+        Trabajo trabajo = new Trabajo(tipo, username);
+        // La tarea existe antes de publicar el trabajo, para que una cancelación siempre la encuentre
+        FutureTask<Void> tarea = new FutureTask<>(() -> ejecutar(trabajo), null);
+        trabajo.futuro = tarea;
+        trabajos.put(trabajo.id, trabajo);
+        try {
+            executor.execute(tarea);
+        } catch (RejectedExecutionException e) {
+            trabajos.remove(trabajo.id);
+            if (trabajo.estado.compareAndSet(Estado.PENDIENTE, Estado.CANCELADO)) {
+                activos.decrementAndGet(); // Si no, ya lo liberó una cancelación
+            }
+            throw new LimiteExcedidoException("La cola de informes está llena. Inténtalo de nuevo más tarde.");
+        }
+        return trabajo.toDTO();
+    }
+
+    /**
+     * Ejecuta el informe en un hilo del pool y escribe el resultado en un fichero temporal.
+     */
+    private void ejecutar(Trabajo trabajo) {
+        if (!trabajo.estado.compareAndSet(Estado.PENDIENTE, Estado.EN_CURSO)) {
+            return; // Cancelado antes de empezar
+        }
+        Path fichero = null;
+        try {
+            fichero = Files.createTempFile("reporte-" + trabajo.tipo.getCodigo() + "-", ".json");
+            trabajo.fichero = fichero;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(fichero));
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                escribirFilas(trabajo, json);
+                json.writeEndArray();
+            }
+            if (trabajo.estado.compareAndSet(Estado.EN_CURSO, Estado.COMPLETADO)) {
+                return;
+            }
+        } catch (CancellationException e) {
+            // Cancelado durante la escritura: se limpia abajo
+        } catch (Exception e) {
+            log.warn("El informe {} ({}) ha fallado", trabajo.id, trabajo.tipo, e);
+            trabajo.error = e.getMessage();
+            trabajo.estado.compareAndSet(Estado.EN_CURSO, Estado.FALLIDO);
+        } finally {
+            trabajo.finalizado = Instant.now();
+            activosPorUsuario.get(trabajo.username).decrementAndGet();
+        }
+        borrarFichero(fichero);
+    }
+
+    /**
+     * Escribe las filas del informe. El listado de pedidos con productos se recorre en streaming;
+     * el resto son agregaciones con pocas filas.
+     */
+    private void escribirFilas(Trabajo trabajo, JsonGenerator json) {
+        if (trabajo.tipo == TipoReporte.PEDIDOS_CON_PRODUCTOS) {
+            transaccionLectura.executeWithoutResult(status -> {
+                try (Stream<Object[]> filas = productoRepository.streamPedidosConProductos()) {
+                    Iterator<Object[]> it = filas.iterator();
+                    while (it.hasNext()) {
+                        escribirFila(trabajo, json, it.next());
+                    }
+                }
+            });
+            return;
+        }
+        List<Object[]> filas = switch (trabajo.tipo) {
+            case MAS_VENDIDOS -> productoService.obtenerProductosMasVendidos();
+            case MAS_VENDIDOS_ULTIMO_MES -> productoService.obtenerProductosMasVendidosUltimoMes();
+            case MAS_CAROS_COMPRADOS -> productoService.obtenerProductosMasCarosComprados();
+            case CANTIDAD_PRODUCTOS_VENDIDOS -> pedidoService.obtenerCantidadProductosVendidosPorUsuario();
+            case CANTIDAD_PEDIDOS -> pedidoService.contarPedidosPorUsuario();
+            case PEDIDOS_CON_PRODUCTOS -> throw new IllegalStateException();
+        };
+        for (Object[] fila : filas) {
+            escribirFila(trabajo, json, fila);
+        }
+    }
+
+    private void escribirFila(Trabajo trabajo, JsonGenerator json, Object[] fila) {
+        if (Thread.currentThread().isInterrupted() || trabajo.estado.get() == Estado.CANCELADO) {
+            throw new CancellationException();
+        }
+        try {
+            objectMapper.writeValue(json, fila);
+        } catch (IOException e) {
+            throw new CustomException("Error escribiendo el informe: " + e.getMessage());
+        }
+        trabajo.filas++;
+    }
+
+    @Override
+    public TrabajoReporteDTO obtenerEstado(String id, String username) {
+        return buscar(id, username).toDTO();
+    }
+
+    @Override
+    public List<TrabajoReporteDTO> listarTrabajos(String username) {
+        return trabajos.values().stream()
+                .filter(t -> t.username.equals(username))
+                .sorted(Comparator.comparing((Trabajo t) -> t.creado).reversed())
+                .map(Trabajo::toDTO)
+                .toList();
+    }
+
+    @Override
+    public Path obtenerResultado(String id, String username) {
+        Trabajo trabajo = buscar(id, username);
+        if (trabajo.estado.get() != Estado.COMPLETADO) {
+            throw new CustomException("El informe " + id + " no está completado (estado: " + trabajo.estado.get() + ").");
+        }
+        return trabajo.fichero;
+    }
+
+    @Override
+    public TrabajoReporteDTO cancelar(String id, String username) {
+        Trabajo trabajo = buscar(id, username);
+        if (trabajo.estado.compareAndSet(Estado.PENDIENTE, Estado.CANCELADO)) {
+            // No llegó a ejecutarse: liberamos aquí su plaza
+            trabajo.finalizado = Instant.now();
+            activosPorUsuario.get(username).decrementAndGet();
+            trabajo.futuro.cancel(false);
+        } else if (trabajo.estado.compareAndSet(Estado.EN_CURSO, Estado.CANCELADO)) {
+            // Interrumpimos el hilo; la propia ejecución libera la plaza y borra el fichero
+            trabajo.futuro.cancel(true);
+        }
+        return trabajo.toDTO();
+    }
+
+    private Trabajo buscar(String id, String username) {
+        Trabajo trabajo = trabajos.get(id);
+        if (trabajo == null || !trabajo.username.equals(username)) {
+            throw new CustomException("No se encontró el informe con ID: " + id);
+        }
+        return trabajo;
+    }
+
+    /**
+     * Retira los trabajos terminados hace más del tiempo de retención. Su fichero no se borra
+     * en el acto: una descarga empezada justo antes puede seguir leyéndolo, así que se borra
+     * en una pasada posterior, cuando ha transcurrido el margen de gracia.
+     */
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void limpiarTrabajosCaducados() {
+        Instant ahora = Instant.now();
+        ficherosRetirados.entrySet().removeIf(e -> {
+            boolean vencido = !e.getValue().isAfter(ahora);
+            if (vencido) {
+                borrarFichero(e.getKey());
+            }
+            return vencido;
+        });
+
+        Instant limite = ahora.minus(Duration.ofMinutes(retencionMinutos));
+        Instant borrarDesde = ahora.plus(Duration.ofMinutes(graciaBorradoMinutos));
+        trabajos.values().removeIf(t -> {
+            boolean caducado = t.finalizado != null && t.finalizado.isBefore(limite);
+            if (caducado && t.fichero != null) {
+                ficherosRetirados.put(t.fichero, borrarDesde);
+            }
+            return caducado;
+        });
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+        trabajos.values().forEach(t -> borrarFichero(t.fichero));
+        ficherosRetirados.keySet().forEach(this::borrarFichero);
+    }
+
+    private void borrarFichero(Path fichero) {
+        if (fichero == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fichero);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el fichero temporal {}", fichero);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.CustomException;
+
+import java.util.Collection;
+
+/**
+ * Reservas temporales de stock para los carritos.
+ * <p>
+ * Añadir un producto al carrito lo reserva durante un tiempo limitado; el stock disponible para
+ * los demás es el stock del producto menos las reservas activas. Al completar el pedido las
+ * reservas se convierten en el descuento de stock del pedido. El propietario de una reserva es
+ * un usuario o, para los invitados, su sesión.
+ */
+public interface ReservaStockService {
+
+    static String propietarioUsuario(Integer idUsuario) {
+        return "u" + idUsuario;
+    }
+
+    static String propietarioSesion(String idSesion) {
+        return "s" + idSesion;
+    }
+
+    /**
+     * Ajusta las reservas del propietario sobre esos productos a las cantidades que tienen en el
+     * carrito (0 libera la reserva) y renueva su caducidad. O se reservan todas o ninguna.
+     *
+     * @throws CustomException si para algún producto no hay stock disponible suficiente.
+     */
+    void reservar(String propietario, Carrito carrito, Collection<Producto> productos);
+
+    /**
+     * Fija la reserva del propietario sobre un producto (0 la libera) y renueva su caducidad.
+     *
+     * @throws CustomException si no hay stock disponible suficiente.
+     */
+    void reservar(String propietario, Producto producto, int cantidad);
+
+    /**
+     * @return Stock del producto menos las reservas activas de otros propietarios.
+     */
+    int disponiblePara(String propietario, Producto producto);
+
+    /**
+     * @return Stock del producto menos todas las reservas activas.
+     */
+    int disponible(Producto producto);
+
+    /**
+     * Libera las reservas del propietario sobre esos productos, p. ej. al quitarlos del carrito
+     * o una vez descontado el stock del pedido.
+     */
+    void liberar(String propietario, Collection<Integer> idsProductos);
+
+    /**
+     * Pasa las reservas de un propietario a otro (del invitado al usuario al identificarse).
+     * Si ambos tenían reserva del mismo producto se queda la mayor, como al fusionar los carritos.
+     */
+    void transferir(String origen, String destino, Collection<Integer> idsProductos);
+
+    /**
+     * @return Número de reservas activas.
+     */
+    int reservasActivas();
+}
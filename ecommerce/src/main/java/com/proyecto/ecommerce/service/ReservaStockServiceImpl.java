@@ -0,0 +1,222 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.util.RuedaTemporizadores;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implementación en memoria de las reservas de stock.
+ * <p>
+ * Cada producto con reservas tiene su estado (total reservado y reserva de cada propietario)
+ * protegido por su propio cerrojo, así que reservas de productos distintos no compiten. Un lote
+ * de productos se bloquea en orden de id para evitar interbloqueos y se comprueba entero antes de
+ * aplicar nada. La caducidad la lleva una {@link RuedaTemporizadores}: cada reserva programa su
+ * vencimiento y, si se renueva o libera antes, cancela el anterior, de modo que nunca se recorren
+ * las reservas buscando las caducadas. Las reservas no sobreviven a un reinicio: como mucho se
+ * pierde la garantía de stock de los carritos abiertos, que se vuelve a comprobar al pagar.
+ */
+@Service
+public class ReservaStockServiceImpl implements ReservaStockService {
+
+    private static final class Reserva {
+        private final int cantidad;
+        private RuedaTemporizadores.Temporizador vencimiento;
+
+        private Reserva(int cantidad) {
+            this.cantidad = cantidad;
+        }
+    }
+
+    private static final class ReservasProducto {
+        private final ReentrantLock cerrojo = new ReentrantLock();
+        private final HashMap<String, Reserva> porPropietario = new HashMap<>();
+        private int reservado;
+
+        int cantidadDe(String propietario) {
+            Reserva reserva = porPropietario.get(propietario);
+            return reserva == null ? 0 : reserva.cantidad;
+        }
+    }
+
+    // Estado por id de producto; no se borra (hay como mucho uno por producto del catálogo)
+    private final ConcurrentHashMap<Integer, ReservasProducto> reservas = new ConcurrentHashMap<>();
+    private final AtomicInteger activas = new AtomicInteger();
+    private final RuedaTemporizadores rueda;
+    private final long ttlMs;
+
+    public ReservaStockServiceImpl(@Value("${ecommerce.reservas.ttl-minutos:15}") long ttlMinutos,
+                                   @Value("${ecommerce.reservas.tick-ms:1000}") long tickMs,
+                                   @Value("${ecommerce.reservas.cubetas:1024}") int cubetas) {
+        this.ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutos);
+        this.rueda = new RuedaTemporizadores(tickMs, TimeUnit.MILLISECONDS, cubetas, "reservas-stock");
+    }
+
+    @Override
+    public void reservar(String propietario, Carrito carrito, Collection<Producto> productos) {
+        reservarTodas(propietario, productos, p -> carrito.cantidad(p.getIdProducto()));
+    }
+
+    @Override
+    public void reservar(String propietario, Producto producto, int cantidad) {
+        reservarTodas(propietario, List.of(producto), p -> cantidad);
+    }
+
+    private void reservarTodas(String propietario, Collection<Producto> productos, ToIntFunction<Producto> cantidadDe) {
+        List<Producto> ordenados = new ArrayList<>(productos);
+        ordenados.sort(Comparator.comparing(Producto::getIdProducto));
+        List<ReservasProducto> estados = new ArrayList<>(ordenados.size());
+        for (Producto producto : ordenados) {
+            estados.add(reservas.computeIfAbsent(producto.getIdProducto(), id -> new ReservasProducto()));
+        }
+
+        int bloqueados = 0;
+        try {
+            for (ReservasProducto estado : estados) {
+                estado.cerrojo.lock();
+                bloqueados++;
+            }
+            // Primero se comprueba todo: si falta stock de uno no se toca ninguna reserva
+            for (int i = 0; i < ordenados.size(); i++) {
+                Producto producto = ordenados.get(i);
+                ReservasProducto estado = estados.get(i);
+                int deseado = Math.max(0, cantidadDe.applyAsInt(producto));
+                int propia = estado.cantidadDe(propietario);
+                // Bajar una reserva siempre se permite, aunque el stock haya bajado mientras tanto
+                if (deseado > propia && deseado > producto.getStock() - (estado.reservado - propia)) {
+                    throw new CustomException("No hay suficiente stock disponible para el producto: " + producto.getNombre());
+                }
+            }
+            for (int i = 0; i < ordenados.size(); i++) {
+                Producto producto = ordenados.get(i);
+                poner(estados.get(i), propietario, Math.max(0, cantidadDe.applyAsInt(producto)));
+            }
+        } finally {
+            for (int i = bloqueados - 1; i >= 0; i--) {
+                estados.get(i).cerrojo.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int disponiblePara(String propietario, Producto producto) {
+        ReservasProducto estado = reservas.get(producto.getIdProducto());
+        if (estado == null) {
+            return producto.getStock();
+        }
+        estado.cerrojo.lock();
+        try {
+            return producto.getStock() - (estado.reservado - estado.cantidadDe(propietario));
+        } finally {
+            estado.cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public int disponible(Producto producto) {
+        ReservasProducto estado = reservas.get(producto.getIdProducto());
+        if (estado == null) {
+            return producto.getStock();
+        }
+        estado.cerrojo.lock();
+        try {
+            return producto.getStock() - estado.reservado;
+        } finally {
+            estado.cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void liberar(String propietario, Collection<Integer> idsProductos) {
+        for (Integer idProducto : idsProductos) {
+            ReservasProducto estado = reservas.get(idProducto);
+            if (estado == null) {
+                continue;
+            }
+            estado.cerrojo.lock();
+            try {
+                poner(estado, propietario, 0);
+            } finally {
+                estado.cerrojo.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void transferir(String origen, String destino, Collection<Integer> idsProductos) {
+        for (Integer idProducto : idsProductos) {
+            ReservasProducto estado = reservas.get(idProducto);
+            if (estado == null) {
+                continue;
+            }
+            estado.cerrojo.lock();
+            try {
+                int deOrigen = estado.cantidadDe(origen);
+                if (deOrigen > 0) {
+                    // El total reservado nunca sube, así que no hace falta comprobar el stock
+                    int cantidad = Math.max(deOrigen, estado.cantidadDe(destino));
+                    poner(estado, origen, 0);
+                    poner(estado, destino, cantidad);
+                }
+            } finally {
+                estado.cerrojo.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int reservasActivas() {
+        return activas.get();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        rueda.close();
+    }
+
+    /**
+     * Sustituye la reserva del propietario (0 la quita). Se llama con el cerrojo del producto.
+     */
+    private void poner(ReservasProducto estado, String propietario, int cantidad) {
+        Reserva anterior = estado.porPropietario.remove(propietario);
+        if (anterior != null) {
+            anterior.vencimiento.cancelar();
+            estado.reservado -= anterior.cantidad;
+            activas.decrementAndGet();
+        }
+        if (cantidad > 0) {
+            Reserva reserva = new Reserva(cantidad);
+            reserva.vencimiento = rueda.programar(() -> caducar(estado, propietario, reserva), ttlMs, TimeUnit.MILLISECONDS);
+            estado.porPropietario.put(propietario, reserva);
+            estado.reservado += cantidad;
+            activas.incrementAndGet();
+        }
+    }
+
+    // Se ejecuta en el hilo de la rueda; si la reserva ya se renovó o liberó no hace nada
+    private void caducar(ReservasProducto estado, String propietario, Reserva reserva) {
+        estado.cerrojo.lock();
+        try {
+            if (estado.porPropietario.remove(propietario, reserva)) {
+                estado.reservado -= reserva.cantidad;
+                activas.decrementAndGet();
+            }
+        } finally {
+            estado.cerrojo.unlock();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.CohorteDTO;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Interfaz para el informe de retención mensual por cohortes,
+ * calculado con bitmaps comprimidos de los clientes activos de cada mes.
+ */
+public interface RetencionCohortesService {
+
+    /**
+     * Marca al cliente del pedido como activo en el mes del pedido.
+     * El cambio se acumula en memoria y se vuelca periódicamente.
+     */
+    void registrarPedido(PedidoRegistradoEvent evento);
+
+    /**
+     * Calcula la retención de las cohortes entre dos meses.
+     * Para cada cohorte se incluyen todos los meses posteriores hasta 'hasta'.
+     *
+     * @param desde Primer mes de cohorte.
+     * @param hasta Último mes considerado.
+     * @return Cohortes en orden cronológico.
+     */
+    List<CohorteDTO> obtenerRetencion(YearMonth desde, YearMonth hasta);
+
+    /**
+     * Vuelca a la base de datos los bitmaps con pedidos pendientes (normalmente solo el del mes actual).
+     */
+    void volcarPendientes();
+
+    /**
+     * Reconstruye todos los bitmaps a partir del histórico de pedidos.
+     */
+    void reconstruir();
+}
@@ -0,0 +1,176 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.CohorteDTO;
+import com.proyecto.ecommerce.entity.BitmapClientesMes;
+import com.proyecto.ecommerce.event.PedidoRegistradoEvent;
+import com.proyecto.ecommerce.exception.CustomException;
+import com.proyecto.ecommerce.repository.BitmapClientesMesRepository;
+import com.proyecto.ecommerce.util.FechasSql;
+import com.proyecto.ecommerce.util.SketchesPendientes;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Implementación del informe de retención por cohortes con bitmaps Roaring.
+ * <p>
+ * Por cada mes se guarda el bitmap de los id_usuario con algún pedido. La cohorte de un mes
+ * son sus activos menos la unión de todos los meses anteriores, y la retención de cada mes
+ * posterior es la cardinalidad de la intersección con los activos de ese mes.
+ * Como la unión es idempotente, los pedidos nuevos se acumulan en memoria y se combinan
+ * con el bitmap guardado del mes (normalmente solo el actual) sin reescribir el resto.
+ */
+@Service
+public class RetencionCohortesServiceImpl implements RetencionCohortesService {
+
+    // Límite de meses por informe (20 años)
+    private static final int MAX_MESES = 240;
+
+    // Bitmaps con clientes aún no volcados a la base de datos, por primer día del mes
+    private final SketchesPendientes<LocalDate, RoaringBitmap> pendientes;
+
+    @Autowired
+    private BitmapClientesMesRepository bitmapRepository;
+
+    @Autowired
+    public RetencionCohortesServiceImpl(PlatformTransactionManager transactionManager) {
+        this.pendientes = new SketchesPendientes<>(transactionManager, RoaringBitmap::new,
+                RoaringBitmap::clone, (actual, otro) -> actual.or(otro), "el bitmap de clientes");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPedidoRegistrado(PedidoRegistradoEvent evento) {
+        registrarPedido(evento);
+    }
+
+    @Override
+    public void registrarPedido(PedidoRegistradoEvent evento) {
+        pendientes.agregar(evento.fecha().withDayOfMonth(1), clientes -> clientes.add(evento.idUsuario()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CohorteDTO> obtenerRetencion(YearMonth desde, YearMonth hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new CustomException("El mes 'desde' no puede ser posterior a 'hasta'.");
+        }
+        if (ChronoUnit.MONTHS.between(desde, hasta) >= MAX_MESES) {
+            throw new CustomException("El rango no puede superar " + MAX_MESES + " meses.");
+        }
+
+        // Activos de cada mes hasta 'hasta', combinando lo guardado con lo pendiente de volcar
+        TreeMap<YearMonth, RoaringBitmap> activos = new TreeMap<>();
+        for (BitmapClientesMes fila : bitmapRepository.findByMesLessThanEqualOrderByMesAsc(hasta.atDay(1))) {
+            activos.put(YearMonth.from(fila.getMes()), desdeBytes(fila.getClientes()));
+        }
+        pendientes.recorrer((mes, copia) -> {
+            YearMonth clave = YearMonth.from(mes);
+            if (!clave.isAfter(hasta)) {
+                activos.merge(clave, copia, (a, b) -> {
+                    a.or(b);
+                    return a;
+                });
+            }
+        });
+
+        // Cohortes: clientes activos en el mes que no lo estuvieron en ningún mes anterior
+        Map<YearMonth, RoaringBitmap> cohortes = new HashMap<>();
+        RoaringBitmap yaClientes = new RoaringBitmap();
+        for (Map.Entry<YearMonth, RoaringBitmap> entry : activos.entrySet()) {
+            if (!entry.getKey().isBefore(desde)) {
+                cohortes.put(entry.getKey(), RoaringBitmap.andNot(entry.getValue(), yaClientes));
+            }
+            yaClientes.or(entry.getValue());
+        }
+
+        List<YearMonth> meses = new ArrayList<>();
+        for (YearMonth mes = desde; !mes.isAfter(hasta); mes = mes.plusMonths(1)) {
+            meses.add(mes);
+        }
+        // Las intersecciones de cada cohorte son independientes: se calculan en paralelo
+        return meses.parallelStream()
+                .map(mes -> calcularCohorte(mes, cohortes.getOrDefault(mes, new RoaringBitmap()), activos, hasta))
+                .toList();
+    }
+
+    private CohorteDTO calcularCohorte(YearMonth mes, RoaringBitmap cohorte, NavigableMap<YearMonth, RoaringBitmap> activos,
+                                      YearMonth hasta) {
+        long clientes = cohorte.getLongCardinality();
+        List<Long> recurrentes = new ArrayList<>();
+        List<Double> retencion = new ArrayList<>();
+        for (YearMonth posterior = mes.plusMonths(1); !posterior.isAfter(hasta); posterior = posterior.plusMonths(1)) {
+            RoaringBitmap activosMes = activos.get(posterior);
+            long vuelven = activosMes != null ? RoaringBitmap.andCardinality(cohorte, activosMes) : 0;
+            recurrentes.add(vuelven);
+            retencion.add(clientes == 0 ? 0.0 : (double) vuelven / clientes);
+        }
+        return new CohorteDTO(mes, clientes, recurrentes, retencion);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ecommerce.reportes.retencion.volcado-ms:10000}")
+    @PreDestroy
+    public void volcarPendientes() {
+        pendientes.volcar(this::guardarCombinado);
+    }
+
+    /**
+     * Une un bitmap con el guardado para el mismo mes (bloqueando la fila) o lo inserta si no existe.
+     */
+    private void guardarCombinado(LocalDate mes, RoaringBitmap bitmap) {
+        BitmapClientesMes fila = bitmapRepository.findByMes(mes)
+                .orElseGet(() -> new BitmapClientesMes(null, mes, null));
+        RoaringBitmap combinado = bitmap.clone();
+        if (fila.getClientes() != null) {
+            combinado.or(desdeBytes(fila.getClientes()));
+        }
+        fila.setClientes(aBytes(combinado));
+        bitmapRepository.save(fila);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        pendientes.enTransaccionNueva(bitmapRepository::deleteAllInBatch);
+
+        // El stream llega ordenado por fecha: construimos un bitmap por mes
+        try (Stream<Object[]> filas = bitmapRepository.streamClientesPorFecha()) {
+            pendientes.reconstruir(filas,
+                    fila -> FechasSql.aFecha(fila[0]).withDayOfMonth(1),
+                    RoaringBitmap::new,
+                    (clientes, fila) -> clientes.add(((Number) fila[1]).intValue()),
+                    this::guardarCombinado);
+        }
+    }
+
+    private static byte[] aBytes(RoaringBitmap bitmap) {
+        bitmap.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(buffer);
+        return buffer.array();
+    }
+
+    private static RoaringBitmap desdeBytes(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try {
+            bitmap.deserialize(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bitmap de clientes corrupto", e);
+        }
+        return bitmap;
+    }
+}
@@ -32,7 +32,8 @@ public interface UsuarioService {
     Usuario obtenerUsuarioPorId(Integer idUsuario);
 
     /**
-     * Actualiza los datos de un usuario.
+     * Actualiza los datos de un usuario. El estado habilitado solo cambia si la petición
+     * trae el campo 'enabled'.
      * @param idUsuario la clave primaria del usuario a actualizar.
      * @param datosNuevos objeto Usuario con los campos actualizados.
      * @return el usuario actualizado.
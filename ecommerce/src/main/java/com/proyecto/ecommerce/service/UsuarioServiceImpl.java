@@ -1,11 +1,14 @@
 package com.proyecto.ecommerce.service;
 
+import com.proyecto.ecommerce.cache.EtiquetasCache;
+import com.proyecto.ecommerce.cache.InvalidaCache;
 import com.proyecto.ecommerce.entity.Role;
 import com.proyecto.ecommerce.entity.Usuario;
 import com.proyecto.ecommerce.exception.CustomException;
 import com.proyecto.ecommerce.repository.PedidoRepository;
-import com.proyecto.ecommerce.repository.RoleRepository;
 import com.proyecto.ecommerce.repository.UsuarioRepository;
+import com.proyecto.ecommerce.security.CacheDetallesUsuario;
+import com.proyecto.ecommerce.security.RevocacionTokens;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -32,7 +35,13 @@ public class UsuarioServiceImpl implements  UsuarioService{
     private PedidoRepository pedidoRepository;
 
     @Autowired
-    private  RoleRepository roleRepository;
+    private RegistroRoles registroRoles;
+
+    @Autowired
+    private CacheDetallesUsuario cacheDetallesUsuario;
+
+    @Autowired
+    private RevocacionTokens revocacionTokens;
 
     @Autowired
     private  PasswordEncoder passwordEncoder;
@@ -53,7 +62,7 @@ public class UsuarioServiceImpl implements  UsuarioService{
 
         // Asignar el rol por defecto (ROLE_USER)
         List<Role> rolesAsignados = new ArrayList<>();
-        roleRepository.findByName("ROLE_USER").ifPresent(rolesAsignados::add);
+        registroRoles.buscar(RegistroRoles.ROLE_USER).ifPresent(rolesAsignados::add);
 
         // Obtener información del usuario autenticado (si existe)
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -63,7 +72,7 @@ public class UsuarioServiceImpl implements  UsuarioService{
 
         if (!hayAdmin) {
             // Si NO hay administradores, el primer usuario registrado será ADMIN automáticamente
-            roleRepository.findByName("ROLE_ADMIN").ifPresent(rolesAsignados::add);
+            registroRoles.buscar(RegistroRoles.ROLE_ADMIN).ifPresent(rolesAsignados::add);
             usuario.setAdmin(true);
         } else {
             // Si ya hay admins
@@ -71,11 +80,9 @@ public class UsuarioServiceImpl implements  UsuarioService{
                 // Un usuario anónimo no puede crear un usuario admin
                 usuario.setAdmin(false);
             } else {
-                // Usuario autenticado: obtener el creador
-                String usernameAutenticado = authentication.getName();
-                Usuario usuarioAutenticado = obtenerUsuarioPorUsername(usernameAutenticado);
-                boolean creadorEsAdmin = usuarioAutenticado.getRoles().stream()
-                        .anyMatch(rol -> rol.getName().equals("ROLE_ADMIN"));
+                // Usuario autenticado: sus roles ya vienen en la autenticación
+                boolean creadorEsAdmin = authentication.getAuthorities().stream()
+                        .anyMatch(a -> a.getAuthority().equals(RegistroRoles.ROLE_ADMIN));
 
                 // Si el creador no es admin y se intenta crear un admin, rechazar
                 if (!creadorEsAdmin && usuario.isAdmin()) {
@@ -84,7 +91,7 @@ public class UsuarioServiceImpl implements  UsuarioService{
                 // Si el creador es admin y se marca que el nuevo usuario sea admin,
                 // se agrega el rol de admin
                 if (creadorEsAdmin && usuario.isAdmin()) {
-                    roleRepository.findByName("ROLE_ADMIN").ifPresent(rolesAsignados::add);
+                    registroRoles.buscar(RegistroRoles.ROLE_ADMIN).ifPresent(rolesAsignados::add);
                 }
             }
         }
@@ -92,7 +99,7 @@ public class UsuarioServiceImpl implements  UsuarioService{
         // Forzar que, si el usuario NO es admin, se elimine cualquier rol de admin (por si acaso)
         if (!usuario.isAdmin()) {
             usuario.setAdmin(false);
-            rolesAsignados.removeIf(rol -> rol.getName().equals("ROLE_ADMIN"));
+            rolesAsignados.removeIf(rol -> rol.getName().equals(RegistroRoles.ROLE_ADMIN));
         }
 
         // Asignar los roles validados y encriptar la contraseña
@@ -121,6 +128,7 @@ public class UsuarioServiceImpl implements  UsuarioService{
 
     @Override
     @Transactional
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public Usuario actualizarUsuario(Integer idUsuario, Usuario datosNuevos) {
         // (Opcional) Verificar que el usuario autenticado sea admin
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -129,10 +137,23 @@ public class UsuarioServiceImpl implements  UsuarioService{
         }
 
         Usuario existente = obtenerUsuarioPorId(idUsuario);
+        // Username anterior y nuevo: ambos dejan de ser válidos en la caché de autenticación
+        cacheDetallesUsuario.invalidar(existente.getUsername(), datosNuevos.getUsername());
         System.out.println("Actualizando usuario con id: " + idUsuario);
         System.out.println("Datos actuales: " + existente);
         System.out.println("Datos nuevos: " + datosNuevos);
 
+        // Si cambia la identidad, la contraseña, los roles o se deshabilita, los tokens ya emitidos dejan de valer
+        boolean eraAdmin = existente.getRoles().stream()
+                .anyMatch(rol -> rol.getName().equals(RegistroRoles.ROLE_ADMIN));
+        boolean cambiaPassword = datosNuevos.getPassword() != null && !datosNuevos.getPassword().isBlank();
+        // Solo se cambia el estado si la petición lo trae; si no, se conserva el actual
+        boolean habilitado = datosNuevos.isEnabledEnviado() ? datosNuevos.isEnabled() : existente.isEnabled();
+        if (!existente.getUsername().equals(datosNuevos.getUsername()) || cambiaPassword
+                || eraAdmin != datosNuevos.isAdmin() || (existente.isEnabled() && !habilitado)) {
+            revocacionTokens.revocarUsuario(existente.getUsername());
+        }
+
         // Actualizar campos básicos
         // Agregamos esta línea para actualizar el username si se permite cambiarlo
         existente.setUsername(datosNuevos.getUsername());
@@ -140,18 +161,19 @@ public class UsuarioServiceImpl implements  UsuarioService{
         existente.setApellido(datosNuevos.getApellido());
         existente.setCorreo(datosNuevos.getCorreo());
         existente.setDireccion(datosNuevos.getDireccion());
-        if (datosNuevos.getPassword() != null && !datosNuevos.getPassword().isBlank()) {
+        existente.setEnabled(habilitado);
+        if (cambiaPassword) {
             existente.setPassword(passwordEncoder.encode(datosNuevos.getPassword()));
         }
 
         // Construir una nueva lista de roles:
         List<Role> nuevosRoles = new ArrayList<>();
-        Role roleUser = roleRepository.findByName("ROLE_USER")
+        Role roleUser = registroRoles.buscar(RegistroRoles.ROLE_USER)
                 .orElseThrow(() -> new CustomException("Rol USER no encontrado."));
         nuevosRoles.add(roleUser);
 
         if (datosNuevos.isAdmin()) {
-            Role roleAdmin = roleRepository.findByName("ROLE_ADMIN")
+            Role roleAdmin = registroRoles.buscar(RegistroRoles.ROLE_ADMIN)
                     .orElseThrow(() -> new CustomException("Rol ADMIN no encontrado."));
             nuevosRoles.add(roleAdmin);
             existente.setAdmin(true);
@@ -168,8 +190,11 @@ public class UsuarioServiceImpl implements  UsuarioService{
 
 
     @Override
+    @InvalidaCache(EtiquetasCache.PEDIDOS)
     public void eliminarUsuario(Integer idUsuario) {
         Usuario usuario = obtenerUsuarioPorId(idUsuario);
+        cacheDetallesUsuario.invalidar(usuario.getUsername());
+        revocacionTokens.revocarUsuario(usuario.getUsername());
 
         //  Primero, eliminar manualmente los pedidos asociados
         usuario.getPedidos().clear();
@@ -0,0 +1,61 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.EstadoVentaFlashDTO;
+
+/**
+ * Control de admisión para productos en venta flash.
+ * <p>
+ * Mientras un producto está en venta flash, sus unidades se asignan en memoria en vez de
+ * descontarse fila a fila en la base de datos: cada intento de compra obtiene sus unidades o un
+ * "agotado" al instante, y las unidades asignadas se descuentan del stock en lote cada poco tiempo.
+ * La venta solo existe en la instancia que la activó.
+ */
+public interface VentaFlashService {
+
+    /**
+     * Resultado de un intento de asignación.
+     */
+    enum Resultado {
+        // Unidades asignadas: el stock se descontará en el próximo volcado
+        ASIGNADA,
+        // No quedan unidades suficientes
+        AGOTADA,
+        // El producto no está en venta flash: se sigue el camino normal
+        INACTIVA
+    }
+
+    /**
+     * Pone un producto en venta flash, partiendo de su stock actual en la base de datos.
+     * Si ya lo estaba no cambia nada.
+     */
+    EstadoVentaFlashDTO activar(Integer idProducto);
+
+    /**
+     * Termina la venta flash de un producto y descuenta del stock lo que quedara por volcar.
+     */
+    EstadoVentaFlashDTO desactivar(Integer idProducto);
+
+    EstadoVentaFlashDTO obtenerEstado(Integer idProducto);
+
+    boolean estaActiva(Integer idProducto);
+
+    /**
+     * @return true si el producto está en venta flash y no le quedan unidades. No consulta la base de datos.
+     */
+    boolean agotado(Integer idProducto);
+
+    /**
+     * Intenta asignar unidades de un producto en venta flash, sin esperar cerrojos ni consultar la base de datos.
+     */
+    Resultado asignar(Integer idProducto, int cantidad);
+
+    /**
+     * Devuelve unidades asignadas cuyo pedido no llegó a crearse.
+     */
+    void devolver(Integer idProducto, int cantidad);
+
+    /**
+     * Descuenta del stock, con un UPDATE por producto, las unidades asignadas desde el último volcado.
+     */
+    void volcarAsignaciones();
+}
@@ -0,0 +1,183 @@
+package com.proyecto.ecommerce.service;
+
+import com.proyecto.ecommerce.dto.EstadoVentaFlashDTO;
+import com.proyecto.ecommerce.entity.Producto;
+import com.proyecto.ecommerce.exception.CustomException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementación en memoria de la venta flash.
+ * <p>
+ * La cola de admisión de cada producto es un único contador de unidades restantes que se
+ * decrementa con compareAndSet: los intentos quedan ordenados por el propio CAS, ninguno espera
+ * un cerrojo ni una conexión, y en cuanto el contador llega a cero los siguientes se rechazan sin
+ * tocar la base de datos. Las unidades asignadas se acumulan en {@code porVolcar} y un proceso
+ * programado las descuenta con un solo UPDATE por producto, en lugar de un UPDATE con bloqueo de
+ * fila por cada pedido, que es lo que agotaba el pool de conexiones.
+ * <p>
+ * Mientras dura la venta el stock lo gobierna el contador: las ediciones manuales del stock del
+ * producto no se reflejan hasta desactivarla y volver a activarla. Las unidades asignadas y no
+ * volcadas se pierden si la aplicación se para sin ejecutar el volcado final.
+ * <p>
+ * El contador y el estado de la venta son de la instancia que atendió la activación: las demás no
+ * ven la venta y siguen descontando fila a fila. Activarla en cada instancia no sirve, porque cada
+ * una partiría del stock completo y entre todas podrían vender varias veces las mismas unidades.
+ * Con varias instancias, las compras del producto deben llegar todas a la que tiene la venta activa
+ * (por ejemplo, la venta se hace con una sola instancia detrás del balanceador).
+ */
+@Service
+public class VentaFlashServiceImpl implements VentaFlashService {
+
+    private static final Logger log = LoggerFactory.getLogger(VentaFlashServiceImpl.class);
+
+    private static final class VentaFlash {
+        private final AtomicInteger restantes;
+        // Unidades asignadas menos devueltas aún no aplicadas al stock de la tabla (puede ser negativo)
+        private final AtomicInteger porVolcar = new AtomicInteger();
+        // Asignaciones en curso, para que desactivar espere a las que ya habían leído la venta
+        private final AtomicInteger enCurso = new AtomicInteger();
+        private final LongAdder asignadas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        private volatile boolean cerrada;
+
+        private VentaFlash(int stock) {
+            this.restantes = new AtomicInteger(stock);
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, VentaFlash> ventas = new ConcurrentHashMap<>();
+    private final ProductoService productoService;
+
+    public VentaFlashServiceImpl(ProductoService productoService) {
+        this.productoService = productoService;
+    }
+
+    @Override
+    public EstadoVentaFlashDTO activar(Integer idProducto) {
+        Producto producto = productoService.obtenerProductoPorId(idProducto);
+        VentaFlash venta = ventas.computeIfAbsent(idProducto, id -> new VentaFlash(Math.max(0, producto.getStock())));
+        log.info("Venta flash activa para el producto {} con {} unidades", idProducto, venta.restantes.get());
+        return estado(idProducto, venta);
+    }
+
+    @Override
+    public EstadoVentaFlashDTO desactivar(Integer idProducto) {
+        VentaFlash venta = ventas.remove(idProducto);
+        if (venta == null) {
+            return obtenerEstado(idProducto);
+        }
+        venta.cerrada = true;
+        // Las asignaciones que ya estaban dentro terminan en microsegundos; después nadie más suma
+        while (venta.enCurso.get() > 0) {
+            Thread.onSpinWait();
+        }
+        if (!volcar(idProducto, venta)) {
+            // Sin el volcado final las unidades asignadas no llegarían a la tabla: la venta sigue activa
+            venta.cerrada = false;
+            ventas.put(idProducto, venta);
+            throw new CustomException("No se pudo descontar el stock vendido; la venta flash sigue activa.");
+        }
+        log.info("Venta flash terminada para el producto {}: {} asignadas, {} rechazadas",
+                idProducto, venta.asignadas.sum(), venta.rechazadas.sum());
+        return estado(idProducto, venta);
+    }
+
+    @Override
+    public EstadoVentaFlashDTO obtenerEstado(Integer idProducto) {
+        VentaFlash venta = ventas.get(idProducto);
+        return venta != null ? estado(idProducto, venta) : new EstadoVentaFlashDTO(idProducto, false, 0, 0, 0, 0);
+    }
+
+    @Override
+    public boolean estaActiva(Integer idProducto) {
+        return ventas.containsKey(idProducto);
+    }
+
+    @Override
+    public boolean agotado(Integer idProducto) {
+        VentaFlash venta = ventas.get(idProducto);
+        return venta != null && venta.restantes.get() <= 0;
+    }
+
+    @Override
+    public Resultado asignar(Integer idProducto, int cantidad) {
+        VentaFlash venta = ventas.get(idProducto);
+        if (venta == null) {
+            return Resultado.INACTIVA;
+        }
+        venta.enCurso.incrementAndGet();
+        try {
+            if (venta.cerrada) {
+                return Resultado.INACTIVA;
+            }
+            int restantes;
+            do {
+                restantes = venta.restantes.get();
+                if (restantes < cantidad) {
+                    venta.rechazadas.increment();
+                    return Resultado.AGOTADA;
+                }
+            } while (!venta.restantes.compareAndSet(restantes, restantes - cantidad));
+            venta.porVolcar.addAndGet(cantidad);
+            venta.asignadas.increment();
+            return Resultado.ASIGNADA;
+        } finally {
+            venta.enCurso.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void devolver(Integer idProducto, int cantidad) {
+        VentaFlash venta = ventas.get(idProducto);
+        if (venta != null) {
+            venta.enCurso.incrementAndGet();
+            try {
+                if (!venta.cerrada) {
+                    venta.porVolcar.addAndGet(-cantidad);
+                    venta.restantes.addAndGet(cantidad);
+                    return;
+                }
+            } finally {
+                venta.enCurso.decrementAndGet();
+            }
+        }
+        // La venta ya terminó y su volcado descontó estas unidades: se devuelven a la tabla
+        productoService.descontarStock(idProducto, -cantidad);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${ecommerce.venta-flash.volcado-ms:500}")
+    @PreDestroy
+    public void volcarAsignaciones() {
+        ventas.forEach((idProducto, venta) -> volcar(idProducto, venta));
+    }
+
+    private boolean volcar(Integer idProducto, VentaFlash venta) {
+        int cantidad = venta.porVolcar.getAndSet(0);
+        if (cantidad == 0) {
+            return true;
+        }
+        try {
+            productoService.descontarStock(idProducto, cantidad);
+            return true;
+        } catch (RuntimeException e) {
+            // Se suman de nuevo para reintentarlo en el siguiente volcado
+            log.warn("No se pudo descontar el stock de la venta flash del producto {}: {}", idProducto, e.getMessage());
+            venta.porVolcar.addAndGet(cantidad);
+            return false;
+        }
+    }
+
+    private static EstadoVentaFlashDTO estado(Integer idProducto, VentaFlash venta) {
+        return new EstadoVentaFlashDTO(idProducto, !venta.cerrada, Math.max(0, venta.restantes.get()),
+                venta.porVolcar.get(), venta.asignadas.sum(), venta.rechazadas.sum());
+    }
+}
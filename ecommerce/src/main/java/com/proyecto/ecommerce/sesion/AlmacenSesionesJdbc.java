@@ -0,0 +1,213 @@
+package com.proyecto.ecommerce.sesion;
+
+import jakarta.persistence.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén de sesiones HTTP en la tabla {@code sesion_web}, para que cualquier instancia pueda atender
+ * cualquier petición (sin sesiones "pegajosas") y los carritos sobrevivan a un despliegue.
+ * <p>
+ * A diferencia de Spring Session JDBC, que actualiza el último acceso en cada petición, aquí las
+ * escrituras se agrupan: una sesión leída y no modificada no se reescribe, y el último acceso solo
+ * se actualiza cuando han pasado más de {@code intervaloAcceso} desde el que está guardado. Como
+ * consecuencia, una sesión puede caducar hasta ese intervalo antes que en Tomcat, lo que con 60 s
+ * sobre 30 min de inactividad es irrelevante. Los atributos solo se reserializan si alguien llamó a
+ * setAttribute/removeAttribute, y solo se escriben si los bytes difieren de los guardados.
+ * <p>
+ * Se serializan únicamente los atributos (el {@link com.proyecto.ecommerce.entity.Carrito} compacto,
+ * el token CSRF, los atributos flash...). Un atributo que sea una entidad JPA o no sea serializable
+ * se omite con un aviso: en sesión no deben guardarse entidades, que arrastrarían proxies y datos
+ * desactualizados. Si dos peticiones de la misma sesión modifican atributos a la vez, gana la última
+ * en guardar, igual que con Spring Session JDBC.
+ */
+public class AlmacenSesionesJdbc implements SessionRepository<SesionAlmacenada> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenSesionesJdbc.class);
+
+    // Solo se deserializan clases del JDK, de Spring y de la aplicación
+    private static final ObjectInputFilter FILTRO_CLASES =
+            ObjectInputFilter.Config.createFilter("java.**;org.springframework.**;com.proyecto.ecommerce.**;!*");
+
+    private static final byte[] SIN_ATRIBUTOS = new byte[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration maxInactivo;
+    private final long intervaloAccesoMs;
+
+    public AlmacenSesionesJdbc(JdbcTemplate jdbcTemplate, Duration maxInactivo, Duration intervaloAcceso) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxInactivo = maxInactivo;
+        this.intervaloAccesoMs = intervaloAcceso.toMillis();
+    }
+
+    /**
+     * Crea la tabla si no existe. La sintaxis es válida tanto en MySQL como en una base embebida (H2).
+     */
+    public void crearTabla() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sesion_web ("
+                + "id VARCHAR(64) NOT NULL PRIMARY KEY, "
+                + "creada BIGINT NOT NULL, "
+                + "ultimo_acceso BIGINT NOT NULL, "
+                + "max_inactivo INT NOT NULL, "
+                + "expira BIGINT NOT NULL, "
+                + "atributos BLOB)");
+        try {
+            jdbcTemplate.execute("CREATE INDEX idx_sesion_web_expira ON sesion_web (expira)");
+        } catch (DataAccessException e) {
+            // Ni MySQL ni H2 admiten igual "IF NOT EXISTS" en índices: si falla es que ya estaba
+            logger.debug("Índice de caducidad de sesiones ya existente: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public SesionAlmacenada createSession() {
+        MapSession datos = new MapSession();
+        datos.setMaxInactiveInterval(maxInactivo);
+        return new SesionAlmacenada(datos);
+    }
+
+    @Override
+    public void save(SesionAlmacenada sesion) {
+        long accesoMs = sesion.getLastAccessedTime().toEpochMilli();
+        if (sesion.esNueva()) {
+            byte[] atributos = serializar(sesion);
+            jdbcTemplate.update("INSERT INTO sesion_web (id, creada, ultimo_acceso, max_inactivo, expira, atributos) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)",
+                    sesion.getId(), sesion.getCreationTime().toEpochMilli(), accesoMs,
+                    segundos(sesion.getMaxInactiveInterval()), expira(accesoMs, sesion.getMaxInactiveInterval()), atributos);
+            sesion.marcarGuardada(atributos, accesoMs);
+            return;
+        }
+
+        if (!sesion.getId().equals(sesion.getIdGuardado())) {
+            // Cambio de id (p. ej. tras iniciar sesión): se renombra la fila sin reescribir el resto
+            jdbcTemplate.update("UPDATE sesion_web SET id = ? WHERE id = ?", sesion.getId(), sesion.getIdGuardado());
+            sesion.marcarAcceso(sesion.getAccesoGuardadoMs());
+        }
+
+        byte[] atributos = sesion.atributosTocados() ? serializar(sesion) : null;
+        if (atributos != null && !Arrays.equals(atributos, sesion.getAtributosGuardados())) {
+            jdbcTemplate.update("UPDATE sesion_web SET ultimo_acceso = ?, max_inactivo = ?, expira = ?, atributos = ? WHERE id = ?",
+                    accesoMs, segundos(sesion.getMaxInactiveInterval()),
+                    expira(accesoMs, sesion.getMaxInactiveInterval()), atributos, sesion.getId());
+            sesion.marcarGuardada(atributos, accesoMs);
+        } else if (accesoMs - sesion.getAccesoGuardadoMs() >= intervaloAccesoMs
+                || !sesion.getMaxInactiveInterval().equals(sesion.getMaxInactivoGuardado())) {
+            jdbcTemplate.update("UPDATE sesion_web SET ultimo_acceso = ?, max_inactivo = ?, expira = ? WHERE id = ?",
+                    accesoMs, segundos(sesion.getMaxInactiveInterval()),
+                    expira(accesoMs, sesion.getMaxInactiveInterval()), sesion.getId());
+            sesion.marcarAcceso(accesoMs);
+        }
+        // En otro caso la fila ya refleja la sesión: no se escribe nada
+    }
+
+    @Override
+    public SesionAlmacenada findById(String id) {
+        List<SesionAlmacenada> filas = jdbcTemplate.query(
+                "SELECT creada, ultimo_acceso, max_inactivo, atributos FROM sesion_web WHERE id = ?",
+                (rs, i) -> {
+                    MapSession datos = new MapSession(id);
+                    datos.setCreationTime(Instant.ofEpochMilli(rs.getLong("creada")));
+                    datos.setLastAccessedTime(Instant.ofEpochMilli(rs.getLong("ultimo_acceso")));
+                    datos.setMaxInactiveInterval(Duration.ofSeconds(rs.getInt("max_inactivo")));
+                    byte[] atributos = rs.getBytes("atributos");
+                    deserializar(atributos).forEach(datos::setAttribute);
+                    SesionAlmacenada sesion = new SesionAlmacenada(datos);
+                    sesion.marcarGuardada(atributos, rs.getLong("ultimo_acceso"));
+                    return sesion;
+                }, id);
+        if (filas.isEmpty()) {
+            return null;
+        }
+        SesionAlmacenada sesion = filas.get(0);
+        if (sesion.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return sesion;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jdbcTemplate.update("DELETE FROM sesion_web WHERE id = ?", id);
+    }
+
+    /**
+     * Borra cada minuto las sesiones caducadas; las que nadie vuelve a pedir no se borrarían nunca.
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgarCaducadas() {
+        int borradas = jdbcTemplate.update("DELETE FROM sesion_web WHERE expira < ?", System.currentTimeMillis());
+        if (borradas > 0) {
+            logger.debug("Sesiones caducadas eliminadas: {}", borradas);
+        }
+    }
+
+    private static long expira(long accesoMs, Duration maxInactivo) {
+        return maxInactivo.isNegative() ? Long.MAX_VALUE : accesoMs + maxInactivo.toMillis();
+    }
+
+    private static int segundos(Duration intervalo) {
+        return (int) intervalo.getSeconds();
+    }
+
+    private static byte[] serializar(SesionAlmacenada sesion) {
+        HashMap<String, Object> atributos = new HashMap<>();
+        for (String nombre : sesion.getAttributeNames()) {
+            Object valor = sesion.getAttribute(nombre);
+            if (valor.getClass().isAnnotationPresent(Entity.class) || !(valor instanceof Serializable)) {
+                logger.warn("Atributo de sesión '{}' omitido: {} no debe guardarse en la sesión",
+                        nombre, valor.getClass().getName());
+                continue;
+            }
+            atributos.put(nombre, valor);
+        }
+        if (atributos.isEmpty()) {
+            return SIN_ATRIBUTOS;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(atributos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron serializar los atributos de la sesión", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> deserializar(byte[] atributos) {
+        if (atributos == null || atributos.length == 0) {
+            return Map.of();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(atributos))) {
+            in.setObjectInputFilter(FILTRO_CLASES);
+            return (Map<String, Object>) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            // Una sesión ilegible (p. ej. de una versión anterior de una clase) se trata como vacía
+            logger.warn("Atributos de sesión descartados: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+}
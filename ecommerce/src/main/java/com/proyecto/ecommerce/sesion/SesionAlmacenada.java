@@ -0,0 +1,139 @@
+package com.proyecto.ecommerce.sesion;
+
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Sesión leída de {@link AlmacenSesionesJdbc}: delega los datos en una {@link MapSession} y recuerda
+ * lo que hay guardado en la tabla (id, atributos serializados, último acceso y caducidad) para que
+ * {@link AlmacenSesionesJdbc#save(SesionAlmacenada)} escriba solo cuando algo ha cambiado de verdad.
+ */
+public final class SesionAlmacenada implements Session {
+
+    private final MapSession datos;
+
+    // Estado de la fila tal como está en la base de datos (null/0 mientras la sesión es nueva)
+    private String idGuardado;
+    private byte[] atributosGuardados;
+    private long accesoGuardadoMs;
+    private Duration maxInactivoGuardado;
+
+    // Se marca al llamar a setAttribute/removeAttribute: solo entonces merece la pena reserializar
+    private boolean atributosTocados;
+
+    SesionAlmacenada(MapSession datos) {
+        this.datos = datos;
+    }
+
+    boolean esNueva() {
+        return idGuardado == null;
+    }
+
+    String getIdGuardado() {
+        return idGuardado;
+    }
+
+    byte[] getAtributosGuardados() {
+        return atributosGuardados;
+    }
+
+    long getAccesoGuardadoMs() {
+        return accesoGuardadoMs;
+    }
+
+    Duration getMaxInactivoGuardado() {
+        return maxInactivoGuardado;
+    }
+
+    boolean atributosTocados() {
+        return atributosTocados;
+    }
+
+    /**
+     * Anota que la fila coincide ahora con esta sesión.
+     *
+     * @param atributos Atributos serializados tal como se escribieron (o se leyeron).
+     */
+    void marcarGuardada(byte[] atributos, long accesoMs) {
+        this.idGuardado = datos.getId();
+        this.atributosGuardados = atributos;
+        this.accesoGuardadoMs = accesoMs;
+        this.maxInactivoGuardado = datos.getMaxInactiveInterval();
+        this.atributosTocados = false;
+    }
+
+    /**
+     * Anota que solo se ha actualizado el último acceso (los atributos de la fila no cambian).
+     */
+    void marcarAcceso(long accesoMs) {
+        this.idGuardado = datos.getId();
+        this.accesoGuardadoMs = accesoMs;
+        this.maxInactivoGuardado = datos.getMaxInactiveInterval();
+    }
+
+    @Override
+    public String getId() {
+        return datos.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+        return datos.changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String nombre) {
+        return datos.getAttribute(nombre);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return datos.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String nombre, Object valor) {
+        datos.setAttribute(nombre, valor);
+        atributosTocados = true;
+    }
+
+    @Override
+    public void removeAttribute(String nombre) {
+        datos.removeAttribute(nombre);
+        atributosTocados = true;
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return datos.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant ultimoAcceso) {
+        datos.setLastAccessedTime(ultimoAcceso);
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+        return datos.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration intervalo) {
+        datos.setMaxInactiveInterval(intervalo);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+        return datos.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+        return datos.isExpired();
+    }
+}
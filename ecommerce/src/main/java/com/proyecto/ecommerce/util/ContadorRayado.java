@@ -0,0 +1,165 @@
+package com.proyecto.ecommerce.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contador de unidades repartido en varias rayas (celdas) para que muchos hilos puedan retirar
+ * unidades a la vez sin pelearse por la misma variable.
+ * <p>
+ * Cada hilo empieza por su raya y la decrementa con compareAndSet solo si tiene unidades
+ * suficientes, así que el total nunca baja de cero por una retirada. Si su raya no alcanza prueba
+ * en las demás y, como último recurso, reúne unidades de varias; si ni así llega las devuelve y la
+ * retirada falla. Cerca del agotamiento una retirada puede fallar mientras otra tiene unidades
+ * tomadas a medio reunir: se prefiere un "agotado" de más a vender de más.
+ * <p>
+ * Un ajuste negativo que no cabe deja la deuda en la raya 0 y la salda con las unidades de las
+ * demás, así que ninguna raya conserva unidades mientras el total sea negativo; los ajustes
+ * positivos pagan primero esa deuda.
+ * <p>
+ * Las rayas están separadas {@value #SEPARACION} posiciones en el array para que no compartan
+ * línea de caché.
+ */
+public class ContadorRayado {
+
+    // 16 longs = 128 bytes entre rayas, más que una línea de caché (y que el prefetch de dos líneas)
+    private static final int SEPARACION = 16;
+
+    private final AtomicLongArray celdas;
+    private final int mascara;
+
+    /**
+     * @param valorInicial Unidades iniciales, que se reparten entre las rayas.
+     * @param rayas        Número de rayas; se redondea a potencia de dos.
+     */
+    public ContadorRayado(long valorInicial, int rayas) {
+        if (rayas <= 0) {
+            throw new IllegalArgumentException("El número de rayas debe ser positivo");
+        }
+        int tamanio = Integer.highestOneBit(Math.max(1, rayas * 2 - 1));
+        this.celdas = new AtomicLongArray(tamanio * SEPARACION);
+        this.mascara = tamanio - 1;
+        long porRaya = valorInicial / tamanio;
+        long resto = valorInicial % tamanio;
+        for (int i = 0; i < tamanio; i++) {
+            celdas.set(i * SEPARACION, porRaya + (i < resto ? 1 : 0));
+        }
+    }
+
+    /**
+     * Retira unidades si quedan suficientes en total.
+     *
+     * @return true si se retiraron; false si no había bastantes (no se retira nada).
+     */
+    public boolean retirar(long unidades) {
+        if (unidades <= 0) {
+            throw new IllegalArgumentException("Las unidades a retirar deben ser positivas");
+        }
+        int propia = raya();
+        for (int i = 0; i <= mascara; i++) {
+            if (retirarDe((propia + i) & mascara, unidades)) {
+                return true;
+            }
+        }
+        return reunir(propia, unidades);
+    }
+
+    /**
+     * Suma (o resta, si es negativo) sin comprobar el saldo. Una resta que no cabe deja el total
+     * en negativo, y las retiradas fallan hasta que vuelva a haber unidades.
+     */
+    public void ajustar(long delta) {
+        if (delta < 0) {
+            if (!retirar(-delta)) {
+                celdas.getAndAdd(0, delta);
+                saldarDeuda();
+            }
+            return;
+        }
+        long actual;
+        long pagar;
+        do {
+            actual = celdas.get(0);
+            pagar = Math.min(Math.max(-actual, 0), delta);
+        } while (pagar > 0 && !celdas.compareAndSet(0, actual, actual + pagar));
+        if (delta > pagar) {
+            celdas.getAndAdd(raya() * SEPARACION, delta - pagar);
+        }
+    }
+
+    /**
+     * @return Suma de las rayas. Con retiradas en curso es aproximada.
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i <= mascara; i++) {
+            total += celdas.get(i * SEPARACION);
+        }
+        return total;
+    }
+
+    private boolean retirarDe(int raya, long unidades) {
+        int indice = raya * SEPARACION;
+        long actual;
+        do {
+            actual = celdas.get(indice);
+            if (actual < unidades) {
+                return false;
+            }
+        } while (!celdas.compareAndSet(indice, actual, actual - unidades));
+        return true;
+    }
+
+    private boolean reunir(int propia, long unidades) {
+        long[] tomadas = new long[mascara + 1];
+        long faltan = unidades;
+        for (int i = 0; i <= mascara && faltan > 0; i++) {
+            int raya = (propia + i) & mascara;
+            int indice = raya * SEPARACION;
+            long actual;
+            long tomar;
+            do {
+                actual = celdas.get(indice);
+                tomar = Math.min(actual, faltan);
+            } while (tomar > 0 && !celdas.compareAndSet(indice, actual, actual - tomar));
+            if (tomar > 0) {
+                tomadas[raya] = tomar;
+                faltan -= tomar;
+            }
+        }
+        if (faltan == 0) {
+            return true;
+        }
+        for (int raya = 0; raya <= mascara; raya++) {
+            if (tomadas[raya] > 0) {
+                celdas.getAndAdd(raya * SEPARACION, tomadas[raya]);
+            }
+        }
+        return false;
+    }
+
+    // Pasa a la raya 0 las unidades de las demás mientras tenga deuda
+    private void saldarDeuda() {
+        for (int raya = 1; raya <= mascara; raya++) {
+            long deuda = -celdas.get(0);
+            if (deuda <= 0) {
+                return;
+            }
+            int indice = raya * SEPARACION;
+            long actual;
+            long tomar;
+            do {
+                actual = celdas.get(indice);
+                tomar = Math.min(actual, deuda);
+            } while (tomar > 0 && !celdas.compareAndSet(indice, actual, actual - tomar));
+            if (tomar > 0) {
+                celdas.getAndAdd(0, tomar);
+            }
+        }
+    }
+
+    // Raya fija por hilo: el id mezclado con una multiplicación de Fibonacci
+    private int raya() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mascara;
+    }
+}
@@ -0,0 +1,18 @@
+package com.proyecto.ecommerce.util;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Conversión de las fechas que devuelven las consultas nativas, que según el driver llegan
+ * como {@link LocalDate} o como {@link Date}.
+ */
+public final class FechasSql {
+
+    private FechasSql() {
+    }
+
+    public static LocalDate aFecha(Object valor) {
+        return valor instanceof LocalDate fecha ? fecha : ((Date) valor).toLocalDate();
+    }
+}
@@ -0,0 +1,77 @@
+package com.proyecto.ecommerce.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de cadenas: responde "seguro que no está" o "puede que esté"
+ * con una tasa de falsos positivos acotada y sin falsos negativos.
+ * <p>
+ * Los bits se guardan en un AtomicLongArray, así que admite lecturas y escrituras
+ * concurrentes sin bloqueos. No permite borrar: para olvidar elementos se construye uno nuevo.
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numeroBits;
+    private final int numeroHashes;
+
+    /**
+     * @param esperados         número de elementos para el que se dimensiona.
+     * @param falsosPositivos   tasa de falsos positivos deseada con ese número de elementos (p. ej. 0.01).
+     */
+    public FiltroBloom(int esperados, double falsosPositivos) {
+        if (esperados <= 0 || falsosPositivos <= 0 || falsosPositivos >= 1) {
+            throw new IllegalArgumentException("Parámetros de filtro de Bloom no válidos");
+        }
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-esperados * Math.log(falsosPositivos) / (ln2 * ln2));
+        int palabras = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(palabras);
+        this.numeroBits = (long) palabras * 64;
+        this.numeroHashes = Math.max(1, (int) Math.round((double) numeroBits / esperados * ln2));
+    }
+
+    public void agregar(String elemento) {
+        long h1 = hash(elemento);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numeroBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            if ((bits.get(palabra) & mascara) == 0) {
+                bits.getAndAccumulate(palabra, mascara, (actual, m) -> actual | m);
+            }
+        }
+    }
+
+    public boolean puedeContener(String elemento) {
+        long h1 = hash(elemento);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < numeroHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numeroBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a de 64 bits sobre los caracteres, mezclado al final para repartir bien los bits altos.
+     */
+    private static long hash(String elemento) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < elemento.length(); i++) {
+            h ^= elemento.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    private static long mezclar(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
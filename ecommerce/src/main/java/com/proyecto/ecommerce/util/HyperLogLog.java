@@ -0,0 +1,126 @@
+package com.proyecto.ecommerce.util;
+
+import java.util.Arrays;
+
+/**
+ * Sketch HyperLogLog para estimar el número de elementos distintos de un conjunto
+ * usando una cantidad fija de memoria (un byte por registro).
+ * Dos sketches con la misma precisión se combinan tomando el máximo registro a registro,
+ * por lo que la unión de periodos es exacta respecto a lo que se habría obtenido
+ * alimentando un único sketch con todos los elementos.
+ * <p>
+ * No es thread-safe: quien lo comparta entre hilos debe sincronizar el acceso.
+ */
+public class HyperLogLog {
+
+    // Precisión por defecto: 2^12 = 4096 registros (4 KB), error estándar ~1,6 %
+    public static final int PRECISION_POR_DEFECTO = 12;
+
+    private final int precision;
+    private final byte[] registros;
+
+    public HyperLogLog() {
+        this(PRECISION_POR_DEFECTO);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("La precisión debe estar entre 4 y 18");
+        }
+        this.precision = precision;
+        this.registros = new byte[1 << precision];
+    }
+
+    /**
+     * Reconstruye un sketch a partir de sus registros serializados.
+     * La precisión se deduce de la longitud del array.
+     */
+    public static HyperLogLog desdeBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision) {
+            throw new IllegalArgumentException("Longitud de sketch no válida: " + bytes.length);
+        }
+        HyperLogLog hll = new HyperLogLog(precision);
+        System.arraycopy(bytes, 0, hll.registros, 0, bytes.length);
+        return hll;
+    }
+
+    /**
+     * Añade un elemento identificado por un entero (por ejemplo, un id de usuario).
+     */
+    public void agregar(long valor) {
+        long hash = mezclar(valor);
+        int indice = (int) (hash >>> (64 - precision));
+        // Posición del primer bit a 1 en los bits restantes (1..64-p+1)
+        long resto = (hash << precision) | (1L << (precision - 1));
+        byte rango = (byte) (Long.numberOfLeadingZeros(resto) + 1);
+        if (rango > registros[indice]) {
+            registros[indice] = rango;
+        }
+    }
+
+    /**
+     * Combina otro sketch en este (unión de conjuntos).
+     */
+    public void combinar(HyperLogLog otro) {
+        if (otro.precision != precision) {
+            throw new IllegalArgumentException("No se pueden combinar sketches de distinta precisión");
+        }
+        for (int i = 0; i < registros.length; i++) {
+            if (otro.registros[i] > registros[i]) {
+                registros[i] = otro.registros[i];
+            }
+        }
+    }
+
+    /**
+     * Estima el número de elementos distintos añadidos.
+     * Para cardinalidades pequeñas usa conteo lineal, que es más preciso.
+     */
+    public long estimar() {
+        int m = registros.length;
+        double suma = 0;
+        int ceros = 0;
+        for (byte r : registros) {
+            suma += 1.0 / (1L << r);
+            if (r == 0) {
+                ceros++;
+            }
+        }
+        double alfa = 0.7213 / (1 + 1.079 / m);
+        double estimacion = alfa * m * m / suma;
+        if (estimacion <= 2.5 * m && ceros > 0) {
+            estimacion = m * Math.log((double) m / ceros);
+        }
+        return Math.round(estimacion);
+    }
+
+    /**
+     * Error estándar relativo teórico del estimador (1,04 / raíz(m)).
+     */
+    public double errorEstandar() {
+        return 1.04 / Math.sqrt(registros.length);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Devuelve una copia de los registros para persistirlos.
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOf(registros, registros.length);
+    }
+
+    /**
+     * Función de mezcla de 64 bits (finalizador de SplitMix64) para repartir
+     * uniformemente ids consecutivos entre los registros.
+     */
+    private static long mezclar(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,134 @@
+package com.proyecto.ecommerce.util;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de int a int con direccionamiento abierto (sondeo lineal), sin boxing.
+ * Pensado para contadores dispersos indexados por ID: ocupa dos arrays de enteros
+ * en lugar de un objeto Entry, un Integer de clave y otro de valor por elemento.
+ * <p>
+ * La clave 0 se reserva para marcar huecos libres, así que no se admite
+ * (los IDs autoincrementales empiezan en 1). No se pueden borrar claves.
+ * <p>
+ * No es thread-safe: quien lo comparta entre hilos debe sincronizar el acceso.
+ */
+public class MapaIntInt {
+
+    /**
+     * Recibe cada par clave-valor en {@link #recorrer(Visitante)}.
+     */
+    @FunctionalInterface
+    public interface Visitante {
+        void visitar(int clave, int valor);
+    }
+
+    private static final int LIBRE = 0;
+
+    private int[] claves;
+    private int[] valores;
+    private int tamanio;
+
+    public MapaIntInt() {
+        this(8);
+    }
+
+    public MapaIntInt(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(4, capacidadInicial * 2 - 1));
+        this.claves = new int[capacidad];
+        this.valores = new int[capacidad];
+    }
+
+    /**
+     * Suma delta al valor de la clave (que empieza en 0 si no existía).
+     * @return Nuevo valor.
+     */
+    public int incrementar(int clave, int delta) {
+        comprobarClave(clave);
+        if ((tamanio + 1) * 4 > claves.length * 3) {
+            redimensionar(claves.length * 2);
+        }
+        int i = posicion(clave, claves);
+        if (claves[i] == LIBRE) {
+            claves[i] = clave;
+            tamanio++;
+        }
+        valores[i] += delta;
+        return valores[i];
+    }
+
+    /**
+     * @return Valor de la clave, o 0 si no existe.
+     */
+    public int obtener(int clave) {
+        comprobarClave(clave);
+        int i = posicion(clave, claves);
+        return claves[i] == LIBRE ? 0 : valores[i];
+    }
+
+    public int tamanio() {
+        return tamanio;
+    }
+
+    public void recorrer(Visitante visitante) {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != LIBRE) {
+                visitante.visitar(claves[i], valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Devuelve las k claves con mayor valor, de mayor a menor (a igualdad, la clave menor primero).
+     */
+    public int[] masFrecuentes(int k) {
+        long[] pares = new long[tamanio];
+        int n = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != LIBRE) {
+                // Valor en la parte alta; clave invertida para que a igualdad gane la menor
+                pares[n++] = ((long) valores[i] << 32) | (Integer.MAX_VALUE - claves[i] & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(pares);
+        int[] resultado = new int[Math.min(k, n)];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = Integer.MAX_VALUE - (int) pares[n - 1 - i];
+        }
+        return resultado;
+    }
+
+    private static int posicion(int clave, int[] claves) {
+        int mascara = claves.length - 1;
+        int i = mezclar(clave) & mascara;
+        while (claves[i] != LIBRE && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void redimensionar(int capacidad) {
+        int[] clavesAntiguas = claves;
+        int[] valoresAntiguos = valores;
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        for (int i = 0; i < clavesAntiguas.length; i++) {
+            if (clavesAntiguas[i] != LIBRE) {
+                int j = posicion(clavesAntiguas[i], claves);
+                claves[j] = clavesAntiguas[i];
+                valores[j] = valoresAntiguos[i];
+            }
+        }
+    }
+
+    private static void comprobarClave(int clave) {
+        if (clave == LIBRE) {
+            throw new IllegalArgumentException("La clave 0 no está permitida");
+        }
+    }
+
+    // Los IDs son consecutivos: se dispersan para no formar racimos en el sondeo lineal
+    private static int mezclar(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
@@ -0,0 +1,225 @@
+package com.proyecto.ecommerce.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Rueda de temporizadores con hash (hashed timing wheel) para muchas tareas con caducidad
+ * poco precisa, como las reservas de stock.
+ * <p>
+ * El tiempo se divide en ticks y cada temporizador va a la cubeta {@code tick % cubetas} de su
+ * vencimiento, con el número de vueltas que le faltan. Un único hilo avanza un tick cada vez y
+ * solo recorre la cubeta actual, así que programar y cancelar son O(1) y el coste por tick depende
+ * de lo que vence, no de cuántos temporizadores hay (a diferencia de un ScheduledExecutorService,
+ * cuyo montículo cuesta O(log n) por operación, o de recorrer una tabla periódicamente).
+ * La precisión es de un tick.
+ * <p>
+ * Los temporizadores nuevos pasan por una cola concurrente y solo el hilo de la rueda toca las
+ * cubetas, que por eso no necesitan sincronización. Un temporizador cancelado se desenlaza la
+ * próxima vez que el hilo pasa por su cubeta. Las tareas se ejecutan en el hilo de la rueda y
+ * deben ser breves.
+ */
+public class RuedaTemporizadores implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RuedaTemporizadores.class);
+
+    private static final int PENDIENTE = 0;
+    private static final int CANCELADO = 1;
+    private static final int VENCIDO = 2;
+
+    // Máximo de altas que se pasan a las cubetas por tick, para que un pico no retrase el tick
+    private static final int MAX_ALTAS_POR_TICK = 100_000;
+
+    /**
+     * Tarea programada en la rueda.
+     */
+    public static final class Temporizador {
+
+        private final Runnable tarea;
+        // Vencimiento en nanos desde el arranque de la rueda
+        private final long vencimiento;
+        private final AtomicInteger estado = new AtomicInteger(PENDIENTE);
+        private long vueltas;
+        private Temporizador anterior;
+        private Temporizador siguiente;
+
+        private Temporizador(Runnable tarea, long vencimiento) {
+            this.tarea = tarea;
+            this.vencimiento = vencimiento;
+        }
+
+        /**
+         * Cancela el temporizador si aún no ha vencido.
+         *
+         * @return true si se canceló; false si ya había vencido o estaba cancelado.
+         */
+        public boolean cancelar() {
+            return estado.compareAndSet(PENDIENTE, CANCELADO);
+        }
+    }
+
+    /**
+     * Lista doblemente enlazada de temporizadores; solo la usa el hilo de la rueda.
+     */
+    private static final class Cubeta {
+
+        private Temporizador primero;
+        private Temporizador ultimo;
+
+        void agregar(Temporizador t) {
+            t.anterior = ultimo;
+            t.siguiente = null;
+            if (ultimo == null) {
+                primero = t;
+            } else {
+                ultimo.siguiente = t;
+            }
+            ultimo = t;
+        }
+
+        Temporizador quitar(Temporizador t) {
+            Temporizador siguiente = t.siguiente;
+            if (t.anterior == null) {
+                primero = siguiente;
+            } else {
+                t.anterior.siguiente = siguiente;
+            }
+            if (siguiente == null) {
+                ultimo = t.anterior;
+            } else {
+                siguiente.anterior = t.anterior;
+            }
+            t.anterior = null;
+            t.siguiente = null;
+            return siguiente;
+        }
+    }
+
+    private final long tickNanos;
+    private final Cubeta[] cubetas;
+    private final int mascara;
+    private final Queue<Temporizador> altas = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final long inicio;
+    private final Thread hilo;
+    private volatile boolean activa = true;
+
+    // Solo lo usa el hilo de la rueda
+    private long tick;
+
+    /**
+     * @param tick     Duración de un tick (precisión de la rueda).
+     * @param cubetas  Número de cubetas; se redondea a potencia de dos. Conviene que cubetas × tick
+     *                 cubra la caducidad habitual para que casi todos venzan en su primera vuelta.
+     * @param nombre   Nombre del hilo de la rueda.
+     */
+    public RuedaTemporizadores(long tick, TimeUnit unidad, int cubetas, String nombre) {
+        if (tick <= 0 || cubetas <= 0) {
+            throw new IllegalArgumentException("El tick y el número de cubetas deben ser positivos");
+        }
+        this.tickNanos = unidad.toNanos(tick);
+        int tamanio = Integer.highestOneBit(Math.max(1, cubetas * 2 - 1));
+        this.cubetas = new Cubeta[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            this.cubetas[i] = new Cubeta();
+        }
+        this.mascara = tamanio - 1;
+        this.inicio = System.nanoTime();
+        this.hilo = new Thread(this::ejecutar, nombre);
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    /**
+     * Programa una tarea para dentro de {@code retraso}.
+     */
+    public Temporizador programar(Runnable tarea, long retraso, TimeUnit unidad) {
+        if (!activa) {
+            throw new IllegalStateException("La rueda de temporizadores está detenida");
+        }
+        Temporizador t = new Temporizador(tarea, System.nanoTime() - inicio + unidad.toNanos(retraso));
+        pendientes.incrementAndGet();
+        altas.add(t);
+        return t;
+    }
+
+    /**
+     * @return Temporizadores programados que aún no han vencido ni se han desenlazado tras cancelarse.
+     */
+    public int getPendientes() {
+        return pendientes.get();
+    }
+
+    @Override
+    public void close() {
+        activa = false;
+        hilo.interrupt();
+    }
+
+    private void ejecutar() {
+        while (activa) {
+            long finTick = (tick + 1) * tickNanos;
+            long espera = finTick - (System.nanoTime() - inicio);
+            if (espera > 0) {
+                LockSupport.parkNanos(this, espera);
+                if (Thread.interrupted() && !activa) {
+                    return;
+                }
+                continue;
+            }
+            repartirAltas();
+            vencer(cubetas[(int) (tick & mascara)], finTick);
+            tick++;
+        }
+    }
+
+    private void repartirAltas() {
+        for (int i = 0; i < MAX_ALTAS_POR_TICK; i++) {
+            Temporizador t = altas.poll();
+            if (t == null) {
+                return;
+            }
+            if (t.estado.get() == CANCELADO) {
+                pendientes.decrementAndGet();
+                continue;
+            }
+            long tickVencimiento = t.vencimiento / tickNanos;
+            t.vueltas = Math.max(0, (tickVencimiento - tick) / cubetas.length);
+            // Si ya debía haber vencido va a la cubeta actual, que se procesa a continuación
+            cubetas[(int) (Math.max(tickVencimiento, tick) & mascara)].agregar(t);
+        }
+    }
+
+    private void vencer(Cubeta cubeta, long finTick) {
+        Temporizador t = cubeta.primero;
+        while (t != null) {
+            if (t.estado.get() == CANCELADO) {
+                pendientes.decrementAndGet();
+                t = cubeta.quitar(t);
+            } else if (t.vueltas <= 0 && t.vencimiento <= finTick) {
+                Temporizador siguiente = cubeta.quitar(t);
+                if (t.estado.compareAndSet(PENDIENTE, VENCIDO)) {
+                    pendientes.decrementAndGet();
+                    try {
+                        t.tarea.run();
+                    } catch (RuntimeException e) {
+                        log.warn("Error en una tarea de la rueda de temporizadores: {}", e.getMessage(), e);
+                    }
+                } else {
+                    // Se canceló entre la comprobación y el CAS
+                    pendientes.decrementAndGet();
+                }
+                t = siguiente;
+            } else {
+                t.vueltas--;
+                t = t.siguiente;
+            }
+        }
+    }
+}
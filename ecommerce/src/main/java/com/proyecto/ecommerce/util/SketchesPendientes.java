@@ -0,0 +1,168 @@
+package com.proyecto.ecommerce.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Sketches (HyperLogLog, t-digest, bitmaps...) con datos aún no volcados a la base de datos,
+ * para los agregados que se actualizan en memoria al confirmarse cada pedido y se combinan con
+ * la fila guardada en un proceso programado, en lugar de bloquear esa fila en cada compra.
+ * <p>
+ * Cada sketch se modifica con su propio monitor, y {@link #volcar} saca cada clave del mapa antes
+ * de guardarla: las compras que llegan mientras tanto empiezan un sketch nuevo. Si la transacción
+ * falla el sketch se vuelve a combinar con el pendiente para el siguiente volcado.
+ *
+ * @param <K> Clave del sketch (por ejemplo producto y mes).
+ * @param <S> Tipo del sketch.
+ */
+public class SketchesPendientes<K, S> {
+
+    private static final Logger log = LoggerFactory.getLogger(SketchesPendientes.class);
+
+    private final ConcurrentHashMap<K, S> pendientes = new ConcurrentHashMap<>();
+    private final TransactionTemplate nuevaTransaccion;
+    private final Supplier<S> nuevo;
+    private final UnaryOperator<S> copiar;
+    private final BiConsumer<S, S> combinar;
+    private final String nombre;
+
+    /**
+     * @param nuevo    Crea un sketch vacío.
+     * @param copiar   Copia independiente de un sketch.
+     * @param combinar Combina el segundo sketch en el primero.
+     * @param nombre   Qué se acumula, para los mensajes de log.
+     */
+    public SketchesPendientes(PlatformTransactionManager transactionManager, Supplier<S> nuevo,
+                              UnaryOperator<S> copiar, BiConsumer<S, S> combinar, String nombre) {
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nuevo = nuevo;
+        this.copiar = copiar;
+        this.combinar = combinar;
+        this.nombre = nombre;
+    }
+
+    /**
+     * Aplica un cambio al sketch pendiente de una clave, creándolo si no existe.
+     * compute es atómico por clave, así que ningún cambio se pierde frente a {@link #volcar}.
+     */
+    public void agregar(K clave, Consumer<S> cambio) {
+        pendientes.compute(clave, (k, sketch) -> {
+            S destino = sketch != null ? sketch : nuevo.get();
+            synchronized (destino) {
+                cambio.accept(destino);
+            }
+            return destino;
+        });
+    }
+
+    /**
+     * Recorre copias de los sketches pendientes, para combinarlas con los guardados en una consulta.
+     */
+    public void recorrer(BiConsumer<K, S> accion) {
+        pendientes.forEach((clave, sketch) -> {
+            S copia;
+            synchronized (sketch) {
+                copia = copiar.apply(sketch);
+            }
+            accion.accept(clave, copia);
+        });
+    }
+
+    /**
+     * Guarda cada sketch pendiente en su propia transacción nueva con {@code guardar}, que debe
+     * combinarlo con la fila de su clave (bloqueándola) o insertarla.
+     */
+    public void volcar(BiConsumer<K, S> guardar) {
+        for (K clave : new ArrayList<>(pendientes.keySet())) {
+            S sketch = pendientes.remove(clave);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                nuevaTransaccion.executeWithoutResult(status -> guardar.accept(clave, sketch));
+            } catch (RuntimeException e) {
+                // Al fallar la transacción no se guardó nada: se reintenta en el siguiente volcado
+                log.warn("No se pudo volcar {} {}: {}", nombre, clave, e.getMessage());
+                pendientes.merge(clave, sketch, (actual, fallido) -> {
+                    synchronized (actual) {
+                        combinar.accept(actual, fallido);
+                    }
+                    return actual;
+                });
+            }
+        }
+    }
+
+    /**
+     * Saca y devuelve todos los sketches pendientes.
+     */
+    public Map<K, S> tomarTodos() {
+        Map<K, S> tomados = new HashMap<>();
+        for (K clave : new ArrayList<>(pendientes.keySet())) {
+            S sketch = pendientes.remove(clave);
+            if (sketch != null) {
+                tomados.put(clave, sketch);
+            }
+        }
+        return tomados;
+    }
+
+    /**
+     * Ejecuta una escritura en una transacción nueva.
+     */
+    public void enTransaccionNueva(Runnable escritura) {
+        nuevaTransaccion.executeWithoutResult(status -> escritura.run());
+    }
+
+    /**
+     * Reconstruye sketches desde un stream del histórico ordenado por grupo: acumula las filas
+     * consecutivas del mismo grupo y guarda cada grupo al cambiar. Cada guardado va en su propia
+     * transacción (y conexión), porque la conexión del stream no admite otras sentencias mientras
+     * está abierto.
+     *
+     * @param grupoDe     Grupo de una fila (por ejemplo, su mes).
+     * @param nuevoGrupo  Acumulado vacío de un grupo.
+     * @param agregarFila Añade una fila al acumulado de su grupo.
+     * @param guardar     Guarda el acumulado de un grupo terminado.
+     */
+    public <G, A> void reconstruir(Stream<Object[]> filas, Function<Object[], G> grupoDe, Supplier<A> nuevoGrupo,
+                                   BiConsumer<A, Object[]> agregarFila, BiConsumer<G, A> guardar) {
+        G grupoActual = null;
+        A acumulado = null;
+        Iterator<Object[]> it = filas.iterator();
+        while (it.hasNext()) {
+            Object[] fila = it.next();
+            G grupo = grupoDe.apply(fila);
+            if (!Objects.equals(grupo, grupoActual)) {
+                guardarGrupo(grupoActual, acumulado, guardar);
+                grupoActual = grupo;
+                acumulado = nuevoGrupo.get();
+            }
+            agregarFila.accept(acumulado, fila);
+        }
+        guardarGrupo(grupoActual, acumulado, guardar);
+    }
+
+    private <G, A> void guardarGrupo(G grupo, A acumulado, BiConsumer<G, A> guardar) {
+        if (grupo != null) {
+            enTransaccionNueva(() -> guardar.accept(grupo, acumulado));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.proyecto.ecommerce.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Implementación compacta de un t-digest "merging" para estimar cuantiles
+ * (p50, p90, p99...) de una distribución con memoria acotada.
+ * <p>
+ * Los valores se acumulan en un buffer y se comprimen en centroides (media, peso);
+ * los centroides de las colas se mantienen pequeños para que los percentiles extremos
+ * sean precisos. Dos digests se combinan añadiendo los centroides de uno al otro,
+ * lo que permite unir días sueltos en rangos arbitrarios.
+ * <p>
+ * No es thread-safe: quien lo comparta entre hilos debe sincronizar el acceso.
+ */
+public class TDigest {
+
+    public static final double COMPRESION_POR_DEFECTO = 100;
+
+    private final double compresion;
+
+    // Centroides comprimidos, ordenados por media
+    private double[] medias;
+    private double[] pesos;
+    private int numCentroides;
+
+    // Valores todavía sin comprimir
+    private final double[] bufferMedias;
+    private final double[] bufferPesos;
+    private int numBuffer;
+
+    private double pesoTotal;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(COMPRESION_POR_DEFECTO);
+    }
+
+    public TDigest(double compresion) {
+        this.compresion = compresion;
+        int capacidad = (int) Math.ceil(compresion) * 2 + 10;
+        this.medias = new double[capacidad];
+        this.pesos = new double[capacidad];
+        this.bufferMedias = new double[capacidad * 5];
+        this.bufferPesos = new double[capacidad * 5];
+    }
+
+    /**
+     * Añade un valor con peso 1.
+     */
+    public void agregar(double valor) {
+        agregar(valor, 1);
+    }
+
+    /**
+     * Añade un valor (o un centroide) con el peso indicado.
+     */
+    public void agregar(double valor, double peso) {
+        if (Double.isNaN(valor) || peso <= 0) {
+            return;
+        }
+        if (numBuffer == bufferMedias.length) {
+            comprimir();
+        }
+        bufferMedias[numBuffer] = valor;
+        bufferPesos[numBuffer] = peso;
+        numBuffer++;
+        pesoTotal += peso;
+        min = Math.min(min, valor);
+        max = Math.max(max, valor);
+    }
+
+    /**
+     * Combina otro digest en este.
+     */
+    public void combinar(TDigest otro) {
+        otro.comprimir();
+        for (int i = 0; i < otro.numCentroides; i++) {
+            agregar(otro.medias[i], otro.pesos[i]);
+        }
+        if (otro.numCentroides > 0) {
+            min = Math.min(min, otro.min);
+            max = Math.max(max, otro.max);
+        }
+    }
+
+    /**
+     * Número de valores añadidos.
+     */
+    public long contar() {
+        return Math.round(pesoTotal);
+    }
+
+    /**
+     * Estima el valor del cuantil q (entre 0 y 1).
+     *
+     * @return El valor estimado, o NaN si el digest está vacío.
+     */
+    public double cuantil(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("El cuantil debe estar entre 0 y 1");
+        }
+        comprimir();
+        if (numCentroides == 0) {
+            return Double.NaN;
+        }
+        if (numCentroides == 1) {
+            return medias[0];
+        }
+        double objetivo = q * pesoTotal;
+
+        // Cola izquierda: interpolamos entre el mínimo y el centro del primer centroide
+        if (objetivo < pesos[0] / 2) {
+            return min + (medias[0] - min) * objetivo / (pesos[0] / 2);
+        }
+        // Cola derecha: entre el centro del último centroide y el máximo
+        double ultimoCentro = pesoTotal - pesos[numCentroides - 1] / 2;
+        if (objetivo >= ultimoCentro) {
+            double resto = pesos[numCentroides - 1] / 2;
+            return medias[numCentroides - 1] + (max - medias[numCentroides - 1]) * (objetivo - ultimoCentro) / resto;
+        }
+
+        // Interpolación lineal entre los centros de dos centroides consecutivos
+        double acumulado = pesos[0] / 2;
+        for (int i = 0; i < numCentroides - 1; i++) {
+            double tramo = (pesos[i] + pesos[i + 1]) / 2;
+            if (objetivo < acumulado + tramo) {
+                double fraccion = (objetivo - acumulado) / tramo;
+                return medias[i] + (medias[i + 1] - medias[i]) * fraccion;
+            }
+            acumulado += tramo;
+        }
+        return medias[numCentroides - 1];
+    }
+
+    /**
+     * Funde el buffer con los centroides existentes respetando el límite de tamaño
+     * que impone la función de escala k1 (centroides pequeños en las colas).
+     */
+    private void comprimir() {
+        if (numBuffer == 0) {
+            return;
+        }
+        int n = numCentroides + numBuffer;
+        double[] todasMedias = Arrays.copyOf(medias, n);
+        double[] todosPesos = Arrays.copyOf(pesos, n);
+        System.arraycopy(bufferMedias, 0, todasMedias, numCentroides, numBuffer);
+        System.arraycopy(bufferPesos, 0, todosPesos, numCentroides, numBuffer);
+        numBuffer = 0;
+
+        Integer[] orden = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, (a, b) -> Double.compare(todasMedias[a], todasMedias[b]));
+
+        double[] nuevasMedias = new double[medias.length];
+        double[] nuevosPesos = new double[pesos.length];
+        int actual = 0;
+        nuevasMedias[0] = todasMedias[orden[0]];
+        nuevosPesos[0] = todosPesos[orden[0]];
+        double pesoAnterior = 0;
+        double kIzquierda = escala(0);
+
+        for (int i = 1; i < n; i++) {
+            double media = todasMedias[orden[i]];
+            double peso = todosPesos[orden[i]];
+            double qPropuesto = (pesoAnterior + nuevosPesos[actual] + peso) / pesoTotal;
+            if (escala(qPropuesto) - kIzquierda <= 1) {
+                // Cabe en el centroide actual: actualizamos su media ponderada
+                nuevosPesos[actual] += peso;
+                nuevasMedias[actual] += (media - nuevasMedias[actual]) * peso / nuevosPesos[actual];
+            } else {
+                pesoAnterior += nuevosPesos[actual];
+                kIzquierda = escala(pesoAnterior / pesoTotal);
+                actual++;
+                if (actual == nuevasMedias.length) {
+                    nuevasMedias = Arrays.copyOf(nuevasMedias, actual * 2);
+                    nuevosPesos = Arrays.copyOf(nuevosPesos, actual * 2);
+                }
+                nuevasMedias[actual] = media;
+                nuevosPesos[actual] = peso;
+            }
+        }
+        medias = nuevasMedias;
+        pesos = nuevosPesos;
+        numCentroides = actual + 1;
+    }
+
+    private double escala(double q) {
+        return compresion / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    /**
+     * Serializa el digest: compresión, mínimo, máximo, número de centroides y pares (media, peso).
+     */
+    public byte[] toBytes() {
+        comprimir();
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 3 + 4 + numCentroides * 16);
+        buffer.putDouble(compresion).putDouble(min).putDouble(max).putInt(numCentroides);
+        for (int i = 0; i < numCentroides; i++) {
+            buffer.putDouble(medias[i]).putDouble(pesos[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Reconstruye un digest serializado con {@link #toBytes()}.
+     */
+    public static TDigest desdeBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        TDigest digest = new TDigest(buffer.getDouble());
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        int n = buffer.getInt();
+        for (int i = 0; i < n; i++) {
+            digest.agregar(buffer.getDouble(), buffer.getDouble());
+        }
+        if (n > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,181 @@
+package com.proyecto.ecommerce.benchmark;
+
+import com.proyecto.ecommerce.security.*;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.proyecto.ecommerce.security.TokenJwtConfig.*;
+
+/**
+ * Benchmark del coste de las cadenas de filtros de {@link SpringSecurityConfig} por tipo de petición
+ * (recurso estático, página con cookie, API con cabecera y API anónima), sin controladores detrás.
+ * <p>
+ * Con {@code cadenas=separadas} se usa la configuración real; con {@code cadenas=sinRecursos} se quita
+ * la cadena sin filtros, de modo que los recursos estáticos pasan por la de páginas como antes
+ * (lectura de la cookie, token, revocación y autorización en cada fichero).
+ * Las peticiones llevan un token válido ya cacheado, como en un navegador con la sesión iniciada.
+ * <p>
+ * Ejecución: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.proyecto.ecommerce.benchmark.CadenasSeguridadBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CadenasSeguridadBenchmark {
+
+    @Param({"separadas", "sinRecursos"})
+    public String cadenas;
+
+    @Param({"estatico", "pagina", "api", "apiAnonima"})
+    public String tipo;
+
+    // Compartido: crear un MockServletContext por petición costaría más que los propios filtros
+    private final MockServletContext servletContext = new MockServletContext();
+
+    private AnnotationConfigWebApplicationContext contexto;
+    private Filter proxy;
+    private String token;
+
+    private static final FilterChain FIN = (request, response) -> {
+    };
+
+    @Setup
+    public void preparar() {
+        // Sin configuración de logging, Logback trazaría cada filtro en DEBUG y eso es lo que se mediría
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+
+        contexto = new AnnotationConfigWebApplicationContext();
+        contexto.setServletContext(servletContext);
+        contexto.register(Configuracion.class);
+        contexto.refresh();
+
+        // Se monta el FilterChainProxy con las cadenas ya ordenadas, sin el filtro de introspección de
+        // Spring MVC que lo envuelve en el contexto: su coste es el mismo para ambas configuraciones
+        List<SecurityFilterChain> seleccionadas = contexto.getBeanProvider(SecurityFilterChain.class).orderedStream()
+                .filter(cadena -> "separadas".equals(cadenas)
+                        || cadena != contexto.getBean("recursosFilterChain", SecurityFilterChain.class))
+                .toList();
+        proxy = new FilterChainProxy(seleccionadas);
+
+        long ahora = System.currentTimeMillis();
+        token = contexto.getBean(GestorClavesJwt.class).nuevoToken()
+                .id(UUID.randomUUID().toString())
+                .subject("cliente")
+                .claim("username", "cliente")
+                .claim("idUsuario", 1)
+                .claim("authorities", List.of("ROLE_USER"))
+                .issuedAt(new Date(ahora))
+                .expiration(new Date(ahora + DURACION_TOKEN_MS))
+                .compact();
+    }
+
+    @TearDown
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public int filtrar() throws Exception {
+        MockHttpServletRequest request = switch (tipo) {
+            case "estatico" -> conCookie(new MockHttpServletRequest(servletContext, "GET", "/css/estilos.css"));
+            case "pagina" -> conCookie(new MockHttpServletRequest(servletContext, "GET", "/perfil/datos"));
+            case "api" -> {
+                MockHttpServletRequest api = new MockHttpServletRequest(servletContext, "GET", "/api/pedidos/mios");
+                api.addHeader(HEADER_AUTHORIZATION, PREFIX_TOKEN + token);
+                yield api;
+            }
+            default -> new MockHttpServletRequest(servletContext, "GET", "/api/productos");
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        proxy.doFilter(request, response, FIN);
+        return response.getStatus();
+    }
+
+    private MockHttpServletRequest conCookie(MockHttpServletRequest request) {
+        request.setCookies(new Cookie("JWT_TOKEN", token));
+        return request;
+    }
+
+    /**
+     * Contexto mínimo con la configuración de seguridad real y colaboradores en memoria.
+     */
+    @Configuration
+    @EnableWebMvc
+    @EnableWebSecurity
+    @Import(SpringSecurityConfig.class)
+    static class Configuracion {
+
+        @Bean
+        GestorClavesJwt gestorClavesJwt() {
+            return new GestorClavesJwt(new PropiedadesJwt());
+        }
+
+        @Bean
+        CacheAutenticacionJwt cacheAutenticacionJwt(GestorClavesJwt gestorClavesJwt) {
+            return new CacheAutenticacionJwt(gestorClavesJwt);
+        }
+
+        @Bean
+        PropiedadesLimiteTasa propiedadesLimiteTasa() {
+            return new PropiedadesLimiteTasa();
+        }
+
+        @Bean
+        LimitadorTasa limitadorTasa(PropiedadesLimiteTasa propiedades) {
+            return new LimitadorTasa(propiedades);
+        }
+
+        @Bean
+        RevocacionTokens revocacionTokens() {
+            // Ningún token revocado: solo se mide el coste de la consulta
+            return Mockito.mock(RevocacionTokens.class);
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        }
+
+        @Bean
+        UserDetailsService userDetailsService(PasswordEncoder passwordEncoder) {
+            return new InMemoryUserDetailsManager(User.withUsername("cliente")
+                    .password(passwordEncoder.encode("secreto")).roles("USER").build());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CadenasSeguridadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
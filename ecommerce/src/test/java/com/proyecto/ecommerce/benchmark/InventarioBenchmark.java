@@ -0,0 +1,109 @@
+package com.proyecto.ecommerce.benchmark;
+
+import com.proyecto.ecommerce.cache.CacheResultados;
+import com.proyecto.ecommerce.inventario.DiarioInventario;
+import com.proyecto.ecommerce.inventario.InventarioEnMemoria;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ventas por segundo de un mismo producto con 64 hilos comprando a la vez, sobre una base H2
+ * embebida con un pool de 10 conexiones como el de la aplicación.
+ * <ul>
+ *     <li>{@code sql}: el UPDATE condicional de ProductoRepository.retirarStock, en autocommit.</li>
+ *     <li>{@code memoria}: {@link InventarioEnMemoria} con el diario forzado a disco en cada lote
+ *     y el volcado a la tabla cada segundo.</li>
+ *     <li>{@code memoriaSinForzar}: lo mismo sin fsync del diario (sobrevive a una caída de la
+ *     aplicación, no a una del servidor).</li>
+ * </ul>
+ * H2 en memoria no escribe a disco al confirmar, así que {@code sql} parte con ventaja frente a
+ * {@code memoria} respecto a lo que pasaría con MySQL.
+ * <p>
+ * Ejecución: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.proyecto.ecommerce.benchmark.InventarioBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(64)
+public class InventarioBenchmark {
+
+    private static final int ID_PRODUCTO = 1;
+    // Suficiente para que no se agote durante la medición
+    private static final int STOCK_INICIAL = 1_000_000_000;
+
+    @Param({"sql", "memoria", "memoriaSinForzar"})
+    public String modo;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private InventarioEnMemoria inventario;
+    private ScheduledExecutorService volcador;
+    private Path directorio;
+
+    @Setup
+    public void preparar() throws IOException {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:inventario-" + modo + ";DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(10);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE producto (id_producto INT PRIMARY KEY, stock INT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO producto (id_producto, stock) VALUES (?, ?)", ID_PRODUCTO, STOCK_INICIAL);
+
+        if (!"sql".equals(modo)) {
+            directorio = Files.createTempDirectory("inventario-diario");
+            TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            inventario = new InventarioEnMemoria(jdbcTemplate, transaccion,
+                    new DiarioInventario(directorio, "memoria".equals(modo)), new CacheResultados(evento -> { }), 16);
+            inventario.crearTabla();
+            inventario.reconciliar();
+            volcador = Executors.newSingleThreadScheduledExecutor();
+            volcador.scheduleWithFixedDelay(inventario::volcar, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown
+    public void cerrar() throws IOException {
+        if (inventario != null) {
+            volcador.shutdownNow();
+            inventario.detener();
+            try (Stream<Path> ficheros = Files.walk(directorio)) {
+                ficheros.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+            }
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean retirar() {
+        if (inventario != null) {
+            return inventario.retirar(ID_PRODUCTO, 1);
+        }
+        return jdbcTemplate.update("UPDATE producto SET stock = stock - ? WHERE id_producto = ? AND stock >= ?",
+                1, ID_PRODUCTO, 1) == 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InventarioBenchmark.class.getSimpleName()).build()).run();
+    }
+}
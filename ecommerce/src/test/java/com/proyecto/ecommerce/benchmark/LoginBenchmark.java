@@ -0,0 +1,85 @@
+package com.proyecto.ecommerce.benchmark;
+
+import com.proyecto.ecommerce.exception.LimiteExcedidoException;
+import com.proyecto.ecommerce.security.CodificadorContrasenas;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark del camino de login (DaoAuthenticationProvider + BCrypt) con más hilos que núcleos,
+ * comparando el hash en el hilo de la petición con el pool acotado de {@link CodificadorContrasenas}.
+ * <p>
+ * Con el pool el rendimiento total es el mismo (lo limita la CPU), pero la CPU usada por los logins
+ * queda acotada a los hilos del pool y las peticiones que no caben se rechazan en vez de encolarse.
+ * <p>
+ * Ejecución: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.proyecto.ecommerce.benchmark.LoginBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class LoginBenchmark {
+
+    private static final String USERNAME = "cliente";
+    private static final String PASSWORD = "secreto-de-prueba";
+
+    @Param({"directo", "pool"})
+    public String modo;
+
+    @Param({"10", "12"})
+    public int coste;
+
+    private DaoAuthenticationProvider proveedor;
+    private CodificadorContrasenas codificador;
+
+    @Setup
+    public void preparar() {
+        PasswordEncoder encoder;
+        if ("pool".equals(modo)) {
+            codificador = new CodificadorContrasenas(coste, 0, 256, 30000);
+            encoder = codificador;
+        } else {
+            encoder = new BCryptPasswordEncoder(coste);
+        }
+        InMemoryUserDetailsManager usuarios = new InMemoryUserDetailsManager(
+                User.withUsername(USERNAME).password(encoder.encode(PASSWORD)).roles("USER").build());
+        proveedor = new DaoAuthenticationProvider(encoder);
+        proveedor.setUserDetailsService(usuarios);
+    }
+
+    @TearDown
+    public void cerrar() {
+        if (codificador != null) {
+            codificador.cerrar();
+        }
+    }
+
+    @Benchmark
+    public Authentication login() {
+        try {
+            return proveedor.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+        } catch (LimiteExcedidoException | BadCredentialsException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoginBenchmark.class.getSimpleName()).build()).run();
+    }
+}
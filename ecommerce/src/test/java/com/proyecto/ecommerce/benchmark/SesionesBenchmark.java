@@ -0,0 +1,110 @@
+package com.proyecto.ecommerce.benchmark;
+
+import com.proyecto.ecommerce.entity.Carrito;
+import com.proyecto.ecommerce.sesion.AlmacenSesionesJdbc;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coste por petición de leer y guardar la sesión (lo que hace el filtro de Spring Session en cada
+ * petición) con el carrito compacto dentro, sobre una base H2 embebida.
+ * <ul>
+ *     <li>{@code memoria}: MapSessionRepository, la referencia sin base de datos.</li>
+ *     <li>{@code jdbc}: {@link AlmacenSesionesJdbc} con escrituras agrupadas (intervalo de 60 s).</li>
+ *     <li>{@code jdbcSinAgrupar}: el mismo almacén con intervalo 0, que actualiza el último acceso en
+ *     cada petición como Spring Session JDBC.</li>
+ * </ul>
+ * {@code lectura} es una petición que solo mira el carrito; {@code escritura}, una que lo modifica.
+ * <p>
+ * Ejecución: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.proyecto.ecommerce.benchmark.SesionesBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class SesionesBenchmark {
+
+    private static final int SESIONES = 1000;
+
+    @Param({"memoria", "jdbc", "jdbcSinAgrupar"})
+    public String almacen;
+
+    @Param({"lectura", "escritura"})
+    public String peticion;
+
+    private HikariDataSource dataSource;
+    private SessionRepository<Session> repositorio;
+    private String[] ids;
+    private final AtomicInteger siguiente = new AtomicInteger();
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void preparar() {
+        if ("memoria".equals(almacen)) {
+            repositorio = (SessionRepository<Session>) (SessionRepository<?>) new MapSessionRepository(new ConcurrentHashMap<>());
+        } else {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:sesiones-" + almacen + ";DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(10);
+            Duration intervalo = "jdbc".equals(almacen) ? Duration.ofSeconds(60) : Duration.ZERO;
+            AlmacenSesionesJdbc jdbc = new AlmacenSesionesJdbc(new JdbcTemplate(dataSource), Duration.ofMinutes(30), intervalo);
+            jdbc.crearTabla();
+            repositorio = (SessionRepository<Session>) (SessionRepository<?>) jdbc;
+        }
+
+        ids = new String[SESIONES];
+        for (int i = 0; i < SESIONES; i++) {
+            Session sesion = repositorio.createSession();
+            Carrito carrito = new Carrito();
+            for (int p = 1; p <= 5; p++) {
+                carrito.poner(i * 10 + p, p);
+            }
+            sesion.setAttribute("carrito", carrito);
+            repositorio.save(sesion);
+            ids[i] = sesion.getId();
+        }
+    }
+
+    @TearDown
+    public void cerrar() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public int peticion() {
+        Session sesion = repositorio.findById(ids[Math.floorMod(siguiente.getAndIncrement(), SESIONES)]);
+        sesion.setLastAccessedTime(Instant.now());
+        Carrito carrito = sesion.getAttribute("carrito");
+        int unidades = carrito.getTotalUnidades();
+        if ("escritura".equals(peticion)) {
+            // Alterna +1/-1 para que el carrito no crezca durante la medición
+            unidades = carrito.sumar(carrito.idProductoEn(0), unidades % 2 == 0 ? 1 : -1);
+            sesion.setAttribute("carrito", carrito);
+        }
+        repositorio.save(sesion);
+        return unidades;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SesionesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.proyecto.ecommerce.inventario;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioInventarioTest {
+
+    // Tamaño de cada registro en el segmento
+    private static final int TAMANIO_REGISTRO = 20;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void alReiniciarSoloDevuelveLoQueLaTablaNoTiene() {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        assertNull(diario.iniciar(0));
+        diario.registrar(1, -2); // 1
+        diario.registrar(2, -1); // 2
+        diario.registrar(1, -3); // 3
+        diario.registrar(1, 10); // 4
+        diario.registrar(2, -4); // 5
+        diario.close();
+
+        DiarioInventario reabierto = new DiarioInventario(directorio, false);
+        DiarioInventario.Corte corte = reabierto.iniciar(3);
+        assertEquals(5, corte.hasta());
+        assertEquals(Map.of(1, 10L, 2, -4L), corte.deltas());
+        // La secuencia sigue tras la última del diario
+        assertEquals(6, reabierto.registrar(3, -1));
+        reabierto.close();
+    }
+
+    @Test
+    void sinSegmentosLaSecuenciaSigueDesdeLaDeLaTabla() {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        assertNull(diario.iniciar(41));
+        assertEquals(42, diario.registrar(1, -1));
+        diario.close();
+    }
+
+    @Test
+    void unCorteAplicadoNoSeVuelveAAplicarTrasUnaCaida() {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        diario.iniciar(0);
+        diario.registrar(1, -1);
+        diario.registrar(1, -1);
+        DiarioInventario.Corte corte = diario.cortar();
+        assertEquals(Map.of(1, -2L), corte.deltas());
+        assertEquals(2, corte.hasta());
+        // La tabla confirma el corte, pero la aplicación cae antes de liberar los segmentos
+        diario.registrar(2, -5);
+        diario.registrar(1, 3);
+
+        DiarioInventario reabierto = new DiarioInventario(directorio, false);
+        DiarioInventario.Corte pendiente = reabierto.iniciar(corte.hasta());
+        assertEquals(4, pendiente.hasta());
+        assertEquals(Map.of(1, 3L, 2, -5L), pendiente.deltas());
+        reabierto.close();
+        diario.close();
+    }
+
+    @Test
+    void liberarBorraLosSegmentosYaAplicados() throws IOException {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        diario.iniciar(0);
+        diario.registrar(1, -1);
+        DiarioInventario.Corte corte = diario.cortar();
+        assertEquals(2, segmentos().size());
+
+        diario.liberarHasta(corte.hasta());
+        assertEquals(1, segmentos().size());
+        diario.close();
+
+        assertNull(new DiarioInventario(directorio, false).iniciar(corte.hasta()));
+    }
+
+    @Test
+    void unCorteDevueltoSeEntregaEnElSiguiente() {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        diario.iniciar(0);
+        diario.registrar(1, -2);
+        DiarioInventario.Corte fallido = diario.cortar();
+        diario.devolver(fallido);
+        diario.registrar(1, -1);
+
+        DiarioInventario.Corte corte = diario.cortar();
+        assertEquals(Map.of(1, -3L), corte.deltas());
+        assertEquals(2, corte.hasta());
+        assertNull(diario.cortar());
+        diario.close();
+    }
+
+    @Test
+    void descartaUnRegistroAMedioEscribir() throws IOException {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        diario.iniciar(0);
+        diario.registrar(1, -1);
+        diario.registrar(1, -2);
+        diario.close();
+        // La caída llegó a escribir solo parte del siguiente registro
+        Files.write(segmentos().get(0), new byte[TAMANIO_REGISTRO - 7], StandardOpenOption.APPEND);
+
+        DiarioInventario.Corte corte = new DiarioInventario(directorio, false).iniciar(0);
+        assertEquals(2, corte.hasta());
+        assertEquals(Map.of(1, -3L), corte.deltas());
+    }
+
+    @Test
+    void descartaDesdeElPrimerRegistroConCrcIncorrecto() throws IOException {
+        DiarioInventario diario = new DiarioInventario(directorio, false);
+        diario.iniciar(0);
+        diario.registrar(1, -1);
+        diario.registrar(1, -2);
+        diario.registrar(1, -4);
+        diario.close();
+        Path segmento = segmentos().get(0);
+        byte[] contenido = Files.readAllBytes(segmento);
+        // Cambia el delta del tercer registro sin actualizar su CRC
+        contenido[2 * TAMANIO_REGISTRO + 15] ^= 0x01;
+        Files.write(segmento, contenido);
+
+        DiarioInventario reabierto = new DiarioInventario(directorio, false);
+        DiarioInventario.Corte corte = reabierto.iniciar(0);
+        assertEquals(2, corte.hasta());
+        assertEquals(Map.of(1, -3L), corte.deltas());
+        // El registro descartado no llegó a confirmarse: su secuencia se reutiliza
+        assertEquals(3, reabierto.registrar(1, -1));
+        reabierto.close();
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            return ficheros.filter(ruta -> ruta.getFileName().toString().endsWith(".diario")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.proyecto.ecommerce.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContadorRayadoTest {
+
+    @Test
+    void repartePorRayasSinPerderUnidades() {
+        for (int rayas : new int[]{1, 3, 8, 16}) {
+            assertEquals(1_001, new ContadorRayado(1_001, rayas).total(), "Con " + rayas + " rayas");
+        }
+    }
+
+    @Test
+    void reuneUnidadesDeVariasRayas() {
+        // 10 unidades en 4 rayas: ninguna raya tiene 10 por sí sola
+        ContadorRayado contador = new ContadorRayado(10, 4);
+        assertTrue(contador.retirar(10));
+        assertEquals(0, contador.total());
+        assertFalse(contador.retirar(1));
+    }
+
+    @Test
+    void unaRetiradaQueNoCabeNoRetiraNada() {
+        ContadorRayado contador = new ContadorRayado(7, 4);
+        assertFalse(contador.retirar(8));
+        assertEquals(7, contador.total());
+    }
+
+    @Test
+    void ajustarPuedeDejarElTotalEnNegativoYBloqueaLasRetiradas() {
+        // Las 2 unidades quedan en rayas distintas de la que recibe la deuda
+        ContadorRayado contador = new ContadorRayado(2, 4);
+        contador.ajustar(-5);
+        assertEquals(-3, contador.total());
+        assertFalse(contador.retirar(1));
+        contador.ajustar(4);
+        assertEquals(1, contador.total());
+        assertFalse(contador.retirar(2));
+        assertTrue(contador.retirar(1));
+        assertEquals(0, contador.total());
+    }
+
+    @Test
+    void conMuchosHilosNuncaSeVendeDeMas() throws InterruptedException {
+        long inicial = 50_000;
+        ContadorRayado contador = new ContadorRayado(inicial, 8);
+        int hilos = 8;
+        AtomicLong vendidas = new AtomicLong();
+        AtomicBoolean negativo = new AtomicBoolean();
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> compradores = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            Thread comprador = new Thread(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int fallos = 0;
+                // Cerca del agotamiento una retirada puede fallar mientras otra reúne: se insiste un poco
+                while (fallos < 100) {
+                    int cantidad = ThreadLocalRandom.current().nextInt(1, 4);
+                    if (contador.retirar(cantidad)) {
+                        vendidas.addAndGet(cantidad);
+                        fallos = 0;
+                    } else {
+                        fallos++;
+                    }
+                }
+            });
+            comprador.start();
+            compradores.add(comprador);
+        }
+        Thread vigilante = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (contador.total() < 0) {
+                    negativo.set(true);
+                }
+            }
+        });
+        vigilante.start();
+
+        salida.countDown();
+        for (Thread comprador : compradores) {
+            comprador.join();
+        }
+        vigilante.interrupt();
+        vigilante.join();
+
+        assertFalse(negativo.get(), "El total bajó de cero");
+        assertEquals(inicial, vendidas.get() + contador.total());
+        // Lo que quede (menos de 3 unidades por raya) se puede retirar sin competencia
+        long resto = contador.total();
+        if (resto > 0) {
+            assertTrue(contador.retirar(resto));
+        }
+        assertEquals(0, contador.total());
+    }
+}
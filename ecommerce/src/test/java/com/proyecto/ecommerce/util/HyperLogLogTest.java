@@ -0,0 +1,76 @@
+package com.proyecto.ecommerce.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimaDentroDeLaCotaDeError() {
+        for (int precision : new int[]{10, 12, 14}) {
+            for (long distintos : new long[]{10, 1_000, 50_000, 1_000_000}) {
+                HyperLogLog hll = new HyperLogLog(precision);
+                for (long i = 1; i <= distintos; i++) {
+                    hll.agregar(i);
+                }
+                // Cuatro errores estándar: la mezcla es determinista, así que no es un test aleatorio
+                double cota = 4 * hll.errorEstandar() * distintos;
+                assertEquals(distintos, hll.estimar(), Math.max(cota, 1),
+                        "Precisión " + precision + " con " + distintos + " distintos");
+            }
+        }
+    }
+
+    @Test
+    void losRepetidosNoCuentan() {
+        HyperLogLog unaVez = new HyperLogLog();
+        HyperLogLog diezVeces = new HyperLogLog();
+        for (int i = 1; i <= 5_000; i++) {
+            unaVez.agregar(i);
+        }
+        for (int vuelta = 0; vuelta < 10; vuelta++) {
+            for (int i = 1; i <= 5_000; i++) {
+                diezVeces.agregar(i);
+            }
+        }
+        assertArrayEquals(unaVez.toBytes(), diezVeces.toBytes());
+    }
+
+    @Test
+    void combinarEquivaleAUnSoloSketch() {
+        HyperLogLog enero = new HyperLogLog();
+        HyperLogLog febrero = new HyperLogLog();
+        HyperLogLog ambos = new HyperLogLog();
+        // Conjuntos solapados: 1..60.000 y 40.001..100.000
+        for (long i = 1; i <= 60_000; i++) {
+            enero.agregar(i);
+            ambos.agregar(i);
+        }
+        for (long i = 40_001; i <= 100_000; i++) {
+            febrero.agregar(i);
+            ambos.agregar(i);
+        }
+
+        enero.combinar(febrero);
+        assertArrayEquals(ambos.toBytes(), enero.toBytes());
+        assertEquals(100_000, enero.estimar(), 4 * enero.errorEstandar() * 100_000);
+    }
+
+    @Test
+    void noCombinaPrecisionesDistintas() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).combinar(new HyperLogLog(12)));
+    }
+
+    @Test
+    void seReconstruyeDesdeSusBytes() {
+        HyperLogLog hll = new HyperLogLog(11);
+        for (long i = 1; i <= 10_000; i++) {
+            hll.agregar(i * 7);
+        }
+        HyperLogLog copia = HyperLogLog.desdeBytes(hll.toBytes());
+        assertEquals(11, copia.getPrecision());
+        assertEquals(hll.estimar(), copia.estimar());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.desdeBytes(new byte[1000]));
+    }
+}
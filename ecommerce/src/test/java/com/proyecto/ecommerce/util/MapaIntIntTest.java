@@ -0,0 +1,108 @@
+package com.proyecto.ecommerce.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaIntIntTest {
+
+    @Test
+    void creceSinPerderValores() {
+        MapaIntInt mapa = new MapaIntInt(2);
+        Map<Integer, Integer> esperado = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            int clave = random.nextInt(20_000) + 1;
+            int delta = random.nextInt(10) - 3;
+            assertEquals(esperado.merge(clave, delta, Integer::sum), mapa.incrementar(clave, delta));
+        }
+
+        assertEquals(esperado.size(), mapa.tamanio());
+        esperado.forEach((clave, valor) -> assertEquals(valor, mapa.obtener(clave), "Clave " + clave));
+        Map<Integer, Integer> recorrido = new HashMap<>();
+        mapa.recorrer(recorrido::put);
+        assertEquals(esperado, recorrido);
+    }
+
+    @Test
+    void separaClavesQueColisionan() {
+        // Ocho claves que caen en el mismo hueco de una tabla de 16 posiciones
+        List<Integer> colisionan = clavesEnElMismoHueco(16, 8);
+        MapaIntInt mapa = new MapaIntInt(16);
+        for (int i = 0; i < colisionan.size(); i++) {
+            mapa.incrementar(colisionan.get(i), i + 1);
+        }
+
+        assertEquals(colisionan.size(), mapa.tamanio());
+        for (int i = 0; i < colisionan.size(); i++) {
+            assertEquals(i + 1, mapa.obtener(colisionan.get(i)));
+        }
+        // Una clave ausente del mismo racimo no aparece ni se inserta al consultarla
+        int ausente = clavesEnElMismoHueco(16, 9).get(8);
+        assertEquals(0, mapa.obtener(ausente));
+        assertEquals(colisionan.size(), mapa.tamanio());
+    }
+
+    @Test
+    void lasColisionesSobrevivenAlRedimensionado() {
+        List<Integer> colisionan = clavesEnElMismoHueco(8, 5);
+        MapaIntInt mapa = new MapaIntInt(4);
+        for (int clave : colisionan) {
+            mapa.incrementar(clave, clave);
+        }
+        // Fuerza varias duplicaciones de la tabla
+        for (int clave = 1; clave <= 1_000; clave++) {
+            mapa.incrementar(clave, 1);
+        }
+        for (int clave : colisionan) {
+            assertEquals(clave + (clave <= 1_000 ? 1 : 0), mapa.obtener(clave));
+        }
+    }
+
+    @Test
+    void admiteClavesNegativasPeroNoLaClaveCero() {
+        MapaIntInt mapa = new MapaIntInt();
+        assertEquals(3, mapa.incrementar(-7, 3));
+        assertEquals(3, mapa.obtener(-7));
+        assertThrows(IllegalArgumentException.class, () -> mapa.incrementar(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> mapa.obtener(0));
+    }
+
+    @Test
+    void masFrecuentesOrdenaPorValorYDesempataPorClave() {
+        MapaIntInt mapa = new MapaIntInt();
+        mapa.incrementar(5, 10);
+        mapa.incrementar(3, 20);
+        mapa.incrementar(9, 10);
+        mapa.incrementar(1, 1);
+
+        assertArrayEquals(new int[]{3, 5, 9}, mapa.masFrecuentes(3));
+        assertArrayEquals(new int[]{3, 5, 9, 1}, mapa.masFrecuentes(10));
+    }
+
+    /**
+     * Busca claves con el mismo hueco inicial en una tabla de la capacidad dada,
+     * con la misma dispersión que {@link MapaIntInt}.
+     */
+    private static List<Integer> clavesEnElMismoHueco(int capacidad, int cuantas) {
+        List<Integer> claves = new ArrayList<>();
+        int hueco = -1;
+        for (int clave = 1; claves.size() < cuantas; clave++) {
+            int x = clave * 0x9E3779B9;
+            int posicion = (x ^ (x >>> 16)) & (capacidad - 1);
+            if (hueco < 0) {
+                hueco = posicion;
+            }
+            if (posicion == hueco) {
+                claves.add(clave);
+            }
+        }
+        return claves;
+    }
+}
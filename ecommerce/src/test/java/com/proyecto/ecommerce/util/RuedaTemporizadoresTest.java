@@ -0,0 +1,140 @@
+package com.proyecto.ecommerce.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuedaTemporizadoresTest {
+
+    private RuedaTemporizadores rueda;
+
+    @AfterEach
+    void cerrar() {
+        if (rueda != null) {
+            rueda.close();
+        }
+    }
+
+    @Test
+    void noVenceAntesDeTiempoAunqueDeVariasVueltas() throws InterruptedException {
+        // 4 cubetas de 10 ms: una vuelta son 40 ms, así que 130 ms pasa tres veces por su cubeta antes de vencer
+        rueda = new RuedaTemporizadores(10, TimeUnit.MILLISECONDS, 4, "rueda-test");
+        long[] retrasos = {5, 40, 95, 130};
+        CountDownLatch vencidos = new CountDownLatch(retrasos.length);
+        List<AtomicLong> transcurridos = new ArrayList<>();
+        for (long retraso : retrasos) {
+            AtomicLong transcurrido = new AtomicLong(-1);
+            transcurridos.add(transcurrido);
+            long programado = System.nanoTime();
+            rueda.programar(() -> {
+                transcurrido.set(System.nanoTime() - programado);
+                vencidos.countDown();
+            }, retraso, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(vencidos.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < retrasos.length; i++) {
+            assertTrue(transcurridos.get(i).get() >= TimeUnit.MILLISECONDS.toNanos(retrasos[i]),
+                    "El temporizador de " + retrasos[i] + " ms venció a los "
+                            + TimeUnit.NANOSECONDS.toMillis(transcurridos.get(i).get()) + " ms");
+        }
+        assertEquals(0, rueda.getPendientes());
+    }
+
+    @Test
+    void venceCadaTemporizadorUnaSolaVez() throws InterruptedException {
+        rueda = new RuedaTemporizadores(1, TimeUnit.MILLISECONDS, 16, "rueda-test");
+        int total = 20_000;
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch vencidos = new CountDownLatch(total);
+        for (int i = 0; i < total; i++) {
+            rueda.programar(() -> {
+                ejecuciones.incrementAndGet();
+                vencidos.countDown();
+            }, ThreadLocalRandom.current().nextInt(100), TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(vencidos.await(10, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(total, ejecuciones.get());
+        assertEquals(0, rueda.getPendientes());
+    }
+
+    @Test
+    void unTemporizadorCanceladoNoSeEjecuta() throws InterruptedException {
+        rueda = new RuedaTemporizadores(5, TimeUnit.MILLISECONDS, 8, "rueda-test");
+        AtomicBoolean ejecutado = new AtomicBoolean();
+        RuedaTemporizadores.Temporizador temporizador =
+                rueda.programar(() -> ejecutado.set(true), 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(temporizador.cancelar());
+        assertFalse(temporizador.cancelar());
+        Thread.sleep(150);
+        assertFalse(ejecutado.get());
+        assertEquals(0, rueda.getPendientes());
+    }
+
+    @Test
+    void noSePuedeCancelarUnTemporizadorVencido() throws InterruptedException {
+        rueda = new RuedaTemporizadores(1, TimeUnit.MILLISECONDS, 8, "rueda-test");
+        CountDownLatch vencido = new CountDownLatch(1);
+        RuedaTemporizadores.Temporizador temporizador = rueda.programar(vencido::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(vencido.await(5, TimeUnit.SECONDS));
+        assertFalse(temporizador.cancelar());
+    }
+
+    @Test
+    void cancelarYVencerALaVezNuncaHacenLasDosCosas() throws InterruptedException {
+        rueda = new RuedaTemporizadores(1, TimeUnit.MILLISECONDS, 16, "rueda-test");
+        int total = 5_000;
+        AtomicBoolean[] ejecutados = new AtomicBoolean[total];
+        AtomicInteger repetidos = new AtomicInteger();
+        RuedaTemporizadores.Temporizador[] temporizadores = new RuedaTemporizadores.Temporizador[total];
+        for (int i = 0; i < total; i++) {
+            AtomicBoolean ejecutado = new AtomicBoolean();
+            ejecutados[i] = ejecutado;
+            temporizadores[i] = rueda.programar(() -> {
+                        if (ejecutado.getAndSet(true)) {
+                            repetidos.incrementAndGet();
+                        }
+                    },
+                    ThreadLocalRandom.current().nextInt(20), TimeUnit.MILLISECONDS);
+        }
+
+        // Se cancelan mientras la rueda los va venciendo
+        boolean[] cancelados = new boolean[total];
+        for (int i = 0; i < total; i++) {
+            cancelados[i] = temporizadores[i].cancelar();
+        }
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rueda.getPendientes() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, rueda.getPendientes());
+        // La tarea se ejecuta justo después de descontarse de pendientes
+        Thread.sleep(50);
+        assertEquals(0, repetidos.get());
+        for (int i = 0; i < total; i++) {
+            assertNotEquals(cancelados[i], ejecutados[i].get(), "Temporizador " + i);
+        }
+    }
+
+    @Test
+    void noAdmiteTemporizadoresTrasCerrarse() {
+        rueda = new RuedaTemporizadores(1, TimeUnit.MILLISECONDS, 8, "rueda-test");
+        rueda.close();
+        assertThrows(IllegalStateException.class, () -> rueda.programar(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+}
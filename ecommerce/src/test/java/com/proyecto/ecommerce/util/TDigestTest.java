@@ -0,0 +1,121 @@
+package com.proyecto.ecommerce.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TDigestTest {
+
+    private static final double[] CUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void estimaLosCuantilesDeUnaUniforme() {
+        double[] valores = new Random(42).doubles(200_000).toArray();
+        TDigest digest = new TDigest();
+        for (double valor : valores) {
+            digest.agregar(valor);
+        }
+
+        // En una uniforme [0, 1) el error en valor es el error en rango
+        comprobarRango(valores, digest);
+    }
+
+    @Test
+    void estimaLasColasDeUnaDistribucionSesgada() {
+        // Importes de pedido: lognormal, con una cola larga a la derecha
+        Random random = new Random(7);
+        double[] valores = new double[200_000];
+        TDigest digest = new TDigest();
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = Math.exp(3 + random.nextGaussian());
+            digest.agregar(valores[i]);
+        }
+
+        comprobarRango(valores, digest);
+        assertEquals(valores.length, digest.contar());
+    }
+
+    @Test
+    void combinarDigestsEquivaleATodosLosValores() {
+        Random random = new Random(3);
+        double[] valores = new double[100_000];
+        TDigest[] dias = new TDigest[30];
+        for (int d = 0; d < dias.length; d++) {
+            dias[d] = new TDigest();
+        }
+        for (int i = 0; i < valores.length; i++) {
+            // Cada día con su propio nivel, para que ningún digest sea representativo del total
+            int dia = i % dias.length;
+            valores[i] = dia * 10 + random.nextDouble() * 50;
+            dias[dia].agregar(valores[i]);
+        }
+
+        TDigest mes = new TDigest();
+        for (TDigest dia : dias) {
+            mes.combinar(dia);
+        }
+        assertEquals(valores.length, mes.contar());
+        comprobarRango(valores, mes);
+        double[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        assertEquals(ordenados[0], mes.cuantil(0));
+        assertEquals(ordenados[ordenados.length - 1], mes.cuantil(1));
+    }
+
+    @Test
+    void losExtremosSonElMinimoYElMaximo() {
+        TDigest digest = new TDigest();
+        for (int i = 1; i <= 1_000; i++) {
+            digest.agregar(i);
+        }
+        assertEquals(1, digest.cuantil(0));
+        assertEquals(1_000, digest.cuantil(1));
+    }
+
+    @Test
+    void vacioDevuelveNaNYRechazaCuantilesFueraDeRango() {
+        TDigest digest = new TDigest();
+        assertTrue(Double.isNaN(digest.cuantil(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> digest.cuantil(1.5));
+        assertThrows(IllegalArgumentException.class, () -> digest.cuantil(-0.1));
+    }
+
+    @Test
+    void seReconstruyeDesdeSusBytes() {
+        TDigest digest = new TDigest(50);
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            digest.agregar(random.nextDouble() * 100);
+        }
+        TDigest copia = TDigest.desdeBytes(digest.toBytes());
+        assertEquals(digest.contar(), copia.contar());
+        for (double q : CUANTILES) {
+            assertEquals(digest.cuantil(q), copia.cuantil(q), 1e-9, "q=" + q);
+        }
+    }
+
+    /**
+     * Comprueba que el valor estimado de cada cuantil cae en un rango de posiciones cercano
+     * al pedido: ±1 % en el centro y ±0,1 % en las colas, que es lo que garantiza el t-digest.
+     */
+    private static void comprobarRango(double[] valores, TDigest digest) {
+        double[] ordenados = valores.clone();
+        Arrays.sort(ordenados);
+        for (double q : CUANTILES) {
+            double estimado = digest.cuantil(q);
+            double rango = rango(ordenados, estimado);
+            double tolerancia = Math.max(0.001, Math.min(0.01, 0.1 * q * (1 - q)));
+            assertEquals(q, rango, tolerancia, "q=" + q + " estimado=" + estimado);
+        }
+    }
+
+    // Fracción de valores menores o iguales que x
+    private static double rango(double[] ordenados, double x) {
+        int i = Arrays.binarySearch(ordenados, x);
+        int posicion = i >= 0 ? i + 1 : -i - 1;
+        return (double) posicion / ordenados.length;
+    }
+}